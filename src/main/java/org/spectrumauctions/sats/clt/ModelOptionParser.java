@@ -28,6 +28,9 @@ public abstract class ModelOptionParser extends OptionParser {
     public static String KEY_FILETYPE = "filetype";
     public static String KEY_MUTE = "mute";
     public static String KEY_SEED = "seed";
+    public static String KEY_COMPRESS = "compress";
+    public static String KEY_ARCHIVE = "archive";
+    public static String KEY_WRITERTHREADS = "writerThreads";
 
     private static File DEFAULTBIDSPATH = new File("bidfiles");
 
@@ -44,8 +47,14 @@ public abstract class ModelOptionParser extends OptionParser {
         this.accepts(KEY_XORQ, "If flag is set, the returned bids are XOR-Q (And file format JSON)");
         this.accepts(CommandLineTool.KEY_HELP,
                 "Gives a list of all possible Options. " + "If used with the --model tag, the options for the specified model are also printed.");
-        this.accepts(KEY_FILETYPE, "Decide for a File Type in which the bids are returned. Options are JSON and CATS")
+        this.accepts(KEY_FILETYPE, "Decide for a File Type in which the bids are returned. Options are JSON, CATS and BINARY (XOR bids only)")
                 .withRequiredArg().ofType(FileType.class);
+        this.accepts(KEY_COMPRESS, "If flag is set, the bid files are gzip compressed (.gz)");
+        this.accepts(KEY_ARCHIVE, "If flag is set together with --" + KEY_MULTIPLEFILES
+                + ", the files of all bidders are written into a single zip archive instead of a folder");
+        this.accepts(KEY_WRITERTHREADS, "The number of threads writing files if a separate file is created for every bidder."
+                + " The bids of the next bidders are generated while the files are written. Default is 1")
+                .withRequiredArg().ofType(Integer.class);
         this.accepts(KEY_MUTE, "Disables notification about successful creation of files");
         this.accepts(KEY_SEED, "Specify the seeds used for the creation of the random instances. If two seeds (e.g. --seed 123 --seed 345) are passed, one is used for the creation of "
                 + "a non-bidder specific parameters (aka. world) and the second one for the bidders. If only one seed is "
@@ -108,6 +117,12 @@ public abstract class ModelOptionParser extends OptionParser {
             builder.setFileType(FileType.JSON);
         }
 
+        builder.setCompressed(options.has(KEY_COMPRESS));
+        builder.setArchive(options.has(KEY_ARCHIVE));
+        if (options.has(KEY_WRITERTHREADS)) {
+            builder.setWriterThreads((Integer) options.valueOf(KEY_WRITERTHREADS));
+        }
+
         File outputFolder = DEFAULTBIDSPATH;
         if (options.has(KEY_BIDSPATH)) {
             outputFolder = new File((String) options.valueOf(KEY_BIDSPATH));
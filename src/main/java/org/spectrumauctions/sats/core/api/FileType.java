@@ -5,6 +5,7 @@
  */
 package org.spectrumauctions.sats.core.api;
 
+import org.spectrumauctions.sats.core.bidfile.BinaryExporter;
 import org.spectrumauctions.sats.core.bidfile.CatsExporter;
 import org.spectrumauctions.sats.core.bidfile.FileWriter;
 import org.spectrumauctions.sats.core.bidfile.JsonExporter;
@@ -17,13 +18,20 @@ import java.io.File;
  */
 public enum FileType {
 
-    CATS, JSON;
+    CATS, JSON,
+    /**
+     * A compact binary format for XOR bids, see {@link BinaryExporter} and
+     * {@link org.spectrumauctions.sats.core.bidfile.BinaryBidFileReader}
+     */
+    BINARY;
 
     public static FileWriter getFileWriter(FileType type, File path) {
         if (type == CATS) {
             return new CatsExporter(path);
         } else if (type == JSON) {
             return new JsonExporter(path);
+        } else if (type == BINARY) {
+            return new BinaryExporter(path);
         } else {
             if (type == null) {
                 throw new IllegalArgumentException("FileType must not be null");
@@ -6,6 +6,7 @@
 package org.spectrumauctions.sats.core.api;
 
 import com.google.common.base.Preconditions;
+import org.spectrumauctions.sats.core.bidfile.ExportPipeline;
 import org.spectrumauctions.sats.core.bidfile.FileWriter;
 import org.spectrumauctions.sats.core.bidlang.BiddingLanguage;
 import org.spectrumauctions.sats.core.model.DefaultModel;
@@ -34,6 +35,10 @@ public abstract class ModelCreator {
     private final BiddingLanguageEnum lang;
 
     private final boolean storeWorldSerialization;
+    private final boolean parallelBidGeneration;
+    private final boolean compressed;
+    private final boolean archive;
+    private final int writerThreads;
     private SeedType seedType;
     private long superSeed;
 
@@ -49,6 +54,10 @@ public abstract class ModelCreator {
         this.populationSeed = builder.populationSeed;
         this.storeWorldSerialization = builder.storeWorldSerialization;
         this.lang = builder.lang;
+        this.parallelBidGeneration = builder.parallelBidGeneration;
+        this.compressed = builder.compressed;
+        this.archive = builder.archive;
+        this.writerThreads = builder.writerThreads;
     }
 
     public boolean isOneFile() {
@@ -80,6 +89,22 @@ public abstract class ModelCreator {
         return storeWorldSerialization;
     }
 
+    public boolean isParallelBidGeneration() {
+        return parallelBidGeneration;
+    }
+
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    public boolean isArchive() {
+        return archive;
+    }
+
+    public int getWriterThreads() {
+        return writerThreads;
+    }
+
     public abstract PathResult generateResult(File outputFolder) throws UnsupportedBiddingLanguageException, IOException, IllegalConfigException;
 
     protected PathResult appendTopLevelParamsAndSolve(DefaultModel<?, ?> model, File outputFolder) throws UnsupportedBiddingLanguageException, IOException, IllegalConfigException {
@@ -95,6 +120,8 @@ public abstract class ModelCreator {
             throw new IllegalConfigException("Seed type unknown");
         }
         FileWriter writer = FileType.getFileWriter(fileType, outputFolder);
+        writer.setParallelBidGeneration(parallelBidGeneration);
+        writer.setCompressed(compressed);
 
         FilePathUtils filePathUtils = FilePathUtils.getInstance();
         File instanceFolder = filePathUtils.worldFolderPath(bidders.stream().findAny().orElseThrow(NoSuchElementException::new).getWorldId());
@@ -115,20 +142,17 @@ public abstract class ModelCreator {
                 result = new PathResult(storeWorldSerialization, instanceFolder);
                 result.addValueFile(valueFile);
                 return result;
+            } else if (archive) {
+                File archiveFile = writer.writeSingleBidderArchive(languages(bidders, langClass), bidsPerBidder, true, "satsvalue");
+                result = new PathResult(storeWorldSerialization, instanceFolder);
+                result.addValueFile(archiveFile);
+                return result;
             } else {
-                Collection<BiddingLanguage> languages = new ArrayList<>();
                 String zipId = String.valueOf(new Date().getTime());
                 File folder = new File(writer.getFolder().getAbsolutePath().concat(File.separator).concat(zipId));
                 folder.mkdir();
-                for (SATSBidder bidder : bidders) {
-                    BiddingLanguage valueFunction;
-                    if (seedType == SeedType.SUPERSEED) {
-                        valueFunction = bidder.getValueFunction(langClass, superSeed);
-                    } else {
-                        valueFunction = bidder.getValueFunction(langClass);
-                    }
-                    writer.writeSingleBidderXORQ(valueFunction, bidsPerBidder, zipId.concat(File.separator).concat("satsvalue"));
-                }
+                new ExportPipeline(writer, writerThreads, writerThreads + 1)
+                        .writeSingleBidderFiles(languages(bidders, langClass), bidsPerBidder, true, zipId.concat(File.separator).concat("satsvalue"));
                 result = new PathResult(storeWorldSerialization, instanceFolder);
                 result.addValueFile(folder);
                 return result;
@@ -149,19 +173,17 @@ public abstract class ModelCreator {
                 result = new PathResult(storeWorldSerialization, instanceFolder);
                 result.addValueFile(valueFile);
                 return result;
+            } else if (archive) {
+                File archiveFile = writer.writeSingleBidderArchive(languages(bidders, langClass), bidsPerBidder, false, "satsvalue");
+                result = new PathResult(storeWorldSerialization, instanceFolder);
+                result.addValueFile(archiveFile);
+                return result;
             } else {
                 String zipId = String.valueOf(new Date().getTime());
                 File folder = new File(writer.getFolder().getAbsolutePath().concat(File.separator).concat(zipId));
                 folder.mkdir();
-                for (SATSBidder bidder : bidders) {
-                    BiddingLanguage language;
-                    if (seedType == SeedType.SUPERSEED) {
-                        language = bidder.getValueFunction(langClass, superSeed);
-                    } else {
-                        language = bidder.getValueFunction(langClass);
-                    }
-                    writer.writeSingleBidderXOR(language, bidsPerBidder, zipId.concat(File.separator).concat("satsvalue"));
-                }
+                new ExportPipeline(writer, writerThreads, writerThreads + 1)
+                        .writeSingleBidderFiles(languages(bidders, langClass), bidsPerBidder, false, zipId.concat(File.separator).concat("satsvalue"));
                 result = new PathResult(storeWorldSerialization, instanceFolder);
                 result.addValueFile(folder);
                 return result;
@@ -170,6 +192,19 @@ public abstract class ModelCreator {
     }
 
 
+    private Collection<BiddingLanguage> languages(Collection<? extends SATSBidder> bidders, Class<? extends BiddingLanguage> langClass)
+            throws UnsupportedBiddingLanguageException {
+        Collection<BiddingLanguage> languages = new ArrayList<>();
+        for (SATSBidder bidder : bidders) {
+            if (seedType == SeedType.SUPERSEED) {
+                languages.add(bidder.getValueFunction(langClass, superSeed));
+            } else {
+                languages.add(bidder.getValueFunction(langClass));
+            }
+        }
+        return languages;
+    }
+
     public static abstract class Builder {
 
         private BiddingLanguageEnum lang;
@@ -182,6 +217,10 @@ public abstract class ModelCreator {
         private boolean generic;
         private FileType fileType;
         private boolean oneFile;
+        private boolean parallelBidGeneration;
+        private boolean compressed;
+        private boolean archive;
+        private int writerThreads;
 
         public Builder() {
             this.lang = BiddingLanguageEnum.RANDOM;
@@ -191,6 +230,10 @@ public abstract class ModelCreator {
             generic = false;
             fileType = FileType.CATS;
             oneFile = true;
+            parallelBidGeneration = false;
+            compressed = false;
+            archive = false;
+            writerThreads = 1;
         }
 
         public abstract ModelCreator build();
@@ -271,5 +314,56 @@ public abstract class ModelCreator {
             this.oneFile = oneFile;
         }
 
+        public boolean isParallelBidGeneration() {
+            return parallelBidGeneration;
+        }
+
+        /**
+         * If set, the bids of every bidder are generated in parallel. The generated files are the same.
+         */
+        public void setParallelBidGeneration(boolean parallelBidGeneration) {
+            this.parallelBidGeneration = parallelBidGeneration;
+        }
+
+        public boolean isCompressed() {
+            return compressed;
+        }
+
+        /**
+         * If set, the bid files are gzip compressed while they are written.
+         */
+        public void setCompressed(boolean compressed) {
+            this.compressed = compressed;
+        }
+
+        public boolean isArchive() {
+            return archive;
+        }
+
+        /**
+         * If set and one file per bidder is written (see {@link #setOneFile(boolean)}),
+         * the files are streamed into a single zip archive instead of a folder.
+         */
+        public void setArchive(boolean archive) {
+            this.archive = archive;
+        }
+
+        public int getWriterThreads() {
+            return writerThreads;
+        }
+
+        /**
+         * Sets the number of threads writing the files if one file per bidder is written (see {@link #setOneFile(boolean)}).
+         * The bids of the next bidders are generated while the files are written.
+         */
+        public void setWriterThreads(int writerThreads) throws IllegalConfigException {
+            try {
+                Preconditions.checkArgument(writerThreads > 0, "%s is not a valid number of writer threads", writerThreads);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalConfigException(e.getMessage());
+            }
+            this.writerThreads = writerThreads;
+        }
+
     }
 }
\ No newline at end of file
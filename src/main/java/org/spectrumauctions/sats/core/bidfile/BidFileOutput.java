@@ -0,0 +1,175 @@
+/**
+ * Copyright by Michael Weiss, weiss.michael@gmx.ch
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.spectrumauctions.sats.core.bidfile;
+
+import com.google.common.base.Preconditions;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The sequential output of a bid file, optionally gzip compressed on the fly, which allows to patch its head
+ * (e.g., a header with the number of bids) after the rest of the file is written.<br>
+ * Uncompressed, the bytes go directly to a {@link FileChannel} and are patched in place.
+ * Compressed, the file consists of two gzip members, which decompress to one stream: the head
+ * (everything written before {@link #endOfHead()}) is kept in memory and stored uncompressed in the first member,
+ * such that it can be patched at a fixed position together with its checksum; the rest is deflated while it is written.
+ *
+ * @author Michael Weiss
+ */
+final class BidFileOutput implements Closeable {
+
+    /**
+     * The maximal length of a head in a compressed file, i.e., of a stored deflate block
+     */
+    private static final int MAX_HEAD_LENGTH = 0xFFFF;
+    private static final int GZIP_HEADER_LENGTH = 10;
+    private static final int STORED_BLOCK_HEADER_LENGTH = 5;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final boolean compressed;
+    /**
+     * Compressed only: the head while it is written, and afterwards its (patched) bytes
+     */
+    private ByteArrayOutputStream headStream;
+    private byte[] head;
+    private GZIPOutputStream body;
+    private long position = 0;
+
+    BidFileOutput(Path file, boolean compressed) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.compressed = compressed;
+        if (compressed) {
+            headStream = new ByteArrayOutputStream();
+        }
+    }
+
+    /**
+     * Writes the remaining bytes of the buffer
+     */
+    void write(ByteBuffer buffer) throws IOException {
+        int length = buffer.remaining();
+        if (!compressed) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } else if (head == null) {
+            Preconditions.checkState(position + length <= MAX_HEAD_LENGTH, "The head of a compressed file is too long");
+            headStream.write(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+            buffer.position(buffer.limit());
+        } else {
+            body.write(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+            buffer.position(buffer.limit());
+        }
+        position += length;
+    }
+
+    /**
+     * @return the number of (uncompressed) bytes written so far
+     */
+    long position() {
+        return position;
+    }
+
+    /**
+     * Marks the end of the head, i.e., of the bytes which may be patched later on.
+     * Has to be called once, before the bulk of the data is written.
+     */
+    void endOfHead() throws IOException {
+        if (!compressed) {
+            return;
+        }
+        Preconditions.checkState(head == null, "The end of the head was already marked");
+        head = headStream.toByteArray();
+        headStream = null;
+        // Reserve the first member, it is written when the file is closed
+        channel.position(GZIP_HEADER_LENGTH + STORED_BLOCK_HEADER_LENGTH + head.length + 8);
+        body = new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+    }
+
+    /**
+     * Overwrites already written bytes, which, for compressed files, have to be part of the head
+     */
+    void patch(long position, byte[] bytes) throws IOException {
+        Preconditions.checkArgument(position >= 0 && position + bytes.length <= this.position);
+        if (!compressed) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            long target = position;
+            while (buffer.hasRemaining()) {
+                target += channel.write(buffer, target);
+            }
+        } else {
+            Preconditions.checkArgument(head != null && position + bytes.length <= head.length,
+                    "Only the head of a compressed file can be patched");
+            System.arraycopy(bytes, 0, head, (int) position, bytes.length);
+        }
+    }
+
+    /**
+     * @return a stream view on this output, which does not close the output
+     */
+    OutputStream asOutputStream() {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                BidFileOutput.this.write(ByteBuffer.wrap(new byte[]{(byte) b}));
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                BidFileOutput.this.write(ByteBuffer.wrap(b, off, len));
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (compressed) {
+                if (head == null) {
+                    endOfHead();
+                }
+                body.finish();
+                writeHeadMember();
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Writes the head as gzip member with a single stored deflate block at the start of the file
+     */
+    private void writeHeadMember() throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(head, 0, head.length);
+        ByteBuffer member = ByteBuffer.allocate(GZIP_HEADER_LENGTH + STORED_BLOCK_HEADER_LENGTH + head.length + 8)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        // Magic number, deflate, no flags, no modification time, no extra flags, unknown OS
+        member.put(new byte[]{0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff});
+        // Final stored block with its length and the complement of its length
+        member.put((byte) 1).putShort((short) head.length).putShort((short) ~head.length);
+        member.put(head);
+        member.putInt((int) crc.getValue()).putInt(head.length);
+        member.flip();
+        long target = 0;
+        while (member.hasRemaining()) {
+            target += channel.write(member, target);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/**
+ * Copyright by Michael Weiss, weiss.michael@gmx.ch
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.spectrumauctions.sats.core.bidfile;
+
+import com.google.common.base.Preconditions;
+import org.marketdesignresearch.mechlib.core.bidder.valuefunction.BundleValue;
+import org.spectrumauctions.sats.core.model.LicenseIndex;
+import org.spectrumauctions.sats.core.model.World;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Reads bid files written by {@link BinaryExporter}.<br>
+ * The bids are memory-mapped, such that any bid of any bidder is accessed directly at its offset,
+ * without parsing the file. Values and bundle bits can be read without creating any objects;
+ * {@link #getBid(int, long)} decodes a bid into the usual {@link BundleValue}.<br>
+ * Reading is thread safe. The reader must be closed when it is not used anymore.
+ *
+ * @author Michael Weiss
+ */
+public final class BinaryBidFileReader implements Closeable {
+
+    /**
+     * Files bigger than this are mapped in several segments
+     */
+    private static final long MAX_SEGMENT_SIZE = Integer.MAX_VALUE;
+
+    private final FileChannel channel;
+    private final LicenseIndex licenseIndex;
+    private final long worldId;
+    private final int wordCount;
+    private final int valueScale;
+    private final int recordSize;
+    private final long[] bidderIds;
+    private final long[] firstBids;
+    private final long[] bidCounts;
+    private final long recordsPerSegment;
+    private final MappedByteBuffer[] segments;
+
+    /**
+     * @param world the world of the bidders in the file, used to decode the bundles
+     * @throws IllegalArgumentException if the file is no binary bid file or belongs to another world
+     */
+    public BinaryBidFileReader(Path file, World world) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = read(0, BinaryExporter.HEADER_SIZE);
+            Preconditions.checkArgument(header.getInt() == BinaryExporter.MAGIC, "%s is no binary bid file", file);
+            int version = header.getInt();
+            Preconditions.checkArgument(version == BinaryExporter.VERSION, "Unsupported binary bid file version %s", version);
+            this.worldId = header.getLong();
+            Preconditions.checkArgument(worldId == world.getId(), "The bids belong to world %s, not to world %s", worldId, world.getId());
+            this.licenseIndex = world.getLicenseIndex();
+            int numberOfGoods = header.getInt();
+            this.wordCount = header.getInt();
+            Preconditions.checkArgument(numberOfGoods == licenseIndex.size() && wordCount == licenseIndex.wordCount(),
+                    "The number of goods does not match the world");
+            int numberOfBidders = header.getInt();
+            this.valueScale = header.getInt();
+            long tableOffset = header.getLong();
+
+            ByteBuffer table = read(tableOffset, numberOfBidders * BinaryExporter.BIDDER_ENTRY_SIZE);
+            this.bidderIds = new long[numberOfBidders];
+            this.firstBids = new long[numberOfBidders];
+            this.bidCounts = new long[numberOfBidders];
+            for (int i = 0; i < numberOfBidders; i++) {
+                bidderIds[i] = table.getLong();
+                firstBids[i] = table.getLong();
+                bidCounts[i] = table.getLong();
+            }
+
+            this.recordSize = 8 * (wordCount + 1);
+            long totalBids = numberOfBidders == 0 ? 0 : firstBids[numberOfBidders - 1] + bidCounts[numberOfBidders - 1];
+            this.recordsPerSegment = MAX_SEGMENT_SIZE / recordSize;
+            int numberOfSegments = (int) ((totalBids + recordsPerSegment - 1) / recordsPerSegment);
+            this.segments = new MappedByteBuffer[numberOfSegments];
+            for (int s = 0; s < numberOfSegments; s++) {
+                long first = s * recordsPerSegment;
+                long records = Math.min(recordsPerSegment, totalBids - first);
+                segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, BinaryExporter.HEADER_SIZE + first * recordSize, records * recordSize);
+                segments[s].order(BinaryExporter.BYTE_ORDER);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(BinaryExporter.BYTE_ORDER);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of binary bid file");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    public long getWorldId() {
+        return worldId;
+    }
+
+    public int getNumberOfBidders() {
+        return bidderIds.length;
+    }
+
+    /**
+     * @param bidder the position of the bidder in the file
+     */
+    public long getBidderId(int bidder) {
+        return bidderIds[bidder];
+    }
+
+    /**
+     * @return the position of the bidder in the file, or -1 if there are no bids of this bidder
+     */
+    public int indexOfBidder(long bidderId) {
+        for (int i = 0; i < bidderIds.length; i++) {
+            if (bidderIds[i] == bidderId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public long getNumberOfBids(int bidder) {
+        return bidCounts[bidder];
+    }
+
+    public BigDecimal getValue(int bidder, long bid) {
+        long record = record(bidder, bid);
+        return BigDecimal.valueOf(segment(record).getLong(offset(record)), valueScale);
+    }
+
+    /**
+     * @return the given word of the bundle of a bid, in the layout of the world's {@link LicenseIndex}
+     */
+    public long getBundleWord(int bidder, long bid, int word) {
+        Preconditions.checkElementIndex(word, wordCount);
+        long record = record(bidder, bid);
+        return segment(record).getLong(offset(record) + 8 * (word + 1));
+    }
+
+    /**
+     * @return the bundle of a bid as bit vector, see {@link LicenseIndex}
+     */
+    public long[] getBundleBits(int bidder, long bid) {
+        long record = record(bidder, bid);
+        ByteBuffer segment = segment(record);
+        int offset = offset(record);
+        long[] bits = new long[wordCount];
+        for (int word = 0; word < wordCount; word++) {
+            bits[word] = segment.getLong(offset + 8 * (word + 1));
+        }
+        return bits;
+    }
+
+    public BundleValue getBid(int bidder, long bid) {
+        return new BundleValue(getValue(bidder, bid), licenseIndex.decode(getBundleBits(bidder, bid)));
+    }
+
+    /**
+     * @return a view on the bids of a bidder, which decodes the bids when they are accessed
+     */
+    public List<BundleValue> getBids(int bidder) {
+        Preconditions.checkArgument(bidCounts[bidder] <= Integer.MAX_VALUE, "Too many bids for a list");
+        return new AbstractList<BundleValue>() {
+            @Override
+            public BundleValue get(int index) {
+                return getBid(bidder, index);
+            }
+
+            @Override
+            public int size() {
+                return (int) bidCounts[bidder];
+            }
+        };
+    }
+
+    private long record(int bidder, long bid) {
+        if (bid < 0 || bid >= bidCounts[bidder]) {
+            throw new IndexOutOfBoundsException("Bid " + bid + " of bidder " + bidder);
+        }
+        return firstBids[bidder] + bid;
+    }
+
+    private ByteBuffer segment(long record) {
+        return segments[(int) (record / recordsPerSegment)];
+    }
+
+    private int offset(long record) {
+        return (int) (record % recordsPerSegment) * recordSize;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
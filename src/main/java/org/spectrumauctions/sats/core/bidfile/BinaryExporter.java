@@ -0,0 +1,156 @@
+/**
+ * Copyright by Michael Weiss, weiss.michael@gmx.ch
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.spectrumauctions.sats.core.bidfile;
+
+import com.google.common.base.Preconditions;
+import org.marketdesignresearch.mechlib.core.bidder.valuefunction.BundleValue;
+import org.spectrumauctions.sats.core.bidlang.BiddingLanguage;
+import org.spectrumauctions.sats.core.model.LicenseIndex;
+import org.spectrumauctions.sats.core.model.World;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+
+/**
+ * Writes XOR bids in a compact binary format, which can be read with random access by {@link BinaryBidFileReader}.<br>
+ * The file consists of
+ * <ul>
+ * <li>a header: magic number, format version, world id, number of goods, words per bundle, number of bidders,
+ * scale of the values and the offset of the bidder table,</li>
+ * <li>the bids as fixed-width records: the value, rounded to {@link #ROUNDING_SCALE} decimals and stored as unscaled
+ * <code>long</code>, followed by the bundle as bit vector in the layout of the world's {@link LicenseIndex},</li>
+ * <li>the bidder table: per bidder its id, the index of its first bid and its number of bids.</li>
+ * </ul>
+ * All numbers are stored in little endian byte order. As the number of bids is only known after writing them,
+ * the header is patched at the end.<br>
+ * Compressed files (see {@link #setCompressed(boolean)}) have to be decompressed before they can be read.
+ *
+ * @author Michael Weiss
+ */
+public class BinaryExporter extends FileWriter {
+
+    static final int MAGIC = 0x53415442; // "SATB"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 40;
+    static final int BIDDER_ENTRY_SIZE = 24;
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    public BinaryExporter(File path) {
+        super(path);
+    }
+
+    @Override
+    public File writeMultiBidderXOR(Collection<BiddingLanguage> valueFunctions, int numberOfBids, String filePrefix)
+            throws IOException {
+        Preconditions.checkArgument(!valueFunctions.isEmpty(), "No bidders to write");
+        return write(valueFunctions, numberOfBids, nextNonexistingFile(filePrefix), isCompressed());
+    }
+
+    private File write(Collection<BiddingLanguage> valueFunctions, int numberOfBids, Path file, boolean compressed)
+            throws IOException {
+        World world = valueFunctions.iterator().next().getBidder().getWorld();
+        LicenseIndex index = world.getLicenseIndex();
+        int wordCount = index.wordCount();
+        long[] bidderIds = new long[valueFunctions.size()];
+        long[] bidCounts = new long[valueFunctions.size()];
+
+        ByteBuffer buffer = ByteBuffer.allocate(Math.max(BUFFER_SIZE, 8 * (wordCount + 1))).order(BYTE_ORDER);
+        try (BidFileOutput output = openOutput(file, compressed)) {
+            // Placeholder for the header
+            buffer.put(new byte[HEADER_SIZE]);
+            flush(buffer, output);
+            output.endOfHead();
+            int bidder = 0;
+            for (BiddingLanguage lang : valueFunctions) {
+                Preconditions.checkArgument(lang.getBidder().getWorldId() == world.getId(),
+                        "All bidders must be part of the same world");
+                bidderIds[bidder] = lang.getBidder().getLongId();
+                Iterator<BundleValue> iter = bids(lang, numberOfBids);
+                for (int i = 0; i < numberOfBids && iter.hasNext(); i++) {
+                    BundleValue bid = iter.next();
+                    if (buffer.remaining() < 8 * (wordCount + 1)) {
+                        flush(buffer, output);
+                    }
+                    buffer.putLong(unscaledValue(bid.getAmount()));
+                    for (long word : index.encode(bid.getBundle())) {
+                        buffer.putLong(word);
+                    }
+                    bidCounts[bidder]++;
+                }
+                bidder++;
+            }
+
+            long tableOffset = output.position() + buffer.position();
+            long firstBid = 0;
+            for (int i = 0; i < bidderIds.length; i++) {
+                if (buffer.remaining() < BIDDER_ENTRY_SIZE) {
+                    flush(buffer, output);
+                }
+                buffer.putLong(bidderIds[i]).putLong(firstBid).putLong(bidCounts[i]);
+                firstBid += bidCounts[i];
+            }
+            flush(buffer, output);
+
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(world.getId())
+                    .putInt(index.size()).putInt(wordCount).putInt(bidderIds.length).putInt(ROUNDING_SCALE)
+                    .putLong(tableOffset);
+            output.patch(0, Arrays.copyOf(buffer.array(), HEADER_SIZE));
+        }
+        return file.toFile();
+    }
+
+    private static long unscaledValue(BigDecimal value) {
+        return value.setScale(ROUNDING_SCALE, BigDecimal.ROUND_HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static void flush(ByteBuffer buffer, BidFileOutput output) throws IOException {
+        buffer.flip();
+        output.write(buffer);
+        buffer.clear();
+    }
+
+    @Override
+    public File writeSingleBidderXOR(BiddingLanguage valueFunction, int numberOfBids, Path file, boolean compressed)
+            throws IOException {
+        return write(Collections.singleton(valueFunction), numberOfBids, file, compressed);
+    }
+
+    /* (non-Javadoc)
+     * @see FileWriter#writeMultiBidderXORQ(java.util.Collection, int, java.lang.String)
+     */
+    @Override
+    public File writeMultiBidderXORQ(Collection<BiddingLanguage> valueFunctions, int numberOfBids,
+                                     String filePrefix) throws IOException {
+        throw new UnsupportedOperationException("XOR-Q is not compatible with the binary file format");
+    }
+
+    /* (non-Javadoc)
+     * @see FileWriter#writeSingleBidderXORQ(BiddingLanguage, int, java.nio.file.Path, boolean)
+     */
+    @Override
+    public File writeSingleBidderXORQ(BiddingLanguage lang, int numberOfBids, Path file, boolean compressed)
+            throws IOException {
+        throw new UnsupportedOperationException("XOR-Q is not compatible with the binary file format");
+    }
+
+    /* (non-Javadoc)
+     * @see FileWriter#filetype()
+     */
+    @Override
+    protected String filetype() {
+        return "satsbin";
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright by Michael Weiss, weiss.michael@gmx.ch
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.spectrumauctions.sats.core.bidfile;
+
+import org.marketdesignresearch.mechlib.core.Good;
+import org.marketdesignresearch.mechlib.core.bidder.valuefunction.BundleValue;
+import org.spectrumauctions.sats.core.model.License;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streams a CATS file to a {@link BidFileOutput}.<br>
+ * The number of bids in the header is only known after all bids are written, hence it is written with a fixed width,
+ * padded with leading zeros, and patched in place when the writer is closed. Unlike padding spaces, leading zeros
+ * are accepted by parsers which read the rest of the header line as a number. Bids are formatted directly into a reusable buffer,
+ * such that writing a bid does not allocate any strings except for its value.
+ *
+ * @author Michael Weiss
+ */
+final class CatsBidWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    /**
+     * Enough for any long, including its sign, and a separator
+     */
+    private static final int MAX_NUMBER_LENGTH = 21;
+    /**
+     * The number of digits reserved for the bid count in the header
+     */
+    private static final int BID_COUNT_WIDTH = 19;
+
+    private final BidFileOutput output;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final byte[] lineSeparator = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+    private final byte[] digits = new byte[MAX_NUMBER_LENGTH];
+    private long bidCountPosition = -1;
+    private long numberOfBids = 0;
+
+    CatsBidWriter(BidFileOutput output) {
+        this.output = output;
+    }
+
+    void line(String line) throws IOException {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        ensureCapacity(bytes.length + lineSeparator.length);
+        buffer.put(bytes);
+        buffer.put(lineSeparator);
+    }
+
+    /**
+     * Writes the header lines, with zeros as placeholder for the number of bids
+     */
+    void header(int numberOfGoods, int numberOfDummyGoods) throws IOException {
+        line("goods " + numberOfGoods);
+        ensureCapacity(5 + BID_COUNT_WIDTH + lineSeparator.length);
+        buffer.put("bids ".getBytes(StandardCharsets.US_ASCII));
+        bidCountPosition = output.position() + buffer.position();
+        for (int i = 0; i < BID_COUNT_WIDTH; i++) {
+            buffer.put((byte) '0');
+        }
+        buffer.put(lineSeparator);
+        line("dummy " + numberOfDummyGoods);
+        line("");
+        flush();
+        output.endOfHead();
+    }
+
+    /**
+     * Writes a bid line: its id, its value, the ids of its licenses and the dummy good (if negative), separated by tabs
+     *
+     * @param dummyGood the dummy good of the bidder, or 0 if there is none
+     */
+    void bid(BundleValue bid, int dummyGood) throws IOException {
+        number(numberOfBids++);
+        tab();
+        String value = bid.getAmount().setScale(FileWriter.ROUNDING_SCALE, BigDecimal.ROUND_HALF_UP).toString();
+        ensureCapacity(value.length() + 1);
+        for (int i = 0; i < value.length(); i++) {
+            buffer.put((byte) value.charAt(i));
+        }
+        tab();
+        for (Good good : bid.getBundle().getSingleQuantityGoods()) {
+            number(((License) good).getLongId());
+            tab();
+        }
+        if (dummyGood < 0) {
+            number(dummyGood);
+            tab();
+        }
+        ensureCapacity(1 + lineSeparator.length);
+        buffer.put((byte) '#');
+        buffer.put(lineSeparator);
+    }
+
+    long getNumberOfBids() {
+        return numberOfBids;
+    }
+
+    private void tab() throws IOException {
+        ensureCapacity(1);
+        buffer.put((byte) '\t');
+    }
+
+    private void number(long number) throws IOException {
+        ensureCapacity(MAX_NUMBER_LENGTH);
+        if (number == Long.MIN_VALUE) {
+            buffer.put(String.valueOf(number).getBytes(StandardCharsets.US_ASCII));
+            return;
+        }
+        if (number < 0) {
+            buffer.put((byte) '-');
+            number = -number;
+        }
+        int start = digits.length;
+        do {
+            digits[--start] = (byte) ('0' + number % 10);
+            number /= 10;
+        } while (number > 0);
+        buffer.put(digits, start, digits.length - start);
+    }
+
+    private void ensureCapacity(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        output.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Flushes the remaining bids and patches the number of bids into the header
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+            if (bidCountPosition >= 0) {
+                byte[] count = String.valueOf(numberOfBids).getBytes(StandardCharsets.US_ASCII);
+                output.patch(bidCountPosition + BID_COUNT_WIDTH - count.length, count);
+            }
+        } finally {
+            output.close();
+        }
+    }
+}
@@ -10,13 +10,16 @@ import org.spectrumauctions.sats.core.bidlang.BiddingLanguage;
 
 import java.io.File;
 import java.io.IOException;
-import java.math.BigDecimal;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
-import java.util.*;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
 
+/**
+ * Writes bids in the CATS file format.<br>
+ * The bids are streamed to the file as they are generated (see {@link CatsBidWriter}),
+ * such that the memory usage does not depend on the number of bids.
+ */
 public class CatsExporter extends FileWriter {
 
     public CatsExporter(File path) {
@@ -24,32 +27,20 @@ public class CatsExporter extends FileWriter {
     }
 
     @Override
-    public File writeSingleBidderXOR(BiddingLanguage valueFunction, int numberOfBids, String filePrefix) throws IOException {
-        Iterator<BundleValue> iter = valueFunction.iterator();
-        Set<BundleValue> selectedValues = new HashSet<>();
-        List<String> bidLines = fileInit(valueFunction);
-        for (int i = 0; i < numberOfBids && iter.hasNext(); i++) {
-            BundleValue value = iter.next();
-            selectedValues.add(value);
-            String sb = i + "\t" +
-                    value.getAmount().setScale(ROUNDING_SCALE, BigDecimal.ROUND_HALF_UP).toString() + "\t" +
-                    value.getBundle().toString().replace(",", "\t") + "#";
-            bidLines.add(sb);
+    public File writeSingleBidderXOR(BiddingLanguage valueFunction, int numberOfBids, Path file, boolean compressed)
+            throws IOException {
+        try (CatsBidWriter writer = new CatsBidWriter(openOutput(file, compressed))) {
+            fileInit(writer);
+            writer.header(valueFunction.getBidder().getWorld().getNumberOfGoods(), 0);
+            Iterator<BundleValue> iter = bids(valueFunction, numberOfBids);
+            for (int i = 0; i < numberOfBids && iter.hasNext(); i++) {
+                writer.bid(iter.next(), 0);
+            }
         }
-        List<String> lines = new ArrayList<>();
-        lines.add("goods " + valueFunction.getBidder().getWorld().getNumberOfGoods());
-        lines.add("bids " + selectedValues.size());
-        lines.add("dummy 0");
-        lines.add("");
-        lines.addAll(bidLines);
-
-        return write(lines, filePrefix);
-
+        return file.toFile();
     }
 
-    private List<String> fileInit(BiddingLanguage lang) {
-        List<String> lines = new ArrayList<>();
-
+    private void fileInit(CatsBidWriter writer) throws IOException {
         String satsversion = null;
         try {
             satsversion = getClass().getPackage().getImplementationVersion();
@@ -59,52 +50,32 @@ public class CatsExporter extends FileWriter {
         if (satsversion == null) {
             satsversion = "(UNKNOWN VERSION)";
         }
-        lines.add("%% File generated by SATS  ".concat(satsversion).concat("  on  ").concat(new Date().toString()));
-        lines.add("");
-        lines.add("%% The SATS webpage is http://spectrumauctions.org");
-        lines.add("");
-        return lines;
+        writer.line("%% File generated by SATS  ".concat(satsversion).concat("  on  ").concat(new Date().toString()));
+        writer.line("");
+        writer.line("%% The SATS webpage is http://spectrumauctions.org");
+        writer.line("");
     }
 
     @Override
     public File writeMultiBidderXOR(Collection<BiddingLanguage> valueFunctions, int numberOfBids, String filePrefix) throws IOException {
-        List<String> lines = fileInit(valueFunctions.iterator().next());
-        lines.add("%% This file may contain bids from multiple bidders.");
-        lines.add("% Bids from different bidders are separated using dummy items with negative IDs");
-        lines.add("");
-        lines.add("");
-        List<String> bidLines = new ArrayList<>();
-        //Dummy items are negative integers, for easier distinction
-        int dummyItem = -1;
-        int countBids = 0;
-        for (BiddingLanguage valueFunction : valueFunctions) {
-            Iterator<BundleValue> iter = valueFunction.iterator();
-            for (int i = 0; i < numberOfBids && iter.hasNext(); i++) {
-                BundleValue value = iter.next();
-                StringBuilder line = new StringBuilder(String.valueOf(countBids++)).append("\t");
-                line.append(value.getAmount().setScale(ROUNDING_SCALE, BigDecimal.ROUND_HALF_UP).toString());
-                line.append("\t");
-                line.append(value.getBundle().toString().replace(",", "\t"));
-                line.append("\t");
-                line.append(dummyItem);
-                line.append("\t#");
-                bidLines.add(line.toString());
+        Path file = nextNonexistingFile(filePrefix);
+        try (CatsBidWriter writer = new CatsBidWriter(openOutput(file))) {
+            fileInit(writer);
+            writer.line("%% This file may contain bids from multiple bidders.");
+            writer.line("% Bids from different bidders are separated using dummy items with negative IDs");
+            writer.line("");
+            writer.line("");
+            writer.header(valueFunctions.iterator().next().getBidder().getWorld().getNumberOfGoods(), valueFunctions.size());
+            //Dummy items are negative integers, for easier distinction
+            int dummyItem = -1;
+            for (BiddingLanguage valueFunction : valueFunctions) {
+                Iterator<BundleValue> iter = bids(valueFunction, numberOfBids);
+                for (int i = 0; i < numberOfBids && iter.hasNext(); i++) {
+                    writer.bid(iter.next(), dummyItem);
+                }
+                dummyItem--;
             }
-            dummyItem--;
         }
-
-        lines.add("goods " + valueFunctions.iterator().next().getBidder().getWorld().getNumberOfGoods());
-        lines.add("bids " + bidLines.size());
-        lines.add("dummy " + valueFunctions.size());
-        lines.add("");
-        lines.addAll(bidLines);
-        return write(lines, filePrefix);
-    }
-
-    private File write(List<String> lines, String filePrefix) throws IOException {
-        Path file = nextNonexistingFile(filePrefix);
-        Files.write(file, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE);
-//            Files.write(file, lines, StandardOpenOption.CREATE); //jvm 8 version
         return file.toFile();
     }
 
@@ -118,10 +89,10 @@ public class CatsExporter extends FileWriter {
     }
 
     /* (non-Javadoc)
-     * @see FileWriter#writeSingleBidderXORQ(GenericLang, int, java.lang.String)
+     * @see FileWriter#writeSingleBidderXORQ(BiddingLanguage, int, java.nio.file.Path, boolean)
      */
     @Override
-    public File writeSingleBidderXORQ(BiddingLanguage lang, int numberOfBids, String filePrefix)
+    public File writeSingleBidderXORQ(BiddingLanguage lang, int numberOfBids, Path file, boolean compressed)
             throws IOException {
         throw new UnsupportedOperationException("XOR-Q is not compatible with the CATS file format");
     }
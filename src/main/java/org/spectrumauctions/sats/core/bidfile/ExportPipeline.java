@@ -0,0 +1,159 @@
+/**
+ * Copyright by Michael Weiss, weiss.michael@gmx.ch
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.spectrumauctions.sats.core.bidfile;
+
+import com.google.common.base.Preconditions;
+import org.marketdesignresearch.mechlib.core.bidder.valuefunction.BundleValue;
+import org.spectrumauctions.sats.core.bidlang.BiddingLanguage;
+import org.spectrumauctions.sats.core.model.SATSBidder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes one file per bidder, overlapping the generation of the bids with writing them:
+ * the calling thread generates the bids of one bidder after the other, and hands them to a pool of writer threads.
+ * The number of bidders whose bids are in memory at the same time is bounded by the queue capacity,
+ * such that the generation waits if the writers cannot keep up.<br>
+ * The file names are allocated in advance, such that the files are named in the order of the bidders,
+ * independent of which writer writes them first.
+ *
+ * @author Michael Weiss
+ */
+public final class ExportPipeline {
+
+    private final FileWriter writer;
+    private final int writerThreads;
+    private final int queueCapacity;
+
+    /**
+     * @param writer        the writer of the files, whose single bidder methods are called concurrently
+     * @param writerThreads the number of threads writing files
+     * @param queueCapacity the maximal number of bidders whose bids are generated, but not yet written
+     */
+    public ExportPipeline(FileWriter writer, int writerThreads, int queueCapacity) {
+        Preconditions.checkArgument(writerThreads > 0, "At least one writer thread is required");
+        Preconditions.checkArgument(queueCapacity > 0, "The queue capacity must be positive");
+        this.writer = writer;
+        this.writerThreads = writerThreads;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Writes the bids of every bidder into a separate file, as
+     * {@link FileWriter#writeSingleBidderXOR(BiddingLanguage, int, String)} or
+     * {@link FileWriter#writeSingleBidderXORQ(BiddingLanguage, int, String)} would.
+     *
+     * @param xorq whether XOR-Q bids should be written instead of XOR bids
+     * @return the written files, in the order of the value functions
+     */
+    public List<File> writeSingleBidderFiles(Collection<BiddingLanguage> valueFunctions, int numberOfBids, boolean xorq,
+                                             String filePrefix) throws IOException {
+        List<Path> files = writer.allocateFiles(filePrefix, valueFunctions.size());
+        Semaphore queue = new Semaphore(queueCapacity);
+        AtomicBoolean failed = new AtomicBoolean(false);
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService writers = Executors.newFixedThreadPool(writerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "sats-bidfile-writer-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<File>> written = new ArrayList<>(files.size());
+        try {
+            Iterator<Path> fileIterator = files.iterator();
+            for (BiddingLanguage lang : valueFunctions) {
+                queue.acquire();
+                if (failed.get()) {
+                    // The exception is thrown when waiting for the failed write
+                    break;
+                }
+                Path file = fileIterator.next();
+                BiddingLanguage generated;
+                try {
+                    generated = generate(lang, numberOfBids);
+                } catch (RuntimeException e) {
+                    queue.release();
+                    throw e;
+                }
+                written.add(writers.submit(() -> {
+                    try {
+                        return xorq
+                                ? writer.writeSingleBidderXORQ(generated, numberOfBids, file, writer.isCompressed())
+                                : writer.writeSingleBidderXOR(generated, numberOfBids, file, writer.isCompressed());
+                    } catch (IOException | RuntimeException e) {
+                        failed.set(true);
+                        throw e;
+                    } finally {
+                        queue.release();
+                    }
+                }));
+            }
+            List<File> result = new ArrayList<>(written.size());
+            for (Future<File> future : written) {
+                result.add(future.get());
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while writing bid files");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            writers.shutdownNow();
+        }
+    }
+
+    /**
+     * Generates the bids on the calling thread (in parallel, if the writer is set to)
+     */
+    private BiddingLanguage generate(BiddingLanguage lang, int numberOfBids) {
+        List<BundleValue> bids = new ArrayList<>();
+        writer.bids(lang, numberOfBids).forEachRemaining(bids::add);
+        return new GeneratedBids(lang.getBidder(), bids);
+    }
+
+    /**
+     * Bids which were generated in advance
+     */
+    private static final class GeneratedBids implements BiddingLanguage {
+
+        private final SATSBidder bidder;
+        private final List<BundleValue> bids;
+
+        private GeneratedBids(SATSBidder bidder, List<BundleValue> bids) {
+            this.bidder = bidder;
+            this.bids = bids;
+        }
+
+        @Override
+        public SATSBidder getBidder() {
+            return bidder;
+        }
+
+        @Override
+        public Iterator<BundleValue> iterator() {
+            return bids.iterator();
+        }
+    }
+}
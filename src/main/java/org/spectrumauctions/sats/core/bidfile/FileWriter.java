@@ -5,13 +5,27 @@
  */
 package org.spectrumauctions.sats.core.bidfile;
 
+import org.marketdesignresearch.mechlib.core.bidder.valuefunction.BundleValue;
+import org.spectrumauctions.sats.core.bidlang.BidSpliterators;
 import org.spectrumauctions.sats.core.bidlang.BiddingLanguage;
+import org.spectrumauctions.sats.core.model.SATSBidder;
 import org.spectrumauctions.sats.core.util.CacheMap;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 /**
  * @author Michael Weiss
@@ -20,16 +34,42 @@ import java.util.Collection;
 public abstract class FileWriter {
 
     public static final int ROUNDING_SCALE = 4;
+    /**
+     * The number of bids which are generated in parallel before they are written
+     */
+    public static final int PARALLEL_CHUNK_SIZE = SATSBidder.DEFAULT_CHUNK_SIZE;
 
     public abstract File writeMultiBidderXOR(Collection<BiddingLanguage> valueFunctions, int numberOfBids, String filePrefix)
             throws IOException;
 
-    public abstract File writeSingleBidderXOR(BiddingLanguage valueFunction, int numberOfBids, String filePrefix) throws IOException;
+    public File writeSingleBidderXOR(BiddingLanguage valueFunction, int numberOfBids, String filePrefix) throws IOException {
+        return writeSingleBidderXOR(valueFunction, numberOfBids, nextNonexistingFile(filePrefix), compressed);
+    }
+
+    /**
+     * Writes the XOR bids of a single bidder to the given file, instead of the next nonexisting file with a prefix.
+     *
+     * @param compressed whether the file is gzip compressed, independently of {@link #isCompressed()}
+     * @return the written file
+     */
+    public abstract File writeSingleBidderXOR(BiddingLanguage valueFunction, int numberOfBids, Path file, boolean compressed)
+            throws IOException;
 
     public abstract File writeMultiBidderXORQ(Collection<BiddingLanguage> valueFunctions, int numberOfBids, String filePrefix)
             throws IOException;
 
-    public abstract File writeSingleBidderXORQ(BiddingLanguage lang, int numberOfBids, String filePrefix) throws IOException;
+    public File writeSingleBidderXORQ(BiddingLanguage lang, int numberOfBids, String filePrefix) throws IOException {
+        return writeSingleBidderXORQ(lang, numberOfBids, nextNonexistingFile(filePrefix), compressed);
+    }
+
+    /**
+     * Writes the XOR-Q bids of a single bidder to the given file, instead of the next nonexisting file with a prefix.
+     *
+     * @param compressed whether the file is gzip compressed, independently of {@link #isCompressed()}
+     * @return the written file
+     */
+    public abstract File writeSingleBidderXORQ(BiddingLanguage lang, int numberOfBids, Path file, boolean compressed)
+            throws IOException;
 
     /**
      * @return the file ending of the generated bid files
@@ -39,6 +79,8 @@ public abstract class FileWriter {
     protected final File folder;
     private String defaultFilePrefix = "";
     private CacheMap<String, Integer> fileNameCount = new CacheMap<>(30);
+    private boolean parallelBidGeneration = false;
+    private boolean compressed = false;
 
     public FileWriter(File path) {
         super();
@@ -49,13 +91,22 @@ public abstract class FileWriter {
     }
 
     protected Path nextNonexistingFile(String filePrefix) {
-        Integer cashedCount = fileNameCount.get(filePrefix);
+        return nextNonexistingFile(filePrefix, fileEnding());
+    }
+
+    private String fileEnding() {
+        return compressed ? filetype() + ".gz" : filetype();
+    }
+
+    private synchronized Path nextNonexistingFile(String filePrefix, String fileEnding) {
+        String cacheKey = filePrefix.concat(".").concat(fileEnding);
+        Integer cashedCount = fileNameCount.get(cacheKey);
         if (cashedCount == null)
             cashedCount = 0;
         boolean searching = true;
         File candidate;
         do {
-            candidate = getFile(filePrefix, cashedCount);
+            candidate = getFile(filePrefix, cashedCount, fileEnding);
             if (candidate.exists() && candidate.isFile()) {
                 cashedCount++;
             } else {
@@ -63,12 +114,36 @@ public abstract class FileWriter {
                 searching = false;
             }
         } while (searching);
-        fileNameCount.put(filePrefix, cashedCount + 1);
+        fileNameCount.put(cacheKey, cashedCount + 1);
         return candidate.toPath();
     }
 
-    private File getFile(String filePrefix, int count) {
-        String fileName = filePrefix.concat(String.valueOf(count)).concat(".").concat(filetype());
+    /**
+     * Allocates the names of the next nonexisting files with the given prefix at once, based on a single listing
+     * of their folder (instead of checking the existence of every candidate).
+     * Subsequent calls of {@link #nextNonexistingFile(String)} do not return these files.
+     */
+    synchronized List<Path> allocateFiles(String filePrefix, int count) {
+        String fileEnding = fileEnding();
+        String cacheKey = filePrefix.concat(".").concat(fileEnding);
+        Integer cashedCount = fileNameCount.get(cacheKey);
+        int candidate = cashedCount == null ? 0 : cashedCount;
+        File parent = getFile(filePrefix, candidate, fileEnding).getParentFile();
+        String[] names = parent.list();
+        Set<String> existing = names == null ? Collections.emptySet() : new HashSet<>(Arrays.asList(names));
+        List<Path> files = new ArrayList<>(count);
+        while (files.size() < count) {
+            File file = getFile(filePrefix, candidate++, fileEnding);
+            if (!existing.contains(file.getName())) {
+                files.add(file.toPath());
+            }
+        }
+        fileNameCount.put(cacheKey, candidate);
+        return files;
+    }
+
+    private File getFile(String filePrefix, int count, String fileEnding) {
+        String fileName = filePrefix.concat(String.valueOf(count)).concat(".").concat(fileEnding);
         fileName = folder.getAbsolutePath().concat("/" + fileName);
         return new File(fileName);
     }
@@ -85,4 +160,86 @@ public abstract class FileWriter {
         return folder;
     }
 
+    public boolean isParallelBidGeneration() {
+        return parallelBidGeneration;
+    }
+
+    /**
+     * If set, the bids of a bidder are generated in parallel (see {@link BiddingLanguage#stream(long, boolean)}),
+     * which does not change the content of the written files.
+     */
+    public void setParallelBidGeneration(boolean parallelBidGeneration) {
+        this.parallelBidGeneration = parallelBidGeneration;
+    }
+
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    /**
+     * If set, the files are gzip compressed while they are written and get the additional ending <code>.gz</code>.
+     */
+    public void setCompressed(boolean compressed) {
+        this.compressed = compressed;
+    }
+
+    /**
+     * Opens a new file for writing, compressed if this writer is set to compress
+     */
+    BidFileOutput openOutput(Path file) throws IOException {
+        return openOutput(file, compressed);
+    }
+
+    BidFileOutput openOutput(Path file, boolean compressed) throws IOException {
+        return new BidFileOutput(file, compressed);
+    }
+
+    /**
+     * Writes the bids of every bidder into a separate entry of a single zip archive, which is streamed to disk.
+     * This is an alternative to writing the bidders into thousands of separate files, e.g., with
+     * {@link #writeSingleBidderXOR(BiddingLanguage, int, String)}.<br>
+     * Every entry is first written to a temporary file in the output folder, such that the writers can patch it,
+     * and then deflated into the archive. The archive is compressed independently of {@link #isCompressed()}.
+     *
+     * @param xorq whether XOR-Q bids should be written instead of XOR bids
+     * @return the archive file
+     */
+    public File writeSingleBidderArchive(Collection<BiddingLanguage> valueFunctions, int numberOfBids, boolean xorq,
+                                         String filePrefix) throws IOException {
+        Path archive = nextNonexistingFile(filePrefix, "zip");
+        String entryPrefix = "." + archive.getFileName().toString() + "-entry";
+        try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(archive)))) {
+            int count = 0;
+            for (BiddingLanguage lang : valueFunctions) {
+                // The entries are deflated by the archive, so they are written uncompressed
+                Path entry = nextNonexistingFile(entryPrefix, filetype());
+                try {
+                    if (xorq) {
+                        writeSingleBidderXORQ(lang, numberOfBids, entry, false);
+                    } else {
+                        writeSingleBidderXOR(lang, numberOfBids, entry, false);
+                    }
+                    zip.putNextEntry(new ZipEntry(filePrefix + (count++) + "." + filetype()));
+                    Files.copy(entry, zip);
+                    zip.closeEntry();
+                } finally {
+                    Files.deleteIfExists(entry);
+                }
+            }
+        }
+        return archive.toFile();
+    }
+
+    /**
+     * @return the first bids of the language, in the order of its iterator.
+     * With parallel bid generation, the bids are generated in chunks of {@link #PARALLEL_CHUNK_SIZE},
+     * such that the memory usage does not depend on the number of bids.
+     */
+    protected Iterator<BundleValue> bids(BiddingLanguage lang, int numberOfBids) {
+        if (parallelBidGeneration) {
+            return BidSpliterators.inParallelChunks(lang.spliterator(numberOfBids), PARALLEL_CHUNK_SIZE);
+        }
+        return lang.stream(numberOfBids, false).iterator();
+    }
+
 }
\ No newline at end of file
@@ -5,7 +5,8 @@
  */
 package org.spectrumauctions.sats.core.bidfile;
 
-import com.google.gson.*;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
 import org.marketdesignresearch.mechlib.core.BundleEntry;
 import org.marketdesignresearch.mechlib.core.Good;
 import org.marketdesignresearch.mechlib.core.bidder.valuefunction.BundleValue;
@@ -13,30 +14,47 @@ import org.spectrumauctions.sats.core.bidlang.BiddingLanguage;
 import org.spectrumauctions.sats.core.model.GenericGood;
 import org.spectrumauctions.sats.core.model.License;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.util.Collection;
 import java.util.Iterator;
 
 /**
+ * Writes bids as JSON.<br>
+ * The bids are streamed to the file as they are generated, such that the memory usage does not depend on the number
+ * of bids. The output is compact by default, see {@link #setPrettyPrinting(boolean)}.
+ *
  * @author Michael Weiss
  *
  */
 public class JsonExporter extends FileWriter {
 
     public static final boolean ONLY_NONZERO_QUANTITIES = true;
-    Gson gson;
+    /**
+     * Only used to write the generic definitions, which are small json trees
+     */
+    private final Gson gson = new Gson();
+    private boolean prettyPrinting = false;
 
     public JsonExporter(File path) {
         super(path);
-        GsonBuilder builder = new GsonBuilder();
-        builder.setPrettyPrinting();
-        gson = builder.create();
+    }
+
+    public boolean isPrettyPrinting() {
+        return prettyPrinting;
+    }
+
+    /**
+     * If set, the files are indented as by Gson's pretty printing. Otherwise (the default), they are written compactly.
+     */
+    public void setPrettyPrinting(boolean prettyPrinting) {
+        this.prettyPrinting = prettyPrinting;
     }
 
     /* (non-Javadoc)
@@ -45,43 +63,50 @@ public class JsonExporter extends FileWriter {
     @Override
     public File writeMultiBidderXOR(Collection<BiddingLanguage> valueFunctions, int numberOfBids, String filePrefix)
             throws IOException {
-        JsonArray json = new JsonArray();
-        for (BiddingLanguage lang : valueFunctions) {
-            JsonObject thisBidder = new JsonObject();
-            thisBidder.addProperty("bidder", lang.getBidder().getLongId());
-            thisBidder.add("bids", singleBidderXOR(lang, numberOfBids, filePrefix));
-            json.add(thisBidder);
+        Path file = nextNonexistingFile(filePrefix);
+        try (JsonWriter writer = open(file, isCompressed())) {
+            writer.beginArray();
+            for (BiddingLanguage lang : valueFunctions) {
+                writer.beginObject();
+                writer.name("bidder").value(lang.getBidder().getLongId());
+                writer.name("bids");
+                singleBidderXOR(writer, lang, numberOfBids);
+                writer.endObject();
+            }
+            writer.endArray();
         }
-        return write(json, filePrefix);
+        return file.toFile();
     }
 
 
-    private JsonElement singleBidderXOR(BiddingLanguage lang, int numberOfBids, String filePrefix) {
-        JsonArray result = new JsonArray();
-        Iterator<BundleValue> iter = lang.iterator();
+    private void singleBidderXOR(JsonWriter writer, BiddingLanguage lang, int numberOfBids) throws IOException {
+        writer.beginArray();
+        Iterator<BundleValue> iter = bids(lang, numberOfBids);
         for (int i = 0; i < numberOfBids && iter.hasNext(); i++) {
-            JsonObject bid = new JsonObject();
             BundleValue xorValue = iter.next();
-            JsonArray licenses = new JsonArray();
+            writer.beginObject();
+            writer.name("licenses").beginArray();
             for (Good license : xorValue.getBundle().getSingleQuantityGoods()) {
                 License l = (License) license;
-                licenses.add(l.getLongId());
+                writer.value(l.getLongId());
             }
-            bid.add("licenses", licenses);
-            bid.addProperty("value", xorValue.getAmount().setScale(ROUNDING_SCALE, BigDecimal.ROUND_HALF_UP).toString());
-            result.add(bid);
+            writer.endArray();
+            writer.name("value").value(xorValue.getAmount().setScale(ROUNDING_SCALE, BigDecimal.ROUND_HALF_UP).toString());
+            writer.endObject();
         }
-        return result;
+        writer.endArray();
     }
 
     /* (non-Javadoc)
-     * @see FileWriter#writeSingleBidderXOR(XORLanguage, int, java.lang.String)
+     * @see FileWriter#writeSingleBidderXOR(BiddingLanguage, int, java.nio.file.Path, boolean)
      */
     @Override
-    public File writeSingleBidderXOR(BiddingLanguage valueFunction, int numberOfBids, String filePrefix)
+    public File writeSingleBidderXOR(BiddingLanguage valueFunction, int numberOfBids, Path file, boolean compressed)
             throws IOException {
-        JsonElement singleBidder = singleBidderXOR(valueFunction, numberOfBids, filePrefix);
-        return write(singleBidder, filePrefix);
+        try (JsonWriter writer = open(file, compressed)) {
+            singleBidderXOR(writer, valueFunction, numberOfBids);
+        }
+        return file.toFile();
     }
 
     /* (non-Javadoc)
@@ -90,55 +115,76 @@ public class JsonExporter extends FileWriter {
     @Override
     public File writeMultiBidderXORQ(Collection<BiddingLanguage> valueFunctions, int numberOfBids,
                                      String filePrefix) throws IOException {
-        JsonArray json = new JsonArray();
-        for (BiddingLanguage lang : valueFunctions) {
-            JsonObject thisBidder = new JsonObject();
-            thisBidder.addProperty("bidder", lang.getBidder().getLongId());
-            thisBidder.add("bids", singleBidderXORQ(lang, numberOfBids, filePrefix));
-            json.add(thisBidder);
+        Path file = nextNonexistingFile(filePrefix);
+        try (JsonWriter writer = open(file, isCompressed())) {
+            writer.beginArray();
+            for (BiddingLanguage lang : valueFunctions) {
+                writer.beginObject();
+                writer.name("bidder").value(lang.getBidder().getLongId());
+                writer.name("bids");
+                singleBidderXORQ(writer, lang, numberOfBids);
+                writer.endObject();
+            }
+            writer.endArray();
         }
-        return write(json, filePrefix);
+        return file.toFile();
     }
 
     /* (non-Javadoc)
-     * @see FileWriter#writeSingleBidderXORQ(GenericLang, int, java.lang.String)
+     * @see FileWriter#writeSingleBidderXORQ(BiddingLanguage, int, java.nio.file.Path, boolean)
      */
     @Override
-    public File writeSingleBidderXORQ(BiddingLanguage lang, int numberOfBids, String filePrefix)
+    public File writeSingleBidderXORQ(BiddingLanguage lang, int numberOfBids, Path file, boolean compressed)
             throws IOException {
-        JsonElement singleBidder = singleBidderXORQ(lang, numberOfBids, filePrefix);
-        return write(singleBidder, filePrefix);
+        try (JsonWriter writer = open(file, compressed)) {
+            singleBidderXORQ(writer, lang, numberOfBids);
+        }
+        return file.toFile();
     }
 
-    private JsonElement singleBidderXORQ(BiddingLanguage lang, int numberOfBids, String filePrefix) {
-        JsonArray result = new JsonArray();
-        Iterator<BundleValue> iter = lang.iterator();
+    private void singleBidderXORQ(JsonWriter writer, BiddingLanguage lang, int numberOfBids) throws IOException {
+        writer.beginArray();
+        Iterator<BundleValue> iter = bids(lang, numberOfBids);
         for (int i = 0; i < numberOfBids && iter.hasNext(); i++) {
-            JsonObject bid = new JsonObject();
             BundleValue val = iter.next();
-            JsonArray quantities = new JsonArray();
+            writer.beginObject();
+            writer.name("quantities").beginArray();
             for (BundleEntry quant : val.getBundle().getBundleEntries()) {
                 if (quant.getAmount() != 0 || !ONLY_NONZERO_QUANTITIES) {
                     GenericGood good = (GenericGood) quant.getGood();
-                    JsonObject object = new JsonObject();
-                    object.add("generic definition", good.shortJson());
-                    object.addProperty("quantity", quant.getAmount());
-                    quantities.add(object);
+                    writer.beginObject();
+                    writer.name("generic definition");
+                    gson.toJson(good.shortJson(), writer);
+                    writer.name("quantity").value(quant.getAmount());
+                    writer.endObject();
                 }
             }
-            bid.add("quantities", quantities);
-            bid.addProperty("value", val.getAmount().setScale(ROUNDING_SCALE, BigDecimal.ROUND_HALF_UP).toString());
-            result.add(bid);
+            writer.endArray();
+            writer.name("value").value(val.getAmount().setScale(ROUNDING_SCALE, BigDecimal.ROUND_HALF_UP).toString());
+            writer.endObject();
         }
-        return result;
+        writer.endArray();
     }
 
-
-    private File write(JsonElement toWrite, String filePrefix) throws IOException {
-        Path file = nextNonexistingFile(filePrefix);
-        String content = gson.toJson(toWrite);
-        Files.write(file, content.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE);
-        return file.toFile();
+    private JsonWriter open(Path file, boolean compressed) throws IOException {
+        BidFileOutput output = openOutput(file, compressed);
+        // Nothing is patched in json files
+        output.endOfHead();
+        Writer streamWriter = new BufferedWriter(new OutputStreamWriter(output.asOutputStream(), StandardCharsets.UTF_8)) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    output.close();
+                }
+            }
+        };
+        JsonWriter writer = new JsonWriter(streamWriter);
+        if (prettyPrinting) {
+            writer.setIndent("  ");
+        }
+        return writer;
     }
 
     /* (non-Javadoc)
@@ -0,0 +1,326 @@
+/**
+ * Copyright by Michael Weiss, weiss.michael@gmx.ch
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.spectrumauctions.sats.core.bidlang;
+
+import com.google.common.base.Preconditions;
+import org.marketdesignresearch.mechlib.core.Bundle;
+import org.marketdesignresearch.mechlib.core.bidder.valuefunction.BundleValue;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Spliterators over the bids of a {@link BiddingLanguage}, see {@link BiddingLanguage#spliterator(long)}.<br>
+ * All of them return the bids in the order of the iterator of the language, independent of how they are split,
+ * such that (ordered) parallel streams produce the same bids as sequential ones.
+ *
+ * @author Michael Weiss
+ */
+public final class BidSpliterators {
+
+    /**
+     * Ranges with fewer bids are not split any further
+     */
+    private static final long MIN_SPLIT_SIZE = 32;
+    /**
+     * Increment and maximum of the number of bids which are handed off to another thread in one split
+     */
+    private static final int BATCH_UNIT = 64;
+    private static final int MAX_BATCH = 1 << 12;
+
+    private BidSpliterators() {
+    }
+
+    /**
+     * For languages with random access to their bids: the range is split into sub-ranges,
+     * each of which is generated independently.
+     *
+     * @param iteratorAt creates an iterator starting at the given position of the bid sequence
+     * @param from       the first position (inclusive)
+     * @param to         the last position (exclusive), which must not exceed the number of available bids
+     */
+    public static Spliterator<BundleValue> ofRange(LongFunction<Iterator<BundleValue>> iteratorAt, long from, long to) {
+        Preconditions.checkArgument(0 <= from && from <= to);
+        return new RangeSpliterator(iteratorAt, from, to);
+    }
+
+    /**
+     * For languages whose bundles have to be drawn sequentially (e.g., because every bundle depends on the previously
+     * drawn ones), but whose valuation is independent: the bundles are drawn in order and handed off in batches,
+     * such that they are valued in parallel.
+     *
+     * @param bundles      the bundles in the order of the language
+     * @param valuation    the value function, which has to be thread safe
+     * @param numberOfBids the maximal number of bids
+     */
+    public static Spliterator<BundleValue> ofBundles(Iterator<Bundle> bundles, Function<Bundle, BigDecimal> valuation, long numberOfBids) {
+        return new DrawAheadSpliterator(bundles, valuation, numberOfBids);
+    }
+
+    /**
+     * The fallback for all other languages: bids are taken from the iterator in order.
+     * Splitting hands off batches of already valued bids.
+     */
+    public static Spliterator<BundleValue> ofIterator(Iterator<BundleValue> bids, long numberOfBids) {
+        return new DrawAheadSpliterator(bids, numberOfBids);
+    }
+
+    /**
+     * Generates the bids of an ordered spliterator in consecutive chunks of at most the given size, each of which
+     * is generated by a parallel stream before the next one is started.
+     * Unlike collecting a parallel stream, only one chunk of bids is held in memory at a time,
+     * and the bids are returned in the same order.
+     *
+     * @param bids      the bids, e.g., from {@link BiddingLanguage#spliterator(long)}
+     * @param chunkSize the maximal number of bids generated at once
+     */
+    public static Iterator<BundleValue> inParallelChunks(Spliterator<BundleValue> bids, int chunkSize) {
+        Preconditions.checkArgument(chunkSize > 0);
+        return new ChunkIterator(bids, chunkSize);
+    }
+
+    private static final class ChunkIterator implements Iterator<BundleValue> {
+
+        /**
+         * The remaining bids, in order, as the prefixes split off the source and the source itself
+         */
+        private final Deque<Spliterator<BundleValue>> remaining = new ArrayDeque<>();
+        private final int chunkSize;
+        private Iterator<BundleValue> chunk = Collections.emptyIterator();
+
+        private ChunkIterator(Spliterator<BundleValue> bids, int chunkSize) {
+            this.remaining.add(bids);
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!chunk.hasNext() && !remaining.isEmpty()) {
+                chunk = nextChunk().iterator();
+            }
+            return chunk.hasNext();
+        }
+
+        @Override
+        public BundleValue next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return chunk.next();
+        }
+
+        private List<BundleValue> nextChunk() {
+            List<Spliterator<BundleValue>> parts = new ArrayList<>();
+            long missing = chunkSize;
+            while (missing > 0 && !remaining.isEmpty()) {
+                Spliterator<BundleValue> head = remaining.pollFirst();
+                if (head.hasCharacteristics(Spliterator.SIZED) && head.estimateSize() <= missing) {
+                    parts.add(head);
+                    missing -= head.estimateSize();
+                    continue;
+                }
+                remaining.addFirst(head);
+                Spliterator<BundleValue> prefix = head.trySplit();
+                if (prefix != null) {
+                    remaining.addFirst(prefix);
+                    continue;
+                }
+                // The head cannot be split any further, so its next bids are taken sequentially
+                List<BundleValue> taken = new ArrayList<>();
+                boolean exhausted = false;
+                while (taken.size() < missing && !exhausted) {
+                    exhausted = !head.tryAdvance(taken::add);
+                }
+                if (exhausted) {
+                    remaining.removeFirst();
+                }
+                parts.add(taken.spliterator());
+                missing -= taken.size();
+            }
+            return parts.stream()
+                    .map(part -> StreamSupport.stream(part, true))
+                    .reduce(Stream::concat)
+                    .map(bids -> bids.collect(Collectors.toList()))
+                    .orElse(Collections.emptyList());
+        }
+    }
+
+    private static final class RangeSpliterator implements Spliterator<BundleValue> {
+
+        private final LongFunction<Iterator<BundleValue>> iteratorAt;
+        private long position;
+        private final long end;
+        private Iterator<BundleValue> iterator;
+
+        private RangeSpliterator(LongFunction<Iterator<BundleValue>> iteratorAt, long position, long end) {
+            this.iteratorAt = iteratorAt;
+            this.position = position;
+            this.end = end;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super BundleValue> action) {
+            if (position >= end) {
+                return false;
+            }
+            if (iterator == null) {
+                // Created lazily, such that splitting does not generate any bids
+                iterator = iteratorAt.apply(position);
+            }
+            position++;
+            action.accept(iterator.next());
+            return true;
+        }
+
+        @Override
+        public Spliterator<BundleValue> trySplit() {
+            if (iterator != null || end - position < 2 * MIN_SPLIT_SIZE) {
+                return null;
+            }
+            long middle = position + (end - position) / 2;
+            Spliterator<BundleValue> prefix = new RangeSpliterator(iteratorAt, position, middle);
+            position = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - position;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+        }
+    }
+
+    private static final class DrawAheadSpliterator implements Spliterator<BundleValue> {
+
+        private final Iterator<?> source;
+        /**
+         * The valuation of the drawn bundles, or null if the source already returns bids
+         */
+        private final Function<Bundle, BigDecimal> valuation;
+        private long remaining;
+        private int batchSize = 0;
+
+        private DrawAheadSpliterator(Iterator<Bundle> bundles, Function<Bundle, BigDecimal> valuation, long numberOfBids) {
+            this.source = bundles;
+            this.valuation = valuation;
+            this.remaining = numberOfBids;
+        }
+
+        private DrawAheadSpliterator(Iterator<BundleValue> bids, long numberOfBids) {
+            this.source = bids;
+            this.valuation = null;
+            this.remaining = numberOfBids;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super BundleValue> action) {
+            if (remaining <= 0 || !source.hasNext()) {
+                return false;
+            }
+            remaining--;
+            action.accept(toBid(source.next()));
+            return true;
+        }
+
+        private BundleValue toBid(Object drawn) {
+            if (valuation == null) {
+                return (BundleValue) drawn;
+            }
+            Bundle bundle = (Bundle) drawn;
+            return new BundleValue(valuation.apply(bundle), bundle);
+        }
+
+        @Override
+        public Spliterator<BundleValue> trySplit() {
+            if (remaining <= 1 || !source.hasNext()) {
+                return null;
+            }
+            batchSize = (int) Math.min(Math.min(batchSize + BATCH_UNIT, MAX_BATCH), remaining);
+            Object[] batch = new Object[batchSize];
+            int drawn = 0;
+            while (drawn < batchSize && source.hasNext()) {
+                batch[drawn++] = source.next();
+            }
+            remaining -= drawn;
+            return new BatchSpliterator(batch, 0, drawn);
+        }
+
+        @Override
+        public long estimateSize() {
+            return remaining;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED;
+        }
+
+        /**
+         * A batch of drawn bundles (or bids), which are valued when they are traversed
+         */
+        private final class BatchSpliterator implements Spliterator<BundleValue> {
+
+            private final Object[] batch;
+            private int index;
+            private final int end;
+
+            private BatchSpliterator(Object[] batch, int index, int end) {
+                this.batch = batch;
+                this.index = index;
+                this.end = end;
+            }
+
+            @Override
+            public boolean tryAdvance(Consumer<? super BundleValue> action) {
+                if (index >= end) {
+                    return false;
+                }
+                Object drawn = batch[index];
+                batch[index++] = null;
+                action.accept(toBid(drawn));
+                return true;
+            }
+
+            @Override
+            public Spliterator<BundleValue> trySplit() {
+                int middle = (index + end) >>> 1;
+                if (middle <= index) {
+                    return null;
+                }
+                Spliterator<BundleValue> prefix = new BatchSpliterator(batch, index, middle);
+                index = middle;
+                return prefix;
+            }
+
+            @Override
+            public long estimateSize() {
+                return end - index;
+            }
+
+            @Override
+            public int characteristics() {
+                return ORDERED | SIZED | SUBSIZED;
+            }
+        }
+    }
+}
@@ -9,6 +9,9 @@ import org.marketdesignresearch.mechlib.core.bidder.valuefunction.BundleValue;
 import org.spectrumauctions.sats.core.model.SATSBidder;
 
 import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Bidding languages represent a mean for the bidder to express a value for a certain set of goods.
@@ -35,4 +38,26 @@ public interface BiddingLanguage {
     SATSBidder getBidder();
 
     Iterator<BundleValue> iterator();
+
+    /**
+     * Creates a spliterator over the first bids of a new {@link #iterator()}, in the same order.
+     * Languages which can generate or value their bids independently override this to allow splitting
+     * without changing the result, such that parallel streams return the same bids as sequential ones.
+     *
+     * @param numberOfBids the maximal number of bids
+     * @see BidSpliterators
+     */
+    default Spliterator<BundleValue> spliterator(long numberOfBids) {
+        return BidSpliterators.ofIterator(iterator(), numberOfBids);
+    }
+
+    /**
+     * @param numberOfBids the maximal number of bids
+     * @param parallel     whether the bids should be generated in parallel. As the stream is ordered,
+     *                     the result is the same, as long as order-respecting terminal operations are used.
+     * @return the first bids of a new {@link #iterator()} as a stream
+     */
+    default Stream<BundleValue> stream(long numberOfBids, boolean parallel) {
+        return StreamSupport.stream(spliterator(numberOfBids), parallel);
+    }
 }
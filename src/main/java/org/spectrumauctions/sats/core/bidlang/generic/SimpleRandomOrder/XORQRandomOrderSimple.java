@@ -1,15 +1,16 @@
 package org.spectrumauctions.sats.core.bidlang.generic.SimpleRandomOrder;
 
+import com.google.common.base.Preconditions;
 import org.marketdesignresearch.mechlib.core.Bundle;
 import org.marketdesignresearch.mechlib.core.BundleEntry;
 import org.marketdesignresearch.mechlib.core.bidder.valuefunction.BundleValue;
+import org.spectrumauctions.sats.core.bidlang.BidSpliterators;
 import org.spectrumauctions.sats.core.bidlang.BiddingLanguage;
 import org.spectrumauctions.sats.core.model.GenericGood;
 import org.spectrumauctions.sats.core.util.random.RNGSupplier;
 import org.spectrumauctions.sats.core.util.random.UniformDistributionRNG;
 
 import java.util.*;
-import java.util.Map.Entry;
 
 /**
  * @author Fabio Isler
@@ -19,15 +20,23 @@ public abstract class XORQRandomOrderSimple implements BiddingLanguage {
     private static final double MAX_POSSIBLE_BIDS_FACTOR = 0.8;
     private static final int ABSOLUTE_MAX_BIDS = 1000000;
     private static final int DEFAULT_ITERATIONS = 500;
+    private static final int DEFAULT_MAX_RETRIES = Integer.MAX_VALUE;
     private final int maxBundleSize;
     private final RNGSupplier rngSupplier;
     private final List<? extends GenericGood> genericGoods;
 
 
     private final transient int totalSize;
-    private final transient Set<BundleValue> cache;
+    /**
+     * The quantity vectors of all bids created so far. Bundles are only created and valued if their quantities are new.
+     */
+    private final transient Set<QuantityVector> cache;
     private final transient int maxBids;
     private transient int iterations;
+    private transient int maxRetries;
+
+    private transient long candidates = 0;
+    private transient long duplicates = 0;
 
 
     /**
@@ -41,6 +50,7 @@ public abstract class XORQRandomOrderSimple implements BiddingLanguage {
         this.maxBundleSize = quantitySum;
         this.totalSize = quantitySum;
         this.iterations = DEFAULT_ITERATIONS;
+        this.maxRetries = DEFAULT_MAX_RETRIES;
         this.maxBids = setMaxBid();
         this.cache = new HashSet<>();
     }
@@ -65,6 +75,38 @@ public abstract class XORQRandomOrderSimple implements BiddingLanguage {
         this.iterations = iterations;
     }
 
+    /**
+     * Set the maximum number of consecutive random bundles which may turn out to be duplicates while creating one bid.
+     * If this budget is exhausted, the iterator ends early. By default, there is no limit.
+     *
+     * @param maxRetries The maximum number of retries per bid
+     */
+    public void setMaxRetries(int maxRetries) {
+        Preconditions.checkArgument(maxRetries >= 0);
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * @return the number of random bundles drawn so far, including the duplicates
+     */
+    public long getCandidates() {
+        return candidates;
+    }
+
+    /**
+     * @return the number of random bundles drawn so far which were discarded as duplicates (without being valued)
+     */
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * @return the fraction of random bundles which were duplicates, or 0 if no bundle was drawn yet
+     */
+    public double getDuplicateRate() {
+        return candidates == 0 ? 0 : (double) duplicates / candidates;
+    }
+
     /* (non-Javadoc)
      * @see GenericLang#iterator()
      */
@@ -73,10 +115,37 @@ public abstract class XORQRandomOrderSimple implements BiddingLanguage {
         return new SimpleRandomOrderIterator(iterations, rngSupplier.getUniformDistributionRNG());
     }
 
+    /**
+     * {@inheritDoc}<br>
+     * The bundles are drawn sequentially, as duplicates of the previously drawn ones are skipped,
+     * but they are valued in parallel.
+     */
+    @Override
+    public Spliterator<BundleValue> spliterator(long numberOfBids) {
+        SimpleRandomOrderIterator values = new SimpleRandomOrderIterator(iterations, rngSupplier.getUniformDistributionRNG());
+        Iterator<Bundle> bundles = new Iterator<Bundle>() {
+            @Override
+            public boolean hasNext() {
+                return values.hasNext();
+            }
+
+            @Override
+            public Bundle next() {
+                return values.nextBundle();
+            }
+        };
+        return BidSpliterators.ofBundles(bundles, bundle -> getBidder().calculateValue(bundle), numberOfBids);
+    }
+
     class SimpleRandomOrderIterator implements Iterator<BundleValue> {
 
         private final UniformDistributionRNG uniRng;
         private int remainingIterations;
+        /**
+         * The quantities of the next bid, or null if they are not yet drawn
+         */
+        private QuantityVector next;
+        private boolean retriesExhausted = false;
 
         SimpleRandomOrderIterator(int iterations, UniformDistributionRNG uniRng) {
             this.remainingIterations = iterations;
@@ -88,8 +157,27 @@ public abstract class XORQRandomOrderSimple implements BiddingLanguage {
          */
         @Override
         public boolean hasNext() {
-            return remainingIterations > 0
-                    && cache.size() < MAX_POSSIBLE_BIDS_FACTOR * maxBids;
+            if (next != null) {
+                return true;
+            }
+            if (remainingIterations <= 0 || retriesExhausted
+                    || cache.size() >= MAX_POSSIBLE_BIDS_FACTOR * maxBids) {
+                return false;
+            }
+            // Draw until the quantities are new. Duplicates are discarded before creating and valuing a bundle.
+            int[] quantities = new int[genericGoods.size()];
+            for (long retries = 0; retries <= maxRetries; retries++) {
+                drawRandomQuantities(quantities);
+                candidates++;
+                QuantityVector candidate = new QuantityVector(quantities);
+                if (cache.add(candidate)) {
+                    next = candidate;
+                    return true;
+                }
+                duplicates++;
+            }
+            retriesExhausted = true;
+            return false;
         }
 
         /* (non-Javadoc)
@@ -97,40 +185,43 @@ public abstract class XORQRandomOrderSimple implements BiddingLanguage {
          */
         @Override
         public BundleValue next() {
+            Bundle bundle = nextBundle();
+            return new BundleValue(getBidder().calculateValue(bundle), bundle);
+        }
+
+        /**
+         * Creates the bundle of the next bid, without valuing it
+         */
+        Bundle nextBundle() {
             if (!hasNext()) {
                 throw new NoSuchElementException();
             }
-            Map<GenericGood, Integer> quantities = getRandomQuantities();
+            int[] quantities = next.quantities;
+            next = null;
             HashSet<BundleEntry> bundleEntries = new HashSet<>();
-            for (Entry<GenericGood, Integer> entry : quantities.entrySet()) {
-                bundleEntries.add(new BundleEntry(entry.getKey(), entry.getValue()));
-            }
-            Bundle bundle = new Bundle(bundleEntries);
-            BundleValue result = new BundleValue(getBidder().calculateValue(bundle), bundle);
-
-            if (!cache.contains(result)) {
-                cache.add(result);
-                remainingIterations--;
-                return result;
+            for (int i = 0; i < quantities.length; i++) {
+                if (quantities[i] > 0) {
+                    bundleEntries.add(new BundleEntry(genericGoods.get(i), quantities[i]));
+                }
             }
-
-            return next();
+            remainingIterations--;
+            return new Bundle(bundleEntries);
         }
 
         /**
          * Populate the bid with quantities
          *
-         * @return A map of random quantities of a randomly defined number of goods
+         * @param quantities Is filled with random quantities of a randomly defined number of goods, zero for the other goods
          */
-        private Map<GenericGood, Integer> getRandomQuantities() {
-            Map<GenericGood, Integer> quantities = new HashMap<>();
-            for (GenericGood good : genericGoods) {
+        private void drawRandomQuantities(int[] quantities) {
+            for (int i = 0; i < quantities.length; i++) {
+                GenericGood good = genericGoods.get(i);
                 if (includeGood(good.getQuantity(), totalSize, genericGoods.size())) {
-                    int quantity = uniRng.nextInt(1, good.getQuantity());
-                    quantities.put(good, quantity);
+                    quantities[i] = uniRng.nextInt(1, good.getQuantity());
+                } else {
+                    quantities[i] = 0;
                 }
             }
-            return quantities;
         }
 
         /**
@@ -147,4 +238,30 @@ public abstract class XORQRandomOrderSimple implements BiddingLanguage {
             return base + bonus >= uniRng.nextDouble();
         }
     }
+
+    /**
+     * An immutable copy of the quantities of a bid, used to detect duplicates before the bundle is valued
+     */
+    private static final class QuantityVector {
+
+        private final int[] quantities;
+        private final int hashCode;
+
+        private QuantityVector(int[] quantities) {
+            this.quantities = quantities.clone();
+            this.hashCode = Arrays.hashCode(this.quantities);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            return Arrays.equals(quantities, ((QuantityVector) o).quantities);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
 }
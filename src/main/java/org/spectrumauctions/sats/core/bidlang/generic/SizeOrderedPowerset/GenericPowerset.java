@@ -7,8 +7,8 @@ import org.spectrumauctions.sats.core.bidlang.BiddingLanguage;
 import org.spectrumauctions.sats.core.model.GenericGood;
 import org.spectrumauctions.sats.core.model.UnsupportedBiddingLanguageException;
 
+import java.math.BigDecimal;
 import java.util.*;
-import java.util.Map.Entry;
 
 public abstract class GenericPowerset implements BiddingLanguage {
 
@@ -35,33 +35,108 @@ public abstract class GenericPowerset implements BiddingLanguage {
 
     protected abstract void isFeasibleSize(Map<? extends GenericGood, Integer> maxQuantities, int maxBundleSize) throws UnsupportedBiddingLanguageException;
 
-    abstract class PowersetIterator implements Iterator<BundleValue> {
+    /**
+     * Calculates the value of a bid of this language.<br>
+     * Models which can evaluate quantity vectors directly override this, to avoid decoding the bundle again.
+     *
+     * @param quantities the quantity per generic good, in the iteration order of {@link #maxQuantities}
+     * @param bundle     the bundle with the same quantities
+     */
+    protected BigDecimal calculateValue(int[] quantities, Bundle bundle) {
+        return getBidder().calculateValue(bundle);
+    }
+
+    private int[] maxQuantitiesArray(GenericGood[] goods) {
+        int[] max = new int[goods.length];
+        for (int i = 0; i < goods.length; i++) {
+            max[i] = maxQuantities.get(goods[i]);
+        }
+        return max;
+    }
+
+    /**
+     * @return the number of non-empty bundles, or {@link Long#MAX_VALUE} if there are more
+     */
+    long numberOfBundles() {
+        QuantityVectorPickN pickN = new QuantityVectorPickN(maxQuantitiesArray(maxQuantities.keySet().toArray(new GenericGood[0])), 1);
+        long total = 0;
+        for (int size = 1; size <= maxBundleSize; size++) {
+            total += pickN.count(size);
+            if (total < 0) {
+                return Long.MAX_VALUE;
+            }
+        }
+        return total;
+    }
 
+    /**
+     * Iterates over the bundle sizes and, per bundle size, walks through the quantity vectors in place.
+     * Bundles are only created for the bids which are returned.
+     */
+    abstract class PowersetIterator implements Iterator<BundleValue> {
 
+        final GenericGood[] goods;
+        final QuantityVectorPickN pickN;
         int bundleSize;
-        GenericSetsPickN<GenericGood> pickN;
+
+        PowersetIterator(int firstBundleSize) {
+            this(firstBundleSize, 0);
+        }
+
+        /**
+         * @param start the position of the first bid in the iteration order, starting at zero
+         */
+        PowersetIterator(int firstBundleSize, long start) {
+            this.goods = maxQuantities.keySet().toArray(new GenericGood[0]);
+            this.pickN = new QuantityVectorPickN(maxQuantitiesArray(goods), firstBundleSize);
+            this.bundleSize = firstBundleSize;
+            long offset = start;
+            long countOfSize;
+            while (offset >= (countOfSize = pickN.count(bundleSize)) && nextBundleSize()) {
+                offset -= countOfSize;
+            }
+            pickN.reset(bundleSize, offset);
+        }
+
+        /**
+         * @see java.util.Iterator#hasNext()
+         */
+        @Override
+        public boolean hasNext() {
+            while (!pickN.hasNext()) {
+                if (!nextBundleSize()) {
+                    return false;
+                }
+                pickN.reset(bundleSize);
+            }
+            return true;
+        }
 
         /**
          * @see java.util.Iterator#next()
          */
         @Override
         public BundleValue next() {
-            if (!pickN.hasNext()) {
-                intiPickN();
+            if (!hasNext()) {
+                throw new NoSuchElementException();
             }
-            Map<GenericGood, Integer> quantities = pickN.next();
+            int[] quantities = pickN.next();
             HashSet<BundleEntry> bundleEntries = new HashSet<>();
-            for (Entry<GenericGood, Integer> entry : quantities.entrySet()) {
-                if (entry.getValue() > 0) {
-                    bundleEntries.add(new BundleEntry(entry.getKey(), entry.getValue()));
+            for (int i = 0; i < quantities.length; i++) {
+                if (quantities[i] > 0) {
+                    bundleEntries.add(new BundleEntry(goods[i], quantities[i]));
                 }
             }
             Bundle bundle = new Bundle(bundleEntries);
-            return new BundleValue(getBidder().calculateValue(bundle), bundle);
+            return new BundleValue(calculateValue(quantities, bundle), bundle);
         }
 
-        abstract void intiPickN();
-
+        /**
+         * Moves {@link #bundleSize} to the next bundle size to iterate over
+         *
+         * @return false if all bundle sizes were iterated over
+         */
+        abstract boolean nextBundleSize();
 
     }
 
@@ -6,12 +6,14 @@
 package org.spectrumauctions.sats.core.bidlang.generic.SizeOrderedPowerset;
 
 import org.marketdesignresearch.mechlib.core.bidder.valuefunction.BundleValue;
+import org.spectrumauctions.sats.core.bidlang.BidSpliterators;
 import org.spectrumauctions.sats.core.model.GenericGood;
 import org.spectrumauctions.sats.core.model.UnsupportedBiddingLanguageException;
 
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
 
 /**
  * @author Michael Weiss
@@ -41,29 +43,32 @@ public abstract class GenericPowersetDecreasing extends GenericPowerset {
      */
     @Override
     public Iterator<BundleValue> iterator() {
-        return new DecreasingIterator();
+        return new DecreasingIterator(0);
     }
 
+    /**
+     * {@inheritDoc}<br>
+     * The bids are split by their position, as the iteration can start at any position.
+     */
+    @Override
+    public Spliterator<BundleValue> spliterator(long numberOfBids) {
+        return BidSpliterators.ofRange(DecreasingIterator::new, 0, Math.min(numberOfBids, numberOfBundles()));
+    }
 
-    private class DecreasingIterator extends GenericPowerset.PowersetIterator {
 
-        public DecreasingIterator() {
-            bundleSize = maxBundleSize;
-            intiPickN();
-        }
+    private class DecreasingIterator extends GenericPowerset.PowersetIterator {
 
-        /* (non-Javadoc)
-         * @see java.util.Iterator#hasNext()
-         */
-        @Override
-        public boolean hasNext() {
-            return (pickN.hasNext() || bundleSize >= 1);
+        DecreasingIterator(long start) {
+            super(Math.max(maxBundleSize, 1), start);
         }
 
-
         @Override
-        void intiPickN() {
-            pickN = new GenericSetsPickN<>(maxQuantities, bundleSize--);
+        boolean nextBundleSize() {
+            if (bundleSize <= 1) {
+                return false;
+            }
+            bundleSize--;
+            return true;
         }
 
     }
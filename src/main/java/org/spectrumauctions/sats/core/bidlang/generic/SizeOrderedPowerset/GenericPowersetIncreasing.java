@@ -6,12 +6,14 @@
 package org.spectrumauctions.sats.core.bidlang.generic.SizeOrderedPowerset;
 
 import org.marketdesignresearch.mechlib.core.bidder.valuefunction.BundleValue;
+import org.spectrumauctions.sats.core.bidlang.BidSpliterators;
 import org.spectrumauctions.sats.core.model.GenericGood;
 import org.spectrumauctions.sats.core.model.UnsupportedBiddingLanguageException;
 
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
 
 /**
  * Iterates over the Powerset of Generic Values.<br>
@@ -35,28 +37,31 @@ public abstract class GenericPowersetIncreasing extends GenericPowerset {
 
     @Override
     public Iterator<BundleValue> iterator() {
-        return new IncreasingIterator();
+        return new IncreasingIterator(0);
     }
 
-    private class IncreasingIterator extends GenericPowerset.PowersetIterator {
+    /**
+     * {@inheritDoc}<br>
+     * The bids are split by their position, as the iteration can start at any position.
+     */
+    @Override
+    public Spliterator<BundleValue> spliterator(long numberOfBids) {
+        return BidSpliterators.ofRange(IncreasingIterator::new, 0, Math.min(numberOfBids, numberOfBundles()));
+    }
 
-        public IncreasingIterator() {
-            bundleSize = 1;
-            intiPickN();
-        }
+    private class IncreasingIterator extends GenericPowerset.PowersetIterator {
 
-        /**
-         * @see java.util.Iterator#hasNext()
-         */
-        @Override
-        public boolean hasNext() {
-            return (pickN.hasNext() || bundleSize <= maxBundleSize);
+        IncreasingIterator(long start) {
+            super(1, start);
         }
 
-
         @Override
-        void intiPickN() {
-            pickN = new GenericSetsPickN<>(maxQuantities, bundleSize++);
+        boolean nextBundleSize() {
+            if (bundleSize >= maxBundleSize) {
+                return false;
+            }
+            bundleSize++;
+            return true;
         }
 
     }
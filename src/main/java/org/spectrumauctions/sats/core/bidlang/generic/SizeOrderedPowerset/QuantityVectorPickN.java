@@ -0,0 +1,188 @@
+/**
+ * Copyright by Michael Weiss, weiss.michael@gmx.ch
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.spectrumauctions.sats.core.bidlang.generic.SizeOrderedPowerset;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates over all quantity vectors which sum up to a target and do not exceed the maximum quantity at any position.<br>
+ * The vectors are returned in decreasing lexicographic order, where the last position is the most significant one,
+ * i.e., in the same order as {@link GenericSetsPickN} returns them for the keys of its map.<br>
+ * The iterator does not allocate any memory after its creation: {@link #next()} always returns the same array,
+ * which is changed in place by the subsequent calls. Callers must not modify it and have to copy it if they want to keep it.
+ * A new target can be set with {@link #reset(int)}, and the iteration can start at any position with {@link #reset(int, long)}.
+ *
+ * @author Michael Weiss
+ */
+public final class QuantityVectorPickN implements Iterator<int[]> {
+
+    private final int[] maxQuantities;
+    /**
+     * lowerCapacity[i] = the sum of the maximum quantities of all positions smaller than i
+     */
+    private final int[] lowerCapacity;
+    private final int[] quantities;
+    /**
+     * counts[i][s] = the number of vectors for the positions smaller than i which sum up to s, saturated at {@link Long#MAX_VALUE}.
+     * Only created if required.
+     */
+    private long[][] counts;
+
+    /**
+     * True if {@link #quantities} contains a vector which was not yet returned
+     */
+    private boolean pending;
+    private boolean exhausted;
+
+    /**
+     * @param maxQuantities the maximum quantity per position
+     * @param target        the sum of every returned vector
+     */
+    public QuantityVectorPickN(int[] maxQuantities, int target) {
+        this.maxQuantities = maxQuantities.clone();
+        this.lowerCapacity = new int[maxQuantities.length + 1];
+        for (int i = 0; i < maxQuantities.length; i++) {
+            Preconditions.checkArgument(maxQuantities[i] >= 0, "Maximum quantities must not be negative");
+            lowerCapacity[i + 1] = lowerCapacity[i] + maxQuantities[i];
+        }
+        this.quantities = new int[maxQuantities.length];
+        reset(target);
+    }
+
+    /**
+     * Restarts the iteration with a new target
+     */
+    public void reset(int target) {
+        Preconditions.checkArgument(target > 0);
+        if (target > lowerCapacity[maxQuantities.length]) {
+            exhausted = true;
+            pending = false;
+        } else {
+            fill(maxQuantities.length, target);
+            exhausted = false;
+            pending = true;
+        }
+    }
+
+    /**
+     * Restarts the iteration with a new target, skipping the given number of vectors
+     *
+     * @param offset the position of the first returned vector among all vectors with this target, starting at zero
+     */
+    public void reset(int target, long offset) {
+        Preconditions.checkArgument(target > 0 && offset >= 0);
+        if (offset >= count(target)) {
+            exhausted = true;
+            pending = false;
+            return;
+        }
+        long[][] counts = getCounts();
+        int remaining = target;
+        long remainingOffset = offset;
+        for (int i = maxQuantities.length - 1; i >= 0; i--) {
+            // Try the quantities of this position in decreasing order, skipping all vectors starting with a bigger one
+            for (int q = Math.min(maxQuantities[i], remaining); q >= 0; q--) {
+                long vectorsWithQ = counts[i][remaining - q];
+                if (remainingOffset < vectorsWithQ) {
+                    quantities[i] = q;
+                    remaining -= q;
+                    break;
+                }
+                remainingOffset -= vectorsWithQ;
+            }
+        }
+        exhausted = false;
+        pending = true;
+    }
+
+    /**
+     * @return the number of vectors with the given target, or {@link Long#MAX_VALUE} if there are more
+     */
+    public long count(int target) {
+        if (target < 0 || target > lowerCapacity[maxQuantities.length]) {
+            return 0;
+        }
+        return getCounts()[maxQuantities.length][target];
+    }
+
+    private long[][] getCounts() {
+        if (counts == null) {
+            int capacity = lowerCapacity[maxQuantities.length];
+            long[][] result = new long[maxQuantities.length + 1][capacity + 1];
+            result[0][0] = 1;
+            for (int i = 0; i < maxQuantities.length; i++) {
+                for (int sum = 0; sum <= capacity; sum++) {
+                    long count = 0;
+                    for (int q = 0; q <= Math.min(maxQuantities[i], sum); q++) {
+                        count = saturatedAdd(count, result[i][sum - q]);
+                    }
+                    result[i + 1][sum] = count;
+                }
+            }
+            counts = result;
+        }
+        return counts;
+    }
+
+    private static long saturatedAdd(long a, long b) {
+        long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    /**
+     * Distributes the amount greedily to the positions smaller than the given bound, starting with the most significant one.
+     * This gives the lexicographically biggest vector for these positions.
+     */
+    private void fill(int bound, int amount) {
+        for (int i = bound - 1; i >= 0; i--) {
+            quantities[i] = Math.min(maxQuantities[i], amount);
+            amount -= quantities[i];
+        }
+    }
+
+    /**
+     * Moves to the lexicographically next smaller vector with the same sum.
+     *
+     * @return false if there is no such vector
+     */
+    private boolean advance() {
+        int lowerSum = 0;
+        for (int i = 0; i < quantities.length; i++) {
+            // Decreasing position i by one is possible if all less significant positions can absorb the difference
+            if (quantities[i] > 0 && lowerCapacity[i] > lowerSum) {
+                quantities[i]--;
+                fill(i, lowerSum + 1);
+                return true;
+            }
+            lowerSum += quantities[i];
+        }
+        return false;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!pending && !exhausted) {
+            pending = advance();
+            exhausted = !pending;
+        }
+        return pending;
+    }
+
+    /**
+     * @return the next vector. This is always the same array, see class documentation.
+     */
+    @Override
+    public int[] next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        pending = false;
+        return quantities;
+    }
+}
@@ -0,0 +1,196 @@
+/**
+ * Copyright by Michael Weiss, weiss.michael@gmx.ch
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.spectrumauctions.sats.core.bidlang.xor;
+
+import org.marketdesignresearch.mechlib.core.Bundle;
+import org.marketdesignresearch.mechlib.core.BundleEntry;
+import org.spectrumauctions.sats.core.model.cats.CATSBidder;
+import org.spectrumauctions.sats.core.model.cats.CATSLicense;
+import org.spectrumauctions.sats.core.model.cats.CATSWorld;
+import org.spectrumauctions.sats.core.model.cats.graphalgorithms.VertexCell;
+import org.spectrumauctions.sats.core.util.math.FenwickTree;
+import org.spectrumauctions.sats.core.util.random.UniformDistributionRNG;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * The bundle construction of the CATS Regions bid generation, as used by {@link CatsXOR}.<br>
+ * Goods are addressed by their position in the goods collection. The generator keeps the bundle under construction
+ * as a bit set, together with its <i>frontier</i>, i.e., the goods not in the bundle which are adjacent to one of its goods.
+ * The weights of the frontier goods are kept in a {@link FenwickTree}, such that adding a good and drawing the next one
+ * only take time logarithmic in the number of goods.
+ */
+final class CatsBundleGenerator {
+
+    private final CATSWorld world;
+    private final UniformDistributionRNG uniRng;
+    private final CATSLicense[] goods;
+    /**
+     * The private value of every good minus the smallest private value of the bidder
+     */
+    private final double[] weights;
+    /**
+     * For every good, the goods whose adjacency list contains it, i.e., the goods which enter the frontier with it
+     */
+    private final int[][] enteringFrontier;
+    private final FenwickTree allWeights;
+
+    private final BitSet bundle;
+    private final BitSet frontier;
+    private final FenwickTree frontierWeights;
+    private int bundleSize = 0;
+
+    CatsBundleGenerator(Collection<CATSLicense> goods, CATSBidder bidder, CATSWorld world, UniformDistributionRNG uniRng) {
+        this.world = world;
+        this.uniRng = uniRng;
+        this.goods = goods.toArray(new CATSLicense[0]);
+        Map<Integer, Integer> positionOfVertex = new HashMap<>();
+        for (int i = 0; i < this.goods.length; i++) {
+            positionOfVertex.put(this.goods[i].getVertex().getID(), i);
+        }
+
+        double minValue = 1e10;
+        for (BigDecimal value : bidder.getPrivateValues().values()) {
+            minValue = Math.min(minValue, value.doubleValue());
+        }
+        this.weights = new double[this.goods.length];
+        for (int i = 0; i < this.goods.length; i++) {
+            weights[i] = Math.max(0, bidder.getPrivateValues().get(this.goods[i].getLongId()).doubleValue() - minValue);
+        }
+        this.allWeights = new FenwickTree(weights);
+
+        // The adjacency list of the vertex with id v is at position v - 1 (see Graph#isAdjacent)
+        List<List<Integer>> entering = new ArrayList<>(this.goods.length);
+        for (int i = 0; i < this.goods.length; i++) {
+            entering.add(new ArrayList<>());
+        }
+        int vertexId = 1;
+        for (List<VertexCell> adjacencyList : world.getGrid().getAdjacencyLists()) {
+            Integer position = positionOfVertex.get(vertexId++);
+            if (position == null) continue;
+            for (VertexCell cell : adjacencyList) {
+                Integer neighbor = positionOfVertex.get(cell._v.getID());
+                if (neighbor != null) {
+                    entering.get(neighbor).add(position);
+                }
+            }
+        }
+        this.enteringFrontier = new int[this.goods.length][];
+        for (int i = 0; i < this.goods.length; i++) {
+            enteringFrontier[i] = entering.get(i).stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        this.bundle = new BitSet(this.goods.length);
+        this.frontier = new BitSet(this.goods.length);
+        this.frontierWeights = new FenwickTree(this.goods.length);
+    }
+
+    int numberOfGoods() {
+        return goods.length;
+    }
+
+    int bundleSize() {
+        return bundleSize;
+    }
+
+    /**
+     * Empties the bundle under construction. The frontier weights are reset completely (instead of removing the
+     * frontier goods one by one), such that rounding errors do not accumulate over the constructed bundles.
+     */
+    void clear() {
+        frontierWeights.clear();
+        frontier.clear();
+        bundle.clear();
+        bundleSize = 0;
+    }
+
+    void add(int good) {
+        if (bundle.get(good)) return;
+        bundle.set(good);
+        bundleSize++;
+        if (frontier.get(good)) {
+            frontier.clear(good);
+            frontierWeights.set(good, 0);
+        }
+        for (int neighbor : enteringFrontier[good]) {
+            if (!bundle.get(neighbor) && !frontier.get(neighbor)) {
+                frontier.set(neighbor);
+                frontierWeights.set(neighbor, weights[neighbor]);
+            }
+        }
+    }
+
+    /**
+     * @return a good drawn with probability proportional to its weight
+     */
+    int drawWeighted() {
+        double value = uniRng.nextDouble() * allWeights.total();
+        int good = allWeights.find(value);
+        if (weights[good] <= 0) {
+            // Only possible due to rounding or if all weights are zero
+            for (int i = good; i < goods.length; i++) {
+                if (weights[i] > 0) return i;
+            }
+        }
+        return good;
+    }
+
+    /**
+     * Selects the next good to add to the bundle, either by a jump to a random good, or by drawing a frontier good
+     * with probability proportional to its weight.
+     *
+     * @return the position of the good, or -1 if there is no good to add
+     */
+    int selectGoodToAdd() {
+        if (uniRng.nextDouble() <= world.getJumpProbability()) {
+            if (goods.length == bundleSize) return -1; // Prevent infinite loop if there is no other license
+            int randomGood;
+            do {
+                randomGood = uniRng.nextInt(goods.length);
+            } while (bundle.get(randomGood));
+            return randomGood;
+        } else {
+            if (frontier.isEmpty()) return -1;
+            double value = uniRng.nextDouble() * frontierWeights.total();
+            int good = frontierWeights.find(value);
+            if (frontierWeights.get(good) > 0) {
+                return good;
+            }
+            // Only possible due to rounding or if all frontier weights are zero
+            for (int i = frontier.nextSetBit(good); i >= 0; i = frontier.nextSetBit(i + 1)) {
+                if (weights[i] > 0) return i;
+            }
+            for (int i = frontier.previousSetBit(good); i >= 0; i = frontier.previousSetBit(i - 1)) {
+                if (weights[i] > 0) return i;
+            }
+            return frontier.nextSetBit(0);
+        }
+    }
+
+    /**
+     * @return a copy of the bundle under construction
+     */
+    BitSet getBundleBits() {
+        return (BitSet) bundle.clone();
+    }
+
+    Bundle toBundle() {
+        Set<BundleEntry> entries = new HashSet<>();
+        for (int i = bundle.nextSetBit(0); i >= 0; i = bundle.nextSetBit(i + 1)) {
+            entries.add(new BundleEntry(goods[i], 1));
+        }
+        return new Bundle(entries);
+    }
+
+    double resaleValue() {
+        double sum = 0;
+        for (int i = bundle.nextSetBit(0); i >= 0; i = bundle.nextSetBit(i + 1)) {
+            sum += goods[i].getCommonValue();
+        }
+        return sum;
+    }
+}
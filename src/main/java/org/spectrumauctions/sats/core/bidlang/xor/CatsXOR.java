@@ -4,7 +4,6 @@ import com.google.common.base.Preconditions;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.marketdesignresearch.mechlib.core.Bundle;
-import org.marketdesignresearch.mechlib.core.BundleEntry;
 import org.marketdesignresearch.mechlib.core.bidder.valuefunction.BundleValue;
 import org.spectrumauctions.sats.core.bidlang.BiddingLanguage;
 import org.spectrumauctions.sats.core.model.cats.CATSBidder;
@@ -15,7 +14,6 @@ import org.spectrumauctions.sats.core.util.random.UniformDistributionRNG;
 
 import java.math.BigDecimal;
 import java.util.*;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.stream.Collectors;
 
 /**
@@ -112,9 +110,10 @@ public class CatsXOR implements BiddingLanguage {
         private static final int MAX_RETRIES = 100;
 
         private final UniformDistributionRNG uniRng;
-        private Queue<CATSLicense> originalLicenseQueue;
-        private Set<CATSLicense> originalBundle;
-        private double minValue;
+        private final CatsBundleGenerator generator;
+        private Queue<Integer> originalLicenseQueue;
+        private BitSet originalBundle;
+        private int originalBundleSize;
         private double budget;
         private double minResaleValue;
         private int retries;
@@ -123,7 +122,7 @@ public class CatsXOR implements BiddingLanguage {
         CATSIterator(UniformDistributionRNG uniRng, boolean acceptNulls) {
             Preconditions.checkArgument(world.getLicenses().size() == goods.size());
             this.uniRng = uniRng;
-            this.minValue = 1e10;
+            this.generator = new CatsBundleGenerator(goods, bidder, world, uniRng);
             this.retries = 0;
             this.acceptNulls = acceptNulls;
         }
@@ -131,8 +130,8 @@ public class CatsXOR implements BiddingLanguage {
         @Override
         public boolean hasNext() {
             if (originalBundle == null) return true;            // The first bundle has not been created yet
-            int licensesLeftToChoose = goods.size() - originalBundle.size();
-            return !(originalBundle.size() <= 1)                // The original bundle included only one license
+            int licensesLeftToChoose = goods.size() - originalBundleSize;
+            return !(originalBundleSize <= 1)                   // The original bundle included only one license
                         && !originalLicenseQueue.isEmpty()      // We're not done yet with creating substitutable bundles
                         && licensesLeftToChoose > 0
                         && retries < MAX_RETRIES;
@@ -143,49 +142,42 @@ public class CatsXOR implements BiddingLanguage {
             if (!hasNext())
                 throw new NoSuchElementException();
 
-            HashSet<CATSLicense> licenses = new HashSet<>();
-            for (Map.Entry<Long, BigDecimal> entry : bidder.getPrivateValues().entrySet()) {
-                if (entry.getValue().doubleValue() < minValue) minValue = entry.getValue().doubleValue();
-            }
-
+            generator.clear();
             if (originalLicenseQueue == null) {
                 // We didn't construct an original bid yet
-                WeightedRandomCollection<CATSLicense> weightedGoods = new WeightedRandomCollection<>(uniRng);
-                goods.forEach(g -> {
-                    double positivePrivateValue = (bidder.getPrivateValues().get(g.getLongId()).doubleValue() - minValue);
-                    weightedGoods.add(positivePrivateValue, g);
-                });
-                CATSLicense first = weightedGoods.next();
-                licenses.add(first);
-                while (licenses.size() < goods.size() && uniRng.nextDouble() <= world.getAdditionalLocation()) {
-                    CATSLicense next = selectLicenseToAdd(licenses);
-                    licenses.add(next);
+                generator.add(generator.drawWeighted());
+                while (generator.bundleSize() < generator.numberOfGoods() && uniRng.nextDouble() <= world.getAdditionalLocation()) {
+                    int next = generator.selectGoodToAdd();
+                    if (next < 0) break;
+                    generator.add(next);
                 }
 
-                Set<BundleEntry> bundleEntries = licenses.stream().map(l -> new BundleEntry(l, 1)).collect(Collectors.toSet());
-                Bundle bundle = new Bundle(bundleEntries);
+                Bundle bundle = generator.toBundle();
                 BigDecimal value = bidder.calculateValue(bundle);
                 if (value.compareTo(BigDecimal.ZERO) < 0) return next(); // Restart bundle generation for this bidder
 
                 budget = world.getBudgetFactor() * value.doubleValue();
-                minResaleValue = world.getResaleFactor() * licenses.stream().mapToDouble(CATSLicense::getCommonValue).sum();
-                originalLicenseQueue = new LinkedBlockingQueue<>(licenses);
-                originalBundle = licenses;
+                minResaleValue = world.getResaleFactor() * generator.resaleValue();
+                originalBundle = generator.getBundleBits();
+                originalBundleSize = generator.bundleSize();
+                originalLicenseQueue = new ArrayDeque<>();
+                for (int i = originalBundle.nextSetBit(0); i >= 0; i = originalBundle.nextSetBit(i + 1)) {
+                    originalLicenseQueue.add(i);
+                }
                 return new BundleValue(value, bundle);
             } else {
-                CATSLicense first = originalLicenseQueue.poll();
-                licenses.add(first);
-                while (licenses.size() < originalBundle.size()) {
-                    CATSLicense toAdd = selectLicenseToAdd(licenses);
-                    if (toAdd != null) licenses.add(toAdd);
+                int first = originalLicenseQueue.poll();
+                generator.add(first);
+                while (generator.bundleSize() < originalBundleSize) {
+                    int toAdd = generator.selectGoodToAdd();
+                    if (toAdd >= 0) generator.add(toAdd);
                 }
-                HashSet<BundleEntry> bundleEntries = (HashSet<BundleEntry>) licenses.stream().map(l -> new BundleEntry(l, 1)).collect(Collectors.toSet());
-                Bundle bundle = new Bundle(bundleEntries);
+                Bundle bundle = generator.toBundle();
                 BigDecimal value = bidder.calculateValue(bundle);
-                double resaleValue = licenses.stream().mapToDouble(CATSLicense::getCommonValue).sum();
+                double resaleValue = generator.resaleValue();
                 if (value.doubleValue() >= 0 && value.doubleValue() <= budget
                         && resaleValue >= minResaleValue
-                        && !licenses.equals(originalBundle)) {
+                        && !generator.getBundleBits().equals(originalBundle)) {
                     retries = 0; // Found one - reset retries counter
                     return new BundleValue(value, bundle);
                 } else {
@@ -200,7 +192,7 @@ public class CatsXOR implements BiddingLanguage {
             }
         }
 
-        private BundleValue handleNulls(CATSLicense first) throws NoValidElementFoundException {
+        private BundleValue handleNulls(int first) throws NoValidElementFoundException {
             if (acceptNulls) {
                 return null;
             }
@@ -209,42 +201,6 @@ public class CatsXOR implements BiddingLanguage {
             else throw new NoValidElementFoundException();
         }
 
-        private CATSLicense selectLicenseToAdd(Set<CATSLicense> bundle) {
-            if (uniRng.nextDouble() <= world.getJumpProbability()) {
-                if (goods.size() == bundle.size()) return null; // Prevent infinite loop if there is no other license
-                CATSLicense randomLicense;
-                do {
-                    Iterator<CATSLicense> iterator = goods.iterator();
-                    int index = uniRng.nextInt(goods.size());
-                    for (int i = 0; i < index; i++) {
-                        iterator.next();
-                    }
-                    randomLicense = iterator.next();
-                } while(bundle.contains(randomLicense));
-
-                return randomLicense;
-            } else {
-                WeightedRandomCollection<CATSLicense> neighbors = new WeightedRandomCollection<>(uniRng);
-                // Filter the licenses that are not contained yet in the bundle and where there exists an edge to one
-                // of the licenses in the bundle.
-                goods.stream().filter(l -> !bundle.contains(l) && edgeExists(l, bundle))
-                        .forEach(g -> {
-                            double positivePrivateValue = bidder.getPrivateValues().get(g.getLongId()).doubleValue() - minValue;
-                            neighbors.add(positivePrivateValue, g);
-                        });
-                if (neighbors.hasNext()) return neighbors.next();
-                else return null;
-            }
-        }
-
-        private boolean edgeExists(CATSLicense license, Set<CATSLicense> bundle) {
-            for (CATSLicense l : bundle) {
-                if (world.getGrid().isAdjacent(license.getVertex(), l.getVertex()))
-                    return true;
-            }
-            return false;
-        }
-
         private class NoValidElementFoundException extends Exception {
             NoValidElementFoundException() {
                 super("After " + retries + " retries, no other bundle was found " +
@@ -258,32 +214,4 @@ public class CatsXOR implements BiddingLanguage {
         }
     }
 
-    private class WeightedRandomCollection<T> implements Iterator<T> {
-        private final NavigableMap<Double, T> map = new TreeMap<>();
-        private final UniformDistributionRNG random;
-        private double total = 0;
-
-        private WeightedRandomCollection(UniformDistributionRNG random) {
-            this.random = random;
-        }
-
-        public void add(double weight, T result) {
-            total += weight;
-            map.put(total, result);
-        }
-
-        @Override
-        public boolean hasNext() {
-            return !map.isEmpty();
-        }
-
-        public T next() {
-            double value = random.nextDouble() * total;
-            Map.Entry<Double, T> entry = map.ceilingEntry(value);
-            if (entry == null)
-                return null;
-            return entry.getValue();
-        }
-    }
-
 }
@@ -7,12 +7,13 @@ package org.spectrumauctions.sats.core.bidlang.xor;
 
 import org.marketdesignresearch.mechlib.core.Bundle;
 import org.marketdesignresearch.mechlib.core.bidder.valuefunction.BundleValue;
+import org.spectrumauctions.sats.core.bidlang.BidSpliterators;
 import org.spectrumauctions.sats.core.model.License;
 import org.spectrumauctions.sats.core.model.SATSBidder;
 
-import java.math.BigInteger;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.Spliterator;
 
 /**
  * @author Michael Weiss
@@ -26,25 +27,36 @@ public class DecreasingSizeOrderedXOR extends SizeOrderedXOR {
 
     @Override
     public Iterator<BundleValue> iterator() {
-        return new DecreasingIterator();
+        return new DecreasingIterator(new BundleIterator(false));
+    }
+
+    /**
+     * {@inheritDoc}<br>
+     * The bids are split by their position, as any bundle can be found directly by its rank.
+     */
+    @Override
+    public Spliterator<BundleValue> spliterator(long numberOfBids) {
+        return BidSpliterators.ofRange(position -> new DecreasingIterator(new BundleIterator(false, position)),
+                0, Math.min(numberOfBids, numberOfBundles()));
     }
 
     private class DecreasingIterator implements Iterator<BundleValue> {
 
-        BigInteger minIndex = BigInteger.ZERO;
-        BigInteger index = BigInteger.valueOf(2).pow(DecreasingSizeOrderedXOR.this.goods.size()).subtract(BigInteger.ONE);
+        private final BundleIterator bundles;
+
+        private DecreasingIterator(BundleIterator bundles) {
+            this.bundles = bundles;
+        }
 
         @Override
         public boolean hasNext() {
-            return index.compareTo(minIndex) > 0;
+            return bundles.hasNext();
         }
 
         @Override
         public BundleValue next() {
-            Bundle bundle = DecreasingSizeOrderedXOR.this.getBundle(index);
-            index = index.subtract(BigInteger.ONE);
+            Bundle bundle = bundles.next();
             return new BundleValue(getBidder().calculateValue(bundle), bundle);
         }
-
     }
 }
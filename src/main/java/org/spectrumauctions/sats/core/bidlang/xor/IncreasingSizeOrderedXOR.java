@@ -7,12 +7,13 @@ package org.spectrumauctions.sats.core.bidlang.xor;
 
 import org.marketdesignresearch.mechlib.core.Bundle;
 import org.marketdesignresearch.mechlib.core.bidder.valuefunction.BundleValue;
+import org.spectrumauctions.sats.core.bidlang.BidSpliterators;
 import org.spectrumauctions.sats.core.model.License;
 import org.spectrumauctions.sats.core.model.SATSBidder;
 
-import java.math.BigInteger;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.Spliterator;
 
 /**
  * @author Michael Weiss
@@ -27,23 +28,35 @@ public class IncreasingSizeOrderedXOR extends SizeOrderedXOR {
 
     @Override
     public Iterator<BundleValue> iterator() {
-        return new IncreasingIterator();
+        return new IncreasingIterator(new BundleIterator(true));
+    }
+
+    /**
+     * {@inheritDoc}<br>
+     * The bids are split by their position, as any bundle can be found directly by its rank.
+     */
+    @Override
+    public Spliterator<BundleValue> spliterator(long numberOfBids) {
+        return BidSpliterators.ofRange(position -> new IncreasingIterator(new BundleIterator(true, position)),
+                0, Math.min(numberOfBids, numberOfBundles()));
     }
 
     private class IncreasingIterator implements Iterator<BundleValue> {
 
-        BigInteger index = BigInteger.ONE;
-        BigInteger maxIntex = BigInteger.valueOf(2).pow(IncreasingSizeOrderedXOR.this.goods.size());
+        private final BundleIterator bundles;
+
+        private IncreasingIterator(BundleIterator bundles) {
+            this.bundles = bundles;
+        }
 
         @Override
         public boolean hasNext() {
-            return index.compareTo(maxIntex) < 0;
+            return bundles.hasNext();
         }
 
         @Override
         public BundleValue next() {
-            Bundle bundle = IncreasingSizeOrderedXOR.this.getBundle(index);
-            index = index.add(BigInteger.ONE);
+            Bundle bundle = bundles.next();
             return new BundleValue(getBidder().calculateValue(bundle), bundle);
         }
     }
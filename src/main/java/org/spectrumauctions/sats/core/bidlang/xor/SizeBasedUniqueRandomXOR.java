@@ -5,23 +5,30 @@
  */
 package org.spectrumauctions.sats.core.bidlang.xor;
 
-import com.google.common.math.BigIntegerMath;
 import org.marketdesignresearch.mechlib.core.Bundle;
 import org.marketdesignresearch.mechlib.core.bidder.valuefunction.BundleValue;
+import org.spectrumauctions.sats.core.bidlang.BidSpliterators;
 import org.spectrumauctions.sats.core.bidlang.BiddingLanguage;
 import org.spectrumauctions.sats.core.bidlang.MissingInformationException;
 import org.spectrumauctions.sats.core.model.License;
 import org.spectrumauctions.sats.core.model.SATSBidder;
+import org.spectrumauctions.sats.core.util.RankSelectSet;
+import org.spectrumauctions.sats.core.util.math.Combinations;
 import org.spectrumauctions.sats.core.util.random.GaussianDistributionRNG;
 import org.spectrumauctions.sats.core.util.random.RNGSupplier;
 import org.spectrumauctions.sats.core.util.random.UniformDistributionRNG;
 
-import java.io.Serializable;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.*;
 
 public class SizeBasedUniqueRandomXOR implements BiddingLanguage {
+    /**
+     * The maximal number of draws of a bundle size, before the distribution is considered to not cover any size
+     * with remaining bundles
+     */
+    private static final int MAX_SIZE_DRAWS = 100000;
+
     private int meanBundleSize = -1;
     private double standardDeviation = -1;
     private Collection<? extends License> goods;
@@ -60,8 +67,8 @@ public class SizeBasedUniqueRandomXOR implements BiddingLanguage {
     * Set the number of iterations of this iterator.
     *
     * @param iterations
-    *            : The number of iterations before iterator.hasNext() returns false. Note that setting this parameter
-    *            too high will result in a slow iterator and possibly cause a StackOverflowException while iterating.
+    *            : The number of iterations before iterator.hasNext() returns false. If more iterations than
+    *            distinct bundles are requested, iterator.hasNext() returns false once all bundles have been generated.
     */
 
     public void setIterations(int iterations) {
@@ -95,6 +102,32 @@ public class SizeBasedUniqueRandomXOR implements BiddingLanguage {
      */
     @Override
     public Iterator<BundleValue> iterator() {
+        return valueIterator();
+    }
+
+    /**
+     * {@inheritDoc}<br>
+     * The bundles are drawn sequentially, as every bundle depends on the previously drawn ones,
+     * but they are valued in parallel.
+     */
+    @Override
+    public Spliterator<BundleValue> spliterator(long numberOfBids) {
+        ValueIterator values = valueIterator();
+        Iterator<Bundle> bundles = new Iterator<Bundle>() {
+            @Override
+            public boolean hasNext() {
+                return values.hasNext();
+            }
+
+            @Override
+            public Bundle next() {
+                return values.nextBundle();
+            }
+        };
+        return BidSpliterators.ofBundles(bundles, this::getValue, numberOfBids);
+    }
+
+    private ValueIterator valueIterator() {
         if (meanBundleSize < 0 || standardDeviation < 0) {
             setDefaultDistribution();
         }
@@ -105,13 +138,6 @@ public class SizeBasedUniqueRandomXOR implements BiddingLanguage {
                 rngSupplier.getGaussianDistributionRNG(seed + 1), meanBundleSize, standardDeviation, iterations);
     }
 
-    private class BigIntegerComparator implements Comparator<BigInteger>, Serializable{
-        @Override
-        public int compare(BigInteger o1, BigInteger o2) {
-            return o1.compareTo(o2);
-        }
-    }
-
     /**
      * @return a bigInteger between 0 and maxValue (both inclusive)
      */
@@ -126,9 +152,17 @@ public class SizeBasedUniqueRandomXOR implements BiddingLanguage {
     }
 
     private class ValueIterator implements Iterator<BundleValue> {
-        final Map<Integer, SortedSet<BigInteger>> generatedBundleNumbers = new HashMap<>();
-        final List<BigInteger> remainingBundles;
+        /**
+         * The zero-based sub-indices (see {@link SizeOrderedXOR#getBundle(BigInteger, int)}) of the generated bundles, per bundle size
+         */
+        final RankSelectSet[] generatedBundleNumbers;
+        /**
+         * The number of not yet generated bundles, per bundle size
+         */
+        final BigInteger[] remainingBundles;
+        BigInteger totalRemainingBundles = BigInteger.ZERO;
         final int numberOfGoods;
+        final SizeOrderedXOR bundleIndex;
         private final UniformDistributionRNG uniRng;
         private final GaussianDistributionRNG gaussRng;
         private final int meanBundleSize;
@@ -145,73 +179,60 @@ public class SizeBasedUniqueRandomXOR implements BiddingLanguage {
             this.remainingIterations = iterations;
 
             numberOfGoods = SizeBasedUniqueRandomXOR.this.goods.size();
-            remainingBundles = new ArrayList<>(numberOfGoods - 1);
-            while (remainingBundles.size() < numberOfGoods - 1)
-                remainingBundles.add(BigInteger.ZERO);
-
-            // TODO To fasten things up, use the symmetry properties of binomial coefficient (symmetric pyramid of
-            // values), saving half of calculations.
+            bundleIndex = new IncreasingSizeOrderedXOR(goods, getBidder());
+            generatedBundleNumbers = new RankSelectSet[numberOfGoods + 1];
+            remainingBundles = new BigInteger[numberOfGoods + 1];
+            Combinations combinations = new Combinations(numberOfGoods);
             for (int bundleSize = 1; bundleSize <= numberOfGoods; bundleSize++) {
-                generatedBundleNumbers.put(bundleSize, new TreeSet<>(new BigIntegerComparator()));
-                BigInteger numberOfBundles = BigIntegerMath.binomial(numberOfGoods, bundleSize);
-                remainingBundles.add(bundleSize - 1, numberOfBundles);
+                generatedBundleNumbers[bundleSize] = new RankSelectSet();
+                remainingBundles[bundleSize] = combinations.binomial(numberOfGoods, bundleSize);
+                totalRemainingBundles = totalRemainingBundles.add(remainingBundles[bundleSize]);
             }
-
         }
 
         @Override
         public boolean hasNext() {
-            return remainingIterations > 0;
+            return remainingIterations > 0 && totalRemainingBundles.signum() > 0;
         }
 
         @Override
         public BundleValue next() {
+            Bundle bundle = nextBundle();
+            return new BundleValue(getValue(bundle), bundle);
+        }
+
+        /**
+         * Draws the next bundle, without valuing it
+         */
+        Bundle nextBundle() {
             // Check if bundles available and update remaining number of bundles
             if (!hasNext())
                 throw new NoSuchElementException();
             remainingIterations--;
 
-            return recNext();
-        }
-
-        private BundleValue recNext() {
-
-            // Determine LicenseBundle Size. TODO: This has to be done nicer, avoiding picking a nonexisting/nonavailable size
-            int bundleSize = (int) Math.round(gaussRng.nextGaussian(meanBundleSize, standardDeviation));
-            if (bundleSize < 1 || bundleSize > goods.size())
-                return recNext();
-
-            BigInteger remainingBundlesOfThisSize = remainingBundles.get(bundleSize - 1);
-
-            // Check if LicenseBundle out of feasible range (bigger than available items or size <= 0), If so, recurse.
-            if (remainingBundlesOfThisSize == null) {
-                return recNext();
-            }
-
-            // Check if bundles of this size are available
-            if (remainingBundlesOfThisSize.compareTo(BigInteger.ZERO) <= 0) {
-                return recNext();
-            }
-
-            // determine bundle id
-            BigInteger bundleId = randomBigInteger(remainingBundlesOfThisSize, uniRng.nextLong());
-            for (BigInteger previouslyGeneratedIndex : generatedBundleNumbers.get(bundleSize)) {
-                if (bundleId.compareTo(previouslyGeneratedIndex) >= 0) {
-                    bundleId = bundleId.add(BigInteger.ONE);
-                } else {
-                    // We can break as the list is sorted
-                    break;
+            // Determine LicenseBundle Size, drawing again if the size is infeasible or all bundles of this size have been generated
+            int bundleSize;
+            int draws = 0;
+            do {
+                if (draws++ == MAX_SIZE_DRAWS) {
+                    throw new IllegalStateException("No bundle size with remaining bundles was drawn in " + MAX_SIZE_DRAWS
+                            + " draws from the normal distribution with mean " + meanBundleSize + " and standard deviation "
+                            + stdDeviation + ". All bundles of the sizes covered by this distribution have been generated.");
                 }
-            }
+                bundleSize = (int) Math.round(gaussRng.nextGaussian(meanBundleSize, stdDeviation));
+            } while (bundleSize < 1 || bundleSize > numberOfGoods || remainingBundles[bundleSize].signum() <= 0);
+
+            // Determine bundle id among the bundles of this size which were not yet generated
+            BigInteger drawn = randomBigInteger(remainingBundles[bundleSize].subtract(BigInteger.ONE), uniRng.nextLong());
+            BigInteger bundleId = generatedBundleNumbers[bundleSize].selectAbsent(drawn);
             // Update index info
-            generatedBundleNumbers.get(bundleSize).add(bundleId);
-            BigInteger newlyAvailable = remainingBundles.remove(bundleSize - 1).subtract(BigInteger.ONE);
-            remainingBundles.add(bundleSize - 1, newlyAvailable);
+            generatedBundleNumbers[bundleSize].add(bundleId);
+            remainingBundles[bundleSize] = remainingBundles[bundleSize].subtract(BigInteger.ONE);
+            totalRemainingBundles = totalRemainingBundles.subtract(BigInteger.ONE);
 
             // Return result
-            SizeOrderedXOR sizeOrderedXOR = new IncreasingSizeOrderedXOR(goods, getBidder());
-            Bundle bundle = sizeOrderedXOR.getBundle(bundleId, bundleSize);
-            return new BundleValue(bidder.calculateValue(bundle), bundle);
+            // Sub-indices of the bundles of one size start at one
+            return bundleIndex.getBundle(bundleId.add(BigInteger.ONE), bundleSize);
         }
     }
 
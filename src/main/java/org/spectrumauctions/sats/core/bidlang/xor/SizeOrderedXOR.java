@@ -5,27 +5,26 @@
  */
 package org.spectrumauctions.sats.core.bidlang.xor;
 
-import com.google.common.math.BigIntegerMath;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
 import org.marketdesignresearch.mechlib.core.Bundle;
 import org.marketdesignresearch.mechlib.core.BundleEntry;
 import org.spectrumauctions.sats.core.bidlang.BiddingLanguage;
 import org.spectrumauctions.sats.core.model.License;
 import org.spectrumauctions.sats.core.model.SATSBidder;
+import org.spectrumauctions.sats.core.util.math.Combinations;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 public abstract class SizeOrderedXOR implements BiddingLanguage {
 
-    private static final Logger logger = LogManager.getLogger(SizeOrderedXOR.class);
-
     final List<? extends License> goods;
     private SATSBidder bidder;
+    private transient Combinations combinations;
 
     protected SizeOrderedXOR(Collection<? extends License> goods, SATSBidder bidder) {
         this.goods = new ArrayList<>(goods);
@@ -37,94 +36,208 @@ public abstract class SizeOrderedXOR implements BiddingLanguage {
         return bidder;
     }
 
+    private Combinations getCombinations() {
+        if (combinations == null) {
+            combinations = new Combinations(goods.size());
+        }
+        return combinations;
+    }
+
     /**
      * @param index of the queried bundle
      */
     public Bundle getBundle(BigInteger index) {
-        String bundleRepresentation = packageRepresentation(index, goods.size()).toString();
-        return getBundle(bundleRepresentation);
+        Combinations combinations = getCombinations();
+        int size = 0;
+        BigInteger sizeStart = BigInteger.ZERO;
+        BigInteger sum = BigInteger.ZERO;
+        while (sum.compareTo(index) < 0) {
+            size++;
+            if (size > goods.size()) {
+                throw new RuntimeException("Index to big for available number of items: index=" + index.toString());
+            }
+            sizeStart = sum;
+            sum = sum.add(combinations.binomial(goods.size(), size));
+        }
+        return getBundle(combinations.unrank(index.subtract(sizeStart), size));
     }
 
-    private Bundle getBundle(String bundleRepresentation) {
+    private Bundle getBundle(int[] positions) {
         HashSet<BundleEntry> result = new HashSet<>();
-        for (int i = 0; i < bundleRepresentation.length(); i++) {
-            if (bundleRepresentation.charAt(i) == '1') {
-                result.add(new BundleEntry(goods.get(i), 1));
-            }
+        for (int position : positions) {
+            result.add(new BundleEntry(goods.get(position), 1));
         }
         return new Bundle(result);
     }
 
     /**
      * @param subIndex an index of this bundle in a list of all bundles with same size (hence NOT the index
-     *                 in the iterator), starting at zero.
+     *                 in the iterator), starting at one (zero is treated as one).
      * @param size the size of the bundle
      * @return a specific bundle of given size
      */
     public Bundle getBundle(BigInteger subIndex, int size) {
-        // TODO check if subIndex is valid;
-        String binaryString = recBinaryString(subIndex, goods.size(), size).toString();
-        return getBundle(binaryString);
+        return getBundle(getCombinations().unrank(subIndex, size));
     }
 
     /**
      * @return the StringBuilder representation of the bundle, i.e., 1/0 for all licenses
      */
     public static StringBuilder packageRepresentation(BigInteger index, int n) {
-        SizeStarter foundSize = bundleSize(index, n);
-        BigInteger sizeBasedIndex = index.subtract(foundSize.sizeStart);
-        return recBinaryString(sizeBasedIndex, n, foundSize.size);
-    }
-
-    private static SizeStarter bundleSize(BigInteger index, int n) {
-        BigInteger sum = BigInteger.ZERO;
-        BigInteger previousSum = null;
+        Combinations combinations = new Combinations(n);
         int size = 0;
+        BigInteger sizeStart = BigInteger.ZERO;
+        BigInteger sum = BigInteger.ZERO;
         while (sum.compareTo(index) < 0) {
             size++;
             if (size > n) {
                 throw new RuntimeException("Index to big for available number of items: index=" + index.toString());
             }
-            BigInteger thisSizeBundles = BigIntegerMath.binomial(n, size);
-            previousSum = sum;
-            sum = sum.add(thisSizeBundles);
+            sizeStart = sum;
+            sum = sum.add(combinations.binomial(n, size));
+        }
+        StringBuilder representation = new StringBuilder(n);
+        for (int i = 0; i < n; i++) {
+            representation.append('0');
         }
-        return new SizeStarter(size, previousSum);
+        for (int position : combinations.unrank(index.subtract(sizeStart), size)) {
+            representation.setCharAt(position, '1');
+        }
+        return representation;
     }
 
-    private static class SizeStarter {
-        private final BigInteger sizeStart;
-        private final int size;
+    /**
+     * @return the number of non-empty bundles, or {@link Long#MAX_VALUE} if there are more
+     */
+    long numberOfBundles() {
+        return goods.size() >= 63 ? Long.MAX_VALUE : (1L << goods.size()) - 1;
+    }
 
-        public SizeStarter(int size, BigInteger sizeStart) {
-            this.sizeStart = sizeStart;
-            this.size = size;
+    /**
+     * Enumerates all non-empty bundles in the order of their index (i.e., {@link #getBundle(BigInteger)}),
+     * or in the reverse order, without ranking every single bundle.<br>
+     * For up to 64 goods, the bundles of one size are walked with Gosper's hack on a <code>long</code>,
+     * for more goods, the sorted positions of the goods in the bundle are advanced.
+     */
+    class BundleIterator implements Iterator<Bundle> {
+
+        private final boolean increasing;
+        private final int n;
+        private int size;
+        /**
+         * The remaining number of bundles of the current size, only used for up to 64 goods
+         */
+        private long remainingOfSize;
+        /**
+         * For up to 64 goods, good i is represented by bit (n - 1 - i), such that the index order of the bundles
+         * of one size is the descending numerical order. In increasing order, the complements are walked instead.
+         */
+        private long current;
+        /**
+         * For more than 64 goods, the sorted positions of the next bundle, or null if the iterator is exhausted
+         */
+        private int[] positions;
+
+        BundleIterator(boolean increasing) {
+            this.increasing = increasing;
+            this.n = goods.size();
+            startSize(increasing ? 1 : n);
         }
-    }
 
-    private static StringBuilder recBinaryString(BigInteger sizeBasedIndex, int n, int k) {
+        /**
+         * @param start the position of the first bundle in the iteration order, starting at zero
+         */
+        BundleIterator(boolean increasing, long start) {
+            this.increasing = increasing;
+            this.n = goods.size();
+            Combinations combinations = getCombinations();
+            BigInteger total = BigInteger.ONE.shiftLeft(n).subtract(BigInteger.ONE);
+            BigInteger index = increasing ? BigInteger.valueOf(start).add(BigInteger.ONE) : total.subtract(BigInteger.valueOf(start));
+            if (start < 0 || index.signum() <= 0 || index.compareTo(total) > 0) {
+                startSize(0);
+                return;
+            }
+            // Find the size of the bundle and its rank among the bundles of this size
+            int size = 0;
+            BigInteger rank = index;
+            while (rank.compareTo(combinations.binomial(n, size + 1)) > 0) {
+                rank = rank.subtract(combinations.binomial(n, size + 1));
+                size++;
+            }
+            size++;
+            startSize(size);
+            int[] startPositions = combinations.unrank(rank, size);
+            if (n <= 64) {
+                long mask = 0;
+                for (int position : startPositions) {
+                    mask |= 1L << (n - 1 - position);
+                }
+                // The bundles of one size are walked from rank one in increasing, and from the last rank in decreasing order
+                BigInteger remaining = increasing ? combinations.binomial(n, size).subtract(rank).add(BigInteger.ONE) : rank;
+                remainingOfSize = remaining.longValueExact();
+                current = increasing ? ~mask & lowestBits(n) : mask;
+            } else {
+                positions = startPositions;
+            }
+        }
 
-        if (n == 0) {
-            return new StringBuilder();
+        private void startSize(int size) {
+            this.size = size;
+            if (size < 1 || size > n) {
+                remainingOfSize = 0;
+                positions = null;
+                return;
+            }
+            if (n <= 64) {
+                remainingOfSize = getCombinations().binomial(n, size).longValueExact();
+                current = lowestBits(increasing ? n - size : size);
+            } else {
+                positions = new int[size];
+                for (int i = 0; i < size; i++) {
+                    positions[i] = increasing ? i : n - size + i;
+                }
+            }
         }
-        if (k == 0) {
-            return new StringBuilder("0").append(recBinaryString(sizeBasedIndex, n - 1, 0));
+
+        private long lowestBits(int count) {
+            return count == 64 ? -1L : (1L << count) - 1;
         }
 
-        // Compute share starting with a one
-        BigInteger bin = BigIntegerMath.binomial(n, k);
-        BigInteger biggestOneStarterIndex = bin.multiply(BigInteger.valueOf(k)).divide(BigInteger.valueOf(n));
+        @Override
+        public boolean hasNext() {
+            return n <= 64 ? remainingOfSize > 0 : positions != null;
+        }
 
-        if (sizeBasedIndex.compareTo(biggestOneStarterIndex) <= 0) {
-            return new StringBuilder("1").append(recBinaryString(sizeBasedIndex, n - 1, k - 1));
-        } else {
-            BigInteger newIndex = sizeBasedIndex.subtract(biggestOneStarterIndex);
-            if (n == k) {
-                logger.warn("Problem!!!" + newIndex.toString() + " " + n + " " + k);
+        @Override
+        public Bundle next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
             }
-            return new StringBuilder("0").append(recBinaryString(newIndex, n - 1, k));
+            Bundle bundle;
+            if (n <= 64) {
+                long bits = increasing ? ~current & lowestBits(n) : current;
+                HashSet<BundleEntry> entries = new HashSet<>();
+                while (bits != 0) {
+                    entries.add(new BundleEntry(goods.get(n - 1 - Long.numberOfTrailingZeros(bits)), 1));
+                    bits &= bits - 1;
+                }
+                bundle = new Bundle(entries);
+                if (--remainingOfSize > 0) {
+                    current = Combinations.nextCombination(current);
+                } else {
+                    startSize(increasing ? size + 1 : size - 1);
+                }
+            } else {
+                bundle = getBundle(positions);
+                boolean advanced = increasing
+                        ? Combinations.nextCombination(positions, n)
+                        : Combinations.previousCombination(positions, n);
+                if (!advanced) {
+                    startSize(increasing ? size + 1 : size - 1);
+                }
+            }
+            return bundle;
         }
     }
 
-
 }
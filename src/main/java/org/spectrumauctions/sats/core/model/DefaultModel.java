@@ -5,6 +5,8 @@
  */
 package org.spectrumauctions.sats.core.model;
 
+import com.google.common.base.Preconditions;
+import org.spectrumauctions.sats.core.util.BoundedCache;
 import org.spectrumauctions.sats.core.util.random.JavaUtilRNGSupplier;
 import org.spectrumauctions.sats.core.util.random.RNGSupplier;
 import org.spectrumauctions.sats.core.util.random.UniformDistributionRNG;
@@ -17,6 +19,38 @@ import java.util.List;
  */
 public abstract class DefaultModel<W extends World, B extends SATSBidder> {
 
+    private int valueCacheSize = 0;
+    private BoundedCache.EvictionPolicy valueCachePolicy = BoundedCache.EvictionPolicy.LRU;
+
+    /**
+     * Enables a value cache (see {@link SATSBidder#enableValueCache(int, BoundedCache.EvictionPolicy)}) for all
+     * bidders created by the population creation methods of this class.<br>
+     * The cache is a runtime option and is not stored, hence it is not enabled for restored populations,
+     * unless they are passed to {@link #configure(List)}.
+     *
+     * @param maxEntries the maximal number of cached bundles per bidder, or 0 to disable caching (default)
+     * @param policy     the eviction policy of the caches
+     */
+    public void setValueCache(int maxEntries, BoundedCache.EvictionPolicy policy) {
+        Preconditions.checkArgument(maxEntries >= 0);
+        this.valueCacheSize = maxEntries;
+        this.valueCachePolicy = Preconditions.checkNotNull(policy);
+    }
+
+    /**
+     * Applies the model-wide configuration (such as the value cache) to a population.
+     * This is done for all populations created by this model, and can be used for restored populations,
+     * e.g., <code>model.configure(world.restorePopulation(populationId))</code>.
+     *
+     * @return the same population
+     */
+    public <T extends B> List<T> configure(List<T> population) {
+        if (valueCacheSize > 0) {
+            population.forEach(bidder -> bidder.enableValueCache(valueCacheSize, valueCachePolicy));
+        }
+        return population;
+    }
+
     /**
      * Creates a new {@link World}
      * @param worldSeed A rng supplier for random creation of world parameters
@@ -42,12 +76,22 @@ public abstract class DefaultModel<W extends World, B extends SATSBidder> {
     }
 
     /**
-     * Creates a new set of {@link SATSBidder} instances
+     * Creates a new set of {@link SATSBidder} instances, configured by {@link #configure(List)}
+     * @param world the {@link World} for which the bidders are created
+     * @param populationRNG a rng supplier for the creation of random bidder parameters
+     * @return a new set of bidders
+     */
+    public final List<B> createPopulation(W world, RNGSupplier populationRNG) {
+        return configure(doCreatePopulation(world, populationRNG));
+    }
+
+    /**
+     * Creates the bidders of a new population, which are then configured by {@link #createPopulation(World, RNGSupplier)}
      * @param world the {@link World} for which the bidders are created
      * @param populationRNG a rng supplier for the creation of random bidder parameters
      * @return a new set of bidders
      */
-    public abstract List<B> createPopulation(W world, RNGSupplier populationRNG);
+    protected abstract List<B> doCreatePopulation(W world, RNGSupplier populationRNG);
 
     /**
      * Default version if you do not have to keep track of the seeds of your auction instance.
@@ -0,0 +1,160 @@
+/**
+ * Copyright by Michael Weiss, weiss.michael@gmx.ch
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.spectrumauctions.sats.core.model;
+
+import com.google.common.base.Preconditions;
+import org.marketdesignresearch.mechlib.core.Bundle;
+import org.marketdesignresearch.mechlib.core.BundleEntry;
+
+import java.util.*;
+
+/**
+ * A dense index of all licenses of a {@link World}, assigning every license a position in <i>[0, size)</i>,
+ * ordered by {@link License#getLongId()}.<br>
+ * Based on this index, a bundle of licenses can be encoded as a bit vector (<code>long[]</code>),
+ * where bit <i>i</i> (i.e., bit <i>i % 64</i> of word <i>i / 64</i>) is set iff the license at position <i>i</i> is contained.
+ * This is the same layout as used by {@link BitSet#toLongArray()}.
+ *
+ * @see World#getLicenseIndex()
+ * @see SATSBidder#calculateValues(long[][], double[])
+ */
+public final class LicenseIndex {
+
+    private final License[] licenses;
+    /**
+     * Maps the license ids to their position. Null if the ids are exactly <i>0, ..., size - 1</i>.
+     */
+    private final Map<Long, Integer> positions;
+
+    public LicenseIndex(List<? extends License> licenses) {
+        this.licenses = licenses.stream()
+                .sorted(Comparator.comparingLong(License::getLongId))
+                .toArray(License[]::new);
+        boolean dense = true;
+        for (int i = 0; i < this.licenses.length; i++) {
+            if (this.licenses[i].getLongId() != i) {
+                dense = false;
+                break;
+            }
+        }
+        if (dense) {
+            positions = null;
+        } else {
+            positions = new HashMap<>();
+            for (int i = 0; i < this.licenses.length; i++) {
+                positions.put(this.licenses[i].getLongId(), i);
+            }
+        }
+    }
+
+    /**
+     * @return the number of licenses in the index
+     */
+    public int size() {
+        return licenses.length;
+    }
+
+    /**
+     * @return the number of <code>long</code> words required to encode a bundle of this world
+     */
+    public int wordCount() {
+        return (licenses.length + 63) / 64;
+    }
+
+    public License getLicense(int position) {
+        return licenses[position];
+    }
+
+    /**
+     * @return the position of the license with the given id
+     * @throws IllegalArgumentException if the license is not part of this index
+     */
+    public int indexOf(long licenseId) {
+        if (positions == null) {
+            Preconditions.checkArgument(licenseId >= 0 && licenseId < licenses.length, "Unknown license id %s", licenseId);
+            return (int) licenseId;
+        }
+        Integer position = positions.get(licenseId);
+        Preconditions.checkArgument(position != null, "Unknown license id %s", licenseId);
+        return position;
+    }
+
+    public int indexOf(License license) {
+        return indexOf(license.getLongId());
+    }
+
+    /**
+     * Encodes a collection of licenses as bit vector
+     */
+    public long[] encodeLicenses(Collection<? extends License> bundle) {
+        long[] bits = new long[wordCount()];
+        for (License license : bundle) {
+            int position = indexOf(license);
+            bits[position >>> 6] |= 1L << position;
+        }
+        return bits;
+    }
+
+    /**
+     * Encodes a bundle as bit vector.
+     *
+     * @throws IllegalArgumentException if the bundle contains other goods than licenses of this index,
+     *                                  or licenses with a quantity other than one.
+     */
+    public long[] encode(Bundle bundle) {
+        long[] bits = new long[wordCount()];
+        for (BundleEntry entry : bundle.getBundleEntries()) {
+            Preconditions.checkArgument(entry.getGood() instanceof License && entry.getAmount() == 1,
+                    "Only bundles of single licenses can be encoded as bit vector");
+            int position = indexOf((License) entry.getGood());
+            bits[position >>> 6] |= 1L << position;
+        }
+        return bits;
+    }
+
+    /**
+     * Transforms a bit vector back into a {@link Bundle}
+     */
+    public Bundle decode(long[] bits) {
+        Set<BundleEntry> entries = new HashSet<>();
+        for (int word = 0; word < bits.length; word++) {
+            long remaining = bits[word];
+            while (remaining != 0) {
+                int position = (word << 6) + Long.numberOfTrailingZeros(remaining);
+                entries.add(new BundleEntry(licenses[position], 1));
+                remaining &= remaining - 1;
+            }
+        }
+        return new Bundle(entries);
+    }
+
+    public long[] encode(BitSet bitSet) {
+        Preconditions.checkArgument(bitSet.length() <= licenses.length, "Bit set contains positions outside this index");
+        return Arrays.copyOf(bitSet.toLongArray(), wordCount());
+    }
+
+    public static BitSet toBitSet(long[] bits) {
+        return BitSet.valueOf(bits);
+    }
+
+    /**
+     * @return true iff the license at the given position is contained in the encoded bundle
+     */
+    public static boolean contains(long[] bits, int position) {
+        return (bits[position >>> 6] & (1L << position)) != 0;
+    }
+
+    /**
+     * @return the number of licenses in the encoded bundle
+     */
+    public static int cardinality(long[] bits) {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+}
@@ -8,14 +8,19 @@ package org.spectrumauctions.sats.core.model;
 import java.io.Serializable;
 import java.math.BigDecimal;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 import org.marketdesignresearch.mechlib.core.Bundle;
+import org.marketdesignresearch.mechlib.core.BundleEntry;
 import org.marketdesignresearch.mechlib.core.bidder.Bidder;
 import org.marketdesignresearch.mechlib.core.bidder.strategy.DefaultStrategyHandler;
 import org.marketdesignresearch.mechlib.core.bidder.strategy.InteractionStrategy;
 import org.marketdesignresearch.mechlib.instrumentation.MipInstrumentation;
 import org.spectrumauctions.sats.core.bidlang.BiddingLanguage;
+import org.spectrumauctions.sats.core.util.BoundedCache;
 import org.spectrumauctions.sats.core.util.instancehandling.InstanceHandler;
 import org.spectrumauctions.sats.core.util.random.JavaUtilRNGSupplier;
 import org.spectrumauctions.sats.core.util.random.RNGSupplier;
@@ -121,15 +126,184 @@ public abstract class SATSBidder implements Bidder, Serializable {
      * @return a list of bidder specific values for these bundles
      */
     public List<BigDecimal> calculateValues(List<Bundle> bundles) {
-        return bundles.parallelStream().map(this::calculateValue).collect(Collectors.toList());
+        return bundles.parallelStream().map(this::cachedValue).collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the value this bidder has for a bundle encoded as bit vector
+     * according to the {@link World#getLicenseIndex()} of this bidders world.<br>
+     * The default implementation decodes the bundle; models override this method to evaluate the bit vector directly.
+     *
+     * @param bundle the encoded bundle for which the value is asked
+     * @return bidder specific value for this bundle
+     */
+    public double calculateValue(long[] bundle) {
+        return calculateValue(getWorld().getLicenseIndex().decode(bundle)).doubleValue();
+    }
+
+    /**
+     * Calculates the values of a batch of bundles encoded as bit vectors (see {@link #calculateValue(long[])}),
+     * without creating any {@link Bundle} or {@link BigDecimal} instances for models which support it natively.
+     *
+     * @param bundles the encoded bundles for which the value is asked
+     * @param out     the array to which the values are written, in the same order as the bundles
+     */
+    public void calculateValues(long[][] bundles, double[] out) {
+        Preconditions.checkArgument(out.length >= bundles.length, "Output array is too small");
+        for (int i = 0; i < bundles.length; i++) {
+            out[i] = calculateValue(bundles[i]);
+        }
+    }
+
+    /**
+     * A reasonable chunk size for {@link #calculateValues(List, Executor, int)} for cheap models.
+     * Smaller batches are evaluated sequentially, as the overhead of dispatching them outweighs the work.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 256;
+
+    /**
+     * Calculates the values of a batch of bundles on the given executor, in chunks of the given size.<br>
+     * In contrast to {@link #calculateValues(List)}, this does not use the common {@link java.util.concurrent.ForkJoinPool},
+     * hence the evaluation can be pinned to a dedicated pool. If the batch fits into a single chunk,
+     * it is evaluated sequentially in the calling thread.
+     *
+     * @param bundles   the bundles for which the value is asked
+     * @param executor  the executor running the chunks, or null for sequential evaluation
+     * @param chunkSize the number of bundles evaluated per task
+     * @return the values, in the same order as the bundles
+     */
+    public double[] calculateValues(List<Bundle> bundles, Executor executor, int chunkSize) {
+        double[] out = new double[bundles.size()];
+        evaluateChunked(bundles.size(), executor, chunkSize, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                out[i] = cachedValue(bundles.get(i)).doubleValue();
+            }
+        });
+        return out;
+    }
+
+    /**
+     * Calculates the values of a batch of bundles encoded as bit vectors (see {@link #calculateValue(long[])})
+     * on the given executor, in chunks of the given size.
+     *
+     * @see #calculateValues(List, Executor, int)
+     */
+    public double[] calculateValues(long[][] bundles, Executor executor, int chunkSize) {
+        double[] out = new double[bundles.length];
+        evaluateChunked(bundles.length, executor, chunkSize, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                out[i] = calculateValue(bundles[i]);
+            }
+        });
+        return out;
+    }
+
+    private interface ChunkEvaluation {
+        void evaluate(int from, int to);
+    }
+
+    private static void evaluateChunked(int size, Executor executor, int chunkSize, ChunkEvaluation evaluation) {
+        Preconditions.checkArgument(chunkSize > 0, "Chunk size must be positive");
+        if (executor == null || size <= chunkSize) {
+            evaluation.evaluate(0, size);
+            return;
+        }
+        List<CompletableFuture<Void>> chunks = new ArrayList<>();
+        for (int from = 0; from < size; from += chunkSize) {
+            int start = from;
+            int end = Math.min(size, from + chunkSize);
+            chunks.add(CompletableFuture.runAsync(() -> evaluation.evaluate(start, end), executor));
+        }
+        try {
+            CompletableFuture.allOf(chunks.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
     }
 
     @Override
     public BigDecimal getValue(Bundle bundle, boolean ignoreAllocationLimits) {
     	Preconditions.checkArgument(ignoreAllocationLimits || this.getAllocationLimit().validate(bundle));
-        return calculateValue(bundle);
+        return cachedValue(bundle);
     }
 
+    // region value cache
+    /**
+     * The optional cache for value queries, see {@link #enableValueCache(int, BoundedCache.EvictionPolicy)}.
+     * Null if disabled.
+     */
+    private transient volatile BoundedCache<Object, BigDecimal> valueCache;
+
+    /**
+     * Enables a thread-safe cache for the value queries via {@link #getValue(Bundle, boolean)} and
+     * {@link #calculateValues(List)}, replacing a previously enabled cache.<br>
+     * This is useful for mechanisms which query the same bundles repeatedly.
+     * Direct calls to {@link #calculateValue(Bundle)} are never cached.
+     *
+     * @param maxEntries the maximal number of cached bundles
+     * @param policy     the policy determining which bundle is removed from a full cache
+     */
+    public void enableValueCache(int maxEntries, BoundedCache.EvictionPolicy policy) {
+        this.valueCache = new BoundedCache<>(maxEntries, policy);
+    }
+
+    public void disableValueCache() {
+        this.valueCache = null;
+    }
+
+    /**
+     * @return the value cache of this bidder (e.g., to monitor its hits and misses), or null if it is not enabled
+     */
+    public BoundedCache<Object, BigDecimal> getValueCache() {
+        return valueCache;
+    }
+
+    private BigDecimal cachedValue(Bundle bundle) {
+        BoundedCache<Object, BigDecimal> cache = valueCache;
+        if (cache == null) {
+            return calculateValue(bundle);
+        }
+        return cache.get(valueCacheKey(bundle), key -> calculateValue(bundle));
+    }
+
+    /**
+     * @return a canonical key for the bundle: its bit vector (see {@link World#getLicenseIndex()})
+     * if it only consists of single licenses, the bundle itself otherwise.
+     */
+    private Object valueCacheKey(Bundle bundle) {
+        for (BundleEntry entry : bundle.getBundleEntries()) {
+            if (!(entry.getGood() instanceof License) || entry.getAmount() != 1) {
+                return bundle;
+            }
+        }
+        return new BitVectorKey(getWorld().getLicenseIndex().encode(bundle));
+    }
+
+    private static final class BitVectorKey {
+
+        private final long[] bits;
+        private final int hash;
+
+        private BitVectorKey(long[] bits) {
+            this.bits = bits;
+            this.hash = Arrays.hashCode(bits);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof BitVectorKey && Arrays.equals(bits, ((BitVectorKey) o).bits);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+    // endregion
+
     /**
      * Use this method to get a desired value function representation (bidding language)
      * for this bidder.
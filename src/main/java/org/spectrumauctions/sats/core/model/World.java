@@ -20,6 +20,8 @@ public abstract class World implements Serializable {
     protected final String modelName;
     protected final long id;
 
+    private transient volatile LicenseIndex licenseIndex;
+
     public World(String modelName) {
         this.id = InstanceHandler.getDefaultHandler().getNextWorldId();
         this.modelName = modelName;
@@ -37,6 +39,19 @@ public abstract class World implements Serializable {
 
     public abstract List<? extends License> getLicenses();
 
+    /**
+     * @return the dense index of the licenses of this world, used to encode bundles as bit vectors.
+     * The index is created at the first call and cached afterwards.
+     */
+    public LicenseIndex getLicenseIndex() {
+        LicenseIndex result = licenseIndex;
+        if (result == null) {
+            result = new LicenseIndex(getLicenses());
+            licenseIndex = result;
+        }
+        return result;
+    }
+
     protected void store() {
         InstanceHandler.getDefaultHandler().writeWorld(this);
     }
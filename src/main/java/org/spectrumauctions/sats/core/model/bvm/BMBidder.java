@@ -12,7 +12,6 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.marketdesignresearch.mechlib.core.Bundle;
 import org.marketdesignresearch.mechlib.core.BundleEntry;
-import org.marketdesignresearch.mechlib.core.Good;
 import org.marketdesignresearch.mechlib.core.price.Prices;
 import org.spectrumauctions.sats.core.bidlang.BiddingLanguage;
 import org.spectrumauctions.sats.core.bidlang.generic.FlatSizeIterators.GenericSizeDecreasing;
@@ -31,6 +30,7 @@ import java.math.BigDecimal;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -60,6 +60,19 @@ public final class BMBidder extends SATSBidder {
      */
     private final HashMap<String, Integer> positiveValueThreshold;
 
+    /**
+     * Caches the band position of every license, see {@link #getIndexedLicenseBands()}.
+     * This is only instantiated at its first use.
+     */
+    private transient volatile int[] indexedLicenseBands;
+
+    /**
+     * Caches the values per band and quantity, see {@link #getBandValueTable()} and {@link #getBandValueTableDouble()}.
+     * These are only instantiated at their first use, and published only once complete, as concurrent value queries may read them.
+     */
+    private transient volatile BigDecimal[][] bandValueTable;
+    private transient volatile double[][] bandValueTableDouble;
+
     /**
      * Create a new bidder. The use of this constructor is not recommended.
      * Use {@link BMWorld#createPopulation(java.util.Collection)} instead, to create new bidder sets.
@@ -177,6 +190,9 @@ public final class BMBidder extends SATSBidder {
             throw new IncompatibleWorldException("The stored worldId does not represent the passed world reference");
         }
         this.world = world;
+        this.indexedLicenseBands = null;
+        this.bandValueTable = null;
+        this.bandValueTableDouble = null;
     }
 
     @Override
@@ -226,60 +242,174 @@ public final class BMBidder extends SATSBidder {
 
     }
 
+    /**
+     * Licenses above the {@link #positiveValueThreshold} of a band are disposed of for free,
+     * no matter whether they are specified as {@link BMLicense}s or as quantity of a {@link BMBand}.
+     *
+     * @see SATSBidder#calculateValue(Bundle)
+     */
     @Override
     public BigDecimal calculateValue(Bundle bundle) {
         if (bundle.getBundleEntries().isEmpty()) return BigDecimal.ZERO;
-        // First, if there are only single licenses, construct the generic map
-        Map<Good, Integer> combined = new HashMap<>();
+        List<BMBand> bands = getWorld().getBands();
+        int[] quantities = new int[bands.size()];
         for (BundleEntry bundleEntry : bundle.getBundleEntries()) {
+            int amount;
+            BMBand band;
             if (bundleEntry.getGood() instanceof BMLicense) {
-                Good band = getWorld().getGenericDefinitionOf((License) bundleEntry.getGood());
-                int currentValue = combined.getOrDefault(band, 0);
-                if (currentValue < positiveValueThreshold.get(band.getName())) { // Free disposal otherwise
-                    combined.put(band, currentValue + 1);
-                }
+                band = ((BMLicense) bundleEntry.getGood()).getBand();
+                amount = 1;
             } else if (bundleEntry.getGood() instanceof BMBand) {
-                Good band = bundleEntry.getGood();
-                int currentValue = combined.getOrDefault(band, 0);
-                if (currentValue < positiveValueThreshold.get(band.getName())) { // Free disposal otherwise
-                    combined.put(band, currentValue + bundleEntry.getAmount());
-                }
+                band = (BMBand) bundleEntry.getGood();
+                amount = bundleEntry.getAmount();
             } else {
                 throw new WrongConfigException("A good specified in a bundle is neither a BMLicense nor a BMBand!");
             }
+            int b = bands.indexOf(band);
+            Preconditions.checkArgument(b >= 0, "Band is not from this world" + band.getName());
+            quantities[b] += amount;
         }
+        return calculateExactValue(quantities);
+    }
 
-        bundle = new Bundle(combined);
-        //Check input
-        for (BundleEntry entry : bundle.getBundleEntries()) {
-            Preconditions.checkArgument(entry.getGood() instanceof BMBand);
-            BMBand band = (BMBand) entry.getGood();
-            Preconditions.checkArgument(band.getWorld().equals(this.getWorld()), "Band is not from this world" + band.getName());
-            Preconditions.checkArgument(entry.getAmount() >= 0, "Quantity must not be negative. Band:" + band.getName() + "\t Licenses:" + entry.getAmount());
-            Preconditions.checkArgument(entry.getAmount() <= band.getQuantity(), "Specified too many licenses for this band" + band.getName() + "\t Licenses:" + entry.getAmount());
-        }
-        //Calculate Value
+    /**
+     * Calculates the value of a generic bundle, specified by the number of licenses per band, exactly.
+     * {@link #calculateValue(Bundle)} delegates to this method, {@link #calculateValue(int[])} is its double precision
+     * counterpart.
+     *
+     * @param quantities the number of licenses per band, in the order of {@link BMWorld#getBands()}
+     */
+    BigDecimal calculateExactValue(int[] quantities) {
+        List<BMBand> bands = getWorld().getBands();
+        Preconditions.checkArgument(quantities.length == bands.size(), "Expected one quantity per band");
+        BigDecimal[][] bandValues = getBandValueTable();
         BigDecimal value = BigDecimal.ZERO;
-        for (BundleEntry entry : bundle.getBundleEntries()) {
-            BMBand band = (BMBand) entry.getGood();
-            int synergyQuantitiyLimit = highestSynergyQuantity(band);
-            BigDecimal baseValue = getBaseValue(band);
-            if (entry.getAmount() > synergyQuantitiyLimit) {
-                // More items than synergy limit
-                // items with synergy
-                BigDecimal synergyFactor = synergyFactor(band, synergyQuantitiyLimit);
-                value = value.add(new BigDecimal(synergyQuantitiyLimit).multiply(synergyFactor).multiply(baseValue));
-                // items without synergy
-                value = value.add(baseValue.multiply(new BigDecimal(entry.getAmount() - synergyQuantitiyLimit)));
-            } else {
-                // Synergy amongst all items
-                BigDecimal synergyFactor = synergyFactor(band, entry.getAmount());
-                value = value.add(new BigDecimal(entry.getAmount()).multiply(synergyFactor).multiply(baseValue));
+        for (int b = 0; b < quantities.length; b++) {
+            BMBand band = bands.get(b);
+            Preconditions.checkArgument(quantities[b] >= 0, "Quantity must not be negative. Band:" + band.getName() + "\t Licenses:" + quantities[b]);
+            Preconditions.checkArgument(quantities[b] <= band.getQuantity(), "Specified too many licenses for this band" + band.getName() + "\t Licenses:" + quantities[b]);
+            if (quantities[b] > 0) {
+                value = value.add(bandValues[b][quantities[b]]);
             }
         }
         return value;
     }
 
+    /**
+     * Calculates the value of a generic bundle, specified by the number of licenses per band, in double precision.
+     * The value is the same as the one of {@link #calculateValue(Bundle)} for a bundle of {@link BMBand}s.
+     * Licenses above the {@link #positiveValueThreshold} of a band are disposed of for free.
+     *
+     * @param quantitiesPerBand the number of licenses per band, in the order of {@link BMWorld#getBands()}
+     */
+    public double calculateValue(int[] quantitiesPerBand) {
+        double[][] bandValues = getBandValueTableDouble();
+        Preconditions.checkArgument(quantitiesPerBand.length == bandValues.length, "Expected one quantity per band");
+        double value = 0;
+        for (int b = 0; b < quantitiesPerBand.length; b++) {
+            Preconditions.checkArgument(quantitiesPerBand[b] >= 0 && quantitiesPerBand[b] < bandValues[b].length,
+                    "Invalid quantity for band %s", b);
+            value += bandValues[b][quantitiesPerBand[b]];
+        }
+        return value;
+    }
+
+    /**
+     * Calculates the value of a given quantity of licenses in the same band, ignoring the {@link #positiveValueThreshold}
+     */
+    private BigDecimal bandValue(BMBand band, int quantity) {
+        int synergyQuantitiyLimit = highestSynergyQuantity(band);
+        BigDecimal baseValue = getBaseValue(band);
+        if (quantity > synergyQuantitiyLimit) {
+            // More items than synergy limit
+            // items with synergy
+            BigDecimal synergyFactor = synergyFactor(band, synergyQuantitiyLimit);
+            BigDecimal value = new BigDecimal(synergyQuantitiyLimit).multiply(synergyFactor).multiply(baseValue);
+            // items without synergy
+            return value.add(baseValue.multiply(new BigDecimal(quantity - synergyQuantitiyLimit)));
+        } else {
+            // Synergy amongst all items
+            BigDecimal synergyFactor = synergyFactor(band, quantity);
+            return new BigDecimal(quantity).multiply(synergyFactor).multiply(baseValue);
+        }
+    }
+
+    /**
+     * @return table[band][quantity] with the value of a band with the given quantity, after free disposal
+     * of the licenses above the {@link #positiveValueThreshold}, i.e., {@link #bandValue(BMBand, int)} of the
+     * quantity capped at the threshold. Bands are in the order of {@link BMWorld#getBands()}.
+     * This is only instantiated at its first use.
+     */
+    private BigDecimal[][] getBandValueTable() {
+        BigDecimal[][] result = bandValueTable;
+        if (result == null) {
+            List<BMBand> bands = getWorld().getBands();
+            result = new BigDecimal[bands.size()][];
+            for (int b = 0; b < bands.size(); b++) {
+                BMBand band = bands.get(b);
+                int threshold = positiveValueThreshold.get(band.getName());
+                result[b] = new BigDecimal[band.getQuantity() + 1];
+                for (int quantity = 0; quantity <= band.getQuantity(); quantity++) {
+                    // Free disposal of the licenses above the threshold
+                    result[b][quantity] = quantity > threshold ? result[b][threshold] : bandValue(band, quantity);
+                }
+            }
+            bandValueTable = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return {@link #getBandValueTable()} in double precision. This is only instantiated at its first use.
+     */
+    private double[][] getBandValueTableDouble() {
+        double[][] result = bandValueTableDouble;
+        if (result == null) {
+            BigDecimal[][] exact = getBandValueTable();
+            result = new double[exact.length][];
+            for (int b = 0; b < exact.length; b++) {
+                result[b] = new double[exact[b].length];
+                for (int quantity = 0; quantity < exact[b].length; quantity++) {
+                    result[b][quantity] = exact[b][quantity].doubleValue();
+                }
+            }
+            bandValueTableDouble = result;
+        }
+        return result;
+    }
+
+    @Override
+    public double calculateValue(long[] bundle) {
+        int[] licenseBands = getIndexedLicenseBands();
+        int[] quantities = new int[getWorld().getBands().size()];
+        for (int word = 0; word < bundle.length; word++) {
+            long remaining = bundle[word];
+            while (remaining != 0) {
+                quantities[licenseBands[(word << 6) + Long.numberOfTrailingZeros(remaining)]]++;
+                remaining &= remaining - 1;
+            }
+        }
+        return calculateValue(quantities);
+    }
+
+    /**
+     * @return the position of the band in {@link BMWorld#getBands()} for every license,
+     * indexed by the position of the licenses in the {@link World#getLicenseIndex()}
+     */
+    private int[] getIndexedLicenseBands() {
+        int[] result = indexedLicenseBands;
+        if (result == null) {
+            List<BMBand> bands = getWorld().getBands();
+            LicenseIndex index = getWorld().getLicenseIndex();
+            result = new int[index.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = bands.indexOf(((BMLicense) index.getLicense(i)).getBand());
+            }
+            indexedLicenseBands = result;
+        }
+        return result;
+    }
+
 
     @Override
     public LinkedHashSet<Bundle> getBestBundles(Prices prices, int maxNumberOfBundles, boolean allowNegative) {
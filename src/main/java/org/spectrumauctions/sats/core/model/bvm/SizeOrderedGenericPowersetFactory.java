@@ -5,12 +5,14 @@
  */
 package org.spectrumauctions.sats.core.model.bvm;
 
+import org.marketdesignresearch.mechlib.core.Bundle;
 import org.spectrumauctions.sats.core.bidlang.generic.SizeOrderedPowerset.GenericPowerset;
 import org.spectrumauctions.sats.core.bidlang.generic.SizeOrderedPowerset.GenericPowersetDecreasing;
 import org.spectrumauctions.sats.core.bidlang.generic.SizeOrderedPowerset.GenericPowersetIncreasing;
 import org.spectrumauctions.sats.core.model.SATSBidder;
 import org.spectrumauctions.sats.core.model.UnsupportedBiddingLanguageException;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 /**
@@ -37,6 +39,11 @@ public class SizeOrderedGenericPowersetFactory {
             this.bidder = bidder;
         }
 
+        @Override
+        protected BigDecimal calculateValue(int[] quantities, Bundle bundle) {
+            return bidder.calculateExactValue(quantities);
+        }
+
         @Override
         public BMBidder getBidder() {
             return bidder;
@@ -53,6 +60,11 @@ public class SizeOrderedGenericPowersetFactory {
             this.bidder = bidder;
         }
 
+        @Override
+        protected BigDecimal calculateValue(int[] quantities, Bundle bundle) {
+            return bidder.calculateExactValue(quantities);
+        }
+
         @Override
         public SATSBidder getBidder() {
             return bidder;
@@ -60,7 +60,7 @@ public class BaseValueModel extends DefaultModel<BMWorld, BMBidder> {
      * @see org.spectrumauctions.sats.core.model.QuickDefaultAccess#createPopulation(World, RNGSupplier)
      */
     @Override
-    public List<BMBidder> createPopulation(BMWorld world, RNGSupplier populationRNG) {
+    protected List<BMBidder> doCreatePopulation(BMWorld world, RNGSupplier populationRNG) {
         List<BMBidderSetup> setupset = new ArrayList<>();
         setupset.add(bidderSetupBuilder.build());
         return world.createPopulation(setupset, populationRNG);
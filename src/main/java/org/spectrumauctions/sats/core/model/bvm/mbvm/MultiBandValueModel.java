@@ -51,7 +51,7 @@ public class MultiBandValueModel extends DefaultModel<BMWorld, BMBidder> {
     }
 
     @Override
-    public List<BMBidder> createPopulation(BMWorld world, RNGSupplier populationRNG) {
+    protected List<BMBidder> doCreatePopulation(BMWorld world, RNGSupplier populationRNG) {
         List<BMBidderSetup> setupset = new ArrayList<>();
         setupset.add(bidderSetupBuilder.build());
         return world.createPopulation(setupset, populationRNG);
@@ -12,6 +12,7 @@ import org.spectrumauctions.sats.core.bidlang.xor.CatsXOR;
 import org.spectrumauctions.sats.core.bidlang.xor.DecreasingSizeOrderedXOR;
 import org.spectrumauctions.sats.core.bidlang.xor.IncreasingSizeOrderedXOR;
 import org.spectrumauctions.sats.core.bidlang.xor.SizeBasedUniqueRandomXOR;
+import org.spectrumauctions.sats.core.model.LicenseIndex;
 import org.spectrumauctions.sats.core.model.SATSBidder;
 import org.spectrumauctions.sats.core.model.UnsupportedBiddingLanguageException;
 import org.spectrumauctions.sats.core.model.World;
@@ -34,6 +35,13 @@ public final class CATSBidder extends SATSBidder {
     @EqualsAndHashCode.Exclude
     private transient ImmutableMap<Long, BigDecimal> privateValueMap;
 
+    /**
+     * The value of every license (common value, private value and, if applicable, the quadratic pricing term),
+     * indexed by the position of the licenses in the {@link World#getLicenseIndex()}.
+     * 0 for licenses without private value. This is only instantiated at its first use.
+     */
+    private transient volatile double[] indexedValues;
+
 
     CATSBidder(CATSBidderSetup setup, CATSWorld world, long currentId, long population, RNGSupplier rngSupplier) {
         super(setup, population, currentId, world.getId());
@@ -65,6 +73,44 @@ public final class CATSBidder extends SATSBidder {
         return BigDecimal.valueOf(value);
     }
 
+    @Override
+    public double calculateValue(long[] bundle) {
+        double[] indexedValues = getIndexedValues();
+        double value = 0;
+        int size = 0;
+        for (int word = 0; word < bundle.length; word++) {
+            long remaining = bundle[word];
+            while (remaining != 0) {
+                value += indexedValues[(word << 6) + Long.numberOfTrailingZeros(remaining)];
+                size++;
+                remaining &= remaining - 1;
+            }
+        }
+        if (!getWorld().getUseQuadraticPricingOption()) {
+            value += Math.pow(size, 1 + world.getAdditivity());
+        }
+        return value;
+    }
+
+    private double[] getIndexedValues() {
+        double[] result = indexedValues;
+        if (result == null) {
+            LicenseIndex index = world.getLicenseIndex();
+            result = new double[index.size()];
+            for (int i = 0; i < result.length; i++) {
+                CATSLicense license = (CATSLicense) index.getLicense(i);
+                BigDecimal privateValue = privateValues.get(license.getLongId());
+                if (privateValue != null) {
+                    result[i] = license.getCommonValue() + privateValue.doubleValue();
+                    if (getWorld().getUseQuadraticPricingOption()) {
+                        result[i] += Math.pow(license.getCommonValue(), 2);
+                    }
+                }
+            }
+            indexedValues = result;
+        }
+        return result;
+    }
 
     @Override
     public <T extends BiddingLanguage> T getValueFunction(Class<T> clazz, RNGSupplier rngSupplier) throws UnsupportedBiddingLanguageException {
@@ -101,6 +147,7 @@ public final class CATSBidder extends SATSBidder {
         Preconditions.checkArgument(world.getId() == getWorldId());
         if (world instanceof CATSWorld) {
             this.world = (CATSWorld) world;
+            this.indexedValues = null;
         } else {
             throw new IllegalArgumentException("World is not of correct type");
         }
@@ -26,7 +26,7 @@ public class CATSRegionModel extends DefaultModel<CATSWorld, CATSBidder> {
      * @see org.spectrumauctions.sats.core.model.QuickDefaultAccess#createPopulation(World, RNGSupplier)
      */
     @Override
-    public List<CATSBidder> createPopulation(CATSWorld world, RNGSupplier populationRNG) {
+    protected List<CATSBidder> doCreatePopulation(CATSWorld world, RNGSupplier populationRNG) {
         List<CATSBidderSetup> setups = new ArrayList<>();
         setups.add(bidderBuilder.build());
 
@@ -20,6 +20,7 @@ import org.spectrumauctions.sats.core.bidlang.BiddingLanguage;
 import org.spectrumauctions.sats.core.bidlang.xor.DecreasingSizeOrderedXOR;
 import org.spectrumauctions.sats.core.bidlang.xor.IncreasingSizeOrderedXOR;
 import org.spectrumauctions.sats.core.bidlang.xor.SizeBasedUniqueRandomXOR;
+import org.spectrumauctions.sats.core.model.LicenseIndex;
 import org.spectrumauctions.sats.core.model.SATSBidder;
 import org.spectrumauctions.sats.core.model.UnsupportedBiddingLanguageException;
 import org.spectrumauctions.sats.core.model.World;
@@ -47,6 +48,19 @@ public final class GSVMBidder extends SATSBidder {
     private final String description;
     private final AllocationLimit allocationLimit;
 
+    /**
+     * The base values indexed by the position of the licenses in the {@link World#getLicenseIndex()}.
+     * NaN for licenses this bidder is not interested in. This is only instantiated at its first use.
+     */
+    private transient volatile double[] indexedValues;
+
+    /**
+     * If set to true, value queries are answered from the precomputed {@link GSVMValueTable}.
+     * This is a runtime option and is neither stored nor considered for equality.
+     */
+    private transient volatile boolean useValueTable = false;
+    private transient volatile GSVMValueTable valueTable;
+
     GSVMBidder(GSVMBidderSetup setup, GSVMWorld world, int bidderPosition, long currentId, long population, RNGSupplier rngSupplier) {
         super(setup, population, currentId, world.getId());
         this.world = world;
@@ -61,6 +75,9 @@ public final class GSVMBidder extends SATSBidder {
 
     @Override
     public BigDecimal calculateValue(Bundle bundle) {
+        if (useValueTable) {
+            return BigDecimal.valueOf(getValueTable().value(world.getLicenseIndex().encode(bundle)));
+        }
         List<Double> values = new ArrayList<>();
         int synergyCount = 0;
         for (Good good : bundle.getSingleQuantityGoods()) {
@@ -81,6 +98,76 @@ public final class GSVMBidder extends SATSBidder {
         return BigDecimal.valueOf(value + value * factor);
     }
 
+    @Override
+    public double calculateValue(long[] bundle) {
+        if (useValueTable) {
+            return getValueTable().value(bundle);
+        }
+        double[] indexedValues = getIndexedValues();
+        double value = 0;
+        int synergyCount = 0;
+        for (int word = 0; word < bundle.length; word++) {
+            long remaining = bundle[word];
+            while (remaining != 0) {
+                double licenseValue = indexedValues[(word << 6) + Long.numberOfTrailingZeros(remaining)];
+                if (!Double.isNaN(licenseValue)) {
+                    value += licenseValue;
+                    synergyCount++;
+                } else if (world.isLegacyGSVM()) {
+                    synergyCount++;
+                }
+                remaining &= remaining - 1;
+            }
+        }
+        double factor = 0;
+        if (synergyCount > 0) factor = 0.2 * (synergyCount - 1);
+        return value + value * factor;
+    }
+
+    private double[] getIndexedValues() {
+        double[] result = indexedValues;
+        if (result == null) {
+            LicenseIndex index = world.getLicenseIndex();
+            result = new double[index.size()];
+            for (int i = 0; i < result.length; i++) {
+                BigDecimal value = values.get(index.getLicense(i).getLongId());
+                result[i] = value == null ? Double.NaN : value.doubleValue();
+            }
+            indexedValues = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return the complete value table of this bidder. It is enumerated on first access, only once also if
+     * several threads query values concurrently.
+     * @throws IllegalArgumentException if the bidder is interested in more than {@link GSVMValueTable#MAX_INTEREST_LICENSES} licenses
+     */
+    public GSVMValueTable getValueTable() {
+        GSVMValueTable result = valueTable;
+        if (result == null) {
+            synchronized (this) {
+                result = valueTable;
+                if (result == null) {
+                    result = new GSVMValueTable(this);
+                    valueTable = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    public boolean isUseValueTable() {
+        return useValueTable;
+    }
+
+    /**
+     * Defines whether value queries are answered by a lookup in the {@link #getValueTable()} of this bidder.
+     */
+    public void setUseValueTable(boolean useValueTable) {
+        this.useValueTable = useValueTable;
+    }
+
     public int getBidderPosition() {
         return bidderPosition;
     }
@@ -111,6 +198,8 @@ public final class GSVMBidder extends SATSBidder {
         Preconditions.checkArgument(world.getId() == getWorldId());
         if (world instanceof GSVMWorld) {
             this.world = (GSVMWorld) world;
+            this.indexedValues = null;
+            this.valueTable = null;
         } else {
             throw new IllegalArgumentException("World is not of correct type");
         }
@@ -0,0 +1,171 @@
+/**
+ * Copyright by Michael Weiss, weiss.michael@gmx.ch
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.spectrumauctions.sats.core.model.gsvm;
+
+import com.google.common.base.Preconditions;
+import org.marketdesignresearch.mechlib.core.Bundle;
+import org.marketdesignresearch.mechlib.core.BundleEntry;
+import org.marketdesignresearch.mechlib.core.bidder.valuefunction.BundleValue;
+import org.spectrumauctions.sats.core.model.LicenseIndex;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The complete value table of a {@link GSVMBidder}.<br>
+ * As a GSVM bidder only values the <i>k</i> licenses in its base value map (its <i>interest licenses</i>),
+ * its value function has at most 2^k distinct values. They are enumerated once and stored in a primitive array,
+ * indexed by the <i>interest mask</i>, where bit <i>j</i> is set iff the interest license {@link #getLicense(int) j} is contained.<br>
+ * In legacy GSVM worlds, licenses without base value still count towards the synergy factor. In this case, the table stores
+ * the sum of the base values and the synergy factor is applied at query time.
+ *
+ * @see GSVMBidder#setUseValueTable(boolean)
+ */
+public final class GSVMValueTable {
+
+    /**
+     * The maximal number of interest licenses for which a value table can be created (2^24 doubles, i.e., 128 MB).
+     */
+    public static final int MAX_INTEREST_LICENSES = 24;
+
+    private final GSVMLicense[] interestLicenses;
+    /**
+     * The positions of the interest licenses in the {@link LicenseIndex} of the world
+     */
+    private final int[] interestPositions;
+    private final boolean legacy;
+    /**
+     * If not legacy, the values per interest mask. Otherwise, the sum of the base values per interest mask.
+     */
+    private final double[] table;
+
+    GSVMValueTable(GSVMBidder bidder) {
+        LicenseIndex index = bidder.getWorld().getLicenseIndex();
+        List<GSVMLicense> licenses = new ArrayList<>();
+        for (int i = 0; i < index.size(); i++) {
+            if (bidder.getBaseValues().containsKey(index.getLicense(i).getLongId())) {
+                licenses.add((GSVMLicense) index.getLicense(i));
+            }
+        }
+        Preconditions.checkArgument(licenses.size() <= MAX_INTEREST_LICENSES,
+                "Bidder is interested in %s licenses, a value table can only be created for at most %s",
+                licenses.size(), MAX_INTEREST_LICENSES);
+        this.interestLicenses = licenses.toArray(new GSVMLicense[0]);
+        this.interestPositions = new int[interestLicenses.length];
+        double[] baseValues = new double[interestLicenses.length];
+        for (int j = 0; j < interestLicenses.length; j++) {
+            interestPositions[j] = index.indexOf(interestLicenses[j]);
+            baseValues[j] = bidder.getBaseValues().get(interestLicenses[j].getLongId()).doubleValue();
+        }
+        this.legacy = bidder.getWorld().isLegacyGSVM();
+
+        this.table = new double[1 << interestLicenses.length];
+        // First, the sum of base values: every mask extends a mask with one less license
+        for (int mask = 1; mask < table.length; mask++) {
+            table[mask] = table[mask & (mask - 1)] + baseValues[Integer.numberOfTrailingZeros(mask)];
+        }
+        if (!legacy) {
+            for (int mask = 1; mask < table.length; mask++) {
+                table[mask] = withSynergy(table[mask], Integer.bitCount(mask));
+            }
+        }
+    }
+
+    private static double withSynergy(double valueSum, int synergyCount) {
+        double factor = 0;
+        if (synergyCount > 0) factor = 0.2 * (synergyCount - 1);
+        return valueSum + valueSum * factor;
+    }
+
+    /**
+     * @return the number of interest licenses, i.e., the table has 2^size() entries
+     */
+    public int size() {
+        return interestLicenses.length;
+    }
+
+    /**
+     * @return the interest license represented by bit <i>j</i> of the interest masks
+     */
+    public GSVMLicense getLicense(int j) {
+        return interestLicenses[j];
+    }
+
+    /**
+     * Projects a bundle encoded as bit vector (see {@link LicenseIndex}) to its interest mask
+     */
+    public int mask(long[] bundle) {
+        int mask = 0;
+        for (int j = 0; j < interestPositions.length; j++) {
+            if (LicenseIndex.contains(bundle, interestPositions[j])) {
+                mask |= 1 << j;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * @return the value of a bundle encoded as bit vector (see {@link LicenseIndex})
+     */
+    public double value(long[] bundle) {
+        if (legacy) {
+            return withSynergy(table[mask(bundle)], LicenseIndex.cardinality(bundle));
+        }
+        return table[mask(bundle)];
+    }
+
+    /**
+     * @return the value of the bundle consisting of the interest licenses in the given mask
+     */
+    public double value(int mask) {
+        if (legacy) {
+            return withSynergy(table[mask], Integer.bitCount(mask));
+        }
+        return table[mask];
+    }
+
+    /**
+     * @return the bundle consisting of the interest licenses in the given mask
+     */
+    public Bundle getBundle(int mask) {
+        Set<BundleEntry> entries = new HashSet<>();
+        for (int j = 0; j < interestLicenses.length; j++) {
+            if ((mask & (1 << j)) != 0) {
+                entries.add(new BundleEntry(interestLicenses[j], 1));
+            }
+        }
+        return new Bundle(entries);
+    }
+
+    /**
+     * Exports the complete table, indexed by interest mask.
+     * In legacy worlds, this only contains the values of bundles without licenses outside the interest licenses.
+     *
+     * @return a copy of the value table
+     */
+    public double[] getValues() {
+        double[] values = new double[table.length];
+        for (int mask = 0; mask < table.length; mask++) {
+            values[mask] = value(mask);
+        }
+        return values;
+    }
+
+    /**
+     * Exports all non-empty bundles of interest licenses with their values, i.e., a complete XOR bid
+     * (in legacy worlds, limited to bundles of interest licenses).
+     */
+    public List<BundleValue> toBundleValues() {
+        List<BundleValue> result = new ArrayList<>(table.length - 1);
+        for (int mask = 1; mask < table.length; mask++) {
+            result.add(new BundleValue(BigDecimal.valueOf(value(mask)), getBundle(mask)));
+        }
+        return result;
+    }
+}
@@ -27,7 +27,7 @@ public class GlobalSynergyValueModel extends DefaultModel<GSVMWorld, GSVMBidder>
      * @see org.spectrumauctions.sats.core.model.QuickDefaultAccess#createPopulation(World, RNGSupplier)
      */
     @Override
-    public List<GSVMBidder> createPopulation(GSVMWorld world, RNGSupplier populationRNG) {
+    protected List<GSVMBidder> doCreatePopulation(GSVMWorld world, RNGSupplier populationRNG) {
         Collection<GSVMRegionalBidderSetup> regionalSetups = new HashSet<>();
         regionalSetups.add(regionalBidderBuilder.build());
 
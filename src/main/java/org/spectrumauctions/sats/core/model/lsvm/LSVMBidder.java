@@ -37,6 +37,9 @@ public final class LSVMBidder extends SATSBidder {
     private transient LSVMWorld world;
     private final String description;
 
+    private transient volatile double[] indexedValues;
+    private transient volatile long[] proximityMask;
+
     LSVMBidder(LSVMBidderSetup setup, LSVMWorld world, long currentId, long population, RNGSupplier rngSupplier) {
         super(setup, population, currentId, world.getId());
         this.world = world;
@@ -62,28 +65,58 @@ public final class LSVMBidder extends SATSBidder {
 
     @Override
     public BigDecimal calculateValue(Bundle bundle) {
-        double value = 0;
-        Set<LSVMLicense> licences;
-        if(world.isLegacyLSVM())
-        	licences = bundle.getBundleEntries().stream().map(be -> (LSVMLicense) be.getGood()).collect(Collectors.toSet());
-        else 
-        	licences = bundle.getBundleEntries().stream().map(be -> (LSVMLicense) be.getGood()).filter(l -> this.getProximity().contains(l)).collect(Collectors.toSet());
-        Set<Set<LSVMLicense>> subpackages = world.getGrid().getMaximallyConnectedSubpackages(licences);
-        for (Set<LSVMLicense> subset : subpackages) {
-            double factor = calculateFactor(subset.size());
-            value += factor * sumOfItemValues(subset);
+        Set<LSVMLicense> licences = bundle.getBundleEntries().stream().map(be -> (LSVMLicense) be.getGood()).collect(Collectors.toSet());
+        return BigDecimal.valueOf(calculateValue(world.getGrid().toBitVector(licences)));
+    }
+
+    /**
+     * {@inheritDoc}<br>
+     * The maximally connected subpackages are found by a flood fill on the grid,
+     * without creating any intermediate sets.
+     */
+    @Override
+    public double calculateValue(long[] bundle) {
+        if (!world.isLegacyLSVM()) {
+            long[] proximityMask = getProximityMask();
+            long[] filtered = new long[proximityMask.length];
+            for (int word = 0; word < filtered.length && word < bundle.length; word++) {
+                filtered[word] = bundle[word] & proximityMask[word];
+            }
+            bundle = filtered;
         }
-        return BigDecimal.valueOf(value);
+        return world.getGrid().componentValue(bundle, getIndexedValues(), this::calculateFactor);
     }
 
-    private double sumOfItemValues(Set<LSVMLicense> subset) {
-        double value = 0;
-        for (LSVMLicense license : subset) {
-            if (this.values.containsKey(license.getLongId())) {
-                value += this.values.get(license.getLongId()).doubleValue();
+    /**
+     * @return the base values of this bidder in row-major order of the grid (0 if no base value is defined).
+     * This is only instantiated at its first use.
+     */
+    private double[] getIndexedValues() {
+        double[] result = indexedValues;
+        if (result == null) {
+            LSVMGrid grid = world.getGrid();
+            result = new double[grid.getNumberOfRows() * grid.getNumberOfColumns()];
+            for (LSVMLicense license : grid.getLicenses()) {
+                BigDecimal value = values.get(license.getLongId());
+                if (value != null) {
+                    result[grid.position(license)] = value.doubleValue();
+                }
             }
+            indexedValues = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return the proximity of this bidder as row-major bit vector. This is only instantiated at its first use.
+     */
+    private long[] getProximityMask() {
+        long[] result = proximityMask;
+        if (result == null) {
+            result = world.getGrid().toBitVector(proximity);
+            proximityMask = result;
         }
-        return value;
+        return result;
     }
 
     @Override
@@ -115,6 +148,8 @@ public final class LSVMBidder extends SATSBidder {
         Preconditions.checkArgument(world.getId() == getWorldId());
         if (world instanceof LSVMWorld) {
             this.world = (LSVMWorld) world;
+            this.indexedValues = null;
+            this.proximityMask = null;
         } else {
             throw new IllegalArgumentException("World is not of correct type");
         }
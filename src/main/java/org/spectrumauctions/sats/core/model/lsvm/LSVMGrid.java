@@ -7,11 +7,15 @@ import org.spectrumauctions.sats.core.util.PreconditionUtils;
 import org.spectrumauctions.sats.core.util.random.UniformDistributionRNG;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.function.IntToDoubleFunction;
 import java.util.stream.Collectors;
 
 /**
@@ -154,46 +158,111 @@ public class LSVMGrid implements Serializable {
                 || a.getRowPosition() == b.getRowPosition() && a.getColumnPosition() - 1 == b.getColumnPosition();
     }
 
-    private boolean hasNeighbor(LSVMLicense a, Set<LSVMLicense> set) {
-        for (LSVMLicense b : set) {
-            if (isNeighbor(a, b)) return true;
-        }
-        return false;
+    /**
+     * @return the position of the license in the row-major order of this grid.
+     * As licenses are created in row-major order, this equals the position in the {@link World#getLicenseIndex()}.
+     */
+    int position(LSVMLicense license) {
+        return license.getRowPosition() * numberOfColumns + license.getColumnPosition();
     }
 
-    Set<Set<LSVMLicense>> getMaximallyConnectedSubpackages(Set<LSVMLicense> bundle) {
-
-        Set<Set<LSVMLicense>> subpackages = new HashSet<>();
-        Set<LSVMLicense> copyOfBundle = new HashSet<>(bundle);
-        while (!copyOfBundle.isEmpty()) {
-            // Each iteration returns one subpackage
-            LSVMLicense next = copyOfBundle.iterator().next();
-            Set<LSVMLicense> currentSet = new HashSet<>();
-            currentSet.add(next);
-            Set<LSVMLicense> subpackage = addNeighbors(currentSet, copyOfBundle);
-            copyOfBundle.removeAll(subpackage);
-            subpackages.add(subpackage);
+    /**
+     * Encodes a set of licenses as row-major bit vector
+     */
+    long[] toBitVector(Collection<LSVMLicense> bundle) {
+        long[] bits = new long[wordCount()];
+        for (LSVMLicense license : bundle) {
+            int position = position(license);
+            bits[position >>> 6] |= 1L << position;
         }
-        return subpackages;
+        return bits;
     }
 
-    private Set<LSVMLicense> addNeighbors(Set<LSVMLicense> currentSet, Set<LSVMLicense> possibleNeighbors) {
-        if (currentSet.size() == possibleNeighbors.size()) return currentSet;
-        else {
-            Set<LSVMLicense> linkedLicenses = new HashSet<>(currentSet);
-            Set<LSVMLicense> unassigned = new HashSet<>(possibleNeighbors);
-            unassigned.removeAll(currentSet);
+    private int wordCount() {
+        return (numberOfRows * numberOfColumns + 63) / 64;
+    }
 
-            for (LSVMLicense license : unassigned) {
-                if (hasNeighbor(license, currentSet)) {
-                    linkedLicenses.add(license);
-                    linkedLicenses.addAll(addNeighbors(linkedLicenses, possibleNeighbors));
+    /**
+     * Labels the maximally connected subpackages (with respect to the 4-neighbourhood) of a bundle by flood fill.
+     *
+     * @param bundle the bundle as row-major bit vector
+     * @param labels an array with one entry per license of the grid. After the call, it contains the
+     *               component of every license in the bundle and -1 for all other licenses.
+     * @return the number of components
+     */
+    int labelComponents(long[] bundle, int[] labels) {
+        Arrays.fill(labels, -1);
+        long[] remaining = Arrays.copyOf(bundle, wordCount());
+        int[] stack = new int[labels.length];
+        int components = 0;
+        for (int word = 0; word < remaining.length; word++) {
+            while (remaining[word] != 0) {
+                int seed = (word << 6) + Long.numberOfTrailingZeros(remaining[word]);
+                remaining[word] &= remaining[word] - 1;
+                int top = 0;
+                stack[top++] = seed;
+                while (top > 0) {
+                    int position = stack[--top];
+                    labels[position] = components;
+                    int row = position / numberOfColumns;
+                    int column = position % numberOfColumns;
+                    if (row > 0) top = visit(remaining, position - numberOfColumns, stack, top);
+                    if (column < numberOfColumns - 1) top = visit(remaining, position + 1, stack, top);
+                    if (row < numberOfRows - 1) top = visit(remaining, position + numberOfColumns, stack, top);
+                    if (column > 0) top = visit(remaining, position - 1, stack, top);
                 }
+                components++;
             }
+        }
+        return components;
+    }
 
-            return linkedLicenses;
+    private static int visit(long[] remaining, int position, int[] stack, int top) {
+        long bit = 1L << position;
+        if ((remaining[position >>> 6] & bit) != 0) {
+            remaining[position >>> 6] &= ~bit;
+            stack[top++] = position;
+        }
+        return top;
+    }
 
+    /**
+     * Calculates the sum of <i>factor(size) * (sum of item values)</i> over all maximally connected subpackages of a bundle.
+     *
+     * @param bundle     the bundle as row-major bit vector
+     * @param itemValues the value of every license, in row-major order
+     * @param factor     the factor applied to a subpackage of a given size
+     */
+    double componentValue(long[] bundle, double[] itemValues, IntToDoubleFunction factor) {
+        int[] labels = new int[numberOfRows * numberOfColumns];
+        int components = labelComponents(bundle, labels);
+        int[] sizes = new int[components];
+        double[] sums = new double[components];
+        for (int position = 0; position < labels.length; position++) {
+            if (labels[position] >= 0) {
+                sizes[labels[position]]++;
+                sums[labels[position]] += itemValues[position];
+            }
+        }
+        double value = 0;
+        for (int component = 0; component < components; component++) {
+            value += factor.applyAsDouble(sizes[component]) * sums[component];
         }
+        return value;
+    }
 
+    Set<Set<LSVMLicense>> getMaximallyConnectedSubpackages(Set<LSVMLicense> bundle) {
+        int[] labels = new int[numberOfRows * numberOfColumns];
+        int components = labelComponents(toBitVector(bundle), labels);
+        List<Set<LSVMLicense>> subpackages = new ArrayList<>(components);
+        for (int component = 0; component < components; component++) {
+            subpackages.add(new HashSet<>());
+        }
+        for (int position = 0; position < labels.length; position++) {
+            if (labels[position] >= 0) {
+                subpackages.get(labels[position]).add(licenses[position / numberOfColumns][position % numberOfColumns]);
+            }
+        }
+        return new HashSet<>(subpackages);
     }
 }
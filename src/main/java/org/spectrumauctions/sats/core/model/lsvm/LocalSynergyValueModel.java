@@ -27,7 +27,7 @@ public class LocalSynergyValueModel extends DefaultModel<LSVMWorld, LSVMBidder>
      * @see org.spectrumauctions.sats.core.model.QuickDefaultAccess#createPopulation(World, RNGSupplier)
      */
     @Override
-    public List<LSVMBidder> createPopulation(LSVMWorld world, RNGSupplier populationRNG) {
+    protected List<LSVMBidder> doCreatePopulation(LSVMWorld world, RNGSupplier populationRNG) {
         List<LSVMBidderSetup> setups = new ArrayList<>();
         setups.add(nationalBidderBuilder.build());
         setups.add(regionalBidderBuilder.build());
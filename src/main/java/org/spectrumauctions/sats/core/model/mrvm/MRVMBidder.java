@@ -35,12 +35,14 @@ import org.spectrumauctions.sats.core.util.random.UniformDistributionRNG;
 import org.spectrumauctions.sats.opt.model.mrvm.MRVM_MIP;
 
 import java.math.BigDecimal;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 
@@ -83,6 +85,22 @@ public abstract class MRVMBidder extends SATSBidder {
     @Setter
     private AllocationLimit allocationLimit = AllocationLimit.NO;
 
+    /**
+     * If set to true, value queries are answered by a compiled {@link MRVMValuationEngine}
+     * in double precision instead of the {@link BigDecimal} based calculation.<br>
+     * This is a runtime option and is neither stored nor considered for equality.
+     */
+    @Getter
+    @Setter
+    private transient volatile boolean useValuationEngine = false;
+
+    private transient volatile MRVMValuationEngine valuationEngine;
+
+    /**
+     * Caches the (immutable) sv-functions per region id. This is only instantiated at its first use.
+     */
+    private transient volatile Map<Integer, ContinuousPiecewiseLinearFunction> svFunctionCache;
+
 
     MRVMBidder(long id, long populationId, MRVMWorld world, MRVMBidderSetup setup, UniformDistributionRNG rng, AllocationLimit limit) {
         super(setup, populationId, id, world.getId());
@@ -138,7 +156,19 @@ public abstract class MRVMBidder extends SATSBidder {
         return svFunction(region).getY(c);
     }
 
+    /**
+     * Returns the sv-function of a region. The function is created at the first call and cached afterwards.
+     */
     public ContinuousPiecewiseLinearFunction svFunction(MRVMRegionsMap.Region region) {
+        Map<Integer, ContinuousPiecewiseLinearFunction> cache = svFunctionCache;
+        if (cache == null) {
+            cache = new ConcurrentHashMap<>();
+            svFunctionCache = cache;
+        }
+        return cache.computeIfAbsent(region.getId(), id -> createSvFunction(region));
+    }
+
+    private ContinuousPiecewiseLinearFunction createSvFunction(MRVMRegionsMap.Region region) {
         int population = region.getPopulation();
         BigDecimal beta = this.getBeta(region);
         Map<BigDecimal, BigDecimal> cornerPoints = new HashMap<>();
@@ -171,11 +201,40 @@ public abstract class MRVMBidder extends SATSBidder {
      */
     public abstract Map<MRVMRegionsMap.Region, BigDecimal> gammaFactors(Set<MRVMLicense> bundle);
 
+    /**
+     * Calculates the gamma factor of a region for any bundle which leaves <i>uncoveredRegions</i> regions without licenses.
+     * Used to precompute the gamma factors in the {@link MRVMValuationEngine}.
+     */
+    BigDecimal gammaFactor(MRVMRegionsMap.Region r, int uncoveredRegions) {
+        return gammaFactor(r, Collections.emptySet());
+    }
+
+    /**
+     * @return the compiled valuation engine of this bidder. It is created on first access,
+     * only once also if several threads query values concurrently.
+     */
+    public MRVMValuationEngine getValuationEngine() {
+        MRVMValuationEngine result = valuationEngine;
+        if (result == null) {
+            synchronized (this) {
+                result = valuationEngine;
+                if (result == null) {
+                    result = new MRVMValuationEngine(this);
+                    valuationEngine = result;
+                }
+            }
+        }
+        return result;
+    }
+
     @Override
     public BigDecimal calculateValue(Bundle bundle) {
         if (bundle.getBundleEntries().isEmpty()) {
             return BigDecimal.ZERO;
         }
+        if (useValuationEngine) {
+            return BigDecimal.valueOf(getValuationEngine().value(bundle));
+        }
         //TODO: Change this very naive approach to a faster one, where generics don't have to be transformed into bundles
         Set<MRVMLicense> licenses = bundle.getBundleEntries().stream().filter(be -> be.getGood() instanceof MRVMLicense && be.getAmount() == 1).map(be -> (MRVMLicense) be.getGood()).collect(Collectors.toSet());
         Set<BundleEntry> genericBundleEntries = bundle.getBundleEntries().stream().filter(be -> be.getGood() instanceof MRVMGenericDefinition).collect(Collectors.toSet());
@@ -213,6 +272,15 @@ public abstract class MRVMBidder extends SATSBidder {
         return totalValue;
     }
 
+    /**
+     * {@inheritDoc}<br>
+     * The value is always calculated by the {@link MRVMValuationEngine} of this bidder.
+     */
+    @Override
+    public double calculateValue(long[] bundle) {
+        MRVMValuationEngine engine = getValuationEngine();
+        return engine.value(engine.quantities(bundle));
+    }
 
     @Override
     public MRVMWorld getWorld() {
@@ -221,6 +289,8 @@ public abstract class MRVMBidder extends SATSBidder {
 
     private void setWorld(MRVMWorld world) {
         this.world = world;
+        this.valuationEngine = null;
+        this.svFunctionCache = null;
     }
 
     public BigDecimal getzLow(MRVMRegionsMap.Region region) {
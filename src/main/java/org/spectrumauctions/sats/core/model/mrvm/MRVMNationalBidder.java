@@ -85,6 +85,15 @@ public final class MRVMNationalBidder extends MRVMBidder {
         return result;
     }
 
+    /**
+     * {@inheritDoc}
+     * @param r Not required for gamma calculation of national bidder and will be ignored
+     */
+    @Override
+    BigDecimal gammaFactor(MRVMRegionsMap.Region r, int uncoveredRegions) {
+        return getGamma(uncoveredRegions);
+    }
+
     public int getKMax() {
         return gammaValues.lastKey();
     }
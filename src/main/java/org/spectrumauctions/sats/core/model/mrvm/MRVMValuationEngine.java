@@ -0,0 +1,262 @@
+/**
+ * Copyright by Michael Weiss, weiss.michael@gmx.ch
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.spectrumauctions.sats.core.model.mrvm;
+
+import com.google.common.base.Preconditions;
+import org.marketdesignresearch.mechlib.core.Bundle;
+import org.marketdesignresearch.mechlib.core.BundleEntry;
+import org.spectrumauctions.sats.core.model.LicenseIndex;
+import org.spectrumauctions.sats.core.util.math.ContinuousPiecewiseLinearFunction;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * A compiled, double-precision representation of the value function of a {@link MRVMBidder}.<br>
+ * All bidder and world parameters required for a value query are flattened into primitive arrays
+ * when the engine is created, such that a value query only requires a dense
+ * <i>quantities[region][band]</i> vector and no intermediate collections or {@link BigDecimal} arithmetic.<br>
+ * The results equal the ones of {@link MRVMBidder#calculateValue(Bundle)} up to floating point precision.
+ *
+ * @see MRVMBidder#setUseValuationEngine(boolean)
+ */
+public final class MRVMValuationEngine {
+
+    private final MRVMRegionsMap.Region[] regions;
+    private final MRVMBand[] bands;
+    private final Map<Integer, Integer> regionIndex = new HashMap<>();
+    private final Map<String, Integer> bandIndex = new HashMap<>();
+
+    private final LicenseIndex licenseIndex;
+
+    /**
+     * Region and band index per license, indexed by the position of the license in the {@link LicenseIndex}
+     */
+    private final int[] licenseRegion;
+    private final int[] licenseBand;
+
+    /**
+     * capacity[band][quantity] = {@link MRVMWorld#capOfBand(MRVMBand, int)}
+     */
+    private final double[][] capacity;
+
+    /**
+     * The sv-function and the upper end of its domain for every region
+     */
+    private final ContinuousPiecewiseLinearFunction[] svFunctions;
+    private final double[] svMaxX;
+
+    /**
+     * beta * population for every region, i.e., the omega factor divided by the sv-value
+     */
+    private final double[] omegaMultiplier;
+
+    /**
+     * gamma[uncoveredRegions][region]
+     */
+    private final double[][] gamma;
+
+    MRVMValuationEngine(MRVMBidder bidder) {
+        MRVMWorld world = bidder.getWorld();
+        regions = world.getRegionsMap().getRegions().stream()
+                .sorted(Comparator.comparingInt(MRVMRegionsMap.Region::getId))
+                .toArray(MRVMRegionsMap.Region[]::new);
+        bands = world.getBands().stream()
+                .sorted(Comparator.comparing(MRVMBand::getName))
+                .toArray(MRVMBand[]::new);
+        for (int r = 0; r < regions.length; r++) {
+            regionIndex.put(regions[r].getId(), r);
+        }
+        for (int b = 0; b < bands.length; b++) {
+            bandIndex.put(bands[b].getName(), b);
+        }
+
+        licenseIndex = world.getLicenseIndex();
+        licenseRegion = new int[licenseIndex.size()];
+        licenseBand = new int[licenseIndex.size()];
+        for (int i = 0; i < licenseIndex.size(); i++) {
+            MRVMLicense license = (MRVMLicense) licenseIndex.getLicense(i);
+            licenseRegion[i] = regionIndex.get(license.getRegionId());
+            licenseBand[i] = bandIndex.get(license.getBand().getName());
+        }
+
+        capacity = new double[bands.length][];
+        for (int b = 0; b < bands.length; b++) {
+            capacity[b] = new double[bands[b].getNumberOfLots() + 1];
+            for (int q = 0; q <= bands[b].getNumberOfLots(); q++) {
+                capacity[b][q] = MRVMWorld.capOfBand(bands[b], q).doubleValue();
+            }
+        }
+
+        svFunctions = new ContinuousPiecewiseLinearFunction[regions.length];
+        svMaxX = new double[regions.length];
+        omegaMultiplier = new double[regions.length];
+        for (int r = 0; r < regions.length; r++) {
+            svFunctions[r] = bidder.svFunction(regions[r]);
+            List<AbstractMap.SimpleImmutableEntry<BigDecimal, BigDecimal>> cornerPoints = svFunctions[r].getCornerPoints();
+            svMaxX[r] = cornerPoints.get(cornerPoints.size() - 1).getKey().doubleValue();
+            omegaMultiplier[r] = bidder.getBeta(regions[r]).doubleValue() * regions[r].getPopulation();
+        }
+
+        gamma = new double[regions.length + 1][regions.length];
+        for (int uncovered = 0; uncovered <= regions.length; uncovered++) {
+            for (int r = 0; r < regions.length; r++) {
+                gamma[uncovered][r] = bidder.gammaFactor(regions[r], uncovered).doubleValue();
+            }
+        }
+    }
+
+    public int getNumberOfRegions() {
+        return regions.length;
+    }
+
+    public int getNumberOfBands() {
+        return bands.length;
+    }
+
+    /**
+     * @return the region at the given index of the quantity vectors used by this engine
+     */
+    public MRVMRegionsMap.Region getRegion(int regionIndex) {
+        return regions[regionIndex];
+    }
+
+    /**
+     * @return the band at the given index of the quantity vectors used by this engine
+     */
+    public MRVMBand getBand(int bandIndex) {
+        return bands[bandIndex];
+    }
+
+    /**
+     * @return the index of the given region in the quantity vectors used by this engine
+     */
+    public int getRegionIndex(MRVMRegionsMap.Region region) {
+        Integer index = regionIndex.get(region.getId());
+        Preconditions.checkArgument(index != null, "Region is not from this world");
+        return index;
+    }
+
+    /**
+     * @return the index of the given band in the quantity vectors used by this engine
+     */
+    public int getBandIndex(MRVMBand band) {
+        Integer index = bandIndex.get(band.getName());
+        Preconditions.checkArgument(index != null, "Band is not from this world");
+        return index;
+    }
+
+    /**
+     * Transforms a bundle of {@link MRVMLicense}s and {@link MRVMGenericDefinition}s into a
+     * dense quantity vector, i.e., the number of licenses per region and band.<br>
+     * Generic definitions are expanded the same way as in {@link MRVMBidder#calculateValue(Bundle)}.
+     */
+    public int[][] quantities(Bundle bundle) {
+        int[][] quantities = new int[regions.length][bands.length];
+        List<BundleEntry> genericEntries = null;
+        for (BundleEntry entry : bundle.getBundleEntries()) {
+            if (entry.getGood() instanceof MRVMLicense && entry.getAmount() == 1) {
+                int position = licenseIndex.indexOf((MRVMLicense) entry.getGood());
+                quantities[licenseRegion[position]][licenseBand[position]]++;
+            } else if (entry.getGood() instanceof MRVMGenericDefinition) {
+                if (genericEntries == null) {
+                    genericEntries = new ArrayList<>();
+                }
+                genericEntries.add(entry);
+            } else {
+                throw new IllegalArgumentException("Bundle contains other goods than MRVMLicenses or MRVMGenericDefinitions");
+            }
+        }
+        if (genericEntries != null) {
+            for (BundleEntry entry : genericEntries) {
+                MRVMGenericDefinition def = (MRVMGenericDefinition) entry.getGood();
+                int r = regionIndex.get(def.getRegion().getId());
+                int b = bandIndex.get(def.getBand().getName());
+                int required = Math.min(entry.getAmount(), def.getQuantity());
+                quantities[r][b] = Math.max(quantities[r][b], required);
+            }
+        }
+        return quantities;
+    }
+
+    /**
+     * Transforms a bundle encoded as bit vector (see {@link LicenseIndex}) into a dense quantity vector
+     */
+    public int[][] quantities(long[] bundle) {
+        int[][] quantities = new int[regions.length][bands.length];
+        for (int word = 0; word < bundle.length; word++) {
+            long remaining = bundle[word];
+            while (remaining != 0) {
+                int position = (word << 6) + Long.numberOfTrailingZeros(remaining);
+                quantities[licenseRegion[position]][licenseBand[position]]++;
+                remaining &= remaining - 1;
+            }
+        }
+        return quantities;
+    }
+
+    /**
+     * Calculates the value of a bundle
+     */
+    public double value(Bundle bundle) {
+        if (bundle.getBundleEntries().isEmpty()) {
+            return 0;
+        }
+        return value(quantities(bundle));
+    }
+
+    /**
+     * Calculates the value for a quantity vector
+     *
+     * @param quantities the number of licenses per region and band, indexed as quantities[region][band]
+     *                   (see {@link #getRegion(int)} and {@link #getBand(int)} for the order of the indices)
+     */
+    public double value(int[][] quantities) {
+        Preconditions.checkArgument(quantities.length == regions.length);
+        int uncovered = 0;
+        for (int r = 0; r < regions.length; r++) {
+            if (isEmpty(quantities[r])) {
+                uncovered++;
+            }
+        }
+        if (uncovered == regions.length) {
+            return 0;
+        }
+        double[] gammaFactors = gamma[uncovered];
+        double value = 0;
+        for (int r = 0; r < regions.length; r++) {
+            if (gammaFactors[r] == 0) {
+                continue;
+            }
+            double c = 0;
+            for (int b = 0; b < bands.length; b++) {
+                c += capacity[b][quantities[r][b]];
+            }
+            if (c > 0) {
+                value += sv(r, c) * omegaMultiplier[r] * gammaFactors[r];
+            }
+        }
+        return value;
+    }
+
+    private static boolean isEmpty(int[] regionalQuantities) {
+        for (int quantity : regionalQuantities) {
+            if (quantity != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Evaluates the sv-function of the given region.
+     * The capacity is bounded by the maximal regional capacity, but may exceed it slightly due to rounding.
+     */
+    private double sv(int region, double c) {
+        return svFunctions[region].getY(Math.min(c, svMaxX[region]));
+    }
+
+}
@@ -42,7 +42,7 @@ public class MultiRegionModel extends DefaultModel<MRVMWorld, MRVMBidder> {
      * @see org.spectrumauctions.sats.core.model.QuickDefaultAccess#createPopulation(World, RNGSupplier)
      */
     @Override
-    public List<MRVMBidder> createPopulation(MRVMWorld world, RNGSupplier populationRNG) {
+    protected List<MRVMBidder> doCreatePopulation(MRVMWorld world, RNGSupplier populationRNG) {
         return world.createPopulation(localBidderBuilder.build(), regionalBidderBuilder.build(), nationalBidderBuilder.build(), populationRNG);
     }
 
@@ -5,12 +5,14 @@
  */
 package org.spectrumauctions.sats.core.model.mrvm;
 
+import org.marketdesignresearch.mechlib.core.Bundle;
 import org.spectrumauctions.sats.core.bidlang.generic.SizeOrderedPowerset.GenericPowerset;
 import org.spectrumauctions.sats.core.bidlang.generic.SizeOrderedPowerset.GenericPowersetDecreasing;
 import org.spectrumauctions.sats.core.bidlang.generic.SizeOrderedPowerset.GenericPowersetIncreasing;
 import org.spectrumauctions.sats.core.model.SATSBidder;
 import org.spectrumauctions.sats.core.model.UnsupportedBiddingLanguageException;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -37,10 +39,17 @@ public class SizeOrderedGenericPowersetFactory {
     private static final class Increasing extends GenericPowersetIncreasing {
 
         private MRVMBidder bidder;
+        private final EngineValuation valuation;
 
         protected Increasing(List<MRVMGenericDefinition> genericDefinitions, MRVMBidder bidder) throws UnsupportedBiddingLanguageException {
             super(genericDefinitions);
             this.bidder = bidder;
+            this.valuation = new EngineValuation(genericDefinitions, bidder);
+        }
+
+        @Override
+        protected BigDecimal calculateValue(int[] quantities, Bundle bundle) {
+            return valuation.calculateValue(quantities, bundle);
         }
 
         @Override
@@ -52,10 +61,17 @@ public class SizeOrderedGenericPowersetFactory {
     private static final class Decreasing extends GenericPowersetDecreasing {
 
         private MRVMBidder bidder;
+        private final EngineValuation valuation;
 
         protected Decreasing(List<MRVMGenericDefinition> genericDefinitions, MRVMBidder bidder) throws UnsupportedBiddingLanguageException {
             super(genericDefinitions);
             this.bidder = bidder;
+            this.valuation = new EngineValuation(genericDefinitions, bidder);
+        }
+
+        @Override
+        protected BigDecimal calculateValue(int[] quantities, Bundle bundle) {
+            return valuation.calculateValue(quantities, bundle);
         }
 
         @Override
@@ -64,4 +80,47 @@ public class SizeOrderedGenericPowersetFactory {
         }
 
     }
+
+    /**
+     * Evaluates the quantity vectors of the generic definitions directly with the {@link MRVMValuationEngine},
+     * if the bidder is configured to use it. Otherwise, the bundle is evaluated as usual.
+     */
+    private static final class EngineValuation {
+
+        private final MRVMBidder bidder;
+        private final List<MRVMGenericDefinition> genericDefinitions;
+        /**
+         * The region index (first row) and the band index (second row) in the engine of every generic definition.
+         * Built at most once per thread and published as a whole, as the bids may be valued in parallel.
+         */
+        private volatile int[][] indices;
+
+        private EngineValuation(List<MRVMGenericDefinition> genericDefinitions, MRVMBidder bidder) {
+            this.bidder = bidder;
+            this.genericDefinitions = genericDefinitions;
+        }
+
+        private BigDecimal calculateValue(int[] quantities, Bundle bundle) {
+            if (!bidder.isUseValuationEngine()) {
+                return bidder.calculateValue(bundle);
+            }
+            MRVMValuationEngine engine = bidder.getValuationEngine();
+            int[][] indices = this.indices;
+            if (indices == null) {
+                indices = new int[2][genericDefinitions.size()];
+                for (int i = 0; i < genericDefinitions.size(); i++) {
+                    indices[0][i] = engine.getRegionIndex(genericDefinitions.get(i).getRegion());
+                    indices[1][i] = engine.getBandIndex(genericDefinitions.get(i).getBand());
+                }
+                this.indices = indices;
+            }
+            int[] regionIndices = indices[0];
+            int[] bandIndices = indices[1];
+            int[][] regionalQuantities = new int[engine.getNumberOfRegions()][engine.getNumberOfBands()];
+            for (int i = 0; i < quantities.length; i++) {
+                regionalQuantities[regionIndices[i]][bandIndices[i]] += quantities[i];
+            }
+            return BigDecimal.valueOf(engine.value(regionalQuantities));
+        }
+    }
 }
@@ -6,7 +6,6 @@ import lombok.EqualsAndHashCode;
 import org.apache.commons.lang3.NotImplementedException;
 import org.marketdesignresearch.mechlib.core.Bundle;
 import org.marketdesignresearch.mechlib.core.BundleEntry;
-import org.marketdesignresearch.mechlib.core.Good;
 import org.marketdesignresearch.mechlib.core.price.Prices;
 import org.spectrumauctions.sats.core.bidlang.BiddingLanguage;
 import org.spectrumauctions.sats.core.bidlang.generic.FlatSizeIterators.GenericSizeDecreasing;
@@ -53,6 +52,19 @@ public final class SRVMBidder extends SATSBidder {
      */
     private final BigDecimal interbandSynergyValue;
 
+    /**
+     * Caches the band position of every license, see {@link #getIndexedLicenseBands()}.
+     * This is only instantiated at its first use.
+     */
+    private transient volatile int[] indexedLicenseBands;
+
+    /**
+     * Caches the values per band and quantity, see {@link #getBandValueTable()}.
+     * These are only instantiated at their first use, and published only once complete, as concurrent value queries may read them.
+     */
+    private transient volatile BigDecimal[][] bandValueTable;
+    private transient volatile double[][] bandValueTableDouble;
+
     SRVMBidder(SRVMBidderSetup setup, SRVMWorld world, long currentId, long population, RNGSupplier rngSupplier) {
         super(setup, population, currentId, world.getId());
         this.world = world;
@@ -126,27 +138,64 @@ public final class SRVMBidder extends SATSBidder {
     @Override
     public BigDecimal calculateValue(Bundle bundle) {
         if (bundle.getBundleEntries().isEmpty()) return BigDecimal.ZERO;
-        // First, if there are only single licenses, construct the generic map
-        Map<Good, Integer> combined = new HashMap<>();
+        // First, if there are only single licenses, construct the quantities per band
+        List<SRVMBand> bands = getWorld().getBands();
+        int[] quantities = new int[bands.size()];
+        boolean[] present = new boolean[bands.size()];
         for (BundleEntry bundleEntry : bundle.getBundleEntries()) {
+            SRVMBand band;
+            int amount;
             if (bundleEntry.getGood() instanceof SRVMLicense) {
-                Good band = getWorld().getGenericDefinitionOf((License) bundleEntry.getGood());
-                combined.put(band, combined.getOrDefault(band, 0) + 1);
+                band = ((SRVMLicense) bundleEntry.getGood()).getBand();
+                amount = 1;
             } else if (bundleEntry.getGood() instanceof SRVMBand) {
-                Good band = bundleEntry.getGood();
-                combined.put(band, combined.getOrDefault(band, 0) + bundleEntry.getAmount());
+                band = (SRVMBand) bundleEntry.getGood();
+                amount = bundleEntry.getAmount();
             } else {
                 throw new WrongConfigException("A good specified in a bundle is neither a SRVMLicense nor a SRVMBand!");
             }
+            int b = bands.indexOf(band);
+            Preconditions.checkArgument(b >= 0, "Band is not from this world" + band.getName());
+            quantities[b] += amount;
+            present[b] = true;
         }
+        return exactValue(quantities, present);
+    }
+
+    /**
+     * Calculates the value of a generic bundle, specified by the number of licenses per band, exactly.
+     * {@link #calculateValue(int[])} is its double precision counterpart.
+     *
+     * @param quantities the number of licenses per band, in the order of {@link SRVMWorld#getBands()}
+     */
+    BigDecimal calculateExactValue(int[] quantities) {
+        Preconditions.checkArgument(quantities.length == getWorld().getBands().size(), "Expected one quantity per band");
+        boolean[] present = new boolean[quantities.length];
+        for (int b = 0; b < quantities.length; b++) {
+            Preconditions.checkArgument(quantities[b] >= 0, "Quantity must not be negative");
+            present[b] = quantities[b] > 0;
+        }
+        return exactValue(quantities, present);
+    }
 
-        bundle = new Bundle(combined);
+    /**
+     * @param present whether the band is part of the bundle, even if only with zero licenses
+     */
+    private BigDecimal exactValue(int[] quantities, boolean[] present) {
+        List<SRVMBand> bands = getWorld().getBands();
+        BigDecimal[][] bandValues = getBandValueTable();
         BigDecimal bandValuesSum = BigDecimal.ZERO;
-        //We count the number of bands with more than 0 licenses in this bundle
+        //We count the number of bands with licenses in this bundle
         int synergyBandCount = 0;
-        for (BundleEntry entry : bundle.getBundleEntries()) {
-            bandValuesSum = bandValuesSum.add(getBandValue((SRVMBand) entry.getGood(), entry.getAmount()));
-            synergyBandCount++;
+        for (int b = 0; b < quantities.length; b++) {
+            if (present[b]) {
+                if (quantities[b] < bandValues[b].length) {
+                    bandValuesSum = bandValuesSum.add(bandValues[b][quantities[b]]);
+                } else {
+                    bandValuesSum = bandValuesSum.add(getBandValue(bands.get(b), quantities[b]));
+                }
+                synergyBandCount++;
+            }
         }
         if (synergyBandCount >= 2) {
             // We have interband synergies
@@ -155,6 +204,101 @@ public final class SRVMBidder extends SATSBidder {
         return bandValuesSum;
     }
 
+    /**
+     * Calculates the value of a generic bundle, specified by the number of licenses per band, in double precision.
+     * The value is the same as the one of {@link #calculateValue(Bundle)} for a bundle of {@link SRVMBand}s.
+     *
+     * @param quantitiesPerBand the number of licenses per band, in the order of {@link SRVMWorld#getBands()}
+     */
+    public double calculateValue(int[] quantitiesPerBand) {
+        double[][] bandValues = getBandValueTableDouble();
+        Preconditions.checkArgument(quantitiesPerBand.length == bandValues.length, "Expected one quantity per band");
+        double bandValuesSum = 0;
+        int synergyBandCount = 0;
+        for (int b = 0; b < quantitiesPerBand.length; b++) {
+            Preconditions.checkArgument(quantitiesPerBand[b] >= 0 && quantitiesPerBand[b] < bandValues[b].length,
+                    "Invalid quantity for band %s", b);
+            if (quantitiesPerBand[b] > 0) {
+                bandValuesSum += bandValues[b][quantitiesPerBand[b]];
+                synergyBandCount++;
+            }
+        }
+        if (synergyBandCount >= 2) {
+            bandValuesSum *= interbandSynergyValue.doubleValue();
+        }
+        return bandValuesSum;
+    }
+
+    @Override
+    public double calculateValue(long[] bundle) {
+        int[] licenseBands = getIndexedLicenseBands();
+        int[] quantities = new int[getBandValueTableDouble().length];
+        for (int word = 0; word < bundle.length; word++) {
+            long remaining = bundle[word];
+            while (remaining != 0) {
+                quantities[licenseBands[(word << 6) + Long.numberOfTrailingZeros(remaining)]]++;
+                remaining &= remaining - 1;
+            }
+        }
+        return calculateValue(quantities);
+    }
+
+    /**
+     * @return table[band][quantity] = {@link #getBandValue(SRVMBand, int)} for all quantities up to the number of
+     * licenses in the band, with bands in the order of {@link SRVMWorld#getBands()}.
+     * This is only instantiated at its first use.
+     */
+    private BigDecimal[][] getBandValueTable() {
+        BigDecimal[][] result = bandValueTable;
+        if (result == null) {
+            List<SRVMBand> bands = getWorld().getBands();
+            result = new BigDecimal[bands.size()][];
+            for (int b = 0; b < bands.size(); b++) {
+                SRVMBand band = bands.get(b);
+                result[b] = new BigDecimal[band.getQuantity() + 1];
+                result[b][0] = BigDecimal.ZERO;
+                for (int quantity = 1; quantity <= band.getQuantity(); quantity++) {
+                    result[b][quantity] = getBandValue(band, quantity);
+                }
+            }
+            bandValueTable = result;
+        }
+        return result;
+    }
+
+    private double[][] getBandValueTableDouble() {
+        double[][] result = bandValueTableDouble;
+        if (result == null) {
+            BigDecimal[][] exact = getBandValueTable();
+            result = new double[exact.length][];
+            for (int b = 0; b < exact.length; b++) {
+                result[b] = new double[exact[b].length];
+                for (int quantity = 0; quantity < exact[b].length; quantity++) {
+                    result[b][quantity] = exact[b][quantity].doubleValue();
+                }
+            }
+            bandValueTableDouble = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return the position of the band in {@link SRVMWorld#getBands()} for every license,
+     * indexed by the position of the licenses in the {@link World#getLicenseIndex()}
+     */
+    private int[] getIndexedLicenseBands() {
+        int[] result = indexedLicenseBands;
+        if (result == null) {
+            List<SRVMBand> bands = getWorld().getBands();
+            LicenseIndex index = getWorld().getLicenseIndex();
+            result = new int[index.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = bands.indexOf(((SRVMLicense) index.getLicense(i)).getBand());
+            }
+            indexedLicenseBands = result;
+        }
+        return result;
+    }
 
     private BigDecimal getBandValue(SRVMBand band, int quantity) {
         // The min{2,n} or min{4,n} part of the value function
@@ -230,6 +374,9 @@ public final class SRVMBidder extends SATSBidder {
         Preconditions.checkArgument(world.getId() == getWorldId());
         if (world instanceof SRVMWorld) {
             this.world = (SRVMWorld) world;
+            this.indexedLicenseBands = null;
+            this.bandValueTable = null;
+            this.bandValueTableDouble = null;
         } else {
             throw new IllegalArgumentException("World is not of correct type");
         }
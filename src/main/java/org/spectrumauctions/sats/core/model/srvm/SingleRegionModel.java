@@ -35,7 +35,7 @@ public class SingleRegionModel extends DefaultModel<SRVMWorld, SRVMBidder> {
      * @see org.spectrumauctions.sats.core.model.QuickDefaultAccess#createPopulation(World, RNGSupplier)
      */
     @Override
-    public List<SRVMBidder> createPopulation(SRVMWorld world, RNGSupplier populationRNG) {
+    protected List<SRVMBidder> doCreatePopulation(SRVMWorld world, RNGSupplier populationRNG) {
         List<SRVMBidderSetup> setups = new ArrayList<>();
         setups.add(smallBidderBuilder.build());
         setups.add(highFrequencyBuilder.build());
@@ -5,11 +5,13 @@
  */
 package org.spectrumauctions.sats.core.model.srvm;
 
+import org.marketdesignresearch.mechlib.core.Bundle;
 import org.spectrumauctions.sats.core.bidlang.generic.SizeOrderedPowerset.GenericPowerset;
 import org.spectrumauctions.sats.core.bidlang.generic.SizeOrderedPowerset.GenericPowersetDecreasing;
 import org.spectrumauctions.sats.core.bidlang.generic.SizeOrderedPowerset.GenericPowersetIncreasing;
 import org.spectrumauctions.sats.core.model.UnsupportedBiddingLanguageException;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -37,6 +39,11 @@ public class SizeOrderedGenericPowersetFactory {
             this.bidder = bidder;
         }
 
+        @Override
+        protected BigDecimal calculateValue(int[] quantities, Bundle bundle) {
+            return bidder.calculateExactValue(quantities);
+        }
+
         @Override
         public SRVMBidder getBidder() {
             return bidder;
@@ -53,6 +60,11 @@ public class SizeOrderedGenericPowersetFactory {
             this.bidder = bidder;
         }
 
+        @Override
+        protected BigDecimal calculateValue(int[] quantities, Bundle bundle) {
+            return bidder.calculateExactValue(quantities);
+        }
+
         @Override
         public SRVMBidder getBidder() {
             return bidder;
@@ -0,0 +1,291 @@
+/**
+ * Copyright by Michael Weiss, weiss.michael@gmx.ch
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.spectrumauctions.sats.core.util;
+
+import com.google.common.base.Preconditions;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A thread-safe cache with a bounded number of entries and a pluggable {@link EvictionPolicy}.<br>
+ * In contrast to {@link CacheMap}, this cache can be shared between threads and keeps track of its
+ * hits and misses. Values are computed outside of the lock, i.e., concurrent misses for the same key may
+ * compute the value more than once, which is fine for deterministic computations such as value queries.
+ *
+ * @param <K> the key type, which has to implement {@link Object#equals(Object)} and {@link Object#hashCode()}
+ * @param <V> the value type
+ */
+public final class BoundedCache<K, V> {
+
+    public enum EvictionPolicy {
+        /**
+         * Evicts the least recently used entry
+         */
+        LRU,
+        /**
+         * Evicts the least frequently used entry (ties are broken by insertion order)
+         */
+        LFU
+    }
+
+    private final int maxEntries;
+    private final EvictionPolicy policy;
+    private final Store<K, V> store;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public BoundedCache(int maxEntries, EvictionPolicy policy) {
+        Preconditions.checkArgument(maxEntries > 0, "Cache size must be positive");
+        Preconditions.checkNotNull(policy);
+        this.maxEntries = maxEntries;
+        this.policy = policy;
+        this.store = policy == EvictionPolicy.LRU ? new LRUStore<>() : new LFUStore<>();
+    }
+
+    /**
+     * Returns the cached value for the key, or computes, stores and returns it if it is not cached.
+     */
+    public V get(K key, Function<? super K, ? extends V> valueFunction) {
+        V value;
+        synchronized (store) {
+            value = store.get(key);
+        }
+        if (value != null) {
+            hits.increment();
+            return value;
+        }
+        misses.increment();
+        value = valueFunction.apply(key);
+        Preconditions.checkNotNull(value, "Null values can not be cached");
+        synchronized (store) {
+            if (!store.containsKey(key)) {
+                if (store.size() >= maxEntries) {
+                    store.evict();
+                    evictions.increment();
+                }
+                store.put(key, value);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * @return the cached value, or null if the key is not cached. Counts as hit or miss.
+     */
+    public V getIfPresent(K key) {
+        V value;
+        synchronized (store) {
+            value = store.get(key);
+        }
+        if (value == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+
+    public int size() {
+        synchronized (store) {
+            return store.size();
+        }
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public EvictionPolicy getPolicy() {
+        return policy;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the fraction of lookups which were answered from the cache, or 0 if there was no lookup yet
+     */
+    public double getHitRate() {
+        long h = getHits();
+        long total = h + getMisses();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /**
+     * Removes all entries and resets the counters
+     */
+    public void clear() {
+        synchronized (store) {
+            store.clear();
+        }
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "BoundedCache{" +
+                "policy=" + policy +
+                ", size=" + size() + "/" + maxEntries +
+                ", hits=" + getHits() +
+                ", misses=" + getMisses() +
+                ", evictions=" + getEvictions() +
+                '}';
+    }
+
+    /**
+     * The non-thread-safe storage behind the cache, guarded by the cache
+     */
+    private interface Store<K, V> {
+
+        /**
+         * @return the value, registering the access, or null
+         */
+        V get(K key);
+
+        boolean containsKey(K key);
+
+        /**
+         * Adds a key which is not yet contained
+         */
+        void put(K key, V value);
+
+        void evict();
+
+        int size();
+
+        void clear();
+    }
+
+    private static final class LRUStore<K, V> implements Store<K, V> {
+
+        // Access ordered, i.e., the first entry is the least recently used one
+        private final LinkedHashMap<K, V> map = new LinkedHashMap<>(16, 0.75f, true);
+
+        @Override
+        public V get(K key) {
+            return map.get(key);
+        }
+
+        @Override
+        public boolean containsKey(K key) {
+            return map.containsKey(key);
+        }
+
+        @Override
+        public void put(K key, V value) {
+            map.put(key, value);
+        }
+
+        @Override
+        public void evict() {
+            Iterator<K> iterator = map.keySet().iterator();
+            iterator.next();
+            iterator.remove();
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public void clear() {
+            map.clear();
+        }
+    }
+
+    /**
+     * Constant time LFU, keeping the keys in insertion ordered buckets per access frequency
+     */
+    private static final class LFUStore<K, V> implements Store<K, V> {
+
+        private final Map<K, V> values = new HashMap<>();
+        private final Map<K, Integer> frequencies = new HashMap<>();
+        private final Map<Integer, LinkedHashSet<K>> buckets = new HashMap<>();
+        private int minFrequency = 0;
+
+        @Override
+        public V get(K key) {
+            V value = values.get(key);
+            if (value != null) {
+                touch(key);
+            }
+            return value;
+        }
+
+        private void touch(K key) {
+            int frequency = frequencies.get(key);
+            LinkedHashSet<K> bucket = buckets.get(frequency);
+            bucket.remove(key);
+            if (bucket.isEmpty()) {
+                buckets.remove(frequency);
+                if (minFrequency == frequency) {
+                    minFrequency = frequency + 1;
+                }
+            }
+            frequencies.put(key, frequency + 1);
+            buckets.computeIfAbsent(frequency + 1, f -> new LinkedHashSet<>()).add(key);
+        }
+
+        @Override
+        public boolean containsKey(K key) {
+            return values.containsKey(key);
+        }
+
+        @Override
+        public void put(K key, V value) {
+            values.put(key, value);
+            frequencies.put(key, 1);
+            buckets.computeIfAbsent(1, f -> new LinkedHashSet<>()).add(key);
+            minFrequency = 1;
+        }
+
+        @Override
+        public void evict() {
+            LinkedHashSet<K> bucket = buckets.get(minFrequency);
+            Iterator<K> iterator = bucket.iterator();
+            K key = iterator.next();
+            iterator.remove();
+            if (bucket.isEmpty()) {
+                buckets.remove(minFrequency);
+            }
+            values.remove(key);
+            frequencies.remove(key);
+        }
+
+        @Override
+        public int size() {
+            return values.size();
+        }
+
+        @Override
+        public void clear() {
+            values.clear();
+            frequencies.clear();
+            buckets.clear();
+            minFrequency = 0;
+        }
+    }
+}
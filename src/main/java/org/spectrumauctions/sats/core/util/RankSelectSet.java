@@ -0,0 +1,175 @@
+/**
+ * Copyright by Michael Weiss, weiss.michael@gmx.ch
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.spectrumauctions.sats.core.util;
+
+import com.google.common.base.Preconditions;
+
+import java.math.BigInteger;
+
+/**
+ * A sorted set of non-negative integers of arbitrary size, supporting rank and select queries
+ * in expected logarithmic time.<br>
+ * Its main use is drawing unique random numbers from a huge range: draw a number <i>r</i> among the
+ * ones not yet drawn, and map it to the <i>r</i>-th number not in this set with {@link #selectAbsent(BigInteger)}.<br>
+ * Implemented as a treap with subtree sizes. The priorities are derived deterministically from an internal generator,
+ * hence the set does not consume any randomness of the caller.
+ */
+public final class RankSelectSet {
+
+    private static final class Node {
+        private final BigInteger key;
+        private final long priority;
+        private int size = 1;
+        private Node left;
+        private Node right;
+
+        private Node(BigInteger key, long priority) {
+            this.key = key;
+            this.priority = priority;
+        }
+    }
+
+    private Node root;
+    private long priorityState = 0x9E3779B97F4A7C15L;
+
+    public int size() {
+        return size(root);
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static void update(Node node) {
+        node.size = 1 + size(node.left) + size(node.right);
+    }
+
+    private long nextPriority() {
+        // xorshift64
+        priorityState ^= priorityState << 13;
+        priorityState ^= priorityState >>> 7;
+        priorityState ^= priorityState << 17;
+        return priorityState;
+    }
+
+    public boolean contains(BigInteger key) {
+        Node node = root;
+        while (node != null) {
+            int comparison = key.compareTo(node.key);
+            if (comparison == 0) {
+                return true;
+            }
+            node = comparison < 0 ? node.left : node.right;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the key was not yet contained
+     */
+    public boolean add(BigInteger key) {
+        Preconditions.checkArgument(key.signum() >= 0, "Only non-negative numbers are supported");
+        if (contains(key)) {
+            return false;
+        }
+        root = insert(root, new Node(key, nextPriority()));
+        return true;
+    }
+
+    private static Node insert(Node node, Node newNode) {
+        if (node == null) {
+            return newNode;
+        }
+        if (newNode.key.compareTo(node.key) < 0) {
+            node.left = insert(node.left, newNode);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, newNode);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        update(node);
+        return node;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        left.right = node;
+        update(node);
+        return left;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        right.left = node;
+        update(node);
+        return right;
+    }
+
+    /**
+     * @return the number of elements strictly smaller than the key
+     */
+    public int rank(BigInteger key) {
+        int rank = 0;
+        Node node = root;
+        while (node != null) {
+            if (key.compareTo(node.key) <= 0) {
+                node = node.left;
+            } else {
+                rank += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * @return the element at the given position (starting at zero) in ascending order
+     */
+    public BigInteger select(int index) {
+        Preconditions.checkElementIndex(index, size());
+        Node node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return node.key;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * @param index a position among the non-negative numbers not contained in this set, starting at zero
+     * @return the number at this position, i.e., the index-th non-negative number not contained in this set
+     */
+    public BigInteger selectAbsent(BigInteger index) {
+        // With the elements g_0 < g_1 < ..., the result is index + j, where j is the number of elements
+        // with g_i - i <= index. As g_i - i is non-decreasing, j is found by a single descent.
+        long skipped = 0;
+        long base = 0;
+        Node node = root;
+        while (node != null) {
+            long i = base + size(node.left);
+            if (node.key.subtract(BigInteger.valueOf(i)).compareTo(index) <= 0) {
+                skipped = i + 1;
+                base = i + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return index.add(BigInteger.valueOf(skipped));
+    }
+}
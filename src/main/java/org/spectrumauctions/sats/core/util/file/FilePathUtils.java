@@ -9,8 +9,15 @@ import org.apache.commons.io.FileUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -34,6 +41,9 @@ public class FilePathUtils {
     private final java.io.File folder;
     private static final String FILE_TYPE_BIDDER = ".bidder.json";
     private static final String FILE_TYPE_WORLD = ".world.json";
+    private static final String FILE_TYPE_ARCHIVE = ".archive.sats";
+    private static final String WORLD_ID_COUNTER = "world-ids.counter";
+    private static final String POPULATION_ID_COUNTER = "population-ids.counter";
     private static final int BIDDER_ID_LENGTH = 5;
     private static final int POPULATION_ID_LENGTH = 5;
     private static final int WORLD_ID_LENGTH = 5;
@@ -49,7 +59,7 @@ public class FilePathUtils {
     ;
 
 
-    public static FilePathUtils getInstance() {
+    public static synchronized FilePathUtils getInstance() {
         if (instance == null) {
             instance = new FilePathUtils();
         }
@@ -82,6 +92,28 @@ public class FilePathUtils {
     }
 
 
+    /**
+     * @return the file containing a world and all its populations, see <code>ArchiveInstanceHandler</code>
+     */
+    public java.io.File worldArchivePath(long worldId) {
+        String worldString = prependZeros(WORLD_ID_LENGTH, String.valueOf(worldId));
+        return new java.io.File(folder.getAbsolutePath() + "/" + worldString + FILE_TYPE_ARCHIVE);
+    }
+
+    /**
+     * @return the file storing the next free world id, see {@link IdAllocator}
+     */
+    public java.io.File worldIdCounterPath() {
+        return new java.io.File(folder.getAbsolutePath() + "/" + WORLD_ID_COUNTER);
+    }
+
+    /**
+     * @return the file storing the next free population id of a world, see {@link IdAllocator}
+     */
+    public java.io.File populationIdCounterPath(long worldId) {
+        return new java.io.File(worldFolderPath(worldId).getAbsolutePath() + "/" + POPULATION_ID_COUNTER);
+    }
+
     private java.io.File bidderFilePath(String worldId, String population, String bidderId) {
         String worldString = prependZeros(WORLD_ID_LENGTH, worldId);
         String populationString = prependZeros(POPULATION_ID_LENGTH, population);
@@ -130,6 +162,24 @@ public class FilePathUtils {
         return ids;
     }
 
+    /**
+     * @return the ids of all worlds stored in the folder, as world folder or archive
+     */
+    public Collection<Long> getWorldIds() {
+        String[] names = folder.list();
+        if (names == null) {
+            throw new FileException("Files could not be read. Check if Folder exists!");
+        }
+        List<Long> ids = new ArrayList<>();
+        for (String name : names) {
+            String id = name.split("\\.")[0];
+            if (!id.isEmpty() && id.length() < 19 && id.chars().allMatch(Character::isDigit)) {
+                ids.add(Long.valueOf(id));
+            }
+        }
+        return ids;
+    }
+
     public Collection<Long> getBidderIds(long worldId, long populationId) {
         File populationFolder = populationFolderPath(worldId, populationId);
         File[] subFilesArray = populationFolder.listFiles();
@@ -174,4 +224,27 @@ public class FilePathUtils {
         }
     }
 
+    /**
+     * Opens a buffered reader on the file, which has to be closed by the caller
+     */
+    public Reader newReader(File file) {
+        try {
+            return new BufferedReader(new InputStreamReader(FileUtils.openInputStream(file), Charset.defaultCharset()));
+        } catch (IOException e) {
+            throw new FileException(e);
+        }
+    }
+
+    /**
+     * Opens a buffered writer on the file, creating its parent folders if necessary.
+     * The writer has to be closed by the caller.
+     */
+    public Writer newWriter(File file) {
+        try {
+            return new BufferedWriter(new OutputStreamWriter(FileUtils.openOutputStream(file), Charset.defaultCharset()));
+        } catch (IOException e) {
+            throw new FileException(e);
+        }
+    }
+
 }
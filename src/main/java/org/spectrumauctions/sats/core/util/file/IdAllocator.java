@@ -0,0 +1,122 @@
+/**
+ * Copyright by Michael Weiss, weiss.michael@gmx.ch
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.spectrumauctions.sats.core.util.file;
+
+import com.google.common.base.Preconditions;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Allocates unique ids, also amongst several JVMs writing into the same folder.<br>
+ * The next free id is stored as text in a counter file. An allocator reserves a block of ids at once,
+ * by incrementing the counter while holding a lock on the file, and hands them out from memory.
+ * Hence, allocating an id costs constant time, and the file is only accessed once per block.
+ * Ids are increasing within a JVM, but the ids of blocks which were not used up are skipped.<br>
+ * There is one allocator per counter file and JVM, see {@link #forFile(File, int, LongSupplier)}. It is thread safe.
+ *
+ * @author Michael Weiss
+ */
+public final class IdAllocator {
+
+    private static final Map<File, IdAllocator> allocators = new ConcurrentHashMap<>();
+
+    private final File counterFile;
+    private final int blockSize;
+    private final LongSupplier initialId;
+    private final AtomicLong next = new AtomicLong(0);
+    private volatile long blockEnd = 0;
+
+    private IdAllocator(File counterFile, int blockSize, LongSupplier initialId) {
+        this.counterFile = counterFile;
+        this.blockSize = blockSize;
+        this.initialId = initialId;
+    }
+
+    /**
+     * @param counterFile the file storing the next free id
+     * @param blockSize   the number of ids reserved at once
+     * @param initialId   computes the first id if the counter file does not exist yet,
+     *                    e.g., by looking for ids which were used before the counter file existed
+     * @return the allocator of the counter file, which is created on the first call for this file
+     */
+    public static IdAllocator forFile(File counterFile, int blockSize, LongSupplier initialId) {
+        Preconditions.checkArgument(blockSize > 0, "The block size must be positive");
+        return allocators.computeIfAbsent(counterFile.getAbsoluteFile(),
+                file -> new IdAllocator(file, blockSize, initialId));
+    }
+
+    /**
+     * @return an id which was not returned before by any allocator of the same counter file
+     */
+    public long nextId() {
+        while (true) {
+            long id = next.get();
+            if (id < blockEnd) {
+                if (next.compareAndSet(id, id + 1)) {
+                    return id;
+                }
+            } else {
+                synchronized (this) {
+                    if (next.get() >= blockEnd) {
+                        reserveBlock();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Reserves the next block of ids in the counter file
+     */
+    @SuppressWarnings("try") // The lock is only held, but never referenced in the body
+    private void reserveBlock() {
+        File parent = counterFile.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs() && !parent.isDirectory()) {
+            throw new FileException("Folder " + parent + " could not be created");
+        }
+        try (FileChannel channel = FileChannel.open(counterFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+             FileLock lock = channel.lock()) {
+            ByteBuffer content = ByteBuffer.allocate((int) channel.size());
+            while (content.hasRemaining() && channel.read(content, content.position()) >= 0) {
+                // Read until the buffer is full
+            }
+            String counter = new String(content.array(), StandardCharsets.US_ASCII).trim();
+            long start;
+            if (counter.isEmpty()) {
+                start = initialId.getAsLong();
+            } else {
+                try {
+                    start = Long.parseLong(counter);
+                } catch (NumberFormatException e) {
+                    throw new FileException("Invalid id counter file " + counterFile, e);
+                }
+            }
+            long end = start + blockSize;
+            ByteBuffer updated = ByteBuffer.wrap(String.valueOf(end).getBytes(StandardCharsets.US_ASCII));
+            channel.truncate(0);
+            while (updated.hasRemaining()) {
+                channel.write(updated, updated.position());
+            }
+            channel.force(false);
+            // The start has to be set before the end, see nextId()
+            next.set(start);
+            blockEnd = end;
+        } catch (IOException e) {
+            throw new FileException(e);
+        }
+    }
+}
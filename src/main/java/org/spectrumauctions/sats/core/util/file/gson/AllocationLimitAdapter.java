@@ -32,7 +32,11 @@ import lombok.Setter;
 
 public class AllocationLimitAdapter implements JsonSerializer<AllocationLimit>, JsonDeserializer<AllocationLimit>{
 	
-	private Map<String,Good> goodMap;
+	/**
+	 * The goods of the world whose allocation limits are deserialized on the current thread,
+	 * such that one adapter can be shared by concurrent reads of different worlds
+	 */
+	private final ThreadLocal<Map<String,Good>> goodMap = new ThreadLocal<>();
 	
 	private static enum Kind {
 		No,
@@ -59,7 +63,7 @@ public class AllocationLimitAdapter implements JsonSerializer<AllocationLimit>,
 	public AllocationLimit deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context)
 			throws JsonParseException {
 		SerializedAllocationLimit sal = context.deserialize(json, SerializedAllocationLimit.class);
-		return deserializers.get(sal.getKind()).apply(sal, goodMap);
+		return deserializers.get(sal.getKind()).apply(sal, goodMap.get());
 	}
 
 	@Override
@@ -138,7 +142,28 @@ public class AllocationLimitAdapter implements JsonSerializer<AllocationLimit>,
 	}
 
 	public void setWorld(World world) {
-		goodMap = new LinkedHashMap<>();
+		setGoods(goodMap(world));
+	}
+
+	/**
+	 * Sets the goods (by uuid) referenced by the allocation limits deserialized on the current thread
+	 */
+	public void setGoods(Map<String,Good> goods) {
+		goodMap.set(goods);
+	}
+
+	/**
+	 * Removes the goods of the current thread
+	 */
+	public void clearGoods() {
+		goodMap.remove();
+	}
+
+	/**
+	 * @return the goods of the world which can be referenced by an allocation limit, by their uuid
+	 */
+	public static Map<String,Good> goodMap(World world) {
+		Map<String,Good> goodMap = new LinkedHashMap<>();
 		for(Good g : world.getLicenses()) {
 			goodMap.put(g.getUuid().toString(), g);
 		}
@@ -148,6 +173,7 @@ public class AllocationLimitAdapter implements JsonSerializer<AllocationLimit>,
 				goodMap.put(g.getUuid().toString(), g);
 			}
 		}
+		return goodMap;
 	}
 
 }
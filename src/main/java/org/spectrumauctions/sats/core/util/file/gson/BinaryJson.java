@@ -0,0 +1,581 @@
+/**
+ * Copyright by Michael Weiss, weiss.michael@gmx.ch
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.spectrumauctions.sats.core.util.file.gson;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonPrimitive;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A compact binary encoding of json trees, as created by {@link GsonWrapper#toJsonTree(Object)}.<br>
+ * Every value starts with a tag. Integers are stored as zig-zag varints, doubles with their 8 bytes, and decimals
+ * as scale and unscaled bytes, such that they are restored exactly and without parsing text.
+ * Object keys and string values are referenced by their index in a {@link Dictionary}, which is shared by several trees,
+ * such that their strings are stored only once for all of them.<br>
+ * The bulk of the model parameters (value maps per license id, synergy and parameter vectors, the values of graphs)
+ * is written in fixed layouts, which are chosen by the shape of the json:
+ * <ul>
+ * <li>objects with integer keys and numbers of one kind as values, e.g. the values per license, as the number of
+ * entries, the kind and per entry the difference to the previous key and the value,</li>
+ * <li>arrays of numbers of one kind, as the number of elements, the kind and the values,</li>
+ * <li>doubles with an integral value as varints, and decimals which are exactly a double (e.g. created by
+ * {@code new BigDecimal(double)}) with the 8 bytes of the double,</li>
+ * <li>strings of the dictionary which are uuids, e.g. of the licenses, with their 16 bytes.</li>
+ * </ul>
+ * The encoding has no schema of its own: objects are restored with the same fields as the json,
+ * such that the model classes evolve in the same way as with json files.
+ * As most parameters are random doubles or decimals, of which all bytes are needed, an archive of a model instance is
+ * about two to four times smaller than with compact json, not an order of magnitude.
+ *
+ * @author Michael Weiss
+ */
+public final class BinaryJson {
+
+    private static final byte NULL = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 2;
+    private static final byte INTEGER = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte DECIMAL = 5;
+    private static final byte STRING = 6;
+    private static final byte ARRAY = 7;
+    private static final byte OBJECT = 8;
+    private static final byte NUMBER_ARRAY = 9;
+    private static final byte NUMBER_MAP = 10;
+    private static final byte INTEGRAL_DOUBLE = 11;
+    private static final byte EXACT_DECIMAL = 12;
+    /**
+     * Number values which do not have a fixed layout, such that their array or object is written tagged
+     */
+    private static final byte NO_FIXED_LAYOUT = -1;
+    /**
+     * Doubles with an integral value up to this magnitude are stored as varint
+     */
+    private static final double MAX_INTEGRAL_DOUBLE = 1L << 53;
+    private static final int UUID_LENGTH = 36;
+
+    private BinaryJson() {
+    }
+
+    /**
+     * The strings of several encoded trees, which are referenced by their index.
+     * The strings themselves are stored separately, see {@link #encodeStrings(Dictionary, int)}.
+     */
+    public static final class Dictionary {
+        private final Map<String, Integer> indices = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+
+        public int size() {
+            return strings.size();
+        }
+
+        /**
+         * Removes the strings added after the dictionary had the given size, e.g., because they could not be stored
+         */
+        public void truncate(int size) {
+            while (strings.size() > size) {
+                indices.remove(strings.remove(strings.size() - 1));
+            }
+        }
+
+        private Integer indexOf(String string) {
+            return indices.get(string);
+        }
+
+        private int add(String string) {
+            int index = strings.size();
+            strings.add(string);
+            indices.put(string, index);
+            return index;
+        }
+    }
+
+    /**
+     * Encodes the tree with references into the dictionary, adding the strings which are not yet part of it
+     */
+    public static byte[] encode(JsonElement element, Dictionary dictionary) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            new Encoder(out, dictionary).write(element);
+        } catch (IOException e) {
+            // Writing to a byte array does not fail
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes a tree encoded by {@link #encode(JsonElement, Dictionary)}, whose strings were added to the dictionary
+     *
+     * @throws JsonParseException if the bytes are no valid encoding
+     */
+    public static JsonElement decode(byte[] bytes, Dictionary dictionary) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            return new Decoder(in, dictionary).read();
+        } catch (IOException e) {
+            throw new JsonParseException("Invalid binary json", e);
+        }
+    }
+
+    /**
+     * Encodes the strings of the dictionary from the given index on, the uuids among them with their 16 bytes
+     */
+    public static byte[] encodeStrings(Dictionary dictionary, int from) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            Encoder encoder = new Encoder(out, dictionary);
+            encoder.writeVarLong(from);
+            encoder.writeVarLong(dictionary.size() - from);
+            for (String string : dictionary.strings.subList(from, dictionary.size())) {
+                UUID uuid = toUuid(string);
+                if (uuid != null) {
+                    encoder.writeVarLong(0);
+                    out.writeLong(uuid.getMostSignificantBits());
+                    out.writeLong(uuid.getLeastSignificantBits());
+                } else {
+                    byte[] utf8 = string.getBytes(StandardCharsets.UTF_8);
+                    encoder.writeVarLong(utf8.length + 1L);
+                    out.write(utf8);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Adds the strings encoded by {@link #encodeStrings(Dictionary, int)} to the dictionary
+     *
+     * @throws JsonParseException if the bytes are no valid encoding or do not continue the dictionary
+     */
+    public static void decodeStrings(byte[] bytes, Dictionary dictionary) {
+        decodeStrings(bytes, dictionary, false);
+    }
+
+    /**
+     * Adds strings which were all encoded as utf-8, without uuids in their 16 bytes, to the dictionary
+     *
+     * @throws JsonParseException if the bytes are no valid encoding or do not continue the dictionary
+     */
+    public static void decodeUtf8Strings(byte[] bytes, Dictionary dictionary) {
+        decodeStrings(bytes, dictionary, true);
+    }
+
+    private static void decodeStrings(byte[] bytes, Dictionary dictionary, boolean utf8Only) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            Decoder decoder = new Decoder(in, dictionary);
+            int from = decoder.readLength();
+            if (from != dictionary.size()) {
+                throw new IOException("Strings from index " + from + " do not continue a dictionary of size "
+                        + dictionary.size());
+            }
+            int count = decoder.readLength();
+            for (int i = 0; i < count; i++) {
+                if (utf8Only) {
+                    dictionary.add(decoder.readUtf8(decoder.readLength()));
+                    continue;
+                }
+                int header = decoder.readLength();
+                if (header == 0) {
+                    dictionary.add(new UUID(in.readLong(), in.readLong()).toString());
+                } else {
+                    dictionary.add(decoder.readUtf8(header - 1));
+                }
+            }
+        } catch (IOException e) {
+            throw new JsonParseException("Invalid binary json strings", e);
+        }
+    }
+
+    /**
+     * @return the uuid if the string is one in its canonical form, such that it is restored exactly, otherwise null
+     */
+    private static UUID toUuid(String string) {
+        if (string.length() != UUID_LENGTH) {
+            return null;
+        }
+        try {
+            UUID uuid = UUID.fromString(string);
+            return uuid.toString().equals(string) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the integer of a key which is written as in {@link Long#toString(long)}, otherwise null
+     */
+    private static Long toIntegerKey(String key) {
+        if (key.isEmpty() || key.length() > 18) {
+            return null;
+        }
+        for (int i = key.charAt(0) == '-' ? 1 : 0; i < key.length(); i++) {
+            if (!Character.isDigit(key.charAt(i))) {
+                return null;
+            }
+        }
+        try {
+            long value = Long.parseLong(key);
+            return Long.toString(value).equals(key) ? value : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the fixed layout of the number, or {@link #NO_FIXED_LAYOUT}
+     */
+    private static byte numberKind(JsonElement element) {
+        if (element == null || !element.isJsonPrimitive() || !element.getAsJsonPrimitive().isNumber()) {
+            return NO_FIXED_LAYOUT;
+        }
+        Number number = element.getAsNumber();
+        if (number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte) {
+            return INTEGER;
+        } else if (number instanceof Double || number instanceof Float) {
+            return isIntegral(number.doubleValue()) ? INTEGRAL_DOUBLE : DOUBLE;
+        } else if (number instanceof BigDecimal && isExactDouble((BigDecimal) number)) {
+            return EXACT_DECIMAL;
+        }
+        return NO_FIXED_LAYOUT;
+    }
+
+    /**
+     * @return the common fixed layout of two numbers, where integral doubles are stored as doubles among others
+     */
+    private static byte commonKind(byte kind, byte other) {
+        if (kind == other) {
+            return kind;
+        }
+        if ((kind == DOUBLE || kind == INTEGRAL_DOUBLE) && (other == DOUBLE || other == INTEGRAL_DOUBLE)) {
+            return DOUBLE;
+        }
+        return NO_FIXED_LAYOUT;
+    }
+
+    private static boolean isIntegral(double value) {
+        return Math.abs(value) <= MAX_INTEGRAL_DOUBLE && value == Math.rint(value)
+                && Double.doubleToRawLongBits(value) != Double.doubleToRawLongBits(-0.0);
+    }
+
+    /**
+     * @return true if the decimal is restored exactly, including its scale, by {@code new BigDecimal(double)}
+     */
+    private static boolean isExactDouble(BigDecimal decimal) {
+        double value = decimal.doubleValue();
+        return !Double.isInfinite(value) && new BigDecimal(value).equals(decimal);
+    }
+
+    private static final class Encoder {
+        private final DataOutputStream out;
+        private final Dictionary strings;
+
+        private Encoder(DataOutputStream out, Dictionary strings) {
+            this.out = out;
+            this.strings = strings;
+        }
+
+        private void write(JsonElement element) throws IOException {
+            if (element == null || element.isJsonNull()) {
+                out.writeByte(NULL);
+            } else if (element.isJsonObject()) {
+                if (writeNumberMap(element.getAsJsonObject())) {
+                    return;
+                }
+                out.writeByte(OBJECT);
+                writeVarLong(element.getAsJsonObject().entrySet().size());
+                for (Map.Entry<String, JsonElement> entry : element.getAsJsonObject().entrySet()) {
+                    writeString(entry.getKey());
+                    write(entry.getValue());
+                }
+            } else if (element.isJsonArray()) {
+                if (writeNumberArray(element.getAsJsonArray())) {
+                    return;
+                }
+                out.writeByte(ARRAY);
+                writeVarLong(element.getAsJsonArray().size());
+                for (JsonElement child : element.getAsJsonArray()) {
+                    write(child);
+                }
+            } else {
+                writePrimitive(element.getAsJsonPrimitive());
+            }
+        }
+
+        private void writePrimitive(JsonPrimitive primitive) throws IOException {
+            if (primitive.isBoolean()) {
+                out.writeByte(primitive.getAsBoolean() ? TRUE : FALSE);
+            } else if (primitive.isString()) {
+                out.writeByte(STRING);
+                writeString(primitive.getAsString());
+            } else {
+                Number number = primitive.getAsNumber();
+                if (number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte) {
+                    out.writeByte(INTEGER);
+                    writeNumber(INTEGER, primitive);
+                } else if (number instanceof Double || number instanceof Float) {
+                    byte kind = isIntegral(number.doubleValue()) ? INTEGRAL_DOUBLE : DOUBLE;
+                    out.writeByte(kind);
+                    writeNumber(kind, primitive);
+                } else if (number instanceof BigDecimal && isExactDouble((BigDecimal) number)) {
+                    out.writeByte(EXACT_DECIMAL);
+                    writeNumber(EXACT_DECIMAL, primitive);
+                } else {
+                    // BigDecimal, BigInteger, or a number parsed from text
+                    BigDecimal decimal = number instanceof BigDecimal ? (BigDecimal) number : new BigDecimal(number.toString());
+                    out.writeByte(DECIMAL);
+                    long scale = decimal.scale();
+                    writeVarLong((scale << 1) ^ (scale >> 63));
+                    byte[] unscaled = decimal.unscaledValue().toByteArray();
+                    writeVarLong(unscaled.length);
+                    out.write(unscaled);
+                }
+            }
+        }
+
+        /**
+         * Writes the object in the fixed layout, if its keys are integers and its values numbers of one kind
+         *
+         * @return false if the object has no fixed layout, such that nothing is written
+         */
+        private boolean writeNumberMap(JsonObject object) throws IOException {
+            if (object.entrySet().isEmpty()) {
+                return false;
+            }
+            byte kind = INTEGRAL_DOUBLE;
+            boolean first = true;
+            for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+                if (toIntegerKey(entry.getKey()) == null) {
+                    return false;
+                }
+                byte valueKind = numberKind(entry.getValue());
+                kind = first ? valueKind : commonKind(kind, valueKind);
+                first = false;
+                if (kind == NO_FIXED_LAYOUT) {
+                    return false;
+                }
+            }
+            out.writeByte(NUMBER_MAP);
+            writeVarLong(object.entrySet().size());
+            out.writeByte(kind);
+            long previousKey = 0;
+            for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+                long key = toIntegerKey(entry.getKey());
+                long difference = key - previousKey;
+                writeVarLong((difference << 1) ^ (difference >> 63));
+                previousKey = key;
+                writeNumber(kind, entry.getValue().getAsJsonPrimitive());
+            }
+            return true;
+        }
+
+        /**
+         * Writes the array in the fixed layout, if its elements are numbers of one kind
+         *
+         * @return false if the array has no fixed layout, such that nothing is written
+         */
+        private boolean writeNumberArray(JsonArray array) throws IOException {
+            if (array.size() == 0) {
+                return false;
+            }
+            byte kind = numberKind(array.get(0));
+            for (int i = 1; i < array.size() && kind != NO_FIXED_LAYOUT; i++) {
+                kind = commonKind(kind, numberKind(array.get(i)));
+            }
+            if (kind == NO_FIXED_LAYOUT) {
+                return false;
+            }
+            out.writeByte(NUMBER_ARRAY);
+            writeVarLong(array.size());
+            out.writeByte(kind);
+            for (JsonElement element : array) {
+                writeNumber(kind, element.getAsJsonPrimitive());
+            }
+            return true;
+        }
+
+        /**
+         * Writes the number without tag, in the layout of its kind
+         */
+        private void writeNumber(byte kind, JsonPrimitive number) throws IOException {
+            switch (kind) {
+                case INTEGER:
+                    long value = number.getAsLong();
+                    writeVarLong((value << 1) ^ (value >> 63));
+                    break;
+                case INTEGRAL_DOUBLE:
+                    long integral = (long) number.getAsDouble();
+                    writeVarLong((integral << 1) ^ (integral >> 63));
+                    break;
+                case DOUBLE:
+                case EXACT_DECIMAL:
+                    out.writeDouble(number.getAsDouble());
+                    break;
+                default:
+                    throw new IllegalArgumentException("No fixed layout " + kind);
+            }
+        }
+
+        /**
+         * Writes the index of the string, adding it to the dictionary if it is not yet part of it
+         */
+        private void writeString(String string) throws IOException {
+            Integer index = strings.indexOf(string);
+            writeVarLong(index != null ? index : strings.add(string));
+        }
+
+        private void writeVarLong(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                out.writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.writeByte((int) value);
+        }
+    }
+
+    private static final class Decoder {
+        private final DataInputStream in;
+        private final Dictionary strings;
+
+        private Decoder(DataInputStream in, Dictionary strings) {
+            this.in = in;
+            this.strings = strings;
+        }
+
+        private JsonElement read() throws IOException {
+            byte tag = in.readByte();
+            switch (tag) {
+                case NULL:
+                    return JsonNull.INSTANCE;
+                case TRUE:
+                    return new JsonPrimitive(true);
+                case FALSE:
+                    return new JsonPrimitive(false);
+                case INTEGER:
+                case DOUBLE:
+                case INTEGRAL_DOUBLE:
+                case EXACT_DECIMAL:
+                    return readNumber(tag);
+                case DECIMAL:
+                    long scale = readVarLong();
+                    byte[] unscaled = new byte[readLength()];
+                    in.readFully(unscaled);
+                    return new JsonPrimitive(new BigDecimal(new BigInteger(unscaled), (int) ((scale >>> 1) ^ -(scale & 1))));
+                case STRING:
+                    return new JsonPrimitive(readString());
+                case ARRAY:
+                    int size = readLength();
+                    JsonArray array = new JsonArray();
+                    for (int i = 0; i < size; i++) {
+                        array.add(read());
+                    }
+                    return array;
+                case OBJECT:
+                    int fields = readLength();
+                    JsonObject object = new JsonObject();
+                    for (int i = 0; i < fields; i++) {
+                        String name = readString();
+                        object.add(name, read());
+                    }
+                    return object;
+                case NUMBER_ARRAY:
+                    int elements = readLength();
+                    byte elementKind = in.readByte();
+                    JsonArray numbers = new JsonArray();
+                    for (int i = 0; i < elements; i++) {
+                        numbers.add(readNumber(elementKind));
+                    }
+                    return numbers;
+                case NUMBER_MAP:
+                    int entries = readLength();
+                    byte valueKind = in.readByte();
+                    JsonObject map = new JsonObject();
+                    long key = 0;
+                    for (int i = 0; i < entries; i++) {
+                        long difference = readVarLong();
+                        key += (difference >>> 1) ^ -(difference & 1);
+                        map.add(Long.toString(key), readNumber(valueKind));
+                    }
+                    return map;
+                default:
+                    throw new IOException("Unknown tag " + tag);
+            }
+        }
+
+        /**
+         * Reads a number without tag, written in the layout of its kind
+         */
+        private JsonPrimitive readNumber(byte kind) throws IOException {
+            switch (kind) {
+                case INTEGER:
+                    long zigZag = readVarLong();
+                    return new JsonPrimitive((zigZag >>> 1) ^ -(zigZag & 1));
+                case INTEGRAL_DOUBLE:
+                    long integral = readVarLong();
+                    return new JsonPrimitive((double) ((integral >>> 1) ^ -(integral & 1)));
+                case DOUBLE:
+                    return new JsonPrimitive(in.readDouble());
+                case EXACT_DECIMAL:
+                    return new JsonPrimitive(new BigDecimal(in.readDouble()));
+                default:
+                    throw new IOException("Unknown number kind " + kind);
+            }
+        }
+
+        private String readString() throws IOException {
+            int index = readLength();
+            if (index >= strings.size()) {
+                throw new IOException("Invalid string reference " + index);
+            }
+            return strings.strings.get(index);
+        }
+
+        private String readUtf8(int length) throws IOException {
+            byte[] utf8 = new byte[length];
+            in.readFully(utf8);
+            return new String(utf8, StandardCharsets.UTF_8);
+        }
+
+        private int readLength() throws IOException {
+            long length = readVarLong();
+            if (length < 0 || length > Integer.MAX_VALUE) {
+                throw new IOException("Invalid length " + length);
+            }
+            return (int) length;
+        }
+
+        private long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = in.readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+    }
+}
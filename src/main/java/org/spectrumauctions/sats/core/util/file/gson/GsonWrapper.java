@@ -6,7 +6,11 @@
 package org.spectrumauctions.sats.core.util.file.gson;
 
 import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import org.jgrapht.Graph;
+import org.marketdesignresearch.mechlib.core.Good;
 import org.marketdesignresearch.mechlib.core.allocationlimits.AllocationLimit;
 import org.marketdesignresearch.mechlib.core.allocationlimits.AllocationLimit.NoAllocationLimit;
 import org.marketdesignresearch.mechlib.core.allocationlimits.BundleSizeAllocationLimit;
@@ -15,7 +19,18 @@ import org.marketdesignresearch.mechlib.core.allocationlimits.GoodAllocationLimi
 import org.spectrumauctions.sats.core.model.World;
 import org.spectrumauctions.sats.core.util.file.FileException;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Map;
+import java.util.function.Supplier;
+
 /**
+ * Serializes worlds and bidders to json, including the name of their class in the field "implementation".
+ * The field is written first, such that an object is read in a single pass once its class is known.<br>
+ * The configured {@link Gson} instances are created once and shared by all wrappers, such that creating a wrapper is cheap.
+ * Once its world is set, a wrapper can be used by any number of concurrent reads.
+ *
  * @author Michael Weiss
  *
  */
@@ -23,46 +38,162 @@ public class GsonWrapper {
 
     private static final String IMPLEMENTATION_FIELD = "implementation";
     private static final boolean PRETTY_JSON = true;
+    private static final String INDENT = "  ";
+
+    private static final AllocationLimitAdapter ALLOCATION_LIMIT_ADAPTER = new AllocationLimitAdapter();
+    private static final Gson PRETTY_GSON = createGson(true);
+    private static final Gson COMPACT_GSON = createGson(false);
 
-    private Gson gson;
-    
-    private AllocationLimitAdapter allocationLimitAdapter = new AllocationLimitAdapter();
+    private final Gson gson;
+    private final boolean prettyPrinting;
+
+    private Map<String, Good> goods;
 
     public GsonWrapper() {
+        this(PRETTY_JSON);
+    }
+
+    /**
+     * @param prettyPrinting whether the json is indented, otherwise it is written on a single line
+     */
+    public GsonWrapper(boolean prettyPrinting) {
+        gson = prettyPrinting ? PRETTY_GSON : COMPACT_GSON;
+        this.prettyPrinting = prettyPrinting;
+    }
+
+    private static Gson createGson(boolean prettyPrinting) {
         GsonBuilder builder = new GsonBuilder();
         builder.registerTypeAdapter(Graph.class, new GraphAdapter());
-        builder.registerTypeAdapter(AllocationLimit.class, allocationLimitAdapter);
-        builder.registerTypeAdapter(NoAllocationLimit.class, allocationLimitAdapter);
-        builder.registerTypeAdapter(BundleSizeAllocationLimit.class, allocationLimitAdapter);
-        builder.registerTypeAdapter(BundleSizeAndGoodAllocationLimit.class, allocationLimitAdapter);
-        builder.registerTypeAdapter(GoodAllocationLimit.class, allocationLimitAdapter);
+        builder.registerTypeAdapter(AllocationLimit.class, ALLOCATION_LIMIT_ADAPTER);
+        builder.registerTypeAdapter(NoAllocationLimit.class, ALLOCATION_LIMIT_ADAPTER);
+        builder.registerTypeAdapter(BundleSizeAllocationLimit.class, ALLOCATION_LIMIT_ADAPTER);
+        builder.registerTypeAdapter(BundleSizeAndGoodAllocationLimit.class, ALLOCATION_LIMIT_ADAPTER);
+        builder.registerTypeAdapter(GoodAllocationLimit.class, ALLOCATION_LIMIT_ADAPTER);
         builder.disableHtmlEscaping();
-        if (PRETTY_JSON) {
+        if (prettyPrinting) {
             builder.setPrettyPrinting();
         }
-        gson = builder.create();
+        return builder.create();
     }
-    
+
     public Gson getGson() {
         return gson;
     }
 
     public <T extends Object> T fromJson(Class<T> type, String json) {
-        T object = gson.fromJson(json, type);
+        return withGoods(() -> gson.fromJson(json, type));
+    }
+
+    public <T extends Object> T fromJson(Class<T> type, Reader reader) {
+        return withGoods(() -> gson.fromJson(reader, type));
+    }
+
+    /**
+     * Reads an object written by {@link #toJson(Object, Appendable)}, whose class is not known in advance.
+     * As the class is the first field, the object is read by the adapter of its class while the json is parsed.
+     * Json in which the class is not the first field (e.g., written by previous versions) is read as tree.
+     */
+    public Object fromJsonWithUnknownType(Reader reader) {
+        ImplementationReader in = new ImplementationReader(reader);
+        in.setLenient(true);
+        try {
+            in.beginObject();
+            String name = in.nextName();
+            if (!IMPLEMENTATION_FIELD.equals(name)) {
+                return fromJsonTreeWithUnknownType(readRemainingObject(in, name));
+            }
+            Class<?> type = toClass(in.nextString());
+            in.objectBegun = true;
+            return withGoods(() -> {
+                try {
+                    return gson.getAdapter(type).read(in);
+                } catch (IOException e) {
+                    throw new JsonIOException(e);
+                }
+            });
+        } catch (IOException | IllegalStateException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    /**
+     * Reads the fields of an object whose beginning and first name were already read
+     */
+    private JsonObject readRemainingObject(JsonReader in, String firstName) throws IOException {
+        TypeAdapter<JsonElement> elements = gson.getAdapter(JsonElement.class);
+        JsonObject object = new JsonObject();
+        object.add(firstName, elements.read(in));
+        while (in.hasNext()) {
+            String name = in.nextName();
+            object.add(name, elements.read(in));
+        }
+        in.endObject();
         return object;
     }
 
+    public <T extends Object> T fromJsonTree(Class<T> type, JsonElement jsonElement) {
+        return withGoods(() -> gson.fromJson(jsonElement, type));
+    }
+
+    /**
+     * Creates an object from a tree created by {@link #toJsonTree(Object)}, whose class is not known in advance
+     */
+    public Object fromJsonTreeWithUnknownType(JsonElement jsonElement) {
+        Class<?> type = toClass(jsonElement.getAsJsonObject().get(IMPLEMENTATION_FIELD));
+        return fromJsonTree(type, jsonElement);
+    }
 
     public String toJson(Object object) {
-        JsonElement jsonElement = gson.toJsonTree(object);
-        jsonElement.getAsJsonObject().addProperty(IMPLEMENTATION_FIELD, object.getClass().getName());
-        return gson.toJson(jsonElement);
+        StringBuilder json = new StringBuilder();
+        toJson(object, json);
+        return json.toString();
+    }
+
+    /**
+     * Writes the object while it is serialized, without creating its json tree or the whole json as string first.
+     * The name of its class is written as first field.
+     */
+    public void toJson(Object object, Appendable writer) {
+        JsonWriter out = new ImplementationWriter(writer instanceof Writer ? (Writer) writer : new AppendableWriter(writer),
+                object.getClass().getName());
+        if (prettyPrinting) {
+            out.setIndent(INDENT);
+        }
+        gson.toJson(object, object.getClass(), out);
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+    }
+
+    /**
+     * @return the json of the object as tree, including the name of its class as first field
+     */
+    public JsonObject toJsonTree(Object object) {
+        JsonObject jsonObject = new JsonObject();
+        jsonObject.addProperty(IMPLEMENTATION_FIELD, object.getClass().getName());
+        for (Map.Entry<String, JsonElement> field : gson.toJsonTree(object).getAsJsonObject().entrySet()) {
+            jsonObject.add(field.getKey(), field.getValue());
+        }
+        return jsonObject;
     }
 
     public Class<?> readClass(String json) {
-        String typeString = readField(IMPLEMENTATION_FIELD, json);
+        JsonParser parser = new JsonParser();
+        return toClass(parser.parse(json).getAsJsonObject().get(IMPLEMENTATION_FIELD));
+    }
+
+    private static Class<?> toClass(JsonElement implementation) {
+        if (implementation == null) {
+            throw new FileException("Type Unknown, the json has no field " + IMPLEMENTATION_FIELD);
+        }
+        return toClass(implementation.getAsString());
+    }
+
+    private static Class<?> toClass(String implementation) {
         try {
-            return Class.forName(typeString);
+            return Class.forName(implementation);
         } catch (ClassNotFoundException e) {
             throw new FileException("Type Unknown", e);
         }
@@ -75,7 +206,97 @@ public class GsonWrapper {
     }
 
 	public void setWorld(World world) {
-		this.allocationLimitAdapter.setWorld(world);
+		this.goods = AllocationLimitAdapter.goodMap(world);
 	}
 
+    /**
+     * Writes the name of the class as first field of the outermost object
+     */
+    private static final class ImplementationWriter extends JsonWriter {
+
+        private final String implementation;
+        private boolean implementationWritten = false;
+
+        private ImplementationWriter(Writer out, String implementation) {
+            super(out);
+            this.implementation = implementation;
+        }
+
+        @Override
+        public JsonWriter beginObject() throws IOException {
+            super.beginObject();
+            if (!implementationWritten) {
+                implementationWritten = true;
+                name(IMPLEMENTATION_FIELD).value(implementation);
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Continues an object whose beginning and class were already read, such that the adapter of its class
+     * reads the remaining fields as if it read the whole object
+     */
+    private static final class ImplementationReader extends JsonReader {
+
+        private boolean objectBegun = false;
+
+        private ImplementationReader(Reader in) {
+            super(in);
+        }
+
+        @Override
+        public JsonToken peek() throws IOException {
+            return objectBegun ? JsonToken.BEGIN_OBJECT : super.peek();
+        }
+
+        @Override
+        public void beginObject() throws IOException {
+            if (objectBegun) {
+                objectBegun = false;
+            } else {
+                super.beginObject();
+            }
+        }
+    }
+
+    private static final class AppendableWriter extends Writer {
+
+        private final Appendable appendable;
+
+        private AppendableWriter(Appendable appendable) {
+            this.appendable = appendable;
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            appendable.append(new String(chars, offset, length));
+        }
+
+        @Override
+        public void write(String string, int offset, int length) throws IOException {
+            appendable.append(string, offset, offset + length);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Makes the goods of this wrapper's world available to the (shared) allocation limit adapter during a read
+     */
+    private <T> T withGoods(Supplier<T> read) {
+        ALLOCATION_LIMIT_ADAPTER.setGoods(goods);
+        try {
+            return read.get();
+        } finally {
+            ALLOCATION_LIMIT_ADAPTER.clearGoods();
+        }
+    }
+
 }
@@ -0,0 +1,730 @@
+/**
+ * Copyright by Michael Weiss, weiss.michael@gmx.ch
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.spectrumauctions.sats.core.util.instancehandling;
+
+import com.google.common.base.Preconditions;
+import com.google.gson.JsonParseException;
+import org.spectrumauctions.sats.core.model.SATSBidder;
+import org.spectrumauctions.sats.core.model.World;
+import org.spectrumauctions.sats.core.util.file.FileException;
+import org.spectrumauctions.sats.core.util.file.FilePathUtils;
+import org.spectrumauctions.sats.core.util.file.IdAllocator;
+import org.spectrumauctions.sats.core.util.file.gson.BinaryJson;
+import org.spectrumauctions.sats.core.util.file.gson.GsonWrapper;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * An <b>instance handler</b> which stores a world and all its populations in a single archive file
+ * (see {@link FilePathUtils#worldArchivePath(long)}), instead of one file per bidder.<br>
+ * An archive consists of
+ * <ul>
+ * <li>a header: magic number, format version and {@link Encoding} of the records.
+ * Archives of the first version have no encoding in their header and contain json records,
+ * archives of the second version have no fixed layouts in their binary records,</li>
+ * <li>the records, appended whenever a world or bidder is written: kind (world, bidder or strings), population id,
+ * bidder id, length of the content and the content, i.e., the encoded instance,</li>
+ * <li>the offset table, with kind, ids, offset and length of every record, followed by the offset of the table
+ * and another magic number. The table is (re-)written by {@link #flush()} and {@link #close()}.</li>
+ * </ul>
+ * With the offset table, a single bidder is read with one seek, and a population with one sequential scan.
+ * If the table is missing (e.g., because the handler was not closed), it is rebuilt by scanning the record headers.
+ * If an instance is written twice, its last record is used.<br>
+ * The encoding is chosen when an archive is created, and kept when further instances are added to it.
+ * With the binary encoding, the field names and string values of all records are stored once per archive:
+ * the strings which are new in a record are appended as a strings record just before it.
+ * An archive must only be written by one handler at a time. Archives are only created when an instance is written
+ * (or a world id is allocated); reading an instance opens the archive read-only.
+ * A handler keeps only a few archive files open; when another one is needed, the least recently used archive
+ * is closed, writing its offset table.
+ * World ids are allocated from the same counter as the ones of {@link JSONInstanceHandler}.
+ *
+ * @author Michael Weiss
+ */
+public class ArchiveInstanceHandler extends InstanceHandler implements Closeable {
+
+    private static final int MAGIC = 0x53415441; // "SATA"
+    private static final int TABLE_MAGIC = 0x53415449; // "SATI"
+    private static final int VERSION = 3;
+    private static final int HEADER_SIZE = 12;
+    /**
+     * The second version has the same header, but its binary records have no fixed layouts
+     * and its strings records are all utf-8. The header of such an archive is updated once a record is appended.
+     */
+    private static final int UTF8_STRINGS_VERSION = 2;
+    /**
+     * The first version had no encoding in its header, all its records are json
+     */
+    private static final int JSON_ONLY_VERSION = 1;
+    private static final int JSON_ONLY_HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 21;
+    private static final int TABLE_ENTRY_SIZE = 29;
+    private static final int TRAILER_SIZE = 12;
+    private static final byte WORLD_RECORD = 0;
+    private static final byte BIDDER_RECORD = 1;
+    private static final byte UTF8_STRINGS_RECORD = 2;
+    private static final byte STRINGS_RECORD = 3;
+
+    /**
+     * The encoding of the instances in an archive
+     */
+    public enum Encoding {
+        /**
+         * Compact json, as written by {@link JSONInstanceHandler}
+         */
+        JSON,
+        /**
+         * The json tree in the binary encoding of {@link BinaryJson}, with one string dictionary per archive,
+         * which is smaller and faster to read
+         */
+        BINARY
+    }
+
+    /**
+     * The number of archives which are kept open if not specified otherwise
+     */
+    public static final int DEFAULT_MAX_OPEN_ARCHIVES = 4;
+
+    private final FilePathUtils pathUtils = FilePathUtils.getInstance();
+    /**
+     * The open archives, in access order
+     */
+    private final LinkedHashMap<Long, Archive> archives = new LinkedHashMap<>(16, 0.75f, true);
+    /**
+     * The next population id of every closed archive, such that allocated ids are not handed out twice
+     * if they were not yet used when the archive was closed
+     */
+    private final Map<Long, Long> nextPopulationIds = new HashMap<>();
+    private final Encoding encoding;
+    private final int maxOpenArchives;
+
+    public ArchiveInstanceHandler() {
+        this(Encoding.JSON);
+    }
+
+    /**
+     * @param encoding the encoding of newly created archives
+     */
+    public ArchiveInstanceHandler(Encoding encoding) {
+        this(encoding, DEFAULT_MAX_OPEN_ARCHIVES);
+    }
+
+    /**
+     * @param encoding the encoding of newly created archives
+     * @param maxOpenArchives the maximal number of archive files which are open at the same time
+     */
+    public ArchiveInstanceHandler(Encoding encoding, int maxOpenArchives) {
+        Preconditions.checkArgument(maxOpenArchives > 0, "At least one archive has to be open");
+        this.encoding = Preconditions.checkNotNull(encoding);
+        this.maxOpenArchives = maxOpenArchives;
+    }
+
+    /* (non-Javadoc)
+     * @see InstanceHandler#writeWorld(World)
+     */
+    @Override
+    public synchronized void writeWorld(World world) {
+        archive(world.getId(), true).append(WORLD_RECORD, -1, -1, world);
+    }
+
+    /* (non-Javadoc)
+     * @see InstanceHandler#writeBidder(SATSBidder)
+     */
+    @Override
+    public synchronized void writeBidder(SATSBidder bidder) {
+        archive(bidder.getWorldId(), true).append(BIDDER_RECORD, bidder.getPopulation(), bidder.getLongId(), bidder);
+    }
+
+    /* (non-Javadoc)
+     * @see InstanceHandler#readWorld(java.lang.Class, long)
+     */
+    @Override
+    public synchronized <T extends World> T readWorld(Class<T> type, long worldId) {
+        Archive archive = archive(worldId, false);
+        if (archive.world == null) {
+            throw new FileException("World " + worldId + " is not stored in " + archive.file);
+        }
+        T world = archive.decode(archive.content(archive.world), type, new GsonWrapper());
+        world.refreshFieldBackReferences();
+        return world;
+    }
+
+    /* (non-Javadoc)
+     * @see InstanceHandler#getPopulationIds(long)
+     */
+    @Override
+    public synchronized Collection<Long> getPopulationIds(long worldId) {
+        return new ArrayList<>(archive(worldId, false).populations.keySet());
+    }
+
+    /* (non-Javadoc)
+     * @see InstanceHandler#readBidder(java.lang.Class, World, long, long)
+     */
+    @Override
+    public synchronized <T extends SATSBidder> T readBidder(Class<T> type, World world, long populationId, long bidderId) {
+        Archive archive = archive(world.getId(), false);
+        GsonWrapper gson = new GsonWrapper();
+        gson.setWorld(world);
+        T bidder = archive.decode(archive.content(archive.entry(populationId, bidderId)), type, gson);
+        bidder.refreshReference(world);
+        return bidder;
+    }
+
+    /* (non-Javadoc)
+     * @see InstanceHandler#readBidderWithUnknownType(java.lang.Class, World, long, long)
+     */
+    @Override
+    public synchronized <T extends SATSBidder> T readBidderWithUnknownType(Class<T> bidderSuperType, World world,
+                                                                          long populationId, long bidderId) {
+        Archive archive = archive(world.getId(), false);
+        GsonWrapper gson = new GsonWrapper();
+        gson.setWorld(world);
+        Object bidder = archive.decodeWithUnknownType(archive.content(archive.entry(populationId, bidderId)), gson);
+        return checkedBidder(bidderSuperType, bidder, world);
+    }
+
+    /* (non-Javadoc)
+     * @see InstanceHandler#readPopulation(java.lang.Class, World, long)
+     */
+    @Override
+    public synchronized <T extends SATSBidder> Collection<T> readPopulation(Class<T> type, World world, long populationId) {
+        GsonWrapper gson = new GsonWrapper();
+        gson.setWorld(world);
+        Archive archive = archive(world.getId(), false);
+        List<T> bidders = new ArrayList<>();
+        for (byte[] content : archive.readPopulation(populationId)) {
+            T bidder = archive.decode(content, type, gson);
+            bidder.refreshReference(world);
+            bidders.add(bidder);
+        }
+        return bidders;
+    }
+
+    /* (non-Javadoc)
+     * @see InstanceHandler#readPopulationWithUnknownTypes(java.lang.Class, World, long)
+     */
+    @Override
+    public synchronized <T extends SATSBidder> List<T> readPopulationWithUnknownTypes(Class<T> bidderSuperType,
+                                                                                      World world, long populationId) {
+        GsonWrapper gson = new GsonWrapper();
+        gson.setWorld(world);
+        Archive archive = archive(world.getId(), false);
+        List<T> bidders = new ArrayList<>();
+        for (byte[] content : archive.readPopulation(populationId)) {
+            bidders.add(checkedBidder(bidderSuperType, archive.decodeWithUnknownType(content, gson), world));
+        }
+        return bidders;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends SATSBidder> T checkedBidder(Class<T> bidderSuperType, Object obj, World world) {
+        if (!bidderSuperType.isAssignableFrom(obj.getClass())) {
+            throw new FileException("generated object (" + obj.getClass().getName() + ") is not of specified bidder type (" + bidderSuperType.getName() + ")");
+        }
+        T bidder = (T) obj;
+        bidder.refreshReference(world);
+        return bidder;
+    }
+
+    /* (non-Javadoc)
+     * @see InstanceHandler#getNextWorldId()
+     */
+    @Override
+    public synchronized long getNextWorldId() {
+        IdAllocator allocator = JSONInstanceHandler.worldIdAllocator(pathUtils);
+        long id = allocator.nextId();
+        try {
+            // Only fails if the archive was created without using the id counter
+            while (!pathUtils.worldArchivePath(id).createNewFile()) {
+                id = allocator.nextId();
+            }
+        } catch (IOException e) {
+            throw new FileException(e);
+        }
+        return id;
+    }
+
+    /* (non-Javadoc)
+     * @see InstanceHandler#getNextPopulationId(long)
+     */
+    @Override
+    public synchronized long getNextPopulationId(long worldId) {
+        Archive archive = archive(worldId, false);
+        return archive.nextPopulationId++;
+    }
+
+    /**
+     * Writes the offset table of every archive which changed since the last flush
+     */
+    public synchronized void flush() {
+        for (Archive archive : archives.values()) {
+            archive.writeTable();
+        }
+    }
+
+    /**
+     * Writes the offset tables and closes all archive files. The handler can still be used afterwards,
+     * the archives are reopened when needed.
+     */
+    @Override
+    public synchronized void close() {
+        FileException failure = null;
+        for (Map.Entry<Long, Archive> archive : archives.entrySet()) {
+            try {
+                close(archive.getKey(), archive.getValue());
+            } catch (FileException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        archives.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * @param write true if a record is appended, such that the archive is created if it does not exist yet.
+     *              Otherwise, an archive which is not open yet is opened read-only.
+     */
+    private Archive archive(long worldId, boolean write) {
+        Archive archive = archives.get(worldId);
+        if (archive != null && write && !archive.writable) {
+            archives.remove(worldId);
+            close(worldId, archive);
+            archive = null;
+        }
+        if (archive == null) {
+            File file = pathUtils.worldArchivePath(worldId);
+            if (!write && !file.isFile()) {
+                throw new FileException("World " + worldId + " is not stored, " + file + " does not exist");
+            }
+            if (archives.size() >= maxOpenArchives) {
+                Map.Entry<Long, Archive> eldest = archives.entrySet().iterator().next();
+                archives.remove(eldest.getKey());
+                close(eldest.getKey(), eldest.getValue());
+            }
+            archive = new Archive(file, encoding, write);
+            archive.nextPopulationId = Math.max(archive.nextPopulationId,
+                    nextPopulationIds.getOrDefault(worldId, 0L));
+            archives.put(worldId, archive);
+        }
+        return archive;
+    }
+
+    private void close(long worldId, Archive archive) {
+        nextPopulationIds.put(worldId, archive.nextPopulationId);
+        archive.close();
+    }
+
+    private static Reader reader(byte[] content) {
+        return new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The position of a record in an archive
+     */
+    private static final class Entry {
+        private final byte kind;
+        private final long populationId;
+        private final long bidderId;
+        private final long offset;
+        private final int length;
+
+        private Entry(byte kind, long populationId, long bidderId, long offset, int length) {
+            this.kind = kind;
+            this.populationId = populationId;
+            this.bidderId = bidderId;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        /**
+         * @return the offset of the content, after the record header
+         */
+        private long contentOffset() {
+            return offset + RECORD_HEADER_SIZE;
+        }
+    }
+
+    /**
+     * An open archive file with its offset table
+     */
+    private static final class Archive {
+
+        private final File file;
+        private final FileChannel channel;
+        private final boolean writable;
+        private final Encoding encoding;
+        /**
+         * The size of the header, i.e., the offset of the first record
+         */
+        private final int headerSize;
+        private int version;
+        private final BinaryJson.Dictionary strings = new BinaryJson.Dictionary();
+        private final List<Entry> stringRecords = new ArrayList<>();
+        private Entry world;
+        /**
+         * The bidder records per population, ordered by bidder id
+         */
+        private final Map<Long, TreeMap<Long, Entry>> populations = new TreeMap<>();
+        private long nextPopulationId = 0;
+        /**
+         * The end of the records, where the offset table starts
+         */
+        private long end;
+        private boolean tableWritten;
+
+        /**
+         * @param encoding the encoding, if the archive is created
+         * @param writable true if the archive is opened for writing, and created if it does not exist
+         */
+        private Archive(File file, Encoding encoding, boolean writable) {
+            this.file = file;
+            this.writable = writable;
+            try {
+                this.channel = writable
+                        ? FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE)
+                        : FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            } catch (IOException e) {
+                throw new FileException(e);
+            }
+            try {
+                if (channel.size() == 0 && !writable) {
+                    // An allocated world id whose world was not written yet
+                    this.encoding = encoding;
+                    this.headerSize = HEADER_SIZE;
+                    this.version = VERSION;
+                    end = HEADER_SIZE;
+                    tableWritten = true;
+                } else if (channel.size() == 0) {
+                    this.encoding = encoding;
+                    this.headerSize = HEADER_SIZE;
+                    this.version = VERSION;
+                    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION)
+                            .putInt(encoding.ordinal());
+                    header.flip();
+                    write(header, 0);
+                    end = HEADER_SIZE;
+                    tableWritten = false;
+                } else {
+                    ByteBuffer header = read(0, JSON_ONLY_HEADER_SIZE);
+                    if (header.getInt() != MAGIC) {
+                        throw new FileException(file + " is no instance archive");
+                    }
+                    this.version = header.getInt();
+                    if (version == JSON_ONLY_VERSION) {
+                        // Further records are appended in the same layout, such that the archive stays readable
+                        this.encoding = Encoding.JSON;
+                        this.headerSize = JSON_ONLY_HEADER_SIZE;
+                    } else if (version == UTF8_STRINGS_VERSION || version == VERSION) {
+                        int ordinal = read(JSON_ONLY_HEADER_SIZE, 4).getInt();
+                        if (ordinal < 0 || ordinal >= Encoding.values().length) {
+                            throw new FileException("Unknown encoding " + ordinal + " of " + file);
+                        }
+                        this.encoding = Encoding.values()[ordinal];
+                        this.headerSize = HEADER_SIZE;
+                    } else {
+                        throw new FileException("Unsupported archive version " + version + " of " + file);
+                    }
+                    if (!readTable()) {
+                        scanRecords();
+                    }
+                    readStrings();
+                }
+            } catch (IOException | RuntimeException e) {
+                closeQuietly();
+                throw e instanceof FileException ? (FileException) e : new FileException(e);
+            }
+        }
+
+        /**
+         * @return false if the archive has no (valid) offset table
+         */
+        private boolean readTable() throws IOException {
+            long size = channel.size();
+            if (size < headerSize + 4 + TRAILER_SIZE) {
+                return false;
+            }
+            ByteBuffer trailer = read(size - TRAILER_SIZE, TRAILER_SIZE);
+            long tableOffset = trailer.getLong();
+            if (trailer.getInt() != TABLE_MAGIC || tableOffset < headerSize || tableOffset > size - TRAILER_SIZE - 4) {
+                return false;
+            }
+            int entries = read(tableOffset, 4).getInt();
+            if (tableOffset + 4 + (long) entries * TABLE_ENTRY_SIZE + TRAILER_SIZE != size) {
+                return false;
+            }
+            ByteBuffer table = read(tableOffset + 4, entries * TABLE_ENTRY_SIZE);
+            for (int i = 0; i < entries; i++) {
+                register(new Entry(table.get(), table.getLong(), table.getLong(), table.getLong(), table.getInt()));
+            }
+            end = tableOffset;
+            tableWritten = true;
+            return true;
+        }
+
+        /**
+         * Rebuilds the offset table from the record headers, ignoring an incomplete last record
+         */
+        private void scanRecords() throws IOException {
+            long size = channel.size();
+            long position = headerSize;
+            while (position + RECORD_HEADER_SIZE <= size) {
+                ByteBuffer header = read(position, RECORD_HEADER_SIZE);
+                byte kind = header.get();
+                long populationId = header.getLong();
+                long bidderId = header.getLong();
+                int length = header.getInt();
+                if ((kind != WORLD_RECORD && kind != BIDDER_RECORD && kind != UTF8_STRINGS_RECORD
+                        && kind != STRINGS_RECORD) || length < 0
+                        || position + RECORD_HEADER_SIZE + length > size) {
+                    break;
+                }
+                register(new Entry(kind, populationId, bidderId, position, length));
+                position += RECORD_HEADER_SIZE + length;
+            }
+            end = position;
+            tableWritten = false;
+        }
+
+        /**
+         * Restores the string dictionary from the strings records, in the order in which they were appended
+         */
+        private void readStrings() {
+            stringRecords.sort(Comparator.comparingLong(e -> e.offset));
+            for (Entry entry : stringRecords) {
+                try {
+                    if (entry.kind == UTF8_STRINGS_RECORD) {
+                        BinaryJson.decodeUtf8Strings(content(entry), strings);
+                    } else {
+                        BinaryJson.decodeStrings(content(entry), strings);
+                    }
+                } catch (JsonParseException e) {
+                    throw new FileException("Invalid strings record in " + file, e);
+                }
+            }
+        }
+
+        private void register(Entry entry) {
+            if (entry.kind == WORLD_RECORD) {
+                world = entry;
+            } else if (entry.kind == STRINGS_RECORD || entry.kind == UTF8_STRINGS_RECORD) {
+                stringRecords.add(entry);
+            } else {
+                populations.computeIfAbsent(entry.populationId, id -> new TreeMap<>()).put(entry.bidderId, entry);
+                nextPopulationId = Math.max(nextPopulationId, entry.populationId + 1);
+            }
+        }
+
+        private void append(byte kind, long populationId, long bidderId, Object instance) {
+            int knownStrings = strings.size();
+            byte[] content;
+            try {
+                content = encode(instance);
+                if (strings.size() > knownStrings) {
+                    appendRecord(STRINGS_RECORD, -1, -1, BinaryJson.encodeStrings(strings, knownStrings));
+                }
+            } catch (RuntimeException e) {
+                // The new strings are not stored, so they have to be added again by the next record using them
+                strings.truncate(knownStrings);
+                throw e;
+            }
+            appendRecord(kind, populationId, bidderId, content);
+        }
+
+        private void appendRecord(byte kind, long populationId, long bidderId, byte[] content) {
+            ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + content.length);
+            record.put(kind).putLong(populationId).putLong(bidderId).putInt(content.length).put(content);
+            record.flip();
+            try {
+                if (version == UTF8_STRINGS_VERSION) {
+                    // The new record may use the fixed layouts, which readers of the second version do not know
+                    ByteBuffer header = ByteBuffer.allocate(4).putInt(VERSION);
+                    header.flip();
+                    write(header, 4);
+                    version = VERSION;
+                }
+                if (tableWritten) {
+                    // The new record replaces the table, which is written again on the next flush
+                    channel.truncate(end);
+                    tableWritten = false;
+                }
+                write(record, end);
+            } catch (IOException e) {
+                throw new FileException(e);
+            }
+            register(new Entry(kind, populationId, bidderId, end, content.length));
+            end += record.capacity();
+        }
+
+        private Entry entry(long populationId, long bidderId) {
+            Map<Long, Entry> population = populations.get(populationId);
+            Entry entry = population == null ? null : population.get(bidderId);
+            if (entry == null) {
+                throw new FileException("Bidder " + bidderId + " of population " + populationId + " is not stored in " + file);
+            }
+            return entry;
+        }
+
+        private byte[] content(Entry entry) {
+            try {
+                return read(entry.contentOffset(), entry.length).array();
+            } catch (IOException e) {
+                throw new FileException(e);
+            }
+        }
+
+        private byte[] encode(Object instance) {
+            GsonWrapper gson = new GsonWrapper(false);
+            if (encoding == Encoding.BINARY) {
+                return BinaryJson.encode(gson.toJsonTree(instance), strings);
+            }
+            return gson.toJson(instance).getBytes(StandardCharsets.UTF_8);
+        }
+
+        private <T> T decode(byte[] content, Class<T> type, GsonWrapper gson) {
+            if (encoding == Encoding.BINARY) {
+                return gson.fromJsonTree(type, BinaryJson.decode(content, strings));
+            }
+            return gson.fromJson(type, reader(content));
+        }
+
+        private Object decodeWithUnknownType(byte[] content, GsonWrapper gson) {
+            if (encoding == Encoding.BINARY) {
+                return gson.fromJsonTreeWithUnknownType(BinaryJson.decode(content, strings));
+            }
+            return gson.fromJsonWithUnknownType(reader(content));
+        }
+
+        /**
+         * Reads the contents of all bidder records of a population, ordered by bidder id,
+         * in one sequential pass over the part of the archive which contains them
+         */
+        private List<byte[]> readPopulation(long populationId) {
+            Map<Long, Entry> population = populations.get(populationId);
+            if (population == null) {
+                throw new FileException("Population " + populationId + " is not stored in " + file);
+            }
+            List<Entry> byOffset = population.values().stream()
+                    .sorted(Comparator.comparingLong(e -> e.offset))
+                    .collect(Collectors.toList());
+            Map<Entry, byte[]> contents = new HashMap<>();
+            try {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(
+                        Channels.newInputStream(channel.position(byOffset.get(0).offset)), 1 << 16));
+                long position = byOffset.get(0).offset;
+                for (Entry entry : byOffset) {
+                    skipFully(in, entry.contentOffset() - position);
+                    byte[] content = new byte[entry.length];
+                    in.readFully(content);
+                    contents.put(entry, content);
+                    position = entry.contentOffset() + entry.length;
+                }
+            } catch (IOException e) {
+                throw new FileException(e);
+            }
+            return population.values().stream().map(contents::get).collect(Collectors.toList());
+        }
+
+        private static void skipFully(DataInputStream in, long bytes) throws IOException {
+            while (bytes > 0) {
+                int skipped = in.skipBytes((int) Math.min(bytes, Integer.MAX_VALUE));
+                if (skipped <= 0) {
+                    throw new EOFException();
+                }
+                bytes -= skipped;
+            }
+        }
+
+        private void writeTable() {
+            if (tableWritten || !writable) {
+                return;
+            }
+            List<Entry> entries = new ArrayList<>();
+            if (world != null) {
+                entries.add(world);
+            }
+            populations.values().forEach(population -> entries.addAll(population.values()));
+            entries.addAll(stringRecords);
+            ByteBuffer table = ByteBuffer.allocate(4 + entries.size() * TABLE_ENTRY_SIZE + TRAILER_SIZE);
+            table.putInt(entries.size());
+            for (Entry entry : entries) {
+                table.put(entry.kind).putLong(entry.populationId).putLong(entry.bidderId)
+                        .putLong(entry.offset).putInt(entry.length);
+            }
+            table.putLong(end).putInt(TABLE_MAGIC);
+            table.flip();
+            try {
+                write(table, end);
+                channel.force(false);
+            } catch (IOException e) {
+                throw new FileException(e);
+            }
+            tableWritten = true;
+        }
+
+        private ByteBuffer read(long position, int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new EOFException("Unexpected end of " + file);
+                }
+            }
+            buffer.flip();
+            return buffer;
+        }
+
+        private void write(ByteBuffer buffer, long position) throws IOException {
+            long target = position;
+            while (buffer.hasRemaining()) {
+                target += channel.write(buffer, target);
+            }
+        }
+
+        private void close() {
+            try {
+                writeTable();
+            } finally {
+                closeQuietly();
+            }
+        }
+
+        private void closeQuietly() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Nothing to be done, the archive is not used anymore
+            }
+        }
+    }
+}
@@ -17,7 +17,7 @@ import java.util.List;
  */
 public abstract class InstanceHandler {
 
-    private static InstanceHandler defaultHandler;
+    private static volatile InstanceHandler defaultHandler;
 
     /**
      * Get the default instance handler. <br>
@@ -26,10 +26,16 @@ public abstract class InstanceHandler {
      * @return the default instance handler
      */
     public static InstanceHandler getDefaultHandler() {
-        if (defaultHandler == null) {
-            defaultHandler = JSONInstanceHandler.getInstance();
+        InstanceHandler handler = defaultHandler;
+        if (handler == null) {
+            synchronized (InstanceHandler.class) {
+                if (defaultHandler == null) {
+                    defaultHandler = JSONInstanceHandler.getInstance();
+                }
+                handler = defaultHandler;
+            }
         }
-        return defaultHandler;
+        return handler;
     }
 
     /**
@@ -5,15 +5,25 @@
  */
 package org.spectrumauctions.sats.core.util.instancehandling;
 
+import com.google.common.base.Preconditions;
 import org.spectrumauctions.sats.core.model.SATSBidder;
 import org.spectrumauctions.sats.core.model.World;
-import org.spectrumauctions.sats.core.util.CacheMap;
 import org.spectrumauctions.sats.core.util.file.FileException;
 import org.spectrumauctions.sats.core.util.file.FilePathUtils;
+import org.spectrumauctions.sats.core.util.file.IdAllocator;
 import org.spectrumauctions.sats.core.util.file.gson.GsonWrapper;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
 
 /**
  * @author Michael Weiss
@@ -25,30 +35,41 @@ public class JSONInstanceHandler extends InstanceHandler {
 
     private static JSONInstanceHandler instance;
 
-    // Caches 100 top population id's
-    private final Map<Long, Long> populationIdCache = new CacheMap<>(100);
+    /**
+     * The number of ids reserved at once in the id counter files
+     */
+    private static final int ID_BLOCK_SIZE = 16;
 
-    private long worldIdCache = 0;
+    private volatile boolean prettyPrinting = true;
+
+    private volatile ExecutorService restorePool;
 
 
     private JSONInstanceHandler() {
     }
 
-    public static JSONInstanceHandler getInstance() {
+    public static synchronized JSONInstanceHandler getInstance() {
         if (instance == null) {
             instance = new JSONInstanceHandler();
         }
         return instance;
     }
 
+    /**
+     * Sets whether the json files are indented (the default), or written on a single line,
+     * which makes them smaller and faster to write and read
+     */
+    public void setPrettyPrinting(boolean prettyPrinting) {
+        this.prettyPrinting = prettyPrinting;
+    }
+
     /* (non-Javadoc)
      * @see InstanceHandler#writeWorld(World)
      */
     @Override
     public void writeWorld(World world) {
         File file = pathUtils.worldFilePath(world.getId());
-        String json = new GsonWrapper().toJson(world);
-        pathUtils.writeStringToFile(file, json);
+        write(file, world);
     }
 
     /* (non-Javadoc)
@@ -60,8 +81,34 @@ public class JSONInstanceHandler extends InstanceHandler {
                 bidder.getWorld().getId(),
                 bidder.getPopulation(),
                 bidder.getLongId());
-        String json = new GsonWrapper().toJson(bidder);
-        pathUtils.writeStringToFile(file, json);
+        write(file, bidder);
+    }
+
+    /**
+     * Streams the json of the object to the file
+     */
+    private void write(File file, Object object) {
+        try (Writer writer = pathUtils.newWriter(file)) {
+            new GsonWrapper(prettyPrinting).toJson(object, writer);
+        } catch (IOException e) {
+            throw new FileException(e);
+        }
+    }
+
+    private <T> T read(File file, Class<T> type, World world) {
+        GsonWrapper gson = new GsonWrapper();
+        if (world != null) {
+            gson.setWorld(world);
+        }
+        return read(file, type, gson);
+    }
+
+    private <T> T read(File file, Class<T> type, GsonWrapper gson) {
+        try (Reader reader = pathUtils.newReader(file)) {
+            return gson.fromJson(type, reader);
+        } catch (IOException e) {
+            throw new FileException(e);
+        }
     }
 
     /* (non-Javadoc)
@@ -75,17 +122,24 @@ public class JSONInstanceHandler extends InstanceHandler {
     /* (non-Javadoc)
      * @see InstanceHandler#readBidder(java.util.Map, int, int, int)
      */
-    @SuppressWarnings("unchecked")
     @Override
     public <T extends SATSBidder> T readBidderWithUnknownType(Class<T> bidderSuperType, World world, long populationId,
                                                                  long bidderId) {
-        File file = pathUtils.bidderFilePath(world.getId(), populationId, bidderId);
-        String json = pathUtils.readFileToString(file);
-        
         GsonWrapper gson = new GsonWrapper();
         gson.setWorld(world);
-        Class<?> type = gson.readClass(json);
-        Object obj = gson.fromJson(type, json);
+        return readBidderWithUnknownType(bidderSuperType, world, populationId, bidderId, gson);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends SATSBidder> T readBidderWithUnknownType(Class<T> bidderSuperType, World world, long populationId,
+                                                               long bidderId, GsonWrapper gson) {
+        File file = pathUtils.bidderFilePath(world.getId(), populationId, bidderId);
+        Object obj;
+        try (Reader reader = pathUtils.newReader(file)) {
+            obj = gson.fromJsonWithUnknownType(reader);
+        } catch (IOException e) {
+            throw new FileException(e);
+        }
 
         if (bidderSuperType.isAssignableFrom(obj.getClass())) {
             SATSBidder bidder = (T) obj;
@@ -93,7 +147,7 @@ public class JSONInstanceHandler extends InstanceHandler {
             return (T) bidder;
 
         } else {
-            throw new FileException("generated object (" + type.getName() + ") is not of specified bidder type (" + bidderSuperType.getName() + ")");
+            throw new FileException("generated object (" + obj.getClass().getName() + ") is not of specified bidder type (" + bidderSuperType.getName() + ")");
         }
     }
 
@@ -103,26 +157,39 @@ public class JSONInstanceHandler extends InstanceHandler {
     @Override
     public <T extends SATSBidder> T readBidder(Class<T> type, World world, long populationId, long bidderId) {
         File file = pathUtils.bidderFilePath(world.getId(), populationId, bidderId);
-        GsonWrapper gson = new GsonWrapper();
-        gson.setWorld(world);
-        String json = pathUtils.readFileToString(file);
-        T bidder = gson.fromJson(type, json);
+        T bidder = read(file, type, world);
         bidder.refreshReference(world);
         return bidder;
     }
 
+    /**
+     * Sets the number of threads reading the bidders of a population concurrently.
+     * With one thread (the default), the bidders are read on the calling thread.
+     */
+    public synchronized void setRestoreThreads(int restoreThreads) {
+        Preconditions.checkArgument(restoreThreads > 0, "At least one thread is required");
+        if (restorePool != null) {
+            restorePool.shutdown();
+            restorePool = null;
+        }
+        if (restoreThreads > 1) {
+            AtomicInteger threadCount = new AtomicInteger();
+            restorePool = Executors.newFixedThreadPool(restoreThreads, runnable -> {
+                Thread thread = new Thread(runnable, "sats-instance-reader-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
     /* (non-Javadoc)
      * @see InstanceHandler#readPopulation(java.util.Map, int, int)
      */
     @Override
     public <T extends SATSBidder> List<T> readPopulationWithUnknownTypes(Class<T> bidderSuperType, World world,
                                                                          long populationId) {
-        List<T> bidders = new ArrayList<>();
-        Collection<Long> bidderIds = pathUtils.getBidderIds(world.getId(), populationId);
-        for (long bidderId : bidderIds) {
-            bidders.add(readBidderWithUnknownType(bidderSuperType, world, populationId, bidderId));
-        }
-        return bidders;
+        return readBidders(world, populationId,
+                (bidderId, gson) -> readBidderWithUnknownType(bidderSuperType, world, populationId, bidderId, gson));
     }
 
     /* (non-Javadoc)
@@ -130,10 +197,51 @@ public class JSONInstanceHandler extends InstanceHandler {
      */
     @Override
     public <T extends SATSBidder> Collection<T> readPopulation(Class<T> type, World world, long populationId) {
-        Set<T> bidders = new HashSet<>();
-        Collection<Long> bidderIds = pathUtils.getBidderIds(world.getId(), populationId);
-        for (long bidderId : bidderIds) {
-            bidders.add(readBidder(type, world, populationId, bidderId));
+        return readBidders(world, populationId, (bidderId, gson) -> {
+            T bidder = read(pathUtils.bidderFilePath(world.getId(), populationId, bidderId), type, gson);
+            bidder.refreshReference(world);
+            return bidder;
+        });
+    }
+
+    /**
+     * Reads all bidders of a population, concurrently if more than one restore thread is set.
+     * All bidders share one wrapper for the world, which is only read during deserialization.
+     *
+     * @return the bidders, ordered by their id
+     */
+    private <T extends SATSBidder> List<T> readBidders(World world, long populationId,
+                                                       BiFunction<Long, GsonWrapper, T> reader) {
+        List<Long> bidderIds = new ArrayList<>(pathUtils.getBidderIds(world.getId(), populationId));
+        Collections.sort(bidderIds);
+        GsonWrapper gson = new GsonWrapper();
+        gson.setWorld(world);
+        ExecutorService pool = restorePool;
+        List<T> bidders = new ArrayList<>(bidderIds.size());
+        if (pool == null || bidderIds.size() < 2) {
+            for (long bidderId : bidderIds) {
+                bidders.add(reader.apply(bidderId, gson));
+            }
+            return bidders;
+        }
+        List<Future<T>> futures = new ArrayList<>(bidderIds.size());
+        try {
+            for (long bidderId : bidderIds) {
+                futures.add(pool.submit(() -> reader.apply(bidderId, gson)));
+            }
+            for (Future<T> future : futures) {
+                bidders.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FileException("Interrupted while reading population " + populationId, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new FileException(e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
         }
         return bidders;
     }
@@ -143,23 +251,21 @@ public class JSONInstanceHandler extends InstanceHandler {
      */
     @Override
     public long getNextWorldId() {
-        long idCandidate = worldIdCache;
-        idCandidate = recGetAndReserveNewWorldId(idCandidate);
-        worldIdCache = idCandidate + 1;
-        return idCandidate;
+        IdAllocator allocator = worldIdAllocator(pathUtils);
+        long id = allocator.nextId();
+        // Only fails if the folder was created without using the id counter
+        while (!pathUtils.worldFolderPath(id).mkdirs()) {
+            id = allocator.nextId();
+        }
+        return id;
     }
 
     /**
-     * Attempts to create a new world folder with the id idCandidate. <br>
-     * If the folder already exists, it tries again with a higher id
+     * @return the allocator of world ids, which starts after the highest id of all stored worlds
      */
-    private long recGetAndReserveNewWorldId(long idCandidate) {
-        java.io.File potentialFolder = pathUtils.worldFolderPath(idCandidate);
-        if (potentialFolder.mkdirs()) {
-            return idCandidate;
-        } else {
-            return recGetAndReserveNewWorldId(idCandidate + 1);
-        }
+    static IdAllocator worldIdAllocator(FilePathUtils pathUtils) {
+        return IdAllocator.forFile(pathUtils.worldIdCounterPath(), ID_BLOCK_SIZE,
+                () -> pathUtils.getWorldIds().stream().mapToLong(Long::longValue).max().orElse(-1) + 1);
     }
 
     /* (non-Javadoc)
@@ -167,32 +273,14 @@ public class JSONInstanceHandler extends InstanceHandler {
      */
     @Override
     public long getNextPopulationId(long worldId) {
-        //TODO check if world exists in file system
-        Long idCandidate = populationIdCache.remove(worldId);
-        if (idCandidate == null) {
-            idCandidate = Long.valueOf("0");
-        }
-
-        idCandidate = recOpenPopulation(worldId, 0);
-
-        Long newCacheId = idCandidate + 1;
-        // Register in Cache
-        populationIdCache.put(worldId, newCacheId);
-
-        return idCandidate;
-    }
-
-    /**
-     * Attempts to create a new population folder with the id idCandidate. <br>
-     * If the folder already exists, it tries again with a higher id
-     */
-    private long recOpenPopulation(long worldId, long idCandidate) {
-        java.io.File potentialPopulationFolder = pathUtils.populationFolderPath(worldId, idCandidate);
-        if (potentialPopulationFolder.mkdir()) {
-            return idCandidate;
-        } else {
-            return recOpenPopulation(worldId, ++idCandidate);
+        IdAllocator allocator = IdAllocator.forFile(pathUtils.populationIdCounterPath(worldId), ID_BLOCK_SIZE,
+                () -> pathUtils.getPopulationIds(worldId).stream().mapToLong(Long::longValue).max().orElse(-1) + 1);
+        long id = allocator.nextId();
+        // Only fails if the folder was created without using the id counter
+        while (!pathUtils.populationFolderPath(worldId, id).mkdirs()) {
+            id = allocator.nextId();
         }
+        return id;
     }
 
     /* (non-Javadoc)
@@ -200,8 +288,7 @@ public class JSONInstanceHandler extends InstanceHandler {
      */
     @Override
     public <T extends World> T readWorld(Class<T> type, long worldId) {
-        String json = pathUtils.readFileToString(pathUtils.worldFilePath(worldId));
-        T world = new GsonWrapper().fromJson(type, json);
+        T world = read(pathUtils.worldFilePath(worldId), type, new GsonWrapper());
         world.refreshFieldBackReferences();
         return world;
     }
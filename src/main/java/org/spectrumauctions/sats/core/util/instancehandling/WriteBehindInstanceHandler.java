@@ -0,0 +1,295 @@
+/**
+ * Copyright by Michael Weiss, weiss.michael@gmx.ch
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.spectrumauctions.sats.core.util.instancehandling;
+
+import com.google.common.base.Preconditions;
+import org.spectrumauctions.sats.core.model.SATSBidder;
+import org.spectrumauctions.sats.core.model.World;
+import org.spectrumauctions.sats.core.util.file.FileException;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * An <b>instance handler</b> which writes worlds and bidders in the background, using another instance handler.<br>
+ * The write methods only queue the instance and return immediately, unless the queue is full, in which case they wait
+ * until an instance was written. Pending writes of the same world or bidder are coalesced, such that only the latest
+ * one is executed.<br>
+ * <br>
+ * Durability: an instance is only guaranteed to be stored once {@link #flush()} or {@link #close()} returned
+ * without an exception. Failed writes are reported by the next call to {@link #flush()} or {@link #close()}.
+ * Reads flush all pending writes first, such that they see every instance written before.
+ * Ids are allocated synchronously by the underlying handler.<br>
+ * Instances must not be modified after they were written, as they are serialized later on another thread.
+ * Pending writes are lost if the handler is not closed before the JVM exits.
+ *
+ * @author Michael Weiss
+ */
+public class WriteBehindInstanceHandler extends InstanceHandler implements Closeable {
+
+    private final InstanceHandler delegate;
+    private final int capacity;
+
+    private final Object lock = new Object();
+    /**
+     * The queued writes, in the order in which they were first queued
+     */
+    private final Map<Key, Object> pending = new LinkedHashMap<>();
+    private final Set<Key> inProgress = new HashSet<>();
+    private final List<RuntimeException> failures = new ArrayList<>();
+    private boolean closed = false;
+
+    /**
+     * @param delegate     the handler which writes and reads the instances
+     * @param capacity     the maximal number of queued writes
+     * @param writerThreads the number of threads writing in the background
+     */
+    public WriteBehindInstanceHandler(InstanceHandler delegate, int capacity, int writerThreads) {
+        Preconditions.checkNotNull(delegate);
+        Preconditions.checkArgument(capacity > 0, "The capacity must be positive");
+        Preconditions.checkArgument(writerThreads > 0, "At least one writer thread is required");
+        this.delegate = delegate;
+        this.capacity = capacity;
+        for (int i = 0; i < writerThreads; i++) {
+            Thread writer = new Thread(this::writeLoop, "sats-instance-writer-" + (i + 1));
+            writer.setDaemon(true);
+            writer.start();
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see InstanceHandler#writeWorld(World)
+     */
+    @Override
+    public void writeWorld(World world) {
+        enqueue(new Key(world.getId(), -1, -1), world);
+    }
+
+    /* (non-Javadoc)
+     * @see InstanceHandler#writeBidder(SATSBidder)
+     */
+    @Override
+    public void writeBidder(SATSBidder bidder) {
+        enqueue(new Key(bidder.getWorldId(), bidder.getPopulation(), bidder.getLongId()), bidder);
+    }
+
+    private void enqueue(Key key, Object instance) {
+        synchronized (lock) {
+            Preconditions.checkState(!closed, "The instance handler is closed");
+            // A pending write of the same instance is replaced in place
+            while (!pending.containsKey(key) && pending.size() >= capacity) {
+                await();
+                Preconditions.checkState(!closed, "The instance handler is closed");
+            }
+            pending.put(key, instance);
+            lock.notifyAll();
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            Key key;
+            Object instance;
+            synchronized (lock) {
+                Map.Entry<Key, Object> next;
+                while ((next = nextWritable()) == null) {
+                    if (closed && pending.isEmpty()) {
+                        return;
+                    }
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                key = next.getKey();
+                instance = next.getValue();
+                pending.remove(key);
+                inProgress.add(key);
+                lock.notifyAll();
+            }
+            try {
+                if (instance instanceof World) {
+                    delegate.writeWorld((World) instance);
+                } else {
+                    delegate.writeBidder((SATSBidder) instance);
+                }
+            } catch (RuntimeException e) {
+                synchronized (lock) {
+                    failures.add(e);
+                }
+            } finally {
+                synchronized (lock) {
+                    inProgress.remove(key);
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the first queued write whose instance is not currently written by another thread, or null
+     */
+    private Map.Entry<Key, Object> nextWritable() {
+        for (Map.Entry<Key, Object> entry : pending.entrySet()) {
+            if (!inProgress.contains(entry.getKey())) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Waits until all writes queued so far are executed.
+     *
+     * @throws FileException if any write failed since the last flush
+     */
+    public void flush() {
+        synchronized (lock) {
+            while (!pending.isEmpty() || !inProgress.isEmpty()) {
+                await();
+            }
+            if (!failures.isEmpty()) {
+                FileException exception = new FileException(failures.size() + " instance(s) could not be written",
+                        failures.get(0));
+                failures.stream().skip(1).forEach(exception::addSuppressed);
+                failures.clear();
+                throw exception;
+            }
+        }
+    }
+
+    /**
+     * Writes all pending instances and stops the writer threads.
+     * Afterwards, instances can still be read, but no longer written.
+     *
+     * @throws FileException if any write failed since the last flush
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        flush();
+    }
+
+    private void await() {
+        try {
+            lock.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FileException("Interrupted while waiting for pending instance writes", e);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see InstanceHandler#readWorld(java.lang.Class, long)
+     */
+    @Override
+    public <T extends World> T readWorld(Class<T> type, long world) {
+        flush();
+        return delegate.readWorld(type, world);
+    }
+
+    /* (non-Javadoc)
+     * @see InstanceHandler#getPopulationIds(long)
+     */
+    @Override
+    public Collection<Long> getPopulationIds(long worldId) {
+        flush();
+        return delegate.getPopulationIds(worldId);
+    }
+
+    /* (non-Javadoc)
+     * @see InstanceHandler#readBidder(java.lang.Class, World, long, long)
+     */
+    @Override
+    public <T extends SATSBidder> T readBidder(Class<T> type, World world, long populationId, long bidderId) {
+        flush();
+        return delegate.readBidder(type, world, populationId, bidderId);
+    }
+
+    /* (non-Javadoc)
+     * @see InstanceHandler#readBidderWithUnknownType(java.lang.Class, World, long, long)
+     */
+    @Override
+    public <T extends SATSBidder> T readBidderWithUnknownType(Class<T> bidderSuperType, World world, long populationId,
+                                                                 long bidderId) {
+        flush();
+        return delegate.readBidderWithUnknownType(bidderSuperType, world, populationId, bidderId);
+    }
+
+    /* (non-Javadoc)
+     * @see InstanceHandler#readPopulation(java.lang.Class, World, long)
+     */
+    @Override
+    public <T extends SATSBidder> Collection<T> readPopulation(Class<T> type, World world, long populationId) {
+        flush();
+        return delegate.readPopulation(type, world, populationId);
+    }
+
+    /* (non-Javadoc)
+     * @see InstanceHandler#readPopulationWithUnknownTypes(java.lang.Class, World, long)
+     */
+    @Override
+    public <T extends SATSBidder> List<T> readPopulationWithUnknownTypes(Class<T> bidderSuperType, World world,
+                                                                         long populationId) {
+        flush();
+        return delegate.readPopulationWithUnknownTypes(bidderSuperType, world, populationId);
+    }
+
+    /* (non-Javadoc)
+     * @see InstanceHandler#getNextWorldId()
+     */
+    @Override
+    public long getNextWorldId() {
+        return delegate.getNextWorldId();
+    }
+
+    /* (non-Javadoc)
+     * @see InstanceHandler#getNextPopulationId(long)
+     */
+    @Override
+    public long getNextPopulationId(long worldId) {
+        return delegate.getNextPopulationId(worldId);
+    }
+
+    /**
+     * Identifies a stored instance: a world (with population and bidder id -1) or a bidder
+     */
+    private static final class Key {
+        private final long worldId;
+        private final long populationId;
+        private final long bidderId;
+
+        private Key(long worldId, long populationId, long bidderId) {
+            this.worldId = worldId;
+            this.populationId = populationId;
+            this.bidderId = bidderId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return worldId == key.worldId && populationId == key.populationId && bidderId == key.bidderId;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(worldId, populationId, bidderId);
+        }
+    }
+}
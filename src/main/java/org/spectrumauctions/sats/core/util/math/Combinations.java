@@ -0,0 +1,147 @@
+/**
+ * Copyright by Michael Weiss, weiss.michael@gmx.ch
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.spectrumauctions.sats.core.util.math;
+
+import com.google.common.base.Preconditions;
+
+import java.math.BigInteger;
+
+/**
+ * Ranking and enumeration of the <i>k</i>-subsets of <i>n</i> positions, based on a precomputed table of binomial coefficients.<br>
+ * Subsets are ordered lexicographically by their sorted positions, i.e., for <i>n=3, k=2</i>:
+ * <i>{0,1}, {0,2}, {1,2}</i>. Ranks start at one.
+ */
+public final class Combinations {
+
+    private final int n;
+    /**
+     * binomials[m][j] = m choose j, for 0 &lt;= j &lt;= m &lt;= n
+     */
+    private final BigInteger[][] binomials;
+
+    public Combinations(int n) {
+        Preconditions.checkArgument(n >= 0);
+        this.n = n;
+        this.binomials = new BigInteger[n + 1][];
+        for (int m = 0; m <= n; m++) {
+            binomials[m] = new BigInteger[m + 1];
+            binomials[m][0] = BigInteger.ONE;
+            binomials[m][m] = BigInteger.ONE;
+            for (int j = 1; j < m; j++) {
+                binomials[m][j] = binomials[m - 1][j - 1].add(binomials[m - 1][j]);
+            }
+        }
+    }
+
+    public int getN() {
+        return n;
+    }
+
+    /**
+     * @return m choose k, or zero if k is not in [0, m]
+     */
+    public BigInteger binomial(int m, int k) {
+        if (k < 0 || k > m) {
+            return BigInteger.ZERO;
+        }
+        return binomials[m][k];
+    }
+
+    /**
+     * @param rank the rank of the subset among all subsets of size k, starting at one.
+     *             For backwards compatibility, rank zero is treated as rank one.
+     * @param k    the size of the subset
+     * @return the sorted positions of the subset
+     */
+    public int[] unrank(BigInteger rank, int k) {
+        Preconditions.checkArgument(k >= 0 && k <= n, "Invalid subset size %s", k);
+        int[] positions = new int[k];
+        int chosen = 0;
+        BigInteger remainingRank = rank;
+        for (int position = 0; position < n && chosen < k; position++) {
+            // Number of subsets containing this position, given the decisions on the previous positions
+            BigInteger starters = binomial(n - position - 1, k - chosen - 1);
+            if (remainingRank.compareTo(starters) <= 0) {
+                positions[chosen++] = position;
+            } else {
+                remainingRank = remainingRank.subtract(starters);
+            }
+        }
+        Preconditions.checkArgument(chosen == k, "Rank %s too big for subsets of size %s", rank, k);
+        return positions;
+    }
+
+    /**
+     * @param positions the sorted positions of a subset
+     * @return the rank of the subset among all subsets of the same size, starting at one
+     * @see #unrank(BigInteger, int)
+     */
+    public BigInteger rank(int[] positions) {
+        int k = positions.length;
+        BigInteger rank = BigInteger.ONE;
+        int chosen = 0;
+        for (int position = 0; position < n && chosen < k; position++) {
+            if (positions[chosen] == position) {
+                chosen++;
+            } else {
+                rank = rank.add(binomial(n - position - 1, k - chosen - 1));
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Gosper's hack: the next bigger number with the same number of set bits.<br>
+     * Must not be called with zero or with the biggest such number.
+     */
+    public static long nextCombination(long x) {
+        long lowest = x & -x;
+        long ripple = x + lowest;
+        return ripple | (((x ^ ripple) >>> 2) >>> Long.numberOfTrailingZeros(lowest));
+    }
+
+    /**
+     * Advances the sorted positions to the lexicographically next subset of the same size.
+     *
+     * @return false if there is no next subset, in which case the positions are unchanged
+     */
+    public static boolean nextCombination(int[] positions, int n) {
+        int k = positions.length;
+        int i = k - 1;
+        while (i >= 0 && positions[i] == n - k + i) {
+            i--;
+        }
+        if (i < 0) {
+            return false;
+        }
+        positions[i]++;
+        for (int j = i + 1; j < k; j++) {
+            positions[j] = positions[j - 1] + 1;
+        }
+        return true;
+    }
+
+    /**
+     * Moves the sorted positions to the lexicographically previous subset of the same size.
+     *
+     * @return false if there is no previous subset, in which case the positions are unchanged
+     */
+    public static boolean previousCombination(int[] positions, int n) {
+        int k = positions.length;
+        int i = k - 1;
+        while (i >= 0 && positions[i] == (i == 0 ? 0 : positions[i - 1] + 1)) {
+            i--;
+        }
+        if (i < 0) {
+            return false;
+        }
+        positions[i]--;
+        for (int j = i + 1; j < k; j++) {
+            positions[j] = n - k + j;
+        }
+        return true;
+    }
+}
@@ -30,6 +30,21 @@ public final class ContinuousPiecewiseLinearFunction implements Function {
 
     private final BigDecimal lowestX;
 
+    /**
+     * The linear function pieces flattened into arrays sorted by their upper x-value end,
+     * to allow exception-free evaluation with binary search.
+     */
+    private final BigDecimal[] upperXs;
+    private final LinearFunction[] functions;
+
+    /**
+     * Double-precision copies of the above, used by {@link #getY(double)}
+     */
+    private final double lowestXDouble;
+    private final double[] upperXsDouble;
+    private final double[] slopes;
+    private final double[] yIntercepts;
+
     /**
      * Constructs a new PieceWiseLinear function with a restricted domain interval
      * @param cornerPoints A map with <i>key = x-values</i> and <i> value = y-values</i>. 
@@ -56,6 +71,17 @@ public final class ContinuousPiecewiseLinearFunction implements Function {
             }
         }
         linearFunctions = linearFunctionsBuilder.build();
+        upperXs = linearFunctions.keySet().toArray(new BigDecimal[0]);
+        functions = linearFunctions.values().toArray(new LinearFunction[0]);
+        lowestXDouble = lowestX.doubleValue();
+        upperXsDouble = new double[upperXs.length];
+        slopes = new double[functions.length];
+        yIntercepts = new double[functions.length];
+        for (int i = 0; i < functions.length; i++) {
+            upperXsDouble[i] = upperXs[i].doubleValue();
+            slopes[i] = functions[i].getSlope().doubleValue();
+            yIntercepts[i] = functions[i].getyIntercept().doubleValue();
+        }
     }
 
     /**
@@ -79,11 +105,36 @@ public final class ContinuousPiecewiseLinearFunction implements Function {
      */
     @Override
     public BigDecimal getY(BigDecimal x) {
-        try {
-            return functionAt(x).getY(x);
-        } catch (NotDifferentiableException e) {
-            return e.getCornerPointY();
+        if (x.compareTo(lowestX) < 0) {
+            throw new OutOfDomainException("X is smaller than domain allows");
+        }
+        int index = Arrays.binarySearch(upperXs, x);
+        if (index < 0) {
+            // Not a corner point: index of the first piece whose upper end is bigger than x
+            index = -index - 1;
+        }
+        if (index >= functions.length) {
+            throw new OutOfDomainException("X is bigger than domain allows");
+        }
+        return functions[index].getY(x);
+    }
+
+    /**
+     * Double-precision variant of {@link #getY(BigDecimal)}.
+     * Finds the linear function piece in O(log n) and does not allocate any objects.
+     */
+    public double getY(double x) {
+        if (x < lowestXDouble) {
+            throw new OutOfDomainException("X is smaller than domain allows");
+        }
+        int index = Arrays.binarySearch(upperXsDouble, x);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        if (index >= slopes.length) {
+            throw new OutOfDomainException("X is bigger than domain allows");
         }
+        return x * slopes[index] + yIntercepts[index];
     }
 
 
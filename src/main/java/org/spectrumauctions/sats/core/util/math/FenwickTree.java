@@ -0,0 +1,109 @@
+/**
+ * Copyright by Michael Weiss, weiss.michael@gmx.ch
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.spectrumauctions.sats.core.util.math;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+
+/**
+ * A Fenwick tree (binary indexed tree) of non-negative weights, supporting weight updates, prefix sums
+ * and weighted sampling in logarithmic time.
+ */
+public final class FenwickTree {
+
+    private final double[] weights;
+    /**
+     * 1-based implicit tree, tree[i] holds the sum of the weights (i - lowbit(i), i]
+     */
+    private final double[] tree;
+    private final int highestPowerOfTwo;
+
+    public FenwickTree(int size) {
+        this.weights = new double[size];
+        this.tree = new double[size + 1];
+        this.highestPowerOfTwo = size == 0 ? 0 : Integer.highestOneBit(size);
+    }
+
+    /**
+     * Creates a tree with the given initial weights in linear time
+     */
+    public FenwickTree(double[] initialWeights) {
+        this(initialWeights.length);
+        for (int i = 0; i < initialWeights.length; i++) {
+            Preconditions.checkArgument(initialWeights[i] >= 0, "Weights must not be negative");
+            weights[i] = initialWeights[i];
+            tree[i + 1] += initialWeights[i];
+            int parent = (i + 1) + ((i + 1) & -(i + 1));
+            if (parent <= weights.length) {
+                tree[parent] += tree[i + 1];
+            }
+        }
+    }
+
+    public int size() {
+        return weights.length;
+    }
+
+    public double get(int index) {
+        return weights[index];
+    }
+
+    public void set(int index, double weight) {
+        Preconditions.checkArgument(weight >= 0, "Weights must not be negative");
+        double delta = weight - weights[index];
+        if (delta == 0) {
+            return;
+        }
+        weights[index] = weight;
+        for (int i = index + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * Sets all weights to zero in linear time. Unlike setting them one by one, this leaves no rounding errors
+     * of previous updates in the inner sums.
+     */
+    public void clear() {
+        Arrays.fill(weights, 0);
+        Arrays.fill(tree, 0);
+    }
+
+    /**
+     * @return the sum of the weights with an index smaller than the given one
+     */
+    public double prefixSum(int index) {
+        double sum = 0;
+        for (int i = index; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    public double total() {
+        return prefixSum(weights.length);
+    }
+
+    /**
+     * @param value a value in [0, total)
+     * @return the smallest index whose prefix sum including its own weight is at least the given value,
+     * i.e., the index hit by the given value if the weights are laid out one after another.
+     * Due to rounding, the returned index may have zero weight; callers requiring a positive weight have to check this.
+     */
+    public int find(double value) {
+        int position = 0;
+        double remaining = value;
+        for (int step = highestPowerOfTwo; step > 0; step >>= 1) {
+            int next = position + step;
+            if (next < tree.length && tree[next] < remaining) {
+                position = next;
+                remaining -= tree[next];
+            }
+        }
+        return Math.min(position, weights.length - 1);
+    }
+}
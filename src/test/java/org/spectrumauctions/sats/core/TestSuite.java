@@ -12,18 +12,29 @@ import org.junit.BeforeClass;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.spectrumauctions.sats.core.api.APITest;
+import org.spectrumauctions.sats.core.bidfile.BinaryBidFileTest;
 import org.spectrumauctions.sats.core.bidfile.CatsWriterTest;
+import org.spectrumauctions.sats.core.bidfile.CompressedBidFileTest;
+import org.spectrumauctions.sats.core.bidfile.ExportPipelineTest;
 import org.spectrumauctions.sats.core.bidfile.JSONWriterTest;
+import org.spectrumauctions.sats.core.bidlang.BiddingLanguageStreamTest;
 import org.spectrumauctions.sats.core.bidlang.generic.SimpleRandomOrder.SimpleRandomOrderTest;
 import org.spectrumauctions.sats.core.bidlang.generic.SizeOrderedPowerset.GenericPowersetTest;
 import org.spectrumauctions.sats.core.bidlang.generic.SizeOrderedPowerset.GenericSetsPickNTest;
+import org.spectrumauctions.sats.core.bidlang.generic.SizeOrderedPowerset.QuantityVectorPickNTest;
 import org.spectrumauctions.sats.core.bidlang.generic.XORQtoXORTest;
+import org.spectrumauctions.sats.core.bidlang.xor.CatsBundleGeneratorTest;
 import org.spectrumauctions.sats.core.bidlang.xor.CatsXORTest;
+import org.spectrumauctions.sats.core.bidlang.xor.SizeBasedUniqueRandomXORTest;
+import org.spectrumauctions.sats.core.bidlang.xor.SizeOrderedXORTest;
 import org.spectrumauctions.sats.core.examples.BiddingLanguagesExample;
 import org.spectrumauctions.sats.core.examples.ParameterizingModelsExample;
 import org.spectrumauctions.sats.core.examples.SimpleModelAccessorsExample;
+import org.spectrumauctions.sats.core.instancehandling.ArchiveInstanceHandlerTest;
 import org.spectrumauctions.sats.core.instancehandling.InMemorySerializerTest;
 import org.spectrumauctions.sats.core.instancehandling.SerializerTest;
+import org.spectrumauctions.sats.core.instancehandling.WriteBehindInstanceHandlerTest;
+import org.spectrumauctions.sats.core.model.BitVectorValueTest;
 import org.spectrumauctions.sats.core.model.DefaultModel;
 import org.spectrumauctions.sats.core.model.bvm.BMRandomnessTest;
 import org.spectrumauctions.sats.core.model.bvm.BMValueTest;
@@ -45,7 +56,13 @@ import org.spectrumauctions.sats.core.model.srvm.SRVMBidderTest;
 import org.spectrumauctions.sats.core.model.srvm.SRVMRandomnessTest;
 import org.spectrumauctions.sats.core.model.srvm.SRVMTest;
 import org.spectrumauctions.sats.core.model.srvm.SingleRegionModel;
+import org.spectrumauctions.sats.core.util.BinaryJsonTest;
+import org.spectrumauctions.sats.core.util.BoundedCacheTest;
+import org.spectrumauctions.sats.core.util.IdAllocatorTest;
+import org.spectrumauctions.sats.core.util.RankSelectSetTest;
 import org.spectrumauctions.sats.core.util.file.FilePathUtils;
+import org.spectrumauctions.sats.core.util.math.ContinuousPiecewiseLinearFunctionTest;
+import org.spectrumauctions.sats.core.util.math.FenwickTreeTest;
 
 import java.io.File;
 import java.io.IOException;
@@ -59,15 +76,25 @@ import java.util.List;
         // Bidfile
         CatsWriterTest.class,
         JSONWriterTest.class,
+        BinaryBidFileTest.class,
+        CompressedBidFileTest.class,
+        ExportPipelineTest.class,
         // Instance handling
         InMemorySerializerTest.class,
         SerializerTest.class,
+        WriteBehindInstanceHandlerTest.class,
+        ArchiveInstanceHandlerTest.class,
         // Bidlang
         SimpleRandomOrderTest.class,
         GenericPowersetTest.class,
         GenericSetsPickNTest.class,
+        QuantityVectorPickNTest.class,
         XORQtoXORTest.class,
         CatsXORTest.class,
+        CatsBundleGeneratorTest.class,
+        SizeOrderedXORTest.class,
+        SizeBasedUniqueRandomXORTest.class,
+        BiddingLanguageStreamTest.class,
         // Models
         BMRandomnessTest.class,
         BMValueTest.class,
@@ -81,11 +108,20 @@ import java.util.List;
         MRVMBidderTypeSpecificTest.class,
         MRVMRandomnessTest.class,
         MRVMWorldTest.class,
+        MRVMValuationEngineTest.class,
+        BitVectorValueTest.class,
         SRVMTest.class,
         SRVMBidderTest.class,
         SRVMRandomnessTest.class,
         CATSWorldTest.class,
         CATSBidderTest.class,
+        // Util
+        BoundedCacheTest.class,
+        IdAllocatorTest.class,
+        RankSelectSetTest.class,
+        BinaryJsonTest.class,
+        FenwickTreeTest.class,
+        ContinuousPiecewiseLinearFunctionTest.class,
         // Examples
         BiddingLanguagesExample.class,
         ParameterizingModelsExample.class,
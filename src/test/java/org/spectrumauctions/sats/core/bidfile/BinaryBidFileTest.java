@@ -0,0 +1,78 @@
+/**
+ * Copyright by Michael Weiss, weiss.michael@gmx.ch
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.spectrumauctions.sats.core.bidfile;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.marketdesignresearch.mechlib.core.bidder.valuefunction.BundleValue;
+import org.spectrumauctions.sats.core.bidlang.BiddingLanguage;
+import org.spectrumauctions.sats.core.bidlang.xor.SizeBasedUniqueRandomXOR;
+import org.spectrumauctions.sats.core.model.UnsupportedBiddingLanguageException;
+import org.spectrumauctions.sats.core.model.mrvm.MRVMBidder;
+import org.spectrumauctions.sats.core.model.mrvm.MultiRegionModel;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * @author Michael Weiss
+ */
+public class BinaryBidFileTest extends BidFileWriter {
+
+    public static String EXPORT_TEST_FOLDER_NAME = "CATSEXPORT_TESTFILES (AUTODELETED FOLDER)";
+
+    @Test
+    public void testMultiBidderXOR() {
+        super.testMultiBidderXOR(new BinaryExporter(new File(EXPORT_TEST_FOLDER_NAME)));
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException, UnsupportedBiddingLanguageException {
+        List<MRVMBidder> bidders = new MultiRegionModel().createNewWorldAndPopulation(71L);
+        List<BiddingLanguage> languages = new ArrayList<>();
+        List<List<BundleValue>> expected = new ArrayList<>();
+        int bidsPerBidder = 200;
+        for (MRVMBidder bidder : bidders) {
+            SizeBasedUniqueRandomXOR lang = bidder.getValueFunction(SizeBasedUniqueRandomXOR.class, 72L);
+            lang.setIterations(bidsPerBidder);
+            List<BundleValue> bids = new ArrayList<>();
+            Iterator<BundleValue> iterator = lang.iterator();
+            while (iterator.hasNext()) {
+                BundleValue bid = iterator.next();
+                bids.add(new BundleValue(bid.getAmount().setScale(FileWriter.ROUNDING_SCALE, BigDecimal.ROUND_HALF_UP), bid.getBundle()));
+            }
+            expected.add(bids);
+            lang = bidder.getValueFunction(SizeBasedUniqueRandomXOR.class, 72L);
+            lang.setIterations(bidsPerBidder);
+            languages.add(lang);
+        }
+        File file = new BinaryExporter(new File(EXPORT_TEST_FOLDER_NAME)).writeMultiBidderXOR(languages, bidsPerBidder, "TestBinary_");
+
+        try (BinaryBidFileReader reader = new BinaryBidFileReader(file.toPath(), bidders.get(0).getWorld())) {
+            Assert.assertEquals(bidders.size(), reader.getNumberOfBidders());
+            // Random access, starting with the last bidder
+            for (int i = bidders.size() - 1; i >= 0; i--) {
+                int bidder = reader.indexOfBidder(bidders.get(i).getLongId());
+                Assert.assertEquals(i, bidder);
+                Assert.assertEquals(withoutIds(expected.get(i)), withoutIds(reader.getBids(bidder)));
+                Assert.assertEquals(expected.get(i).get(17).getAmount(), reader.getValue(bidder, 17));
+            }
+        }
+    }
+
+    /**
+     * @return the amount and bundle of every bid, as every {@link BundleValue} has a random id
+     */
+    private static List<List<Object>> withoutIds(List<BundleValue> bids) {
+        return bids.stream().map(bid -> Arrays.<Object>asList(bid.getAmount(), bid.getBundle())).collect(Collectors.toList());
+    }
+}
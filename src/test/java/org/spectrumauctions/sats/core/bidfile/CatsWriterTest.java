@@ -5,17 +5,24 @@
  */
 package org.spectrumauctions.sats.core.bidfile;
 
+import org.junit.Assert;
 import org.junit.Test;
 import org.spectrumauctions.sats.core.bidlang.BiddingLanguage;
 import org.spectrumauctions.sats.core.bidlang.xor.CatsXOR;
+import org.spectrumauctions.sats.core.model.License;
 import org.spectrumauctions.sats.core.model.UnsupportedBiddingLanguageException;
 import org.spectrumauctions.sats.core.model.cats.CATSBidder;
 import org.spectrumauctions.sats.core.model.cats.CATSRegionModel;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Random;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static org.junit.Assert.fail;
@@ -55,4 +62,35 @@ public class CatsWriterTest extends BidFileWriter {
         System.out.println(file.toPath().toString());
     }
 
+    @Test
+    public void testHeaderIsPatchedWithNumberOfBids() throws IOException, UnsupportedBiddingLanguageException {
+        CatsExporter exporter = new CatsExporter(new File(EXPORT_TEST_FOLDER_NAME));
+        CATSRegionModel model = new CATSRegionModel();
+        model.setNumberOfBidders(3);
+        List<CATSBidder> bidders = model.createNewWorldAndPopulation(21321469L);
+        Collection<BiddingLanguage> langs = new ArrayList<>();
+        for (CATSBidder bidder : bidders) {
+            langs.add(bidder.getValueFunction(CatsXOR.class, 1L));
+        }
+        File file = exporter.writeMultiBidderXOR(langs, 20, "TestHeader_");
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        long bidLines = lines.stream().filter(l -> l.endsWith("#")).count();
+        String bidsLine = lines.stream().filter(l -> l.startsWith("bids ")).findFirst().orElseThrow(AssertionError::new);
+        // Padded with leading zeros, without any spaces
+        Assert.assertEquals(bidLines, Long.parseLong(bidsLine.substring(5)));
+        Assert.assertTrue(lines.contains("dummy 3"));
+        int numberOfGoods = bidders.get(0).getWorld().getNumberOfGoods();
+        Set<Long> licenseIds = bidders.get(0).getWorld().getLicenses().stream().map(License::getLongId).collect(Collectors.toSet());
+        Assert.assertTrue(lines.contains("goods " + numberOfGoods));
+        for (String line : lines) {
+            if (!line.endsWith("#")) continue;
+            String[] tokens = line.split("\t");
+            // id, value, licenses, dummy good, #
+            Assert.assertTrue(tokens.length >= 5);
+            for (int i = 2; i < tokens.length - 2; i++) {
+                Assert.assertTrue(licenseIds.contains(Long.parseLong(tokens[i])));
+            }
+            Assert.assertTrue(Integer.parseInt(tokens[tokens.length - 2]) < 0);
+        }
+    }
 }
@@ -0,0 +1,102 @@
+/**
+ * Copyright by Michael Weiss, weiss.michael@gmx.ch
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.spectrumauctions.sats.core.bidfile;
+
+import com.google.common.io.ByteStreams;
+import org.junit.Assert;
+import org.junit.Test;
+import org.spectrumauctions.sats.core.bidlang.BiddingLanguage;
+import org.spectrumauctions.sats.core.bidlang.xor.SizeBasedUniqueRandomXOR;
+import org.spectrumauctions.sats.core.model.UnsupportedBiddingLanguageException;
+import org.spectrumauctions.sats.core.model.gsvm.GSVMBidder;
+import org.spectrumauctions.sats.core.model.gsvm.GlobalSynergyValueModel;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * @author Michael Weiss
+ */
+public class CompressedBidFileTest {
+
+    public static String EXPORT_TEST_FOLDER_NAME = "CATSEXPORT_TESTFILES (AUTODELETED FOLDER)";
+
+    private static final List<GSVMBidder> BIDDERS = new GlobalSynergyValueModel().createNewWorldAndPopulation(81L);
+
+    private static List<BiddingLanguage> languages(long seed, int bidsPerBidder) throws UnsupportedBiddingLanguageException {
+        List<BiddingLanguage> languages = new ArrayList<>();
+        for (GSVMBidder bidder : BIDDERS) {
+            SizeBasedUniqueRandomXOR lang = bidder.getValueFunction(SizeBasedUniqueRandomXOR.class, seed);
+            lang.setIterations(bidsPerBidder);
+            languages.add(lang);
+        }
+        return languages;
+    }
+
+    @Test
+    public void testCompressedFilesEqualUncompressedFiles() throws IOException, UnsupportedBiddingLanguageException {
+        for (FileWriter exporter : new FileWriter[]{new CatsExporter(new File(EXPORT_TEST_FOLDER_NAME)),
+                new JsonExporter(new File(EXPORT_TEST_FOLDER_NAME)), new BinaryExporter(new File(EXPORT_TEST_FOLDER_NAME))}) {
+            File plain = exporter.writeMultiBidderXOR(languages(82L, 500), 500, "TestPlain_");
+            exporter.setCompressed(true);
+            File compressed = exporter.writeMultiBidderXOR(languages(82L, 500), 500, "TestCompressed_");
+            Assert.assertTrue(compressed.getName().endsWith(".gz"));
+            Assert.assertTrue(compressed.length() < plain.length());
+            byte[] decompressed;
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(compressed.toPath()))) {
+                decompressed = ByteStreams.toByteArray(in);
+            }
+            byte[] expected = Files.readAllBytes(plain.toPath());
+            if (exporter instanceof CatsExporter) {
+                // The first line contains the creation time
+                expected = withoutFirstLine(expected);
+                decompressed = withoutFirstLine(decompressed);
+            }
+            Assert.assertArrayEquals(expected, decompressed);
+        }
+    }
+
+    private static byte[] withoutFirstLine(byte[] bytes) {
+        String content = new String(bytes, StandardCharsets.UTF_8);
+        return content.substring(content.indexOf('\n')).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testArchive() throws IOException, UnsupportedBiddingLanguageException {
+        JsonExporter exporter = new JsonExporter(new File(EXPORT_TEST_FOLDER_NAME));
+        List<BiddingLanguage> languages = languages(83L, 50);
+        // The setting only applies to separate files, the entries of an archive are deflated by the archive
+        exporter.setCompressed(true);
+        File archive = exporter.writeSingleBidderArchive(languages, 50, false, "TestArchive_");
+        Assert.assertTrue(archive.getName().endsWith(".zip"));
+        Set<String> entries = new HashSet<>();
+        try (ZipInputStream zip = new ZipInputStream(Files.newInputStream(archive.toPath()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                entries.add(entry.getName());
+                byte[] content = ByteStreams.toByteArray(zip);
+                Assert.assertTrue(content.length > 0);
+                Assert.assertEquals('[', content[0]);
+            }
+        }
+        Assert.assertEquals(languages.size(), entries.size());
+        Assert.assertTrue(entries.contains("TestArchive_0.json"));
+        Assert.assertTrue(exporter.isCompressed());
+        // The temporary entry files are removed
+        File[] leftovers = exporter.getFolder().listFiles((dir, name) -> name.startsWith("." + archive.getName()));
+        Assert.assertEquals(0, leftovers.length);
+    }
+}
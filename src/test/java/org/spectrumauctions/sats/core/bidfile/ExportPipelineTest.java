@@ -0,0 +1,83 @@
+/**
+ * Copyright by Michael Weiss, weiss.michael@gmx.ch
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.spectrumauctions.sats.core.bidfile;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.spectrumauctions.sats.core.bidlang.BiddingLanguage;
+import org.spectrumauctions.sats.core.bidlang.xor.SizeBasedUniqueRandomXOR;
+import org.spectrumauctions.sats.core.model.UnsupportedBiddingLanguageException;
+import org.spectrumauctions.sats.core.model.gsvm.GSVMBidder;
+import org.spectrumauctions.sats.core.model.gsvm.GlobalSynergyValueModel;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Michael Weiss
+ */
+public class ExportPipelineTest {
+
+    public static String EXPORT_TEST_FOLDER_NAME = "PIPELINE_TESTFILES (AUTODELETED FOLDER)";
+
+    private static final List<GSVMBidder> BIDDERS = new GlobalSynergyValueModel().createNewWorldAndPopulation(91L);
+
+    private static List<BiddingLanguage> languages() throws UnsupportedBiddingLanguageException {
+        List<BiddingLanguage> languages = new ArrayList<>();
+        for (GSVMBidder bidder : BIDDERS) {
+            SizeBasedUniqueRandomXOR lang = bidder.getValueFunction(SizeBasedUniqueRandomXOR.class, 92L);
+            lang.setIterations(300);
+            languages.add(lang);
+        }
+        return languages;
+    }
+
+    @After
+    public void deleteTestFiles() throws IOException {
+        FileUtils.deleteDirectory(new File(EXPORT_TEST_FOLDER_NAME));
+    }
+
+    @Test
+    public void testPipelineWritesTheSameFilesInBidderOrder() throws IOException, UnsupportedBiddingLanguageException {
+        JsonExporter exporter = new JsonExporter(new File(EXPORT_TEST_FOLDER_NAME));
+        String prefix = "TestPipeline_" + System.nanoTime() + "_";
+        List<File> sequential = new ArrayList<>();
+        for (BiddingLanguage lang : languages()) {
+            sequential.add(exporter.writeSingleBidderXOR(lang, 300, prefix + "sequential"));
+        }
+        List<File> pipelined = new ExportPipeline(exporter, 3, 2).writeSingleBidderFiles(languages(), 300, false, prefix + "pipelined");
+
+        Assert.assertEquals(sequential.size(), pipelined.size());
+        for (int i = 0; i < sequential.size(); i++) {
+            Assert.assertEquals(prefix + "pipelined" + i + ".json", pipelined.get(i).getName());
+            Assert.assertArrayEquals(Files.readAllBytes(sequential.get(i).toPath()), Files.readAllBytes(pipelined.get(i).toPath()));
+        }
+        // Allocated names are not handed out again
+        File next = exporter.writeSingleBidderXOR(languages().get(0), 10, prefix + "pipelined");
+        Assert.assertEquals(prefix + "pipelined" + sequential.size() + ".json", next.getName());
+    }
+
+    @Test
+    public void testParallelBidGenerationWritesTheSameFiles() throws IOException, UnsupportedBiddingLanguageException {
+        String prefix = "TestParallel_" + System.nanoTime() + "_";
+        List<FileWriter> writers = new ArrayList<>();
+        writers.add(new JsonExporter(new File(EXPORT_TEST_FOLDER_NAME)));
+        writers.add(new CatsExporter(new File(EXPORT_TEST_FOLDER_NAME)));
+        for (FileWriter writer : writers) {
+            // More bids than in one chunk, such that several chunks are generated
+            int numberOfBids = FileWriter.PARALLEL_CHUNK_SIZE + 44;
+            File sequential = writer.writeSingleBidderXOR(languages().get(0), numberOfBids, prefix + "sequential");
+            writer.setParallelBidGeneration(true);
+            File parallel = writer.writeSingleBidderXOR(languages().get(0), numberOfBids, prefix + "parallel");
+            Assert.assertArrayEquals(Files.readAllBytes(sequential.toPath()), Files.readAllBytes(parallel.toPath()));
+        }
+    }
+}
@@ -5,9 +5,20 @@
  */
 package org.spectrumauctions.sats.core.bidfile;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import org.junit.Assert;
 import org.junit.Test;
+import org.spectrumauctions.sats.core.bidlang.generic.SizeOrderedPowerset.GenericPowersetIncreasing;
+import org.spectrumauctions.sats.core.model.UnsupportedBiddingLanguageException;
+import org.spectrumauctions.sats.core.model.bvm.BMBidder;
+import org.spectrumauctions.sats.core.model.bvm.bvm.BaseValueModel;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 
 /**
  * @author Michael Weiss
@@ -41,4 +52,20 @@ public class JSONWriterTest extends BidFileWriter {
         JsonExporter exporter = new JsonExporter(new File(EXPORT_TEST_FOLDER_NAME));
         super.testSingleBidderXORQ(exporter);
     }
+
+    @Test
+    public void testCompactAndPrettyOutputAreEquivalent() throws IOException, UnsupportedBiddingLanguageException {
+        BMBidder bidder = new BaseValueModel().createNewWorldAndPopulation(0L).get(0);
+        GenericPowersetIncreasing lang = bidder.getValueFunction(GenericPowersetIncreasing.class, 1L);
+        JsonExporter exporter = new JsonExporter(new File(EXPORT_TEST_FOLDER_NAME));
+        String compact = new String(Files.readAllBytes(exporter.writeSingleBidderXORQ(lang, 100, "TestCompact_").toPath()), StandardCharsets.UTF_8);
+        exporter.setPrettyPrinting(true);
+        String pretty = new String(Files.readAllBytes(exporter.writeSingleBidderXORQ(lang, 100, "TestPretty_").toPath()), StandardCharsets.UTF_8);
+        Assert.assertFalse(compact.contains("\n"));
+        Assert.assertTrue(pretty.contains("\n"));
+        JsonElement parsed = new JsonParser().parse(compact);
+        Assert.assertEquals(parsed, new JsonParser().parse(pretty));
+        JsonArray bids = parsed.getAsJsonArray();
+        Assert.assertEquals(100, bids.size());
+    }
 }
@@ -0,0 +1,133 @@
+package org.spectrumauctions.sats.core.bidlang;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.marketdesignresearch.mechlib.core.bidder.valuefunction.BundleValue;
+import org.spectrumauctions.sats.core.bidlang.generic.SimpleRandomOrder.XORQRandomOrderSimple;
+import org.spectrumauctions.sats.core.bidlang.generic.SizeOrderedPowerset.GenericPowersetDecreasing;
+import org.spectrumauctions.sats.core.bidlang.generic.SizeOrderedPowerset.GenericPowersetIncreasing;
+import org.spectrumauctions.sats.core.bidlang.xor.DecreasingSizeOrderedXOR;
+import org.spectrumauctions.sats.core.bidlang.xor.IncreasingSizeOrderedXOR;
+import org.spectrumauctions.sats.core.bidlang.xor.SizeBasedUniqueRandomXOR;
+import org.spectrumauctions.sats.core.model.UnsupportedBiddingLanguageException;
+import org.spectrumauctions.sats.core.model.bvm.BMBidder;
+import org.spectrumauctions.sats.core.model.bvm.mbvm.MultiBandValueModel;
+import org.spectrumauctions.sats.core.model.gsvm.GSVMBidder;
+import org.spectrumauctions.sats.core.model.gsvm.GlobalSynergyValueModel;
+import org.spectrumauctions.sats.core.model.mrvm.MRVMBidder;
+import org.spectrumauctions.sats.core.model.mrvm.MultiRegionModel;
+import org.spectrumauctions.sats.core.model.srvm.SRVMBidder;
+import org.spectrumauctions.sats.core.model.srvm.SingleRegionModel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Checks that parallel bid streams return the same bids as the iterators of the languages.
+ */
+public class BiddingLanguageStreamTest {
+
+    @Test
+    public void testSizeOrderedXOR() {
+        GSVMBidder bidder = new GlobalSynergyValueModel().createNewWorldAndPopulation(61L).get(0);
+        assertStreamMatchesIterator(new IncreasingSizeOrderedXOR(bidder.getWorld().getLicenses().subList(0, 11), bidder), 1500);
+        assertStreamMatchesIterator(new DecreasingSizeOrderedXOR(bidder.getWorld().getLicenses().subList(0, 11), bidder), 1500);
+        // More bids than bundles
+        assertStreamMatchesIterator(new IncreasingSizeOrderedXOR(bidder.getWorld().getLicenses().subList(0, 8), bidder), 1000);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testGenericPowerset() throws UnsupportedBiddingLanguageException {
+        BMBidder bmBidder = new MultiBandValueModel().createNewWorldAndPopulation(62L).get(0);
+        assertStreamMatchesIterator(bmBidder.getValueFunction(GenericPowersetIncreasing.class, 63L), 2400);
+        assertStreamMatchesIterator(bmBidder.getValueFunction(GenericPowersetDecreasing.class, 63L), 1000);
+        SRVMBidder srvmBidder = new SingleRegionModel().createNewWorldAndPopulation(64L).get(0);
+        assertStreamMatchesIterator(srvmBidder.getValueFunction(GenericPowersetIncreasing.class, 65L), 500);
+
+        // A new language is streamed first, such that its engine indices are set up by the parallel workers
+        MRVMBidder mrvmBidder = new MultiRegionModel().createNewWorldAndPopulation(70L).get(0);
+        mrvmBidder.setUseValuationEngine(true);
+        List<BundleValue> streamed = mrvmBidder.getValueFunction(GenericPowersetIncreasing.class, 71L)
+                .stream(2000, true).collect(Collectors.toList());
+        BiddingLanguage lang = mrvmBidder.getValueFunction(GenericPowersetIncreasing.class, 71L);
+        Assert.assertEquals(withoutIds(first(lang.iterator(), 2000)), withoutIds(streamed));
+    }
+
+    @Test
+    public void testUniqueRandomLanguages() throws UnsupportedBiddingLanguageException {
+        GSVMBidder gsvmBidder = new GlobalSynergyValueModel().createNewWorldAndPopulation(66L).get(0);
+        SizeBasedUniqueRandomXOR xor = gsvmBidder.getValueFunction(SizeBasedUniqueRandomXOR.class, 67L);
+        xor.setIterations(3000);
+        List<BundleValue> streamed = xor.stream(3000, true).collect(Collectors.toList());
+        xor = gsvmBidder.getValueFunction(SizeBasedUniqueRandomXOR.class, 67L);
+        xor.setIterations(3000);
+        Assert.assertEquals(withoutIds(first(xor.iterator(), 3000)), withoutIds(streamed));
+        xor = gsvmBidder.getValueFunction(SizeBasedUniqueRandomXOR.class, 67L);
+        xor.setIterations(3000);
+        Assert.assertEquals(withoutIds(streamed), withoutIds(first(
+                BidSpliterators.inParallelChunks(xor.spliterator(3000), 100), Integer.MAX_VALUE)));
+
+        // Unlike SRVM and BM, MRVM seeds its XOR-Q language with the given seed
+        MRVMBidder mrvmBidder = new MultiRegionModel().createNewWorldAndPopulation(68L).get(0);
+        XORQRandomOrderSimple xorq = mrvmBidder.getValueFunction(XORQRandomOrderSimple.class, 69L);
+        xorq.setIterations(400);
+        streamed = xorq.stream(400, true).collect(Collectors.toList());
+        xorq = mrvmBidder.getValueFunction(XORQRandomOrderSimple.class, 69L);
+        xorq.setIterations(400);
+        Assert.assertEquals(withoutIds(first(xorq.iterator(), 400)), withoutIds(streamed));
+    }
+
+    private static void assertStreamMatchesIterator(BiddingLanguage lang, int numberOfBids) {
+        List<List<Object>> expected = withoutIds(first(lang.iterator(), numberOfBids));
+        Assert.assertEquals(expected, withoutIds(lang.stream(numberOfBids, true).collect(Collectors.toList())));
+        Assert.assertEquals(expected, withoutIds(lang.stream(numberOfBids, false).collect(Collectors.toList())));
+        Assert.assertEquals(expected, withoutIds(first(
+                BidSpliterators.inParallelChunks(lang.spliterator(numberOfBids), 100), Integer.MAX_VALUE)));
+    }
+
+    @Test
+    public void chunksShouldOnlyGenerateTheirBids() {
+        GSVMBidder bidder = new GlobalSynergyValueModel().createNewWorldAndPopulation(72L).get(0);
+        IncreasingSizeOrderedXOR lang = new IncreasingSizeOrderedXOR(bidder.getWorld().getLicenses().subList(0, 11), bidder);
+        int[] generated = new int[1];
+        Iterator<BundleValue> bids = BidSpliterators.inParallelChunks(BidSpliterators.ofIterator(new Iterator<BundleValue>() {
+            private final Iterator<BundleValue> bids = lang.iterator();
+
+            @Override
+            public boolean hasNext() {
+                return bids.hasNext();
+            }
+
+            @Override
+            public BundleValue next() {
+                generated[0]++;
+                return bids.next();
+            }
+        }, 2000), 100);
+        List<BundleValue> chunk = first(bids, 100);
+        Assert.assertEquals(100, chunk.size());
+        // The drawn bids are handed off in batches, which are bounded independently of the number of bids
+        Assert.assertTrue(generated[0] + " bids were generated for the first chunk", generated[0] < 2000);
+        chunk.addAll(first(bids, Integer.MAX_VALUE));
+        Assert.assertEquals(withoutIds(first(lang.iterator(), 2000)), withoutIds(chunk));
+    }
+
+    private static List<BundleValue> first(Iterator<BundleValue> iterator, int numberOfBids) {
+        List<BundleValue> bids = new ArrayList<>();
+        while (iterator.hasNext() && bids.size() < numberOfBids) {
+            bids.add(iterator.next());
+        }
+        return bids;
+    }
+
+    /**
+     * @return the amount and bundle of every bid, as every {@link BundleValue} has a random id
+     */
+    static List<List<Object>> withoutIds(List<BundleValue> bids) {
+        return bids.stream().map(bid -> Arrays.<Object>asList(bid.getAmount(), bid.getBundle())).collect(Collectors.toList());
+    }
+}
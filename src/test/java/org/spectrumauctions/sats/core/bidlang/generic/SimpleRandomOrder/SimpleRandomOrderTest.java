@@ -57,6 +57,26 @@ public class SimpleRandomOrderTest {
         }
     }
 
+    @Test
+    public void testDuplicateCountersAndRetryBudget() throws UnsupportedBiddingLanguageException {
+        SATSBidder bidder = new SingleRegionModel().createNewWorldAndPopulation().stream().findAny().orElseThrow(NoSuchElementException::new);
+        XORQRandomOrderSimple valueFunction = bidder.getValueFunction(XORQRandomOrderSimple.class);
+        valueFunction.setIterations(5000);
+        Set<BundleValue> bids = createBids(valueFunction.iterator());
+        Assert.assertEquals((int) (0.8 * (6 * 9 * 14 + 1)), bids.size());
+        Assert.assertEquals(bids.size() + valueFunction.getDuplicates(), valueFunction.getCandidates());
+        Assert.assertTrue(valueFunction.getDuplicateRate() > 0);
+
+        // Without retries, the iterator stops at the first duplicate
+        XORQRandomOrderSimple noRetries = bidder.getValueFunction(XORQRandomOrderSimple.class);
+        noRetries.setIterations(5000);
+        noRetries.setMaxRetries(0);
+        Set<BundleValue> fewerBids = createBids(noRetries.iterator());
+        Assert.assertTrue(fewerBids.size() < bids.size());
+        Assert.assertEquals(1, noRetries.getDuplicates());
+        Assert.assertEquals(fewerBids.size() + 1, noRetries.getCandidates());
+    }
+
     @Test
     public void testMRMSimpleRandomLarge() {
         SATSBidder bidder = new MultiRegionModel().createNewWorldAndPopulation().stream().findAny().orElseThrow(NoSuchElementException::new);
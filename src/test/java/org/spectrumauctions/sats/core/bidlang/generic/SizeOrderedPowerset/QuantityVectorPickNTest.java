@@ -0,0 +1,69 @@
+/**
+ * Copyright by Michael Weiss, weiss.michael@gmx.ch
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.spectrumauctions.sats.core.bidlang.generic.SizeOrderedPowerset;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class QuantityVectorPickNTest {
+
+    /**
+     * Enumerates all vectors with the given sum in decreasing lexicographic order, most significant position last
+     */
+    private static void bruteForce(int[] max, int position, int remaining, int[] current, List<int[]> result) {
+        if (position < 0) {
+            if (remaining == 0) {
+                result.add(current.clone());
+            }
+            return;
+        }
+        for (int q = Math.min(max[position], remaining); q >= 0; q--) {
+            current[position] = q;
+            bruteForce(max, position - 1, remaining - q, current, result);
+        }
+        current[position] = 0;
+    }
+
+    @Test
+    public void testOrderMatchesBruteForce() {
+        int[] max = {2, 0, 3, 1, 2};
+        QuantityVectorPickN pickN = new QuantityVectorPickN(max, 1);
+        for (int target = 1; target <= 9; target++) {
+            List<int[]> expected = new ArrayList<>();
+            bruteForce(max, max.length - 1, target, new int[max.length], expected);
+            pickN.reset(target);
+            int count = 0;
+            int[] previous = null;
+            while (pickN.hasNext()) {
+                int[] quantities = pickN.next();
+                if (previous != null) {
+                    Assert.assertSame("Vector must be changed in place", previous, quantities);
+                }
+                previous = quantities;
+                Assert.assertArrayEquals("Target " + target + ", vector " + count, expected.get(count), quantities);
+                count++;
+            }
+            Assert.assertEquals(expected.size(), count);
+        }
+        pickN.reset(10);
+        Assert.assertFalse(pickN.hasNext());
+    }
+
+    @Test
+    public void testSameOrderAsGenericSetsPickN() {
+        QuantityVectorPickN pickN = new QuantityVectorPickN(new int[]{1, 2, 2}, 2);
+        List<String> sequence = new ArrayList<>();
+        while (pickN.hasNext()) {
+            sequence.add(Arrays.toString(pickN.next()));
+        }
+        // The last position has the highest priority
+        Assert.assertEquals(Arrays.asList("[0, 0, 2]", "[0, 1, 1]", "[1, 0, 1]", "[0, 2, 0]", "[1, 1, 0]"), sequence);
+    }
+}
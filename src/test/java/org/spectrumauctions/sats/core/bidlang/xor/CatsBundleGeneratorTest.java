@@ -0,0 +1,184 @@
+/**
+ * Copyright by Michael Weiss, weiss.michael@gmx.ch
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.spectrumauctions.sats.core.bidlang.xor;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.spectrumauctions.sats.core.model.cats.CATSBidder;
+import org.spectrumauctions.sats.core.model.cats.CATSLicense;
+import org.spectrumauctions.sats.core.model.cats.CATSRegionModel;
+import org.spectrumauctions.sats.core.model.cats.CATSWorld;
+import org.spectrumauctions.sats.core.util.random.JavaUtilRNGSupplier;
+import org.spectrumauctions.sats.core.util.random.UniformDistributionRNG;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * @author Michael Weiss
+ */
+public class CatsBundleGeneratorTest {
+
+    private static final int BUNDLES = 2000;
+
+    private static CATSRegionModel model() {
+        CATSRegionModel model = new CATSRegionModel();
+        model.setNumberOfGoods(64);
+        return model;
+    }
+
+    /**
+     * The goods of the bundles are drawn with the same random numbers as by the original implementation of
+     * {@link CatsXOR}, which filtered the frontier out of all goods and drew from their cumulative weights.
+     * Thus, the bundles are not only equally distributed, but the same for a fixed seed.
+     */
+    @Test
+    public void shouldReproduceTheOriginalBundles() {
+        CATSBidder bidder = model().createNewWorldAndPopulation(4432L).get(0);
+        CATSWorld world = bidder.getWorld();
+        List<CATSLicense> goods = new ArrayList<>(world.getLicenses());
+
+        UniformDistributionRNG uniRng = new JavaUtilRNGSupplier(4433L).getUniformDistributionRNG();
+        CatsBundleGenerator generator = new CatsBundleGenerator(goods, bidder, world, uniRng);
+        OriginalBundleGenerator original = new OriginalBundleGenerator(goods, bidder, world,
+                new JavaUtilRNGSupplier(4433L).getUniformDistributionRNG());
+        for (int i = 0; i < BUNDLES; i++) {
+            generator.clear();
+            generator.add(generator.drawWeighted());
+            while (generator.bundleSize() < generator.numberOfGoods()
+                    && uniRng.nextDouble() <= world.getAdditionalLocation()) {
+                int next = generator.selectGoodToAdd();
+                if (next < 0) break;
+                generator.add(next);
+            }
+            Assert.assertEquals("Bundle " + i, original.nextBundle(), generator.getBundleBits());
+        }
+    }
+
+    /**
+     * Many bundles constructed before must not change how the next one is constructed
+     */
+    @Test
+    public void clearShouldResetTheFrontier() {
+        CATSBidder bidder = model().createNewWorldAndPopulation(4434L).get(0);
+        CATSWorld world = bidder.getWorld();
+        List<CATSLicense> goods = new ArrayList<>(world.getLicenses());
+        CatsBundleGenerator fresh = new CatsBundleGenerator(goods, bidder, world,
+                new JavaUtilRNGSupplier(4435L).getUniformDistributionRNG());
+        CatsBundleGenerator used = new CatsBundleGenerator(goods, bidder, world,
+                new JavaUtilRNGSupplier(4435L).getUniformDistributionRNG());
+        Random random = new Random(4436L);
+        for (int cycle = 0; cycle < BUNDLES; cycle++) {
+            for (int i = 0; i < 10; i++) {
+                used.add(random.nextInt(goods.size()));
+            }
+            used.clear();
+        }
+        for (int i = 0; i < 100; i++) {
+            fresh.clear();
+            used.clear();
+            int first = random.nextInt(goods.size());
+            fresh.add(first);
+            used.add(first);
+            while (fresh.bundleSize() < 5) {
+                int next = fresh.selectGoodToAdd();
+                Assert.assertEquals(next, used.selectGoodToAdd());
+                if (next < 0) break;
+                fresh.add(next);
+                used.add(next);
+            }
+        }
+    }
+
+    /**
+     * The bundle construction of the original implementation, with the draws of the random numbers in the same order.
+     * Unlike the original, a good with zero weight is only drawn if all candidates have zero weight (the original kept
+     * the goods in a map from cumulative weights to goods, where a good with zero weight replaced its predecessor).
+     */
+    private static final class OriginalBundleGenerator {
+        private final List<CATSLicense> goods;
+        private final CATSBidder bidder;
+        private final CATSWorld world;
+        private final UniformDistributionRNG uniRng;
+        private final double minValue;
+
+        private OriginalBundleGenerator(List<CATSLicense> goods, CATSBidder bidder, CATSWorld world,
+                                        UniformDistributionRNG uniRng) {
+            this.goods = goods;
+            this.bidder = bidder;
+            this.world = world;
+            this.uniRng = uniRng;
+            this.minValue = bidder.getPrivateValues().values().stream()
+                    .mapToDouble(BigDecimal::doubleValue).min().orElse(1e10);
+        }
+
+        private BitSet nextBundle() {
+            BitSet bundle = new BitSet(goods.size());
+            List<Integer> all = new ArrayList<>();
+            for (int i = 0; i < goods.size(); i++) {
+                all.add(i);
+            }
+            bundle.set(drawWeighted(all));
+            while (bundle.cardinality() < goods.size() && uniRng.nextDouble() <= world.getAdditionalLocation()) {
+                int next = selectGoodToAdd(bundle);
+                if (next < 0) break;
+                bundle.set(next);
+            }
+            return bundle;
+        }
+
+        private int selectGoodToAdd(BitSet bundle) {
+            if (uniRng.nextDouble() <= world.getJumpProbability()) {
+                if (goods.size() == bundle.cardinality()) return -1;
+                int randomGood;
+                do {
+                    randomGood = uniRng.nextInt(goods.size());
+                } while (bundle.get(randomGood));
+                return randomGood;
+            }
+            List<Integer> neighbors = new ArrayList<>();
+            for (int i = 0; i < goods.size(); i++) {
+                if (!bundle.get(i) && edgeExists(i, bundle)) {
+                    neighbors.add(i);
+                }
+            }
+            return neighbors.isEmpty() ? -1 : drawWeighted(neighbors);
+        }
+
+        private boolean edgeExists(int good, BitSet bundle) {
+            for (int i = bundle.nextSetBit(0); i >= 0; i = bundle.nextSetBit(i + 1)) {
+                if (world.getGrid().isAdjacent(goods.get(good).getVertex(), goods.get(i).getVertex())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int drawWeighted(List<Integer> candidates) {
+            double total = 0;
+            for (int candidate : candidates) {
+                total += weight(candidate);
+            }
+            double value = uniRng.nextDouble() * total;
+            double cumulative = 0;
+            for (int candidate : candidates) {
+                cumulative += weight(candidate);
+                if (weight(candidate) > 0 && cumulative >= value) {
+                    return candidate;
+                }
+            }
+            // All candidates have zero weight, in which case the original drew the last one
+            return candidates.get(candidates.size() - 1);
+        }
+
+        private double weight(int good) {
+            return bidder.getPrivateValues().get(goods.get(good).getLongId()).doubleValue() - minValue;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.spectrumauctions.sats.core.bidlang.xor;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.marketdesignresearch.mechlib.core.Bundle;
+import org.marketdesignresearch.mechlib.core.bidder.valuefunction.BundleValue;
+import org.spectrumauctions.sats.core.model.gsvm.GSVMBidder;
+import org.spectrumauctions.sats.core.model.gsvm.GlobalSynergyValueModel;
+import org.spectrumauctions.sats.core.util.random.JavaUtilRNGSupplier;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+public class SizeBasedUniqueRandomXORTest {
+
+    @Test
+    public void testAllBundlesAreUnique() {
+        GSVMBidder bidder = new GlobalSynergyValueModel().createNewWorldAndPopulation(41L).get(0);
+        SizeBasedUniqueRandomXOR xor = new SizeBasedUniqueRandomXOR(bidder.getWorld().getLicenses().subList(0, 8),
+                new JavaUtilRNGSupplier(42L), bidder);
+        xor.setDistribution(4, 2);
+        xor.setIterations((1 << 8) - 1);
+        Set<Bundle> bundles = new HashSet<>();
+        Iterator<BundleValue> iterator = xor.iterator();
+        while (iterator.hasNext()) {
+            Assert.assertTrue(bundles.add(iterator.next().getBundle()));
+        }
+        Assert.assertEquals((1 << 8) - 1, bundles.size());
+    }
+
+    @Test
+    public void testManyBids() {
+        GSVMBidder bidder = new GlobalSynergyValueModel().createNewWorldAndPopulation(43L).get(0);
+        SizeBasedUniqueRandomXOR xor = new SizeBasedUniqueRandomXOR(bidder.getWorld().getLicenses(),
+                new JavaUtilRNGSupplier(44L), bidder);
+        xor.setIterations(20000);
+        Set<Bundle> bundles = new HashSet<>();
+        Iterator<BundleValue> iterator = xor.iterator();
+        while (iterator.hasNext()) {
+            Assert.assertTrue(bundles.add(iterator.next().getBundle()));
+        }
+        Assert.assertEquals(20000, bundles.size());
+    }
+
+    @Test
+    public void testMoreIterationsThanBundles() {
+        GSVMBidder bidder = new GlobalSynergyValueModel().createNewWorldAndPopulation(47L).get(0);
+        SizeBasedUniqueRandomXOR xor = new SizeBasedUniqueRandomXOR(bidder.getWorld().getLicenses().subList(0, 4),
+                new JavaUtilRNGSupplier(48L), bidder);
+        xor.setDistribution(2, 2);
+        xor.setIterations(100);
+        Set<Bundle> bundles = new HashSet<>();
+        Iterator<BundleValue> iterator = xor.iterator();
+        while (iterator.hasNext()) {
+            Assert.assertTrue(bundles.add(iterator.next().getBundle()));
+        }
+        Assert.assertEquals((1 << 4) - 1, bundles.size());
+        // The spliterator used by parallel streams and bid exports ends as well
+        Assert.assertEquals((1 << 4) - 1, xor.stream(100, true).count());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testExhaustedDistribution() {
+        GSVMBidder bidder = new GlobalSynergyValueModel().createNewWorldAndPopulation(45L).get(0);
+        SizeBasedUniqueRandomXOR xor = new SizeBasedUniqueRandomXOR(bidder.getWorld().getLicenses().subList(0, 4),
+                new JavaUtilRNGSupplier(46L), bidder);
+        // Only bundles of size 2 are drawn, of which there are 6
+        xor.setDistribution(2, 0);
+        xor.setIterations(7);
+        Iterator<BundleValue> iterator = xor.iterator();
+        for (int i = 0; i < 6; i++) {
+            Assert.assertEquals(2, iterator.next().getBundle().getBundleEntries().size());
+        }
+        iterator.next();
+    }
+}
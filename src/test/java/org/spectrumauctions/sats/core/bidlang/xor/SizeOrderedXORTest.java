@@ -0,0 +1,111 @@
+package org.spectrumauctions.sats.core.bidlang.xor;
+
+import com.google.common.math.BigIntegerMath;
+import org.junit.Assert;
+import org.junit.Test;
+import org.marketdesignresearch.mechlib.core.Bundle;
+import org.marketdesignresearch.mechlib.core.bidder.valuefunction.BundleValue;
+import org.spectrumauctions.sats.core.model.gsvm.GSVMBidder;
+import org.spectrumauctions.sats.core.model.gsvm.GlobalSynergyValueModel;
+import org.spectrumauctions.sats.core.model.mrvm.MRVMBidder;
+import org.spectrumauctions.sats.core.model.mrvm.MultiRegionModel;
+import org.spectrumauctions.sats.core.util.math.Combinations;
+
+import java.math.BigInteger;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+public class SizeOrderedXORTest {
+
+    @Test
+    public void testPackageRepresentationMatchesRecursiveDefinition() {
+        int n = 8;
+        for (int index = 1; index < (1 << n); index++) {
+            BigInteger bigIndex = BigInteger.valueOf(index);
+            BigInteger sizeStart = BigInteger.ZERO;
+            int size = 0;
+            while (sizeStart.add(BigIntegerMath.binomial(n, size + 1)).compareTo(bigIndex) < 0) {
+                size++;
+                sizeStart = sizeStart.add(BigIntegerMath.binomial(n, size));
+            }
+            String expected = recBinaryString(bigIndex.subtract(sizeStart), n, size + 1).toString();
+            Assert.assertEquals(expected, SizeOrderedXOR.packageRepresentation(bigIndex, n).toString());
+        }
+    }
+
+    @Test
+    public void testExhaustiveIteratorsFollowIndexOrder() {
+        GSVMBidder bidder = new GlobalSynergyValueModel().createNewWorldAndPopulation(31L).get(0);
+        SizeOrderedXOR increasing = new IncreasingSizeOrderedXOR(bidder.getWorld().getLicenses().subList(0, 10), bidder);
+        SizeOrderedXOR decreasing = new DecreasingSizeOrderedXOR(bidder.getWorld().getLicenses().subList(0, 10), bidder);
+        Set<Bundle> seen = new HashSet<>();
+        Iterator<BundleValue> iterator = increasing.iterator();
+        for (int index = 1; index < (1 << 10); index++) {
+            Bundle bundle = iterator.next().getBundle();
+            Assert.assertEquals(increasing.getBundle(BigInteger.valueOf(index)), bundle);
+            seen.add(bundle);
+        }
+        Assert.assertFalse(iterator.hasNext());
+        Assert.assertEquals((1 << 10) - 1, seen.size());
+
+        iterator = decreasing.iterator();
+        for (int index = (1 << 10) - 1; index > 0; index--) {
+            Assert.assertEquals(decreasing.getBundle(BigInteger.valueOf(index)), iterator.next().getBundle());
+        }
+        Assert.assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testIteratorsForMoreThan64Goods() {
+        MRVMBidder bidder = new MultiRegionModel().createNewWorldAndPopulation(32L).get(0);
+        int n = bidder.getWorld().getLicenses().size();
+        Assert.assertTrue(n > 64);
+        SizeOrderedXOR increasing = new IncreasingSizeOrderedXOR(bidder.getWorld().getLicenses(), bidder);
+        Iterator<BundleValue> iterator = increasing.iterator();
+        for (int index = 1; index < 3 * n; index++) {
+            Assert.assertEquals(increasing.getBundle(BigInteger.valueOf(index)), iterator.next().getBundle());
+        }
+        SizeOrderedXOR decreasing = new DecreasingSizeOrderedXOR(bidder.getWorld().getLicenses(), bidder);
+        iterator = decreasing.iterator();
+        BigInteger index = BigInteger.ONE.shiftLeft(n).subtract(BigInteger.ONE);
+        for (int i = 0; i < 3 * n; i++) {
+            Assert.assertEquals(decreasing.getBundle(index), iterator.next().getBundle());
+            index = index.subtract(BigInteger.ONE);
+        }
+    }
+
+    @Test
+    public void testRankUnrank() {
+        Combinations combinations = new Combinations(12);
+        for (int k = 1; k <= 12; k++) {
+            int[] positions = combinations.unrank(BigInteger.ONE, k);
+            BigInteger rank = BigInteger.ONE;
+            do {
+                Assert.assertEquals(rank, combinations.rank(positions));
+                Assert.assertArrayEquals(positions, combinations.unrank(rank, k));
+                rank = rank.add(BigInteger.ONE);
+            } while (Combinations.nextCombination(positions, 12));
+            Assert.assertEquals(combinations.binomial(12, k).add(BigInteger.ONE), rank);
+        }
+    }
+
+    /**
+     * The original, recursive definition of the bundle representation
+     */
+    private static StringBuilder recBinaryString(BigInteger sizeBasedIndex, int n, int k) {
+        if (n == 0) {
+            return new StringBuilder();
+        }
+        if (k == 0) {
+            return new StringBuilder("0").append(recBinaryString(sizeBasedIndex, n - 1, 0));
+        }
+        BigInteger bin = BigIntegerMath.binomial(n, k);
+        BigInteger biggestOneStarterIndex = bin.multiply(BigInteger.valueOf(k)).divide(BigInteger.valueOf(n));
+        if (sizeBasedIndex.compareTo(biggestOneStarterIndex) <= 0) {
+            return new StringBuilder("1").append(recBinaryString(sizeBasedIndex, n - 1, k - 1));
+        } else {
+            return new StringBuilder("0").append(recBinaryString(sizeBasedIndex.subtract(biggestOneStarterIndex), n - 1, k));
+        }
+    }
+}
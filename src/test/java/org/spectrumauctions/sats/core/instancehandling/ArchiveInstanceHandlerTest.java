@@ -0,0 +1,329 @@
+/**
+ * Copyright by Michael Weiss, weiss.michael@gmx.ch
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.spectrumauctions.sats.core.instancehandling;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.spectrumauctions.sats.core.model.SATSBidder;
+import org.spectrumauctions.sats.core.model.cats.CATSBidder;
+import org.spectrumauctions.sats.core.model.cats.CATSRegionModel;
+import org.spectrumauctions.sats.core.model.cats.CATSWorld;
+import org.spectrumauctions.sats.core.model.gsvm.GSVMBidder;
+import org.spectrumauctions.sats.core.model.gsvm.GSVMWorld;
+import org.spectrumauctions.sats.core.model.gsvm.GlobalSynergyValueModel;
+import org.spectrumauctions.sats.core.util.file.FileException;
+import org.spectrumauctions.sats.core.util.file.FilePathUtils;
+import org.spectrumauctions.sats.core.util.instancehandling.ArchiveInstanceHandler;
+import org.spectrumauctions.sats.core.util.instancehandling.InstanceHandler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * @author Michael Weiss
+ *
+ */
+public class ArchiveInstanceHandlerTest {
+
+    private InstanceHandler previousHandler;
+    private ArchiveInstanceHandler handler;
+
+    @Before
+    public void setUp() {
+        previousHandler = InstanceHandler.getDefaultHandler();
+        handler = new ArchiveInstanceHandler();
+        InstanceHandler.setDefaultHandler(handler);
+    }
+
+    @After
+    public void tearDown() {
+        InstanceHandler.setDefaultHandler(previousHandler);
+        handler.close();
+    }
+
+    @Test
+    public void populationsShouldBeRestoredFromClosedArchive() {
+        GlobalSynergyValueModel model = new GlobalSynergyValueModel();
+        GSVMWorld world = model.createWorld(3466L);
+        List<GSVMBidder> first = sorted(model.createNewPopulation(world, 2342L));
+        List<GSVMBidder> second = sorted(model.createNewPopulation(world, 8734L));
+        handler.close();
+
+        ArchiveInstanceHandler reopened = new ArchiveInstanceHandler();
+        try {
+            GSVMWorld restoredWorld = reopened.readWorld(GSVMWorld.class, world.getId());
+            Assert.assertEquals(world, restoredWorld);
+            Assert.assertEquals(2, reopened.getPopulationIds(world.getId()).size());
+            Assert.assertEquals(first, reopened.readPopulationWithUnknownTypes(GSVMBidder.class, restoredWorld,
+                    first.get(0).getPopulation()));
+            Assert.assertEquals(second, new ArrayList<>(reopened.readPopulation(GSVMBidder.class, restoredWorld,
+                    second.get(0).getPopulation())));
+            GSVMBidder bidder = second.get(second.size() - 1);
+            Assert.assertEquals(bidder, reopened.readBidder(GSVMBidder.class, restoredWorld, bidder.getPopulation(),
+                    bidder.getLongId()));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    public void archiveWithoutOffsetTableShouldBeScanned() {
+        CATSRegionModel model = new CATSRegionModel();
+        model.setNumberOfGoods(20);
+        List<CATSBidder> population = model.createNewWorldAndPopulation(43223L);
+        CATSWorld world = population.get(0).getWorld();
+
+        // The first handler is not closed, such that the archive has no offset table
+        ArchiveInstanceHandler reopened = new ArchiveInstanceHandler();
+        try {
+            Assert.assertEquals(world, reopened.readWorld(CATSWorld.class, world.getId()));
+            Assert.assertEquals(sorted(population), reopened.readPopulationWithUnknownTypes(CATSBidder.class, world,
+                    population.get(0).getPopulation()));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    public void binaryArchivesShouldBeRestoredAndSmaller() {
+        ArchiveInstanceHandler binaryHandler = new ArchiveInstanceHandler(ArchiveInstanceHandler.Encoding.BINARY);
+        GlobalSynergyValueModel model = new GlobalSynergyValueModel();
+        List<GSVMBidder> population = sorted(model.createNewWorldAndPopulation(62345L));
+        InstanceHandler.setDefaultHandler(binaryHandler);
+        List<GSVMBidder> binaryPopulation;
+        try {
+            binaryPopulation = sorted(model.createNewWorldAndPopulation(62345L));
+        } finally {
+            InstanceHandler.setDefaultHandler(handler);
+            binaryHandler.close();
+        }
+        handler.close();
+        GSVMWorld world = binaryPopulation.get(0).getWorld();
+
+        // The encoding is read from the archive, not taken from the handler
+        ArchiveInstanceHandler reopened = new ArchiveInstanceHandler();
+        try {
+            GSVMWorld restoredWorld = reopened.readWorld(GSVMWorld.class, world.getId());
+            Assert.assertEquals(world, restoredWorld);
+            Assert.assertEquals(binaryPopulation, reopened.readPopulationWithUnknownTypes(GSVMBidder.class,
+                    restoredWorld, binaryPopulation.get(0).getPopulation()));
+        } finally {
+            reopened.close();
+        }
+        FilePathUtils pathUtils = FilePathUtils.getInstance();
+        long jsonSize = pathUtils.worldArchivePath(population.get(0).getWorldId()).length();
+        long binarySize = pathUtils.worldArchivePath(world.getId()).length();
+        // The strings are stored once per archive, such that mainly the numbers remain
+        Assert.assertTrue("Binary archive with " + binarySize + " bytes is not less than half of json with " + jsonSize,
+                2 * binarySize < jsonSize);
+    }
+
+    @Test
+    public void binaryArchivesShouldKeepTheirStringsWhenReopened() {
+        ArchiveInstanceHandler binaryHandler = new ArchiveInstanceHandler(ArchiveInstanceHandler.Encoding.BINARY);
+        InstanceHandler.setDefaultHandler(binaryHandler);
+        GlobalSynergyValueModel model = new GlobalSynergyValueModel();
+        GSVMWorld world;
+        List<GSVMBidder> first;
+        List<GSVMBidder> second;
+        try {
+            world = model.createWorld(5123L);
+            first = sorted(model.createNewPopulation(world, 5124L));
+            binaryHandler.close();
+            // Appended to the reopened archive, with the strings of the first population
+            second = sorted(model.createNewPopulation(world, 5125L));
+        } finally {
+            InstanceHandler.setDefaultHandler(handler);
+            binaryHandler.close();
+        }
+
+        ArchiveInstanceHandler reopened = new ArchiveInstanceHandler();
+        try {
+            GSVMWorld restoredWorld = reopened.readWorld(GSVMWorld.class, world.getId());
+            Assert.assertEquals(world, restoredWorld);
+            Assert.assertEquals(first, reopened.readPopulationWithUnknownTypes(GSVMBidder.class, restoredWorld,
+                    first.get(0).getPopulation()));
+            Assert.assertEquals(second, reopened.readPopulationWithUnknownTypes(GSVMBidder.class, restoredWorld,
+                    second.get(0).getPopulation()));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    public void leastRecentlyUsedArchivesShouldBeClosed() throws IOException {
+        ArchiveInstanceHandler boundedHandler = new ArchiveInstanceHandler(ArchiveInstanceHandler.Encoding.JSON, 2);
+        InstanceHandler.setDefaultHandler(boundedHandler);
+        GlobalSynergyValueModel model = new GlobalSynergyValueModel();
+        List<List<GSVMBidder>> populations = new ArrayList<>();
+        try {
+            for (int i = 0; i < 5; i++) {
+                populations.add(sorted(model.createNewWorldAndPopulation(7823L + i)));
+            }
+            // The first archives were closed when the later ones were opened, so their offset tables are written
+            FilePathUtils pathUtils = FilePathUtils.getInstance();
+            for (int i = 0; i < 3; i++) {
+                File archive = pathUtils.worldArchivePath(populations.get(i).get(0).getWorldId());
+                try (RandomAccessFile file = new RandomAccessFile(archive, "r")) {
+                    file.seek(file.length() - 4);
+                    Assert.assertEquals("SATI", new String(new byte[]{file.readByte(), file.readByte(),
+                            file.readByte(), file.readByte()}, "US-ASCII"));
+                }
+            }
+            // Reopening a closed archive must not hand out an allocated population id again
+            long firstWorldId = populations.get(0).get(0).getWorldId();
+            Assert.assertEquals(1, boundedHandler.getNextPopulationId(firstWorldId));
+            for (int i = 1; i < 5; i++) {
+                boundedHandler.getNextPopulationId(populations.get(i).get(0).getWorldId());
+            }
+            Assert.assertEquals(2, boundedHandler.getNextPopulationId(firstWorldId));
+            for (List<GSVMBidder> population : populations) {
+                GSVMWorld world = population.get(0).getWorld();
+                Assert.assertEquals(world, boundedHandler.readWorld(GSVMWorld.class, world.getId()));
+                Assert.assertEquals(population, boundedHandler.readPopulationWithUnknownTypes(GSVMBidder.class, world,
+                        population.get(0).getPopulation()));
+            }
+        } finally {
+            InstanceHandler.setDefaultHandler(handler);
+            boundedHandler.close();
+        }
+    }
+
+    @Test
+    public void firstVersionArchivesShouldBeReadAndExtended() throws IOException {
+        GlobalSynergyValueModel model = new GlobalSynergyValueModel();
+        GSVMWorld world = model.createWorld(4711L);
+        List<GSVMBidder> first = sorted(model.createNewPopulation(world, 4712L));
+        handler.close();
+
+        // Rewrite the archive with the header of the first version (magic and version, without the encoding)
+        // and without offset table, such that the records are found by scanning them
+        File archive = FilePathUtils.getInstance().worldArchivePath(world.getId());
+        try (RandomAccessFile file = new RandomAccessFile(archive, "rw")) {
+            file.seek(file.length() - 12);
+            long tableOffset = file.readLong();
+            byte[] records = new byte[(int) tableOffset - 12];
+            file.seek(12);
+            file.readFully(records);
+            file.setLength(0);
+            file.writeInt(0x53415441);
+            file.writeInt(1);
+            file.write(records);
+        }
+
+        ArchiveInstanceHandler reopened = new ArchiveInstanceHandler(ArchiveInstanceHandler.Encoding.BINARY);
+        InstanceHandler.setDefaultHandler(reopened);
+        List<GSVMBidder> second;
+        try {
+            GSVMWorld restoredWorld = reopened.readWorld(GSVMWorld.class, world.getId());
+            Assert.assertEquals(world, restoredWorld);
+            Assert.assertEquals(first, reopened.readPopulationWithUnknownTypes(GSVMBidder.class, restoredWorld,
+                    first.get(0).getPopulation()));
+            // Appended as json records in the layout of the first version
+            second = sorted(model.createNewPopulation(restoredWorld, 4713L));
+        } finally {
+            InstanceHandler.setDefaultHandler(handler);
+            reopened.close();
+        }
+        try (RandomAccessFile file = new RandomAccessFile(archive, "r")) {
+            file.seek(4);
+            Assert.assertEquals(1, file.readInt());
+        }
+        reopened = new ArchiveInstanceHandler();
+        try {
+            GSVMWorld restoredWorld = reopened.readWorld(GSVMWorld.class, world.getId());
+            Assert.assertEquals(first, reopened.readPopulationWithUnknownTypes(GSVMBidder.class, restoredWorld,
+                    first.get(0).getPopulation()));
+            Assert.assertEquals(second, reopened.readPopulationWithUnknownTypes(GSVMBidder.class, restoredWorld,
+                    second.get(0).getPopulation()));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    public void secondVersionArchivesShouldBeUpdatedWhenExtended() throws IOException {
+        ArchiveInstanceHandler binaryHandler = new ArchiveInstanceHandler(ArchiveInstanceHandler.Encoding.BINARY);
+        InstanceHandler.setDefaultHandler(binaryHandler);
+        GlobalSynergyValueModel model = new GlobalSynergyValueModel();
+        GSVMWorld world;
+        List<GSVMBidder> first;
+        try {
+            world = model.createWorld(6311L);
+            first = sorted(model.createNewPopulation(world, 6312L));
+        } finally {
+            binaryHandler.close();
+        }
+        // Only the header is changed, as the strings records are read according to their kind
+        File archive = FilePathUtils.getInstance().worldArchivePath(world.getId());
+        try (RandomAccessFile file = new RandomAccessFile(archive, "rw")) {
+            file.seek(4);
+            file.writeInt(2);
+        }
+
+        List<GSVMBidder> second;
+        try {
+            GSVMWorld restoredWorld = binaryHandler.readWorld(GSVMWorld.class, world.getId());
+            Assert.assertEquals(first, binaryHandler.readPopulationWithUnknownTypes(GSVMBidder.class, restoredWorld,
+                    first.get(0).getPopulation()));
+            try (RandomAccessFile file = new RandomAccessFile(archive, "r")) {
+                file.seek(4);
+                Assert.assertEquals(2, file.readInt());
+            }
+            second = sorted(model.createNewPopulation(restoredWorld, 6313L));
+        } finally {
+            InstanceHandler.setDefaultHandler(handler);
+            binaryHandler.close();
+        }
+        try (RandomAccessFile file = new RandomAccessFile(archive, "r")) {
+            file.seek(4);
+            Assert.assertEquals(3, file.readInt());
+        }
+        ArchiveInstanceHandler reopened = new ArchiveInstanceHandler();
+        try {
+            GSVMWorld restoredWorld = reopened.readWorld(GSVMWorld.class, world.getId());
+            Assert.assertEquals(second, reopened.readPopulationWithUnknownTypes(GSVMBidder.class, restoredWorld,
+                    second.get(0).getPopulation()));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    public void readingAnUnknownWorldShouldNotCreateAnArchive() {
+        GSVMWorld world = new GlobalSynergyValueModel().createWorld(2953L);
+        FilePathUtils pathUtils = FilePathUtils.getInstance();
+        long worldId = world.getId() + 1000;
+        File archive = pathUtils.worldArchivePath(worldId);
+        Assert.assertFalse(archive.exists());
+        try {
+            handler.readWorld(GSVMWorld.class, worldId);
+            Assert.fail("Unknown world " + worldId + " was read");
+        } catch (FileException e) {
+            // Expected, the world is not stored
+        }
+        try {
+            handler.getPopulationIds(worldId);
+            Assert.fail("Populations of unknown world " + worldId + " were listed");
+        } catch (FileException e) {
+            // Expected, the world is not stored
+        }
+        Assert.assertFalse(archive.exists());
+        Assert.assertFalse(pathUtils.getWorldIds().contains(worldId));
+    }
+
+    private static <T extends SATSBidder> List<T> sorted(List<T> bidders) {
+        List<T> sorted = new ArrayList<>(bidders);
+        sorted.sort(Comparator.comparingLong(SATSBidder::getLongId));
+        return sorted;
+    }
+}
@@ -5,6 +5,9 @@
  */
 package org.spectrumauctions.sats.core.instancehandling;
 
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -14,12 +17,14 @@ import org.spectrumauctions.sats.core.TestSuite;
 import org.spectrumauctions.sats.core.model.SATSBidder;
 import org.spectrumauctions.sats.core.model.DefaultModel;
 import org.spectrumauctions.sats.core.model.World;
+import org.spectrumauctions.sats.core.util.file.gson.GsonWrapper;
 import org.spectrumauctions.sats.core.util.instancehandling.InstanceHandler;
 import org.spectrumauctions.sats.core.util.instancehandling.JSONInstanceHandler;
 import org.spectrumauctions.sats.core.util.random.JavaUtilRNGSupplier;
 import org.spectrumauctions.sats.core.util.random.UniformDistributionRNG;
 
 import javax.management.RuntimeOperationsException;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -73,6 +78,56 @@ public class SerializerTest {
     }
 
 
+    @Test
+    public void compactlySerializedInstancesShouldBeEqual() {
+        JSONInstanceHandler.getInstance().setPrettyPrinting(false);
+        try {
+            testWorldSerializability(model);
+            testBidderSerializability(model);
+        } catch (RuntimeException e) {
+            throw new RuntimeOperationsException(e, "Error during compact Serialization-Test of " + model.getClass().getSimpleName());
+        } finally {
+            JSONInstanceHandler.getInstance().setPrettyPrinting(true);
+        }
+    }
+
+    @Test
+    public void concurrentlyDeserializedBiddersShouldBeEqual() {
+        JSONInstanceHandler.getInstance().setRestoreThreads(4);
+        try {
+            testBidderSerializability(model);
+        } catch (RuntimeException e) {
+            throw new RuntimeOperationsException(e, "Error during concurrent Serialization-Test of " + model.getClass().getSimpleName());
+        } finally {
+            JSONInstanceHandler.getInstance().setRestoreThreads(1);
+        }
+    }
+
+    @Test
+    public void implementationShouldBeWrittenFirstAndReadAnywhere() {
+        testImplementationField(model);
+    }
+
+    public <W extends World, B extends SATSBidder> void testImplementationField(DefaultModel<W, B> model) {
+        W world = model.createWorld(rng.nextLong());
+        B bidder = model.createNewPopulation(world, rng.nextLong()).get(0);
+        GsonWrapper gson = new GsonWrapper(false);
+        gson.setWorld(world);
+        String json = gson.toJson(bidder);
+        Assert.assertTrue(json, json.startsWith("{\"implementation\":\"" + bidder.getClass().getName() + "\","));
+        SATSBidder read = (SATSBidder) gson.fromJsonWithUnknownType(new StringReader(json));
+        read.refreshReference(world);
+        Assert.assertEquals(bidder, read);
+
+        // As written by previous versions, with the implementation as last field
+        JsonObject tree = new JsonParser().parse(json).getAsJsonObject();
+        JsonElement implementation = tree.remove("implementation");
+        tree.add("implementation", implementation);
+        read = (SATSBidder) gson.fromJsonWithUnknownType(new StringReader(tree.toString()));
+        read.refreshReference(world);
+        Assert.assertEquals(bidder, read);
+    }
+
     @Test
     public void deserializedBiddersShouldBeEqual() {
         try {
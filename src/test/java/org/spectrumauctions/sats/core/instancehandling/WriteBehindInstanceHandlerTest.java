@@ -0,0 +1,73 @@
+/**
+ * Copyright by Michael Weiss, weiss.michael@gmx.ch
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.spectrumauctions.sats.core.instancehandling;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.spectrumauctions.sats.core.model.gsvm.GSVMBidder;
+import org.spectrumauctions.sats.core.model.gsvm.GSVMWorld;
+import org.spectrumauctions.sats.core.model.gsvm.GlobalSynergyValueModel;
+import org.spectrumauctions.sats.core.util.instancehandling.InstanceHandler;
+import org.spectrumauctions.sats.core.util.instancehandling.JSONInstanceHandler;
+import org.spectrumauctions.sats.core.util.instancehandling.WriteBehindInstanceHandler;
+
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * @author Michael Weiss
+ *
+ */
+public class WriteBehindInstanceHandlerTest {
+
+    private InstanceHandler previousHandler;
+    private WriteBehindInstanceHandler handler;
+
+    @Before
+    public void setUp() {
+        previousHandler = InstanceHandler.getDefaultHandler();
+        handler = new WriteBehindInstanceHandler(JSONInstanceHandler.getInstance(), 2, 2);
+        InstanceHandler.setDefaultHandler(handler);
+    }
+
+    @After
+    public void tearDown() {
+        InstanceHandler.setDefaultHandler(previousHandler);
+        handler.close();
+    }
+
+    @Test
+    public void closedHandlerShouldHaveWrittenAllInstances() {
+        GlobalSynergyValueModel model = new GlobalSynergyValueModel();
+        GSVMWorld world = model.createWorld(52343L);
+        List<GSVMBidder> population = model.createNewPopulation(world, 9834L);
+        handler.close();
+
+        JSONInstanceHandler json = JSONInstanceHandler.getInstance();
+        Assert.assertEquals(world, json.readWorld(GSVMWorld.class, world.getId()));
+        List<GSVMBidder> restored = json.readPopulationWithUnknownTypes(GSVMBidder.class, world,
+                population.get(0).getPopulation());
+        Assert.assertEquals(new HashSet<>(population), new HashSet<>(restored));
+    }
+
+    @Test
+    public void readsShouldSeePendingWrites() {
+        GlobalSynergyValueModel model = new GlobalSynergyValueModel();
+        List<GSVMBidder> population = model.createNewWorldAndPopulation(23432L);
+        GSVMBidder bidder = population.get(population.size() - 1);
+        GSVMBidder restored = handler.readBidder(GSVMBidder.class, bidder.getWorld(), bidder.getPopulation(),
+                bidder.getLongId());
+        Assert.assertEquals(bidder, restored);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void writingToClosedHandlerShouldFail() {
+        handler.close();
+        new GlobalSynergyValueModel().createWorld(7523L);
+    }
+}
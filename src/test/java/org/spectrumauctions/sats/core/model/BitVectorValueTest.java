@@ -0,0 +1,124 @@
+/**
+ * Copyright by Michael Weiss, weiss.michael@gmx.ch
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.spectrumauctions.sats.core.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.marketdesignresearch.mechlib.core.Bundle;
+import org.spectrumauctions.sats.core.model.bvm.bvm.BaseValueModel;
+import org.spectrumauctions.sats.core.model.cats.CATSRegionModel;
+import org.spectrumauctions.sats.core.model.gsvm.GlobalSynergyValueModel;
+import org.spectrumauctions.sats.core.model.lsvm.LocalSynergyValueModel;
+import org.spectrumauctions.sats.core.model.mrvm.MultiRegionModel;
+import org.spectrumauctions.sats.core.model.srvm.SingleRegionModel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Checks that the bit vector value queries ({@link SATSBidder#calculateValues(long[][], double[])})
+ * return the same values as the {@link Bundle} based ones for all models.
+ */
+public class BitVectorValueTest {
+
+    private static final int NUMBER_OF_BUNDLES = 30;
+
+    @Test
+    public void testGSVM() {
+        testPopulation(new GlobalSynergyValueModel().createNewWorldAndPopulation(1L));
+    }
+
+    @Test
+    public void testLSVM() {
+        testPopulation(new LocalSynergyValueModel().createNewWorldAndPopulation(2L));
+    }
+
+    @Test
+    public void testCATS() {
+        testPopulation(new CATSRegionModel().createNewWorldAndPopulation(3L));
+    }
+
+    @Test
+    public void testBVM() {
+        testPopulation(new BaseValueModel().createNewWorldAndPopulation(4L));
+    }
+
+    @Test
+    public void testSRVM() {
+        testPopulation(new SingleRegionModel().createNewWorldAndPopulation(5L));
+    }
+
+    @Test
+    public void testMRVM() {
+        testPopulation(new MultiRegionModel().createNewWorldAndPopulation(6L));
+    }
+
+    @Test
+    public void testChunkedBatchEvaluation() {
+        List<? extends SATSBidder> population = new GlobalSynergyValueModel().createNewWorldAndPopulation(8L);
+        SATSBidder bidder = population.get(0);
+        LicenseIndex index = bidder.getWorld().getLicenseIndex();
+        Random random = new Random(8);
+        long[][] bundles = new long[100][];
+        List<Bundle> decoded = new ArrayList<>();
+        for (int i = 0; i < bundles.length; i++) {
+            bundles[i] = randomBundle(index, random);
+            decoded.add(index.decode(bundles[i]));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            double[] sequential = bidder.calculateValues(bundles, null, 7);
+            double[] chunked = bidder.calculateValues(bundles, executor, 7);
+            double[] fromBundles = bidder.calculateValues(decoded, executor, 7);
+            Assert.assertArrayEquals(sequential, chunked, 0);
+            Assert.assertArrayEquals(sequential, fromBundles, 1e-6);
+            Assert.assertArrayEquals(sequential, bidder.calculateValues(bundles, executor, SATSBidder.DEFAULT_CHUNK_SIZE), 0);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testEncodeDecode() {
+        World world = new GlobalSynergyValueModel().createWorld(7L);
+        LicenseIndex index = world.getLicenseIndex();
+        long[] bits = randomBundle(index, new Random(7));
+        Assert.assertArrayEquals(bits, index.encode(index.decode(bits)));
+        Assert.assertArrayEquals(bits, index.encode(LicenseIndex.toBitSet(bits)));
+        Assert.assertEquals(index.decode(bits).getSingleQuantityGoods().size(), LicenseIndex.cardinality(bits));
+    }
+
+    private static void testPopulation(List<? extends SATSBidder> population) {
+        Random random = new Random(42);
+        LicenseIndex index = population.get(0).getWorld().getLicenseIndex();
+        long[][] bundles = new long[NUMBER_OF_BUNDLES][];
+        for (int i = 0; i < NUMBER_OF_BUNDLES; i++) {
+            bundles[i] = randomBundle(index, random);
+        }
+        bundles[0] = new long[index.wordCount()];
+        double[] values = new double[NUMBER_OF_BUNDLES];
+        for (SATSBidder bidder : population) {
+            bidder.calculateValues(bundles, values);
+            for (int i = 0; i < NUMBER_OF_BUNDLES; i++) {
+                double expected = bidder.calculateValue(index.decode(bundles[i])).doubleValue();
+                Assert.assertEquals(expected, values[i], Math.max(1e-6, Math.abs(expected) * 1e-6));
+            }
+        }
+    }
+
+    private static long[] randomBundle(LicenseIndex index, Random random) {
+        long[] bits = new long[index.wordCount()];
+        for (int position = 0; position < index.size(); position++) {
+            if (random.nextBoolean()) {
+                bits[position >>> 6] |= 1L << position;
+            }
+        }
+        return bits;
+    }
+}
@@ -10,6 +10,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 import org.marketdesignresearch.mechlib.core.Bundle;
+import org.marketdesignresearch.mechlib.core.BundleEntry;
 import org.spectrumauctions.sats.core.model.bvm.bvm.BVMBidderSetup;
 import org.spectrumauctions.sats.core.model.bvm.bvm.BVMWorldSetup;
 import org.spectrumauctions.sats.core.model.bvm.bvm.BaseValueModel;
@@ -144,6 +145,36 @@ public class BMValueTest {
         Assert.assertEquals(bidder.getSetupType() + " value was " + value + " should be " + expectedValueSmallBundle, 0, value.compareTo(expectedValueSmallBundle));
     }
 
+    @Test
+    public void valueOfQuantitiesPerBand() {
+        List<BMBand> bands = bidder.getWorld().getBands();
+        int[] quantities = new int[bands.size()];
+        for (int b = 0; b < bands.size(); b++) {
+            quantities[b] = bands.get(b).getQuantity();
+        }
+        Assert.assertEquals(expextedValuedCompleteBundle.doubleValue(), bidder.calculateValue(quantities), 1e-6);
+        for (int b = 0; b < bands.size(); b++) {
+            quantities[b] = bands.get(b).getQuantity() / 2;
+        }
+        Assert.assertEquals(expectedValueHalfBundle.doubleValue(), bidder.calculateValue(quantities), 1e-6);
+        Assert.assertEquals(0, bidder.calculateValue(new int[bands.size()]), 0);
+    }
+
+    /**
+     * The complete bundle contains more licenses than the positive value threshold in the BVM band A,
+     * which must be disposed of for free in all value queries.
+     */
+    @Test
+    public void valueOfGenericCompleteBundle() {
+        Set<BundleEntry> entries = new HashSet<>();
+        for (BMBand band : bidder.getWorld().getBands()) {
+            entries.add(new BundleEntry(band, band.getQuantity()));
+        }
+        BigDecimal value = bidder.calculateValue(new Bundle(entries));
+        Assert.assertEquals(bidder.getSetupType() + " value was " + value + " should be " + expextedValuedCompleteBundle, 0, value.compareTo(expextedValuedCompleteBundle));
+        Assert.assertEquals(value.doubleValue(), bidder.calculateValue(bidder.getWorld().getLicenseIndex().encodeLicenses(bidder.getWorld().getLicenses())), 1e-6);
+    }
+
     @Test
     public void valueOfEmptyBundle() {
         BigDecimal value = bidder.calculateValue(Bundle.EMPTY);
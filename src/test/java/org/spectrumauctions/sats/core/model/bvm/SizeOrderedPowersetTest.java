@@ -37,6 +37,7 @@ public class SizeOrderedPowersetTest {
             for (BMBand band : bidder.getWorld().getBands()) {
                 quantity += val.getBundle().countGood(band);
             }
+            Assert.assertEquals(0, bidder.calculateValue(val.getBundle()).compareTo(val.getAmount()));
             Assert.assertTrue("non-decreasing in iteration " + iteration, quantity <= currentSize);
             currentSize = quantity;
             iteration++;
@@ -13,6 +13,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Random;
 
 /**
  * @author Fabio Isler
@@ -310,6 +311,34 @@ public class GSVMBidderTest {
     }
 
 
+    /**
+     * Tests that the precomputed value table matches the value function
+     */
+    @Test
+    public void testValueTable() {
+        GlobalSynergyValueModel model = new GlobalSynergyValueModel();
+        GSVMWorld world = model.createWorld(983742L);
+        List<GSVMBidder> population = model.createNewPopulation(world, 983742L);
+        Random random = new Random(983742L);
+        for (GSVMBidder bidder : population) {
+            GSVMValueTable table = bidder.getValueTable();
+            Assert.assertEquals(bidder.getBaseValues().size(), table.size());
+            double[] values = table.getValues();
+            for (int mask = 0; mask < values.length; mask++) {
+                Assert.assertEquals(bidder.calculateValue(table.getBundle(mask)).doubleValue(), values[mask], 1e-9);
+            }
+            for (int i = 0; i < 20; i++) {
+                List<GSVMLicense> licenses = new ArrayList<>(world.getLicenses());
+                licenses.removeIf(l -> random.nextBoolean());
+                Bundle bundle = Bundle.of(licenses);
+                BigDecimal expected = bidder.calculateValue(bundle);
+                bidder.setUseValueTable(true);
+                Assert.assertEquals(expected.doubleValue(), bidder.calculateValue(bundle).doubleValue(), 1e-9);
+                bidder.setUseValueTable(false);
+            }
+        }
+    }
+
     // ------- Helpers ------- //
 
 
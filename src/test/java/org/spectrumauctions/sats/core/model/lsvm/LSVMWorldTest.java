@@ -5,6 +5,9 @@ import org.junit.Test;
 import org.spectrumauctions.sats.core.util.random.IntegerInterval;
 import org.spectrumauctions.sats.core.util.random.JavaUtilRNGSupplier;
 
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  * @author Fabio Isler
  */
@@ -57,4 +60,34 @@ public class LSVMWorldTest {
         Assert.assertEquals(6, world3.getGrid().getNumberOfColumns());
         Assert.assertEquals(6, world3.getLicenses().size());
     }
+
+    /**
+     * Checks the connected components of a large grid: a checkerboard has no adjacent licenses,
+     * a full grid is a single component, and a full row splits the grid into two components
+     */
+    @Test
+    public void largeGridConnectedComponents() {
+        LSVMWorldSetup.LSVMWorldSetupBuilder builder = new LSVMWorldSetup.LSVMWorldSetupBuilder();
+        builder.createGridSizeRandomly(new IntegerInterval(30), new IntegerInterval(30));
+        LSVMWorld world = new LSVMWorld(builder.build(), new JavaUtilRNGSupplier(983742L));
+        LSVMGrid grid = world.getGrid();
+
+        Set<LSVMLicense> checkerboard = new HashSet<>();
+        Set<LSVMLicense> withoutRow = new HashSet<>();
+        for (LSVMLicense license : world.getLicenses()) {
+            if ((license.getRowPosition() + license.getColumnPosition()) % 2 == 0) {
+                checkerboard.add(license);
+            }
+            if (license.getRowPosition() != 10) {
+                withoutRow.add(license);
+            }
+        }
+        Assert.assertEquals(450, grid.getMaximallyConnectedSubpackages(checkerboard).size());
+        Assert.assertEquals(1, grid.getMaximallyConnectedSubpackages(new HashSet<>(world.getLicenses())).size());
+        Set<Set<LSVMLicense>> halves = grid.getMaximallyConnectedSubpackages(withoutRow);
+        Assert.assertEquals(2, halves.size());
+        for (Set<LSVMLicense> half : halves) {
+            Assert.assertTrue(half.size() == 300 || half.size() == 570);
+        }
+    }
 }
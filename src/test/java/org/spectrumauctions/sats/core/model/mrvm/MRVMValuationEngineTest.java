@@ -0,0 +1,90 @@
+/**
+ * Copyright by Michael Weiss, weiss.michael@gmx.ch
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.spectrumauctions.sats.core.model.mrvm;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.marketdesignresearch.mechlib.core.Bundle;
+import org.marketdesignresearch.mechlib.core.BundleEntry;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * Checks that the compiled {@link MRVMValuationEngine} returns the same values as the BigDecimal based calculation.
+ */
+public class MRVMValuationEngineTest {
+
+    private static final double RELATIVE_TOLERANCE = 1e-9;
+
+    private static List<MRVMBidder> population;
+
+    @BeforeClass
+    public static void setUpBeforeClass() {
+        population = new MultiRegionModel().createNewWorldAndPopulation(42L);
+    }
+
+    @Test
+    public void testRandomLicenseBundles() {
+        Random random = new Random(7);
+        for (MRVMBidder bidder : population) {
+            List<MRVMLicense> licenses = bidder.getWorld().getLicenses();
+            for (int i = 0; i < 50; i++) {
+                Set<BundleEntry> entries = new HashSet<>();
+                for (MRVMLicense license : licenses) {
+                    if (random.nextDouble() < 0.3) {
+                        entries.add(new BundleEntry(license, 1));
+                    }
+                }
+                assertSameValue(bidder, new Bundle(entries));
+            }
+            assertSameValue(bidder, Bundle.of(licenses));
+            assertSameValue(bidder, Bundle.EMPTY);
+        }
+    }
+
+    @Test
+    public void testGenericBundles() {
+        Random random = new Random(11);
+        for (MRVMBidder bidder : population) {
+            List<MRVMGenericDefinition> definitions = bidder.getWorld().getAllGenericDefinitions();
+            for (int i = 0; i < 50; i++) {
+                Set<BundleEntry> entries = new HashSet<>();
+                for (MRVMGenericDefinition definition : definitions) {
+                    int quantity = random.nextInt(definition.getQuantity() + 1);
+                    if (quantity > 0) {
+                        entries.add(new BundleEntry(definition, quantity));
+                    }
+                }
+                assertSameValue(bidder, new Bundle(entries));
+            }
+        }
+    }
+
+    @Test
+    public void testSelectablePerBidder() {
+        MRVMBidder bidder = population.get(0);
+        Bundle bundle = Bundle.of(bidder.getWorld().getLicenses());
+        BigDecimal exact = bidder.calculateValue(bundle);
+        bidder.setUseValuationEngine(true);
+        try {
+            assertClose(exact.doubleValue(), bidder.calculateValue(bundle).doubleValue());
+        } finally {
+            bidder.setUseValuationEngine(false);
+        }
+    }
+
+    private static void assertSameValue(MRVMBidder bidder, Bundle bundle) {
+        double expected = bidder.calculateValue(bundle).doubleValue();
+        double actual = bidder.getValuationEngine().value(bundle);
+        assertClose(expected, actual);
+    }
+
+    private static void assertClose(double expected, double actual) {
+        Assert.assertEquals(expected, actual, Math.max(1e-9, Math.abs(expected) * RELATIVE_TOLERANCE));
+    }
+}
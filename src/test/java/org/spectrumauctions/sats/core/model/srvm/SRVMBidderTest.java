@@ -115,6 +115,30 @@ public class SRVMBidderTest {
         Assert.assertEquals(value.floatValue(), expectedValue, 0.00001);
     }
 
+    /**
+     * Tests that the values per band quantities equal the ones of the corresponding generic bundles
+     */
+    @Test
+    public void testQuantitiesPerBandValue() {
+        SingleRegionModel model2 = new SingleRegionModel();
+        SRVMWorld world2 = model2.createWorld(983742L);
+        SRVMBidder bidder = customPopulation(world2, 1).get(0);
+        List<SRVMBand> bands = world2.getBands();
+        Random random = new Random(983742L);
+        for (int i = 0; i < 20; i++) {
+            int[] quantities = new int[bands.size()];
+            Set<BundleEntry> entries = new HashSet<>();
+            for (int b = 0; b < bands.size(); b++) {
+                quantities[b] = random.nextInt(bands.get(b).getQuantity() + 1);
+                if (quantities[b] > 0) {
+                    entries.add(new BundleEntry(bands.get(b), quantities[b]));
+                }
+            }
+            double expected = bidder.calculateValue(new Bundle(entries)).doubleValue();
+            Assert.assertEquals(expected, bidder.calculateValue(quantities), 1e-6);
+        }
+    }
+
     // ------- Helpers ------- //
 
     private List<SRVMBidder> customPopulation(SRVMWorld world, int numberOfBidders) {
@@ -0,0 +1,98 @@
+/**
+ * Copyright by Michael Weiss, weiss.michael@gmx.ch
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.spectrumauctions.sats.core.util;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.junit.Assert;
+import org.junit.Test;
+import org.spectrumauctions.sats.core.util.file.gson.BinaryJson;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+public class BinaryJsonTest {
+
+    @Test
+    public void fixedLayoutsShouldBeRestoredExactly() {
+        JsonObject values = new JsonObject();
+        values.addProperty("12", 3.75);
+        values.addProperty("3", 1.0);
+        values.addProperty("-4", -0.0);
+        JsonObject decimals = new JsonObject();
+        decimals.addProperty("0", new BigDecimal(0.1));
+        decimals.addProperty("1", new BigDecimal(-7.5));
+        JsonObject notAMap = new JsonObject();
+        notAMap.addProperty("01", 1.5);
+        notAMap.addProperty("2", 2.5);
+        JsonArray integers = new JsonArray();
+        integers.add(1);
+        integers.add(-300000);
+        integers.add(Long.MAX_VALUE);
+        JsonArray doubles = new JsonArray();
+        doubles.add(0.0);
+        doubles.add(Math.PI);
+        doubles.add(Double.NaN);
+        doubles.add(1e300);
+        JsonArray mixed = new JsonArray();
+        mixed.add(1);
+        mixed.add(1.5);
+        mixed.add("a");
+        JsonObject tree = new JsonObject();
+        tree.add("values", values);
+        tree.add("decimals", decimals);
+        tree.add("notAMap", notAMap);
+        tree.add("integers", integers);
+        tree.add("doubles", doubles);
+        tree.add("mixed", mixed);
+        tree.addProperty("integral", (double) (1L << 52));
+        tree.addProperty("large", (double) (1L << 60));
+        tree.addProperty("inexact", new BigDecimal("0.000005543084502"));
+        tree.addProperty("scaled", new BigDecimal("0E-32"));
+        tree.addProperty("uuid", UUID.randomUUID().toString());
+        tree.addProperty("upperCaseUuid", UUID.randomUUID().toString().toUpperCase());
+
+        BinaryJson.Dictionary dictionary = new BinaryJson.Dictionary();
+        byte[] encoded = BinaryJson.encode(tree, dictionary);
+        byte[] strings = BinaryJson.encodeStrings(dictionary, 0);
+        BinaryJson.Dictionary restored = new BinaryJson.Dictionary();
+        BinaryJson.decodeStrings(strings, restored);
+        JsonElement decoded = BinaryJson.decode(encoded, restored);
+
+        Assert.assertEquals(tree, decoded);
+        JsonObject decodedObject = decoded.getAsJsonObject();
+        Assert.assertEquals(new BigDecimal("0E-32"), decodedObject.get("scaled").getAsBigDecimal());
+        Assert.assertEquals(new BigDecimal(0.1), decodedObject.getAsJsonObject("decimals").get("0").getAsBigDecimal());
+        Assert.assertEquals(Double.doubleToRawLongBits(-0.0),
+                Double.doubleToRawLongBits(decodedObject.getAsJsonObject("values").get("-4").getAsDouble()));
+    }
+
+    @Test
+    public void utf8StringsShouldBeRead() {
+        // The layout of the second archive version: first index, number of strings and the strings as utf-8
+        byte[] uuid = UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8);
+        byte[] strings = new byte[4 + 1 + uuid.length];
+        strings[0] = 0;
+        strings[1] = 2;
+        strings[2] = 1;
+        strings[3] = 'x';
+        strings[4] = (byte) uuid.length;
+        System.arraycopy(uuid, 0, strings, 5, uuid.length);
+        BinaryJson.Dictionary dictionary = new BinaryJson.Dictionary();
+        BinaryJson.decodeUtf8Strings(strings, dictionary);
+        Assert.assertEquals(2, dictionary.size());
+
+        // The strings are referenced by their index
+        JsonObject tree = new JsonObject();
+        tree.addProperty("x", new String(uuid, StandardCharsets.UTF_8));
+        BinaryJson.Dictionary reference = new BinaryJson.Dictionary();
+        byte[] encoded = BinaryJson.encode(tree, reference);
+        Assert.assertEquals(2, reference.size());
+        Assert.assertEquals(tree, BinaryJson.decode(encoded, dictionary));
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright by Michael Weiss, weiss.michael@gmx.ch
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.spectrumauctions.sats.core.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.marketdesignresearch.mechlib.core.Bundle;
+import org.spectrumauctions.sats.core.model.gsvm.GSVMBidder;
+import org.spectrumauctions.sats.core.model.gsvm.GSVMWorld;
+import org.spectrumauctions.sats.core.model.gsvm.GlobalSynergyValueModel;
+import org.spectrumauctions.sats.core.util.random.JavaUtilRNGSupplier;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BoundedCacheTest {
+
+    @Test
+    public void testLRUEviction() {
+        BoundedCache<Integer, Integer> cache = new BoundedCache<>(2, BoundedCache.EvictionPolicy.LRU);
+        cache.get(1, k -> k);
+        cache.get(2, k -> k);
+        cache.get(1, k -> k); // 2 is now least recently used
+        cache.get(3, k -> k);
+        Assert.assertEquals(2, cache.size());
+        Assert.assertNotNull(cache.getIfPresent(1));
+        Assert.assertNull(cache.getIfPresent(2));
+        Assert.assertNotNull(cache.getIfPresent(3));
+        Assert.assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    public void testLFUEviction() {
+        BoundedCache<Integer, Integer> cache = new BoundedCache<>(2, BoundedCache.EvictionPolicy.LFU);
+        cache.get(1, k -> k);
+        cache.get(1, k -> k);
+        cache.get(2, k -> k);
+        cache.get(3, k -> k); // 2 is least frequently used
+        Assert.assertNotNull(cache.getIfPresent(1));
+        Assert.assertNull(cache.getIfPresent(2));
+        cache.get(4, k -> k); // 3 is least frequently used, the new key must not evict itself
+        Assert.assertNull(cache.getIfPresent(3));
+        Assert.assertNotNull(cache.getIfPresent(4));
+    }
+
+    @Test
+    public void testHitsAndMisses() {
+        BoundedCache<Integer, Integer> cache = new BoundedCache<>(10, BoundedCache.EvictionPolicy.LRU);
+        for (int i = 0; i < 3; i++) {
+            cache.get(i % 2, k -> k);
+        }
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertEquals(2, cache.getMisses());
+        cache.clear();
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    public void testBidderValueCache() {
+        GlobalSynergyValueModel model = new GlobalSynergyValueModel();
+        model.setValueCache(100, BoundedCache.EvictionPolicy.LFU);
+        List<GSVMBidder> population = model.createNewPopulation(model.createWorld(42L), 43L);
+        GSVMBidder bidder = population.get(0);
+        Assert.assertNotNull(bidder.getValueCache());
+        Bundle bundle = Bundle.of(bidder.getWorld().getLicenses());
+        BigDecimal expected = bidder.calculateValue(bundle);
+        List<Bundle> bundles = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            bundles.add(Bundle.of(bidder.getWorld().getLicenses()));
+        }
+        for (BigDecimal value : bidder.calculateValues(bundles)) {
+            Assert.assertEquals(expected, value);
+        }
+        Assert.assertEquals(expected, bidder.getValue(bundle, true));
+        Assert.assertEquals(1, bidder.getValueCache().size());
+        Assert.assertEquals(21, bidder.getValueCache().getHits() + bidder.getValueCache().getMisses());
+        Assert.assertTrue(bidder.getValueCache().getHits() >= 1);
+        bidder.disableValueCache();
+        Assert.assertNull(bidder.getValueCache());
+    }
+
+    @Test
+    public void testValueCacheOfCreatedAndRestoredPopulations() {
+        GlobalSynergyValueModel model = new GlobalSynergyValueModel();
+        model.setValueCache(10, BoundedCache.EvictionPolicy.LRU);
+        GSVMWorld world = model.createWorld(42L);
+        List<GSVMBidder> population = model.createPopulation(world, new JavaUtilRNGSupplier(43L));
+        population.forEach(bidder -> Assert.assertNotNull(bidder.getValueCache()));
+
+        // The cache is a runtime option, which is not restored
+        long populationId = population.get(0).getPopulation();
+        world.restorePopulation(populationId).forEach(bidder -> Assert.assertNull(bidder.getValueCache()));
+        model.configure(world.restorePopulation(populationId)).forEach(bidder -> Assert.assertNotNull(bidder.getValueCache()));
+    }
+}
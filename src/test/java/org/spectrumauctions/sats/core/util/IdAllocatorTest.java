@@ -0,0 +1,63 @@
+/**
+ * Copyright by Michael Weiss, weiss.michael@gmx.ch
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.spectrumauctions.sats.core.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.spectrumauctions.sats.core.util.file.IdAllocator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author Michael Weiss
+ */
+public class IdAllocatorTest {
+
+    @Test
+    public void concurrentlyAllocatedIdsShouldBeUnique() throws Exception {
+        File counter = new File(Files.createTempDirectory("sats-ids").toFile(), "ids.counter");
+        IdAllocator allocator = IdAllocator.forFile(counter, 8, () -> 5);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 500; i++) {
+                    Assert.assertTrue(ids.add(allocator.nextId()));
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(4000, ids.size());
+        Assert.assertEquals(5, (long) ids.stream().min(Long::compare).get());
+        Assert.assertEquals(4005, readCounter(counter));
+    }
+
+    @Test
+    public void idsReservedByOthersShouldBeSkipped() throws IOException {
+        File counter = new File(Files.createTempDirectory("sats-ids").toFile(), "ids.counter");
+        IdAllocator allocator = IdAllocator.forFile(counter, 2, () -> 0);
+        Assert.assertEquals(0, allocator.nextId());
+        Assert.assertEquals(1, allocator.nextId());
+        // Another JVM reserves the ids up to 41
+        Files.write(counter.toPath(), "42".getBytes(StandardCharsets.US_ASCII));
+        Assert.assertEquals(42, allocator.nextId());
+        Assert.assertEquals(44, readCounter(counter));
+    }
+
+    private static long readCounter(File counter) throws IOException {
+        return Long.parseLong(new String(Files.readAllBytes(counter.toPath()), StandardCharsets.US_ASCII).trim());
+    }
+}
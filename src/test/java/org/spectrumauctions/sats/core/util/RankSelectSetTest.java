@@ -0,0 +1,56 @@
+/**
+ * Copyright by Michael Weiss, weiss.michael@gmx.ch
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.spectrumauctions.sats.core.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.TreeSet;
+
+public class RankSelectSetTest {
+
+    @Test
+    public void testAgainstSortedSet() {
+        Random random = new Random(17);
+        RankSelectSet set = new RankSelectSet();
+        TreeSet<BigInteger> reference = new TreeSet<>();
+        for (int i = 0; i < 2000; i++) {
+            BigInteger key = BigInteger.valueOf(random.nextInt(5000));
+            Assert.assertEquals(reference.add(key), set.add(key));
+        }
+        Assert.assertEquals(reference.size(), set.size());
+        int index = 0;
+        for (BigInteger key : reference) {
+            Assert.assertEquals(key, set.select(index));
+            Assert.assertEquals(index, set.rank(key));
+            index++;
+        }
+        // selectAbsent has to return the index-th number not in the set
+        BigInteger candidate = BigInteger.ZERO;
+        for (int absentIndex = 0; absentIndex < 3000; absentIndex++) {
+            while (reference.contains(candidate)) {
+                candidate = candidate.add(BigInteger.ONE);
+            }
+            Assert.assertEquals(candidate, set.selectAbsent(BigInteger.valueOf(absentIndex)));
+            candidate = candidate.add(BigInteger.ONE);
+        }
+    }
+
+    @Test
+    public void testDrawAllUnique() {
+        Random random = new Random(18);
+        RankSelectSet set = new RankSelectSet();
+        int range = 1000;
+        for (int remaining = range; remaining > 0; remaining--) {
+            BigInteger drawn = set.selectAbsent(BigInteger.valueOf(random.nextInt(remaining)));
+            Assert.assertTrue(drawn.compareTo(BigInteger.valueOf(range)) < 0);
+            Assert.assertTrue(set.add(drawn));
+        }
+        Assert.assertEquals(range, set.size());
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright by Michael Weiss, weiss.michael@gmx.ch
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.spectrumauctions.sats.core.util.math;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+public class ContinuousPiecewiseLinearFunctionTest {
+
+    private static final double DELTA = 1e-9;
+
+    /**
+     * Tent function through (0,0), (2,4), (4,0)
+     */
+    private static ContinuousPiecewiseLinearFunction tent() {
+        Map<BigDecimal, BigDecimal> cornerPoints = new HashMap<>();
+        cornerPoints.put(BigDecimal.ZERO, BigDecimal.ZERO);
+        cornerPoints.put(BigDecimal.valueOf(2), BigDecimal.valueOf(4));
+        cornerPoints.put(BigDecimal.valueOf(4), BigDecimal.ZERO);
+        return new ContinuousPiecewiseLinearFunction(cornerPoints);
+    }
+
+    @Test
+    public void testBreakpoints() {
+        ContinuousPiecewiseLinearFunction function = tent();
+        Assert.assertEquals(0, function.getY(BigDecimal.ZERO).compareTo(BigDecimal.ZERO));
+        Assert.assertEquals(0, function.getY(BigDecimal.valueOf(2)).compareTo(BigDecimal.valueOf(4)));
+        Assert.assertEquals(0, function.getY(BigDecimal.valueOf(4)).compareTo(BigDecimal.ZERO));
+        Assert.assertEquals(0, function.getY(0d), DELTA);
+        Assert.assertEquals(4, function.getY(2d), DELTA);
+        Assert.assertEquals(0, function.getY(4d), DELTA);
+    }
+
+    @Test
+    public void testBetweenBreakpoints() {
+        ContinuousPiecewiseLinearFunction function = tent();
+        Assert.assertEquals(0, function.getY(new BigDecimal("0.5")).compareTo(BigDecimal.ONE));
+        Assert.assertEquals(0, function.getY(new BigDecimal("3.5")).compareTo(BigDecimal.ONE));
+        for (double x = 0; x <= 4; x += 0.125) {
+            Assert.assertEquals(function.getY(BigDecimal.valueOf(x)).doubleValue(), function.getY(x), DELTA);
+        }
+    }
+
+    @Test(expected = OutOfDomainException.class)
+    public void testBelowFirstPointExact() {
+        tent().getY(new BigDecimal("-0.001"));
+    }
+
+    @Test(expected = OutOfDomainException.class)
+    public void testBelowFirstPointDouble() {
+        tent().getY(-0.001);
+    }
+
+    @Test(expected = OutOfDomainException.class)
+    public void testAboveLastPointExact() {
+        tent().getY(new BigDecimal("4.001"));
+    }
+
+    @Test(expected = OutOfDomainException.class)
+    public void testAboveLastPointDouble() {
+        tent().getY(4.001);
+    }
+
+    @Test
+    public void testDuplicateX() {
+        // 2 and 2.0 are different map keys, but the same x-value
+        Map<BigDecimal, BigDecimal> cornerPoints = new HashMap<>();
+        cornerPoints.put(BigDecimal.ZERO, BigDecimal.ZERO);
+        cornerPoints.put(new BigDecimal("2"), BigDecimal.valueOf(4));
+        cornerPoints.put(new BigDecimal("2.0"), BigDecimal.valueOf(4));
+        cornerPoints.put(BigDecimal.valueOf(4), BigDecimal.ZERO);
+        ContinuousPiecewiseLinearFunction function = new ContinuousPiecewiseLinearFunction(cornerPoints);
+        Assert.assertEquals(3, function.getCornerPoints().size());
+        ContinuousPiecewiseLinearFunction reference = tent();
+        for (double x = 0; x <= 4; x += 0.125) {
+            Assert.assertEquals(reference.getY(x), function.getY(x), DELTA);
+            Assert.assertEquals(0, reference.getY(BigDecimal.valueOf(x)).compareTo(function.getY(BigDecimal.valueOf(x))));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ * Copyright by Michael Weiss, weiss.michael@gmx.ch
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.spectrumauctions.sats.core.util.math;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class FenwickTreeTest {
+
+    @Test
+    public void testPrefixSumsAndFind() {
+        Random random = new Random(5);
+        double[] weights = new double[37];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = random.nextInt(4); // Includes zero weights
+        }
+        FenwickTree tree = new FenwickTree(weights);
+        for (int update = 0; update < 100; update++) {
+            int index = random.nextInt(weights.length);
+            weights[index] = random.nextInt(4);
+            tree.set(index, weights[index]);
+
+            double sum = 0;
+            for (int i = 0; i < weights.length; i++) {
+                Assert.assertEquals(sum, tree.prefixSum(i), 1e-9);
+                if (weights[i] > 0) {
+                    // Every value within the interval of a good hits this good
+                    Assert.assertEquals(i, tree.find(sum + weights[i] / 2));
+                    Assert.assertEquals(i, tree.find(sum + weights[i]));
+                }
+                sum += weights[i];
+            }
+            Assert.assertEquals(sum, tree.total(), 1e-9);
+        }
+    }
+
+    @Test
+    public void testSamplingFrequencies() {
+        FenwickTree tree = new FenwickTree(new double[]{1, 0, 3, 0, 6});
+        Random random = new Random(6);
+        int[] counts = new int[5];
+        for (int i = 0; i < 100000; i++) {
+            counts[tree.find(random.nextDouble() * tree.total())]++;
+        }
+        Assert.assertEquals(0, counts[1]);
+        Assert.assertEquals(0, counts[3]);
+        Assert.assertEquals(0.1, counts[0] / 100000., 0.01);
+        Assert.assertEquals(0.3, counts[2] / 100000., 0.01);
+        Assert.assertEquals(0.6, counts[4] / 100000., 0.01);
+    }
+
+    @Test
+    public void testClear() {
+        Random random = new Random(7);
+        FenwickTree tree = new FenwickTree(23);
+        for (int cycle = 0; cycle < 1000; cycle++) {
+            for (int i = 0; i < 10; i++) {
+                tree.set(random.nextInt(tree.size()), random.nextDouble() * 1e3);
+            }
+            tree.clear();
+            Assert.assertEquals(0, tree.total(), 0);
+            for (int i = 0; i < tree.size(); i++) {
+                Assert.assertEquals(0, tree.prefixSum(i), 0);
+            }
+        }
+    }
+}